@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: AllocationBudgets.
+ * Checks that the operations run on every move allocate no more than their budget once the JIT
+ * has compiled them. Each operation is warmed up, then run many times between two readings of the
+ * bytes the thread has allocated. selectMove() is measured call by call over whole games, so the
+ * grid changes as in real play, with the cost of reading the allocation counter taken off.
+ * A budget of zero means the operation must not allocate at all, which keeps a zero-allocation
+ * path from quietly allocating again. Lower a budget whenever an operation gets cheaper.
+ * The shared score cache is turned off, so the AIs compute every move instead of copying the
+ * scores of boards seen in earlier games.
+ * The run exits with 1 if any operation is over budget.
+ * Run it with: java AllocationBudgets
+ */
+public class AllocationBudgets {
+    /**
+     * Calls made before measuring, so the JIT has compiled the operation.
+     */
+    private static final int WARMUP_OPS = 50_000;
+    /**
+     * Calls measured.
+     */
+    private static final int MEASURED_OPS = 20_000;
+    /**
+     * Games played to measure selectMove().
+     */
+    private static final int GAMES = 300;
+    /**
+     * Set when an operation is over its budget.
+     */
+    private static boolean failed;
+    /**
+     * Every result is folded into this so no call can be optimised away.
+     */
+    private static long sink;
+    /**
+     * Measures every operation and exits with 1 if any is over budget.
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        if (System.getProperty(ScoreCache.SIZE_PROPERTY) == null) {
+            System.setProperty(ScoreCache.SIZE_PROPERTY, "0");
+        }
+        if (!AllocationMeter.isSupported()) {
+            System.out.println("This JVM cannot measure allocations per thread");
+            System.exit(2);
+        }
+        System.out.printf(Locale.ROOT, "%-36s %12s %12s%n", "Operation", "bytes/op", "budget");
+
+        GameContext context = new GameContext(38);
+        SelectionGrid grid = new SelectionGrid(0, 0, false, context);
+        grid.populateShips();
+        List<Position> cells = new ArrayList<>();
+        for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                cells.add(new Position(x, y));
+            }
+        }
+        Collections.shuffle(cells, new Random(38));
+
+        int[] next = {0};
+        check("SelectionGrid.canPlaceShipAt", 0, () -> {
+            Position cell = cells.get(next[0]++ % cells.size());
+            return grid.canPlaceShipAt(cell.x, cell.y, 3, (next[0] & 1) == 0) ? 1 : 0;
+        });
+        checkMarkPosition(grid, cells, 0);
+        check("SelectionGrid.isPositionMarked", 0, () -> grid.isPositionMarked(cells.get(next[0]++ % cells.size())) ? 1 : 0);
+
+        checkSelectMove("SimpleRandomAI.selectMove", SimpleRandomAI::new, 0);
+        // SmarterAI still builds lists of suggested moves on every call
+        checkSelectMove("SmarterAI.selectMove (medium)", g -> new SmarterAI(g, false, true), 4_096);
+        checkSelectMove("SmarterAI.selectMove (hard)", g -> new SmarterAI(g, true, true), 4_096);
+        checkSelectMove("AnytimeAI.selectMove (no sampling)", g -> new AnytimeAI(g, 0, 0), 0);
+
+        System.out.println("(sink " + sink + ")");
+        if (failed) {
+            System.out.println("Some operations allocate more than their budget");
+            System.exit(1);
+        }
+    }
+    /**
+     * Measures the mean bytes allocated by an operation and compares them with its budget.
+     * @param name The name of the operation.
+     * @param budget Most bytes the operation may allocate per call.
+     * @param operation The operation, returning any value that depends on its work.
+     */
+    private static void check(String name, long budget, LongSupplier operation) {
+        long local = 0;
+        for (int i = 0; i < WARMUP_OPS; i++) {
+            local += operation.getAsLong();
+        }
+        long before = AllocationMeter.allocatedBytes();
+        for (int i = 0; i < MEASURED_OPS; i++) {
+            local += operation.getAsLong();
+        }
+        long bytes = AllocationMeter.allocatedBytes() - before;
+        sink += local;
+        report(name, (double) bytes / MEASURED_OPS, budget);
+    }
+    /**
+     * Measures the mean bytes allocated by markPosition() on cells that were not attacked yet.
+     * Every pass shoots each cell once, and the grid is reset with the same fleet between the
+     * passes, outside the measured calls.
+     * @param source The grid whose fleet is placed again before every pass.
+     * @param cells Every playable cell, in the order they are shot.
+     * @param budget Most bytes a shot may allocate on average.
+     */
+    private static void checkMarkPosition(SelectionGrid source, List<Position> cells, long budget) {
+        SelectionGrid grid = new SelectionGrid(0, 0, false, new GameContext(38));
+        List<Ship> fleet = new ArrayList<>(source.getShips());
+        markPasses(grid, fleet, cells, WARMUP_OPS / cells.size());
+        long overhead = meterOverhead();
+        int passes = MEASURED_OPS / cells.size();
+        long bytes = markPasses(grid, fleet, cells, passes);
+        report("SelectionGrid.markPosition", Math.max(0, (double) (bytes - overhead * passes) / (passes * cells.size())), budget);
+    }
+    /**
+     * Shoots every cell of a grid once per pass and measures the bytes allocated by the shots.
+     * @param grid The grid that is shot.
+     * @param fleet The ships placed on the grid before every pass.
+     * @param cells The cells to shoot.
+     * @param passes Number of passes.
+     * @return The total bytes allocated by the shots.
+     */
+    private static long markPasses(SelectionGrid grid, List<Ship> fleet, List<Position> cells, int passes) {
+        long bytes = 0;
+        long local = 0;
+        for (int p = 0; p < passes; p++) {
+            grid.reset();
+            for (Ship ship : fleet) {
+                grid.placeShip(ship.getGridPosition().x, ship.getGridPosition().y, ship.getSegments(), ship.isSideways());
+            }
+            long before = AllocationMeter.allocatedBytes();
+            for (int i = 0; i < cells.size(); i++) { // Indexed so no iterator is counted
+                local += grid.markPosition(cells.get(i), false) ? 1 : 0;
+            }
+            bytes += AllocationMeter.allocatedBytes() - before;
+        }
+        sink += local;
+        return bytes;
+    }
+    /**
+     * Measures the mean bytes allocated by the selectMove() of an AI over whole games.
+     * @param name The name of the operation.
+     * @param factory Creates the AI for the grid it attacks.
+     * @param budget Most bytes a move may allocate on average.
+     */
+    private static void checkSelectMove(String name, Function<SelectionGrid, BattleshipAI> factory, long budget) {
+        GameContext context = new GameContext(38);
+        SelectionGrid grid = new SelectionGrid(0, 0, false, context);
+        BattleshipAI ai = factory.apply(grid);
+        playGames(ai, grid, GAMES); // Warmup
+        long overhead = meterOverhead();
+        long[] totals = playGames(ai, grid, GAMES);
+        report(name, Math.max(0, (double) totals[0] / totals[1] - overhead), budget);
+    }
+    /**
+     * Plays whole games and measures the bytes allocated by every selectMove() call.
+     * @param ai The AI.
+     * @param grid The grid it attacks.
+     * @param games Number of games.
+     * @return The total bytes allocated by the calls and the number of calls.
+     */
+    private static long[] playGames(BattleshipAI ai, SelectionGrid grid, int games) {
+        long bytes = 0;
+        long moves = 0;
+        for (int g = 0; g < games; g++) {
+            grid.reset();
+            grid.populateShips();
+            ai.reset();
+            while (!grid.areAllShipsDestroyed()) {
+                long before = AllocationMeter.allocatedBytes();
+                Position move = ai.selectMove();
+                bytes += AllocationMeter.allocatedBytes() - before;
+                moves++;
+                grid.markPosition(move, false);
+            }
+        }
+        return new long[] {bytes, moves};
+    }
+    /**
+     * Measures the bytes counted between two readings of the allocation counter with nothing in between.
+     * @return The bytes to take off every measured call.
+     */
+    private static long meterOverhead() {
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long before = AllocationMeter.allocatedBytes();
+            least = Math.min(least, AllocationMeter.allocatedBytes() - before);
+        }
+        return least;
+    }
+    /**
+     * Prints the result of one operation and remembers if it is over budget.
+     * @param name The name of the operation.
+     * @param bytesPerOp Mean bytes allocated per call.
+     * @param budget Most bytes the operation may allocate per call.
+     */
+    private static void report(String name, double bytesPerOp, long budget) {
+        // Less than one byte per call is measurement noise, not a real allocation
+        boolean over = bytesPerOp >= budget + 1;
+        failed |= over;
+        System.out.printf(Locale.ROOT, "%-36s %12.1f %12d%s%n", name, bytesPerOp, budget, over ? "  OVER BUDGET" : "");
+    }
+}
@@ -0,0 +1,38 @@
+import java.lang.management.ManagementFactory;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: AllocationMeter.
+ * Reads how many bytes the current thread has allocated so far, using the HotSpot extension of
+ * ThreadMXBean. The difference between two readings is what the code in between allocated.
+ */
+public class AllocationMeter {
+    /**
+     * The HotSpot thread bean, or null on JVMs without it.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = findBean();
+    /**
+     * Finds the HotSpot thread bean and turns on allocation counting.
+     * @return The bean, or null if allocation counting is not supported.
+     */
+    private static com.sun.management.ThreadMXBean findBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemorySupported()) return null;
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+    /**
+     * Gets if allocations can be measured on this JVM.
+     * @return True if allocatedBytes() works.
+     */
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+    /**
+     * Gets the number of bytes the current thread has allocated since it started.
+     * @return The allocated bytes, or -1 if this is not supported.
+     */
+    public static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,103 @@
+import java.util.Locale;
+import java.util.function.LongSupplier;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: BenchHarness.
+ * Times small pieces of code the way JMH does, for a project whose classes are all in the default
+ * package, which JMH cannot generate benchmarks for. Every benchmark is first run through warmup
+ * iterations so the JIT compiles it, then through measured iterations of a fixed length. The
+ * result of every call is folded into a sink that is printed at the end, so the JIT cannot remove
+ * the work as dead code. The report is the mean time per call with the spread over iterations.
+ */
+public class BenchHarness {
+    /**
+     * Number of warmup iterations.
+     */
+    private final int warmupIterations;
+    /**
+     * Number of measured iterations.
+     */
+    private final int measuredIterations;
+    /**
+     * Length of each iteration in nanoseconds.
+     */
+    private final long iterationNanos;
+    /**
+     * Only benchmarks whose name contains this are run, or all when empty.
+     */
+    private final String filter;
+    /**
+     * Every result is folded into this so no call can be optimised away.
+     */
+    private long sink;
+    /**
+     * Creates a harness.
+     * @param warmupIterations Number of warmup iterations.
+     * @param measuredIterations Number of measured iterations.
+     * @param iterationMillis Length of each iteration in milliseconds.
+     * @param filter Only benchmarks whose name contains this are run, or all when empty.
+     */
+    public BenchHarness(int warmupIterations, int measuredIterations, long iterationMillis, String filter) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.filter = filter;
+        System.out.printf(Locale.ROOT, "%-48s %12s %10s %14s%n", "Benchmark", "ns/op", "error", "ops");
+    }
+    /**
+     * Runs one benchmark and prints its result.
+     * @param name The name of the benchmark.
+     * @param operation The code to time, returning any value that depends on its work.
+     */
+    public void run(String name, LongSupplier operation) {
+        if (!name.contains(filter)) return;
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation);
+        }
+        double[] nanosPerOp = new double[measuredIterations];
+        long totalOps = 0;
+        for (int i = 0; i < measuredIterations; i++) {
+            long[] result = iteration(operation);
+            nanosPerOp[i] = (double) result[0] / result[1];
+            totalOps += result[1];
+        }
+        double mean = 0;
+        for (double value : nanosPerOp) {
+            mean += value / measuredIterations;
+        }
+        double variance = 0;
+        for (double value : nanosPerOp) {
+            variance += (value - mean) * (value - mean) / Math.max(1, measuredIterations - 1);
+        }
+        System.out.printf(Locale.ROOT, "%-48s %12.1f %10.1f %14d%n", name, mean, Math.sqrt(variance), totalOps);
+    }
+    /**
+     * Calls the operation until the iteration time is used up. The clock is read once every
+     * batch of calls, with the batch growing so reading it costs nothing next to the work.
+     * @param operation The code to time.
+     * @return The elapsed nanoseconds and the number of calls.
+     */
+    private long[] iteration(LongSupplier operation) {
+        long batch = 1;
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        long local = 0;
+        do {
+            for (long i = 0; i < batch; i++) {
+                local += operation.getAsLong();
+            }
+            ops += batch;
+            elapsed = System.nanoTime() - start;
+            if (elapsed < iterationNanos / 100) batch *= 2;
+        } while (elapsed < iterationNanos);
+        sink += local;
+        return new long[] {elapsed, ops};
+    }
+    /**
+     * Prints the sink, so the results of every call are used.
+     */
+    public void finish() {
+        System.out.println("(sink " + sink + ")");
+    }
+}
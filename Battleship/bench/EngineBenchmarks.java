@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: EngineBenchmarks.
+ * Microbenchmarks of the grid, ship and AI code that runs on every move, so every performance
+ * change can be checked with numbers. Every fixture comes from a fixed seed, so two runs on the
+ * same machine time the same work.
+ * The AIs are timed at three stages of a game: EARLY after three shots, MID once two ships are
+ * sunk and LATE once four ships are sunk. Each AI reaches the stage by playing itself, and its
+ * state is saved then so every call of selectMove() starts from the same position. Restoring the
+ * state is part of each call, so a restore-only benchmark is listed next to it for subtraction.
+ * The shared score cache is turned off, since repeating the same position would otherwise time
+ * only cache hits; start it with -Dbattleship.scoreCache.mb=4 to time the hits instead.
+ * Run it with: java EngineBenchmarks [name filter] [iteration milliseconds]
+ */
+public class EngineBenchmarks {
+    /**
+     * Seed of every fixture.
+     */
+    private static final long SEED = 20231;
+    /**
+     * The stages of a game the AIs are timed at.
+     */
+    private enum Stage {
+        /**
+         * After three shots.
+         */
+        EARLY(-1),
+        /**
+         * Once two ships are sunk.
+         */
+        MID(2),
+        /**
+         * Once four ships are sunk.
+         */
+        LATE(4);
+        /**
+         * Number of sunk ships that ends the stage, or -1 to stop after three shots.
+         */
+        final int sunkShips;
+        /**
+         * Creates a stage.
+         * @param sunkShips Number of sunk ships that ends the stage, or -1 to stop after three shots.
+         */
+        Stage(int sunkShips) {
+            this.sunkShips = sunkShips;
+        }
+    }
+    /**
+     * The AIs that are timed, by name.
+     */
+    private static final String[] AI_NAMES = {"EASY", "MEDIUM", "HARD", "DENSITY", "EXPERT"};
+    /**
+     * Creates the AI with a name.
+     * @param name One of AI_NAMES.
+     * @param grid The grid the AI attacks.
+     * @return The AI.
+     */
+    private static BattleshipAI createAI(String name, SelectionGrid grid) {
+        switch (name) {
+            case "DENSITY":
+                return new AnytimeAI(grid, 0, 0);
+            case "EXPERT":
+                return BattleshipAI.forDifficulty(Game.GameDifficulty.EXPERT, grid);
+            default:
+                return BattleshipAI.forDifficulty(Game.GameDifficulty.valueOf(name), grid);
+        }
+    }
+    /**
+     * Runs every benchmark whose name contains the filter.
+     * @param args Optional name filter and iteration length in milliseconds.
+     * @throws IOException If a saved AI state cannot be read back.
+     */
+    public static void main(String[] args) throws IOException {
+        if (System.getProperty(ScoreCache.SIZE_PROPERTY) == null) {
+            System.setProperty(ScoreCache.SIZE_PROPERTY, "0");
+        }
+        String filter = args.length > 0 ? args[0] : "";
+        long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 500;
+        BenchHarness harness = new BenchHarness(5, 5, iterationMillis, filter);
+        gridBenchmarks(harness);
+        aiBenchmarks(harness);
+        gameBenchmarks(harness);
+        harness.finish();
+    }
+    /**
+     * Times canPlaceShipAt(), markPosition(), populateShips() and Ship.getOccupiedCoordinates().
+     * @param harness The harness.
+     */
+    private static void gridBenchmarks(BenchHarness harness) {
+        GameContext context = new GameContext(SEED);
+        SelectionGrid empty = new SelectionGrid(0, 0, false, context);
+        SelectionGrid full = new SelectionGrid(0, 0, false, context);
+        full.populateShips();
+        List<Position> cells = shuffledCells(new Random(SEED));
+
+        int[] next = {0};
+        harness.run("grid.canPlaceShipAt empty", () -> {
+            Position cell = cells.get(next[0]++ % cells.size());
+            return empty.canPlaceShipAt(cell.x, cell.y, 4, (next[0] & 1) == 0) ? 1 : 0;
+        });
+        harness.run("grid.canPlaceShipAt fleet", () -> {
+            Position cell = cells.get(next[0]++ % cells.size());
+            return full.canPlaceShipAt(cell.x, cell.y, 4, (next[0] & 1) == 0) ? 1 : 0;
+        });
+
+        // Every cell is marked once, then the grid is reset with the same fleet, 1/100 of which is counted per call
+        SelectionGrid target = new SelectionGrid(0, 0, false, context);
+        List<Ship> fleet = new ArrayList<>(full.getShips());
+        int[] marked = {cells.size()};
+        harness.run("grid.markPosition", () -> {
+            if (marked[0] == cells.size()) {
+                placeFleet(target, fleet);
+                marked[0] = 0;
+            }
+            return target.markPosition(cells.get(marked[0]++), false) ? 1 : 0;
+        });
+
+        SelectionGrid populated = new SelectionGrid(0, 0, false, context);
+        harness.run("grid.populateShips (with reset)", () -> {
+            populated.reset();
+            populated.populateShips();
+            return populated.getShips().size();
+        });
+
+        harness.run("ship.getOccupiedCoordinates", () -> fleet.get(next[0]++ % fleet.size()).getOccupiedCoordinates().size());
+    }
+    /**
+     * Times reset() and selectMove() of every AI at every stage.
+     * @param harness The harness.
+     * @throws IOException If a saved AI state cannot be read back.
+     */
+    private static void aiBenchmarks(BenchHarness harness) throws IOException {
+        for (String name : AI_NAMES) {
+            GameContext context = new GameContext(SEED);
+            SelectionGrid grid = new SelectionGrid(0, 0, false, context);
+            grid.populateShips();
+            BattleshipAI ai = createAI(name, grid);
+            harness.run("ai.reset " + name, () -> {
+                ai.reset();
+                return ai.validMoves.size();
+            });
+        }
+        for (String name : AI_NAMES) {
+            for (Stage stage : Stage.values()) {
+                GameContext context = new GameContext(SEED);
+                SelectionGrid grid = new SelectionGrid(0, 0, false, context);
+                grid.populateShips();
+                BattleshipAI ai = createAI(name, grid);
+                playTo(ai, grid, stage);
+                BitWriter writer = new BitWriter(256);
+                ai.writeState(writer);
+                byte[] state = writer.toByteArray();
+                ai.readState(new BitReader(state, 0, state.length)); // Check the state reads back before timing it
+
+                harness.run("ai.restoreOnly " + name + " " + stage, () -> {
+                    restore(ai, state);
+                    return ai.validMoves.size();
+                });
+                harness.run("ai.selectMove " + name + " " + stage, () -> {
+                    restore(ai, state);
+                    Position move = ai.selectMove();
+                    return move.x * 16 + move.y;
+                });
+            }
+        }
+    }
+    /**
+     * Times whole games of every AI against a new random fleet each time.
+     * @param harness The harness.
+     */
+    private static void gameBenchmarks(BenchHarness harness) {
+        for (String name : AI_NAMES) {
+            GameContext context = new GameContext(SEED);
+            SelectionGrid grid = new SelectionGrid(0, 0, false, context);
+            BattleshipAI ai = createAI(name, grid);
+            harness.run("game.full " + name, () -> {
+                grid.reset();
+                grid.populateShips();
+                ai.reset();
+                int shots = 0;
+                while (!grid.areAllShipsDestroyed()) {
+                    grid.markPosition(ai.selectMove(), false);
+                    shots++;
+                }
+                return shots;
+            });
+        }
+    }
+    /**
+     * Lets an AI attack its grid until a stage is reached.
+     * @param ai The AI.
+     * @param grid The grid it attacks.
+     * @param stage The stage to stop at.
+     */
+    private static void playTo(BattleshipAI ai, SelectionGrid grid, Stage stage) {
+        int shots = 0;
+        while (stage.sunkShips < 0 ? shots < 3 : sunkShips(grid) < stage.sunkShips) {
+            grid.markPosition(ai.selectMove(), false);
+            shots++;
+        }
+    }
+    /**
+     * Counts the sunk ships on a grid.
+     * @param grid The grid.
+     * @return The number of destroyed ships.
+     */
+    private static int sunkShips(SelectionGrid grid) {
+        int sunk = 0;
+        for (Ship ship : grid.getShips()) {
+            if (ship.isDestroyed()) sunk++;
+        }
+        return sunk;
+    }
+    /**
+     * Puts an AI back into a saved state.
+     * @param ai The AI.
+     * @param state The state saved with writeState().
+     */
+    private static void restore(BattleshipAI ai, byte[] state) {
+        try {
+            ai.readState(new BitReader(state, 0, state.length));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    /**
+     * Clears a grid and places a copy of a fleet on it.
+     * @param grid The grid.
+     * @param fleet The ships to copy.
+     */
+    private static void placeFleet(SelectionGrid grid, List<Ship> fleet) {
+        grid.reset();
+        for (Ship ship : fleet) {
+            grid.placeShip(ship.getGridPosition().x, ship.getGridPosition().y, ship.getSegments(), ship.isSideways());
+        }
+    }
+    /**
+     * Lists every playable cell in a random order.
+     * @param rand The random generator.
+     * @return The cells.
+     */
+    private static List<Position> shuffledCells(Random rand) {
+        List<Position> cells = new ArrayList<>();
+        for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                cells.add(new Position(x, y));
+            }
+        }
+        Collections.shuffle(cells, rand);
+        return cells;
+    }
+}
@@ -0,0 +1,396 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: MacroBenchmark.
+ * Plays a fixed corpus of whole games through Match for each AI, the way GamePanel drives them,
+ * to catch slowdowns that only show when the turn logic, the grids and the AIs work together.
+ * The computer side is the AI being measured and the player side is a SimpleRandomAI, both seeded,
+ * so the corpus is the same every run. For each AI it reports games per second, the mean time of
+ * the AI's selectMove(), the bytes allocated per game and the mean shots the AI needed to win.
+ * Every run plays its corpus again and again for at least half a second, after warm-up runs, and
+ * between two plays of the corpus it runs a fixed reference workload that does not touch the game
+ * for a short slice of time. Games per second are compared with the baseline relative to the speed
+ * of that reference during the same run, so when the machine is slower or busier both slow down
+ * together and it does not count as a regression. The run fails with exit code 1 when the median
+ * relative games per second of any AI drop by more than the tolerance. The corpora are measured in
+ * several new JVMs one after the other and the median JVM is compared, since the JIT and the
+ * garbage collector settle differently in every JVM.
+ * The shared ScoreCache is turned off unless its size is set, because the corpus is replayed and
+ * would otherwise only measure cache hits.
+ * A commit that changes throughput on purpose must write a new baseline with --update in the
+ * same commit, so the gate keeps catching the changes that are not on purpose.
+ * Run it with: java MacroBenchmark [--update] [--tolerance fraction] [--baseline file] [--forks count]
+ */
+public class MacroBenchmark {
+    /**
+     * Baseline file used when none is given, relative to the project directory.
+     */
+    private static final String DEFAULT_BASELINE = "Battleship/bench/macro-baseline.properties";
+    /**
+     * Largest drop in games per second that still passes when none is given.
+     */
+    private static final double DEFAULT_TOLERANCE = 0.15;
+    /**
+     * Number of JVMs the corpora are measured in when none is given, the median JVM is reported.
+     * The JIT and the garbage collector settle differently in every JVM, so one JVM is not enough.
+     */
+    private static final int DEFAULT_FORKS = 3;
+    /**
+     * Seed of the corpus.
+     */
+    private static final long SEED = 37;
+    /**
+     * Number of measured runs of the corpus, the median is reported.
+     */
+    private static final int RUNS = 5;
+    /**
+     * Number of runs of the corpus before the measured ones, so the JIT has compiled the game.
+     */
+    private static final int WARMUP_RUNS = 2;
+    /**
+     * Shortest time of one run. The corpus is played again until it is over, so short corpora
+     * are not timed by a handful of clock ticks.
+     */
+    private static final long MIN_RUN_NANOS = 500_000_000L;
+    /**
+     * Shortest time of one slice of the reference workload, run before every play of the corpus.
+     * Slices before a long corpus take a quarter of the time of the previous play, so the
+     * reference is not timed much less than the corpus.
+     */
+    private static final long REFERENCE_SLICE_NANOS = 20_000_000L;
+    /**
+     * Number of ints sorted by one pass of the reference workload.
+     */
+    private static final int REFERENCE_SIZE = 4096;
+    /**
+     * The AIs measured, with the number of games in their corpus.
+     */
+    private static final Object[][] CORPUS = {
+            {Game.GameDifficulty.EASY, 2000},
+            {Game.GameDifficulty.MEDIUM, 2000},
+            {Game.GameDifficulty.HARD, 2000},
+            {Game.GameDifficulty.EXPERT, 10},
+    };
+    /**
+     * Folds in a result of every pass of the reference workload, printed at the end so the JIT cannot remove the work.
+     */
+    private static long sink;
+    /**
+     * The measurements of one run of a corpus.
+     */
+    private static class Result {
+        /**
+         * Games played per second.
+         */
+        double gamesPerSecond;
+        /**
+         * Mean time of the computer's selectMove() in microseconds.
+         */
+        double microsPerMove;
+        /**
+         * Bytes allocated per game, or -1 if this cannot be measured.
+         */
+        double bytesPerGame;
+        /**
+         * Mean number of shots the computer needed in the games it won.
+         */
+        double meanShotsToWin;
+        /**
+         * Passes of the reference workload per second during the run.
+         */
+        double referencePerSecond;
+        /**
+         * Games per second divided by passes of the reference workload per second.
+         */
+        double relativeThroughput;
+    }
+    /**
+     * The shuffled ints sorted by the reference workload.
+     */
+    private static final int[] REFERENCE_INPUT = new int[REFERENCE_SIZE];
+    /**
+     * The array the reference workload sorts in, reused so the workload allocates nothing.
+     */
+    private static final int[] referenceWork = new int[REFERENCE_SIZE];
+    static {
+        Random rand = new Random(SEED);
+        for (int i = 0; i < REFERENCE_INPUT.length; i++) {
+            REFERENCE_INPUT[i] = rand.nextInt();
+        }
+    }
+    /**
+     * Runs the reference workload for one slice of time: sorting the same shuffled ints again and
+     * again, which needs the processor and memory like the game does but none of its code.
+     * @param sliceNanos Time to run for.
+     * @param totals Adds the passes done at index 0 and the nanoseconds taken at index 1.
+     */
+    private static void runReferenceSlice(long sliceNanos, long[] totals) {
+        long passes = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            System.arraycopy(REFERENCE_INPUT, 0, referenceWork, 0, REFERENCE_SIZE);
+            Arrays.sort(referenceWork);
+            sink += referenceWork[(int) (passes++ % REFERENCE_SIZE)];
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < sliceNanos);
+        totals[0] += passes;
+        totals[1] += elapsed;
+    }
+    /**
+     * Plays the corpus of one AI until at least MIN_RUN_NANOS have passed, starting the corpus
+     * again from its seed each time, with a slice of the reference workload before every play.
+     * @param difficulty The difficulty of the computer's AI.
+     * @param games Number of games in the corpus.
+     * @return The measurements over every game played.
+     */
+    private static Result measure(Game.GameDifficulty difficulty, int games) {
+        Result total = new Result();
+        long[] reference = new long[2];
+        long repeats = 0;
+        long corpusNanos = 0;
+        long playNanos = 0;
+        do {
+            runReferenceSlice(Math.max(REFERENCE_SLICE_NANOS, playNanos / 4), reference);
+            long start = System.nanoTime();
+            Result corpus = playCorpus(difficulty, games);
+            playNanos = System.nanoTime() - start;
+            corpusNanos += playNanos;
+            total.microsPerMove += corpus.microsPerMove;
+            total.bytesPerGame += corpus.bytesPerGame;
+            total.meanShotsToWin = corpus.meanShotsToWin; // The same every time, the corpus is seeded
+            repeats++;
+        } while (corpusNanos < MIN_RUN_NANOS);
+        total.gamesPerSecond = repeats * games / (corpusNanos / 1e9);
+        total.microsPerMove /= repeats;
+        total.bytesPerGame = total.bytesPerGame < 0 ? -1 : total.bytesPerGame / repeats;
+        total.referencePerSecond = reference[0] / (reference[1] / 1e9);
+        total.relativeThroughput = total.gamesPerSecond / total.referencePerSecond;
+        return total;
+    }
+    /**
+     * Plays the corpus of one AI once.
+     * @param difficulty The difficulty of the computer's AI.
+     * @param games Number of games.
+     * @return The measurements.
+     */
+    private static Result playCorpus(Game.GameDifficulty difficulty, int games) {
+        Match match = Match.createHeadless(difficulty, new GameContext(SEED));
+        BattleshipAI computerAI = match.getAIController();
+        BattleshipAI playerAI = new SimpleRandomAI(match.getComputerGrid());
+        long moves = 0;
+        long moveNanos = 0;
+        long wins = 0;
+        long winningShots = 0;
+
+        long startBytes = AllocationMeter.allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            match.restart();
+            playerAI.reset();
+            match.placePlayerShipsRandomly();
+            int shots = 0;
+            while (match.getGameState() == GamePanel.GameState.FiringShots) {
+                if (match.isComputerTurn()) {
+                    long moveStart = System.nanoTime();
+                    Position move = computerAI.selectMove();
+                    moveNanos += System.nanoTime() - moveStart;
+                    moves++;
+                    shots++;
+                    match.fireComputerShot(move);
+                } else {
+                    match.firePlayerShot(playerAI.selectMove());
+                }
+            }
+            if (match.getWinner() == GameEvent.COMPUTER) {
+                wins++;
+                winningShots += shots;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long endBytes = AllocationMeter.allocatedBytes();
+
+        Result result = new Result();
+        result.gamesPerSecond = games / (elapsed / 1e9);
+        result.microsPerMove = moveNanos / 1e3 / Math.max(1, moves);
+        result.bytesPerGame = startBytes < 0 ? -1 : (double) (endBytes - startBytes) / games;
+        result.meanShotsToWin = wins == 0 ? 0 : (double) winningShots / wins;
+        return result;
+    }
+    /**
+     * Measures every corpus in this JVM.
+     * @return The median run of every AI, by key DIFFICULTY.measurement.
+     */
+    private static Properties measureAll() {
+        Properties results = new Properties();
+        for (Object[] entry : CORPUS) {
+            Game.GameDifficulty difficulty = (Game.GameDifficulty) entry[0];
+            int games = (Integer) entry[1];
+            for (int r = 0; r < WARMUP_RUNS; r++) {
+                measure(difficulty, games); // So the JIT has compiled the game before it is timed
+            }
+            Result[] runs = new Result[RUNS];
+            for (int r = 0; r < RUNS; r++) {
+                runs[r] = measure(difficulty, games);
+            }
+            Arrays.sort(runs, (a, b) -> Double.compare(a.relativeThroughput, b.relativeThroughput));
+            Result median = runs[RUNS / 2];
+
+            String key = difficulty.name();
+            results.setProperty(key + ".gamesPerSecond", format(median.gamesPerSecond));
+            results.setProperty(key + ".relativeThroughput", String.format(Locale.ROOT, "%.6g", median.relativeThroughput));
+            results.setProperty(key + ".microsPerMove", format(median.microsPerMove));
+            results.setProperty(key + ".bytesPerGame", format(median.bytesPerGame));
+            results.setProperty(key + ".meanShotsToWin", format(median.meanShotsToWin));
+        }
+        System.out.println("(sink " + sink + ")");
+        return results;
+    }
+    /**
+     * Measures every corpus in a new JVM with the same class path, JVM options and system properties.
+     * @return The results of the forked JVM.
+     * @throws IOException If the JVM cannot be started or fails.
+     */
+    private static Properties measureInFork() throws IOException {
+        Path output = Files.createTempFile("macro-benchmark", ".properties");
+        try {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(MacroBenchmark.class.getName());
+            command.add("--child");
+            command.add(output.toString());
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            int exitCode;
+            try {
+                exitCode = process.waitFor();
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the forked JVM", e);
+            }
+            if (exitCode != 0) throw new IOException("Forked JVM exited with " + exitCode);
+            Properties results = new Properties();
+            try (Reader reader = Files.newBufferedReader(output, StandardCharsets.ISO_8859_1)) {
+                results.load(reader);
+            }
+            return results;
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+    /**
+     * Measures every corpus in FORKS new JVMs, compares the median of the forks with the baseline
+     * and exits with 1 on a regression.
+     * @param args Optional --update, --tolerance fraction, --baseline file and --forks count.
+     * @throws IOException If the baseline cannot be read or written or a forked JVM fails.
+     */
+    public static void main(String[] args) throws IOException {
+        if (System.getProperty(ScoreCache.SIZE_PROPERTY) == null) {
+            System.setProperty(ScoreCache.SIZE_PROPERTY, "0"); // Replayed corpora would only measure cache hits
+        }
+        boolean update = false;
+        double tolerance = DEFAULT_TOLERANCE;
+        int forks = DEFAULT_FORKS;
+        Path baselinePath = Paths.get(DEFAULT_BASELINE);
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--update")) {
+                update = true;
+            } else if (args[i].equals("--tolerance")) {
+                tolerance = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--baseline")) {
+                baselinePath = Paths.get(args[++i]);
+            } else if (args[i].equals("--forks")) {
+                forks = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--child")) {
+                try (Writer writer = Files.newBufferedWriter(Paths.get(args[++i]), StandardCharsets.ISO_8859_1)) {
+                    measureAll().store(writer, null);
+                }
+                return;
+            }
+        }
+
+        Properties baseline = new Properties();
+        if (Files.exists(baselinePath)) {
+            try (Reader reader = Files.newBufferedReader(baselinePath, StandardCharsets.ISO_8859_1)) {
+                baseline.load(reader);
+            }
+        }
+        Properties[] forkResults = new Properties[forks];
+        for (int f = 0; f < forks; f++) {
+            System.out.printf(Locale.ROOT, "Fork %d of %d%n", f + 1, forks);
+            forkResults[f] = measureInFork();
+        }
+
+        Properties current = new Properties();
+        boolean regressed = false;
+        System.out.printf(Locale.ROOT, "%-8s %12s %12s %12s %10s %12s %10s%n", "AI", "games/s", "us/move", "bytes/game", "shots", "games/ref", "vs base");
+        for (Object[] entry : CORPUS) {
+            String key = ((Game.GameDifficulty) entry[0]).name();
+            Properties[] sorted = forkResults.clone();
+            Arrays.sort(sorted, (a, b) -> Double.compare(value(a, key, "relativeThroughput"), value(b, key, "relativeThroughput")));
+            Properties median = sorted[forks / 2];
+            for (String measurement : new String[] {"gamesPerSecond", "relativeThroughput", "microsPerMove", "bytesPerGame", "meanShotsToWin"}) {
+                current.setProperty(key + "." + measurement, median.getProperty(key + "." + measurement));
+            }
+            double relative = value(median, key, "relativeThroughput");
+
+            String change = "new";
+            String base = baseline.getProperty(key + ".relativeThroughput");
+            if (base != null) {
+                double ratio = relative / Double.parseDouble(base);
+                change = String.format(Locale.ROOT, "%+.1f%%", (ratio - 1) * 100);
+                if (ratio < 1 - tolerance) {
+                    change += " FAIL";
+                    regressed = true;
+                }
+            }
+            System.out.printf(Locale.ROOT, "%-8s %12.1f %12.1f %12.0f %10.2f %12.4g %10s%n", key, value(median, key, "gamesPerSecond"),
+                    value(median, key, "microsPerMove"), value(median, key, "bytesPerGame"), value(median, key, "meanShotsToWin"), relative, change);
+        }
+
+        if (update) {
+            try (Writer writer = Files.newBufferedWriter(baselinePath, StandardCharsets.ISO_8859_1)) {
+                current.store(writer, "MacroBenchmark baseline, regenerate with: java MacroBenchmark --update");
+            }
+            System.out.println("Baseline written to " + baselinePath);
+        } else if (regressed) {
+            System.out.printf(Locale.ROOT, "Games per second dropped by more than %.0f%% against %s%n", tolerance * 100, baselinePath);
+            System.out.println("If the change is on purpose, write a new baseline with --update in the same commit.");
+            System.exit(1);
+        }
+    }
+    /**
+     * Reads one measurement of an AI from a set of results.
+     * @param results The results.
+     * @param key The difficulty of the AI.
+     * @param measurement The name of the measurement, for example gamesPerSecond.
+     * @return The value.
+     */
+    private static double value(Properties results, String key, String measurement) {
+        return Double.parseDouble(results.getProperty(key + "." + measurement));
+    }
+    /**
+     * Formats a measurement for the baseline file.
+     * @param value The measurement.
+     * @return The value with two decimals.
+     */
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.IOException;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: SnapshotMetricsCheck.
+ * Checks that a game resumed from a snapshot is not counted in the Metrics. A game is saved part
+ * way through, restored into the match that is still playing it and into a new match, and both
+ * are played to the end without the number of finished games changing. Restoring must also end
+ * the active game the match was playing.
+ * The run exits with 1 if any check fails.
+ * Run it with: java SnapshotMetricsCheck
+ */
+public class SnapshotMetricsCheck {
+    /**
+     * Seed of the game that is saved.
+     */
+    private static final long SEED = 41;
+    /**
+     * Shots the player fires before the game is saved.
+     */
+    private static final int SHOTS_BEFORE_SAVE = 10;
+    /**
+     * The difficulty the games are played at.
+     */
+    private static final Game.GameDifficulty DIFFICULTY = Game.GameDifficulty.EASY;
+    /**
+     * Set when a check fails.
+     */
+    private static boolean failed;
+    /**
+     * Runs every check and exits with 1 if any fails.
+     * @param args Not used.
+     * @throws IOException If the snapshot cannot be restored.
+     */
+    public static void main(String[] args) throws IOException {
+        Match match = Match.createHeadless(DIFFICULTY, new GameContext(SEED));
+        match.restart();
+        match.placePlayerShipsRandomly();
+        for (int i = 0; i < SHOTS_BEFORE_SAVE; i++) {
+            fireNextShot(match);
+        }
+        byte[] snapshot = GameSnapshot.save(match);
+
+        long finished = finishedGames();
+        long active = Metrics.getActiveGames();
+        GameSnapshot.restore(match, snapshot);
+        check("restoring ends the game being played", Metrics.getActiveGames(), active - 1);
+        playToEnd(match);
+        check("a game restored into its own match is not finished", finishedGames(), finished);
+
+        Match other = Match.createHeadless(DIFFICULTY, new GameContext(SEED + 1));
+        other.restart();
+        active = Metrics.getActiveGames();
+        GameSnapshot.restore(other, snapshot);
+        check("restoring ends the new game", Metrics.getActiveGames(), active - 1);
+        playToEnd(other);
+        check("a game restored into a new match is not finished", finishedGames(), finished);
+        check("no game is left active", Metrics.getActiveGames(), 0);
+
+        if (failed) {
+            System.out.println("Resumed games are counted in the Metrics");
+            System.exit(1);
+        }
+    }
+    /**
+     * Fires the player's shot at the first cell of the computer's grid that was not attacked,
+     * and lets the computer answer if it has to.
+     * @param match The match.
+     */
+    private static void fireNextShot(Match match) {
+        SelectionGrid grid = match.getComputerGrid();
+        for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                Position cell = new Position(x, y);
+                if (!grid.isPositionMarked(cell)) {
+                    match.firePlayerShot(cell);
+                    match.doAITurn();
+                    return;
+                }
+            }
+        }
+    }
+    /**
+     * Plays a match until the game is over.
+     * @param match The match.
+     */
+    private static void playToEnd(Match match) {
+        while (match.getGameState() == GamePanel.GameState.FiringShots) {
+            fireNextShot(match);
+        }
+    }
+    /**
+     * Gets the number of games finished at the difficulty of the checks.
+     * @return The games won by either side.
+     */
+    private static long finishedGames() {
+        return Metrics.getPlayerWins(DIFFICULTY) + Metrics.getComputerWins(DIFFICULTY);
+    }
+    /**
+     * Prints the result of a check.
+     * @param name What is checked.
+     * @param actual The value found.
+     * @param expected The value expected.
+     */
+    private static void check(String name, long actual, long expected) {
+        boolean passed = actual == expected;
+        System.out.println((passed ? "PASS " : "FAIL ") + name + " (" + actual + ", expected " + expected + ")");
+        failed |= !passed;
+    }
+}
@@ -0,0 +1,313 @@
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongFunction;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: AIScheduler.
+ * Runs the moves of many AIs on one shared pool of worker threads, so an expensive AI in one
+ * session cannot hold up the moves of the others. Every session has its own queue and the workers
+ * take one request from each session with work in turn, so a session that asks for many moves
+ * only gets its fair share. Each request has a deadline that covers the time spent waiting as well
+ * as computing, and AIs that can stop early are given what is left of it, so a move is late by at
+ * most one cheap computation even when the pool is busy. At most maxQueued requests may wait,
+ * further ones are rejected so the caller can compute the move itself.
+ * The workers belong to a ForkJoinPool, so AIs that split their work into subtasks share the
+ * workers by work stealing.
+ */
+public class AIScheduler implements AutoCloseable {
+    /**
+     * Logger for moves that failed on the pool.
+     */
+    private static final GameLog LOG = GameLog.getLogger("AIScheduler");
+    /**
+     * Number of buckets of the wait time histogram, one for each power of two of nanoseconds.
+     */
+    private static final int WAIT_BUCKETS = 64;
+    /**
+     * A move waiting to be computed.
+     * @param <T> The type of the result.
+     */
+    private static class Request<T> {
+        /**
+         * Computes the result, given the deadline.
+         */
+        final LongFunction<T> task;
+        /**
+         * System.nanoTime() by which the result should be ready.
+         */
+        final long deadline;
+        /**
+         * System.nanoTime() when the request was queued.
+         */
+        final long queuedAt;
+        /**
+         * Completed with the result.
+         */
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        /**
+         * Creates a request.
+         * @param task Computes the result.
+         * @param deadline System.nanoTime() by which the result should be ready.
+         * @param queuedAt System.nanoTime() when the request was queued.
+         */
+        Request(LongFunction<T> task, long deadline, long queuedAt) {
+            this.task = task;
+            this.deadline = deadline;
+            this.queuedAt = queuedAt;
+        }
+    }
+    /**
+     * The pool running the workers.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Most workers taking requests at once.
+     */
+    private final int parallelism;
+    /**
+     * Most requests that may wait.
+     */
+    private final int maxQueued;
+    /**
+     * The queue of every session with waiting requests.
+     */
+    private final Map<Object, ArrayDeque<Request<?>>> queues = new HashMap<>();
+    /**
+     * Sessions with waiting requests in the order they will be served.
+     */
+    private final ArrayDeque<Object> turns = new ArrayDeque<>();
+    /**
+     * Number of waiting requests.
+     */
+    private int queued;
+    /**
+     * Number of workers taking requests.
+     */
+    private int workers;
+    /**
+     * Set when the scheduler is closed.
+     */
+    private boolean closed;
+    /**
+     * Number of requests computed.
+     */
+    private final AtomicLong completed = new AtomicLong();
+    /**
+     * Number of requests that only started after their deadline.
+     */
+    private final AtomicLong late = new AtomicLong();
+    /**
+     * Number of requests rejected because too many were waiting.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+    /**
+     * Total time requests waited before they started, in nanoseconds.
+     */
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    /**
+     * Number of requests that waited less than 2 to the power of (index + 1) nanoseconds.
+     */
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_BUCKETS);
+    /**
+     * Creates a scheduler with its own pool.
+     * @param parallelism Number of worker threads.
+     * @param maxQueued Most requests that may wait.
+     */
+    public AIScheduler(int parallelism, int maxQueued) {
+        this.parallelism = parallelism;
+        this.maxQueued = maxQueued;
+        pool = new ForkJoinPool(parallelism);
+    }
+    /**
+     * Queues a move for a session.
+     * @param session The session asking, requests of one session run in the order they were made.
+     * @param budgetNanos Time from now by which the result should be ready, including the wait.
+     * @param task Computes the result, given the System.nanoTime() deadline.
+     * @param <T> The type of the result.
+     * @return Completed with the result, or failed with RejectedExecutionException if too many requests are waiting.
+     */
+    public <T> CompletableFuture<T> submit(Object session, long budgetNanos, LongFunction<T> task) {
+        long now = System.nanoTime();
+        Request<T> request = new Request<>(task, now + budgetNanos, now);
+        boolean startWorker = false;
+        synchronized (this) {
+            if (closed || queued >= maxQueued) {
+                rejected.incrementAndGet();
+                request.future.completeExceptionally(new RejectedExecutionException(closed ? "AI scheduler closed" : "AI scheduler full"));
+                return request.future;
+            }
+            ArrayDeque<Request<?>> queue = queues.get(session);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(session, queue);
+                turns.add(session);
+            }
+            queue.add(request);
+            queued++;
+            if (workers < parallelism) {
+                workers++;
+                startWorker = true;
+            }
+        }
+        if (startWorker) {
+            pool.execute(this::work);
+        }
+        return request.future;
+    }
+    /**
+     * Computes a move on the pool and waits for it. If the pool is full, or the scheduler is closed
+     * before the move was computed, the move is computed on the calling thread with the deadline
+     * already passed, so the AI does as little as it can.
+     * @param session The session asking.
+     * @param budgetNanos Time from now by which the result should be ready, including the wait.
+     * @param task Computes the result, given the System.nanoTime() deadline.
+     * @param <T> The type of the result.
+     * @return The result.
+     * @throws IllegalStateException If the task failed on the pool.
+     */
+    public <T> T call(Object session, long budgetNanos, LongFunction<T> task) {
+        CompletableFuture<T> future = submit(session, budgetNanos, task);
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                return task.apply(System.nanoTime());
+            }
+            LOG.error("AI move failed on the scheduler", e.getCause() != null ? e.getCause() : e);
+            throw new IllegalStateException("AI MOVE FAILED");
+        }
+    }
+    /**
+     * Takes requests from the sessions in turn until none are waiting.
+     */
+    private void work() {
+        while (true) {
+            Request<?> request;
+            synchronized (this) {
+                Object session = turns.poll();
+                if (session == null) {
+                    workers--;
+                    return;
+                }
+                ArrayDeque<Request<?>> queue = queues.get(session);
+                request = queue.poll();
+                queued--;
+                if (queue.isEmpty()) {
+                    queues.remove(session);
+                } else {
+                    turns.add(session); // Back of the line until every other session had a turn
+                }
+            }
+            run(request);
+        }
+    }
+    /**
+     * Computes one request and records how long it waited.
+     * @param request The request.
+     * @param <T> The type of the result.
+     */
+    private <T> void run(Request<T> request) {
+        long start = System.nanoTime();
+        long wait = start - request.queuedAt;
+        totalWaitNanos.addAndGet(wait);
+        waitHistogram.incrementAndGet(Math.max(0, 63 - Long.numberOfLeadingZeros(wait)));
+        if (start - request.deadline > 0) {
+            late.incrementAndGet();
+        }
+        try {
+            request.future.complete(request.task.apply(request.deadline));
+        } catch (RuntimeException e) {
+            request.future.completeExceptionally(e);
+        }
+        completed.incrementAndGet();
+    }
+    /**
+     * Gets the number of requests waiting for a worker.
+     * @return The queue depth.
+     */
+    public synchronized int getQueueDepth() {
+        return queued;
+    }
+    /**
+     * Gets the number of sessions with requests waiting.
+     * @return The number of sessions.
+     */
+    public synchronized int getWaitingSessions() {
+        return queues.size();
+    }
+    /**
+     * Gets the number of requests computed.
+     * @return The number of completed requests.
+     */
+    public long getCompleted() {
+        return completed.get();
+    }
+    /**
+     * Gets the number of requests that only started after their deadline.
+     * @return The number of late requests.
+     */
+    public long getLate() {
+        return late.get();
+    }
+    /**
+     * Gets the number of requests rejected because too many were waiting.
+     * @return The number of rejected requests.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+    /**
+     * Gets the mean time requests waited for a worker.
+     * @return The mean wait in nanoseconds.
+     */
+    public long getMeanWaitNanos() {
+        long count = completed.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / count;
+    }
+    /**
+     * Estimates a percentile of the time requests waited for a worker, to within a factor of two.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The upper bound of the wait of that percentile in nanoseconds.
+     */
+    public long getWaitPercentileNanos(double percentile) {
+        long total = 0;
+        long[] counts = new long[WAIT_BUCKETS];
+        for (int i = 0; i < WAIT_BUCKETS; i++) {
+            counts[i] = waitHistogram.get(i);
+            total += counts[i];
+        }
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < WAIT_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target && seen > 0) return i >= 62 ? Long.MAX_VALUE : 2L << i;
+        }
+        return 0;
+    }
+    /**
+     * Rejects new requests, fails the waiting ones and stops the workers.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            for (ArrayDeque<Request<?>> queue : queues.values()) {
+                for (Request<?> request : queue) {
+                    request.future.completeExceptionally(new RejectedExecutionException("AI scheduler closed"));
+                }
+            }
+            queues.clear();
+            turns.clear();
+            queued = 0;
+        }
+        pool.shutdown();
+    }
+}
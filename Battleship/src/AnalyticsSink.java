@@ -0,0 +1,487 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: AnalyticsSink.
+ * Writes one JSON line per game event to rolling NDJSON files for studying how people play:
+ * ship placements, treasures, shots, results, extra turns, sunk ships and the end of each game,
+ * with the difficulty, the time since the game started and, for the computer's shots, how long
+ * the AI took.
+ * The thread playing the match only copies a few numbers into the batch being filled, under a
+ * lock that is never held while writing. A background thread swaps in an empty batch every second,
+ * or sooner when the batch is half full, and writes the whole batch with one flush. If the writer
+ * falls so far behind that the batch is full, records are dropped and counted rather than waited
+ * for. A new file is started once the current one reaches its size limit or age limit.
+ * Start the game or the server with -Dbattleship.analytics.dir=DIRECTORY to turn it on.
+ */
+public class AnalyticsSink implements AutoCloseable {
+    /**
+     * System property with the directory to write to, analytics are off without it.
+     */
+    public static final String DIRECTORY_PROPERTY = "battleship.analytics.dir";
+    /**
+     * System property with the size in megabytes after which a new file is started.
+     */
+    public static final String MAX_FILE_MB_PROPERTY = "battleship.analytics.maxFileMB";
+    /**
+     * System property with the age in minutes after which a new file is started.
+     */
+    public static final String ROLL_MINUTES_PROPERTY = "battleship.analytics.rollMinutes";
+    /**
+     * Number of records a batch holds, which bounds how far the writer may fall behind.
+     */
+    public static final int BATCH_CAPACITY = 8192;
+    /**
+     * Longest time a record waits in a batch before it is written.
+     */
+    private static final long FLUSH_MILLIS = 1000;
+    /**
+     * Names of the event types in the records, by GameEvent type.
+     */
+    private static final String[] TYPE_NAMES = {"none", "place", "treasure", "shot", "result", "extra_turn", "sink", "game_over", "undo"};
+    /**
+     * Type of the record written when the player undoes moves. It is not a GameEvent type: its
+     * seq is the number of events kept, and the records of the game written earlier from that seq
+     * on were taken back.
+     */
+    private static final int UNDO = 8;
+    /**
+     * Format of the time in the file names.
+     */
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    /**
+     * Logger for files that cannot be written.
+     */
+    private static final GameLog LOG = GameLog.getLogger("Analytics");
+    /**
+     * The sink started from the system properties, or null if analytics are off.
+     */
+    private static volatile AnalyticsSink shared;
+    /**
+     * Directory the files are written to.
+     */
+    private final Path directory;
+    /**
+     * Size in bytes after which a new file is started.
+     */
+    private final long maxFileBytes;
+    /**
+     * Age in milliseconds after which a new file is started.
+     */
+    private final long rollMillis;
+    /**
+     * Identifies this run in the game ids, so games of different runs never share an id.
+     */
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    /**
+     * Number of games seen, used for the game ids.
+     */
+    private final AtomicLong games = new AtomicLong();
+    /**
+     * Guards the batch being filled, the swap and closed.
+     */
+    private final Object lock = new Object();
+    /**
+     * The batch the matches add records to.
+     */
+    private Batch filling = new Batch();
+    /**
+     * The batch the writer is writing, swapped with filling when it is empty.
+     */
+    private Batch writing = new Batch();
+    /**
+     * True once close() has been called.
+     */
+    private boolean closed;
+    /**
+     * Number of records written to a file.
+     */
+    private final LongAdder written = Metrics.counter(Metrics.ANALYTICS_WRITTEN);
+    /**
+     * Number of records dropped because the batch was full.
+     */
+    private final LongAdder dropped = Metrics.counter(Metrics.ANALYTICS_DROPPED);
+    /**
+     * Thread writing the batches.
+     */
+    private final Thread writer;
+    /**
+     * The file being written, or null before the first batch or after it could not be opened.
+     */
+    private Writer file;
+    /**
+     * Number of files started, used in the file names.
+     */
+    private int fileCount;
+    /**
+     * Bytes written to the current file.
+     */
+    private long fileBytes;
+    /**
+     * System.currentTimeMillis() when the current file was started.
+     */
+    private long fileStartMillis;
+    /**
+     * Records waiting to be written, in parallel arrays so adding one does not allocate.
+     */
+    private static class Batch {
+        /**
+         * Game each record belongs to.
+         */
+        final long[] gameIds = new long[BATCH_CAPACITY];
+        /**
+         * Index of each record in its game.
+         */
+        final int[] sequences = new int[BATCH_CAPACITY];
+        /**
+         * The packed event of each record, see GameEvent.
+         */
+        final int[] events = new int[BATCH_CAPACITY];
+        /**
+         * Ordinal of the difficulty of each record.
+         */
+        final byte[] difficulties = new byte[BATCH_CAPACITY];
+        /**
+         * System.currentTimeMillis() of each record.
+         */
+        final long[] timesMillis = new long[BATCH_CAPACITY];
+        /**
+         * Time since the game started, for each record.
+         */
+        final long[] elapsedNanos = new long[BATCH_CAPACITY];
+        /**
+         * Time the AI took to choose a computer's shot, or -1 for other records.
+         */
+        final long[] aiNanos = new long[BATCH_CAPACITY];
+        /**
+         * Number of records in the batch.
+         */
+        int size;
+    }
+    /**
+     * Passes the events of one Match to the sink. Added to the match by attach().
+     */
+    public class Recorder implements GameEventListener {
+        /**
+         * The match whose events are recorded.
+         */
+        private final Match match;
+        /**
+         * Id of the current game.
+         */
+        private long gameId;
+        /**
+         * System.nanoTime() when the current game started.
+         */
+        private long startNanos;
+        /**
+         * Index of the next event in the current game.
+         */
+        private int sequence;
+        /**
+         * Number of events at the start of the game that were restored from a saved game,
+         * and were recorded when they were first played.
+         */
+        private int restored;
+        /**
+         * Creates a recorder for a match. A game already under way is recorded from its next event.
+         * @param match The match to record.
+         */
+        Recorder(Match match) {
+            this.match = match;
+            gameReset();
+            sequence = restored;
+        }
+        /**
+         * Adds a record for the event, unless it is a restored one.
+         * @param event The packed event, see GameEvent.
+         */
+        @Override
+        public void eventRecorded(int event) {
+            int index = sequence++;
+            if (index < restored) return;
+            long aiMoveNanos = -1;
+            if (GameEvent.type(event) == GameEvent.SHOT && GameEvent.side(event) == GameEvent.COMPUTER) {
+                aiMoveNanos = match.getShotAIMoveNanos();
+            }
+            add(gameId, index, event, match.getDifficulty(), System.nanoTime() - startNanos, aiMoveNanos);
+        }
+        /**
+         * Starts a new game id. When a saved game is restored the match already holds its events
+         * at this point, and the ones it replays to the listeners are skipped.
+         */
+        @Override
+        public void gameReset() {
+            gameId = games.incrementAndGet();
+            startNanos = System.nanoTime();
+            sequence = 0;
+            restored = match.getRecord().size();
+        }
+        /**
+         * Keeps the game id when the player undoes moves, and adds an undo record so the records
+         * of the moves taken back can be told apart from the ones played instead.
+         * @param record The record of the match, holding the events that are left.
+         */
+        @Override
+        public void recordTruncated(GameRecord record) {
+            sequence = record.size();
+            restored = Math.min(restored, sequence);
+            add(gameId, sequence, GameEvent.pack(UNDO, GameEvent.PLAYER, 0, 0, 0), match.getDifficulty(), System.nanoTime() - startNanos, -1);
+        }
+    }
+    /**
+     * Creates a sink and starts its writer thread.
+     * @param directory Directory to write to, created if it does not exist.
+     * @param maxFileBytes Size in bytes after which a new file is started.
+     * @param rollMillis Age in milliseconds after which a new file is started.
+     * @throws IOException If the directory cannot be created.
+     */
+    public AnalyticsSink(Path directory, long maxFileBytes, long rollMillis) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxFileBytes = maxFileBytes;
+        this.rollMillis = rollMillis;
+        writer = new Thread(this::writeLoop, "analytics-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    /**
+     * Starts the shared sink if the directory property is set. The files are finished when the JVM exits.
+     */
+    public static synchronized void startIfConfigured() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (shared != null || directory == null || directory.isEmpty()) return;
+        try {
+            AnalyticsSink sink = new AnalyticsSink(Paths.get(directory),
+                    Long.getLong(MAX_FILE_MB_PROPERTY, 64) << 20,
+                    Long.getLong(ROLL_MINUTES_PROPERTY, 60) * 60_000);
+            Runtime.getRuntime().addShutdownHook(new Thread(sink::close, "analytics-close"));
+            shared = sink;
+        } catch (IOException e) {
+            LOG.error("Could not start analytics in {}", directory, e);
+        }
+    }
+    /**
+     * Records the events of a match in the shared sink, if analytics are on.
+     * @param match The match to record.
+     */
+    public static void attachIfStarted(Match match) {
+        AnalyticsSink sink = shared;
+        if (sink != null) {
+            sink.attach(match);
+        }
+    }
+    /**
+     * Records the events of a match from now on.
+     * @param match The match to record.
+     * @return The listener added to the match, remove it from the match to stop recording.
+     */
+    public Recorder attach(Match match) {
+        Recorder recorder = new Recorder(match);
+        match.addListener(recorder);
+        return recorder;
+    }
+    /**
+     * Adds a record to the batch being filled, or drops it if the batch is full. Never waits for the disk.
+     * @param gameId The game the record belongs to.
+     * @param sequence Index of the record in its game.
+     * @param event The packed event.
+     * @param difficulty The difficulty of the game.
+     * @param elapsedNanos Time since the game started.
+     * @param aiMoveNanos Time the AI took to choose the shot, or -1.
+     */
+    private void add(long gameId, int sequence, int event, Game.GameDifficulty difficulty, long elapsedNanos, long aiMoveNanos) {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            Batch batch = filling;
+            if (closed || batch.size == BATCH_CAPACITY) {
+                dropped.increment();
+                return;
+            }
+            int i = batch.size++;
+            batch.gameIds[i] = gameId;
+            batch.sequences[i] = sequence;
+            batch.events[i] = event;
+            batch.difficulties[i] = (byte) difficulty.ordinal();
+            batch.timesMillis[i] = now;
+            batch.elapsedNanos[i] = elapsedNanos;
+            batch.aiNanos[i] = aiMoveNanos;
+            if (batch.size == BATCH_CAPACITY / 2) {
+                lock.notify();
+            }
+        }
+    }
+    /**
+     * Gets the number of records written to a file.
+     * @return The number of written records.
+     */
+    public long getWrittenRecords() {
+        return written.sum();
+    }
+    /**
+     * Gets the number of records dropped because the writer fell behind.
+     * @return The number of dropped records.
+     */
+    public long getDroppedRecords() {
+        return dropped.sum();
+    }
+    /**
+     * Gets the directory the files are written to.
+     * @return The directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+    /**
+     * Writes what is left, closes the file and stops the writer thread. Records added afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            lock.notify();
+        }
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    /**
+     * Swaps and writes batches until the sink is closed and every batch is written.
+     */
+    private void writeLoop() {
+        StringBuilder text = new StringBuilder(64 * 1024);
+        while (true) {
+            Batch batch;
+            boolean last;
+            synchronized (lock) {
+                long wakeAt = System.currentTimeMillis() + FLUSH_MILLIS;
+                long wait;
+                while (!closed && filling.size < BATCH_CAPACITY / 2 && (wait = wakeAt - System.currentTimeMillis()) > 0) {
+                    try {
+                        lock.wait(wait);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                batch = filling;
+                filling = writing;
+                writing = batch;
+                last = closed;
+            }
+            if (batch.size > 0) {
+                write(batch, text);
+                batch.size = 0;
+            }
+            if (last) {
+                closeFile();
+                return;
+            }
+        }
+    }
+    /**
+     * Writes a batch as lines of JSON with one flush, starting a new file first if the current one is too big or too old.
+     * @param batch The batch to write.
+     * @param text Reused buffer for the lines.
+     */
+    private void write(Batch batch, StringBuilder text) {
+        text.setLength(0);
+        for (int i = 0; i < batch.size; i++) {
+            appendRecord(batch, i, text);
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (file != null && (fileBytes >= maxFileBytes || now - fileStartMillis >= rollMillis)) {
+                closeFile();
+            }
+            if (file == null) {
+                openFile(now);
+            }
+            file.append(text);
+            file.flush();
+            fileBytes += text.length(); // Every character is ASCII
+            written.add(batch.size);
+        } catch (IOException e) {
+            LOG.error("Could not write analytics records to {}", directory, e);
+            dropped.add(batch.size);
+            closeFile();
+        }
+    }
+    /**
+     * Starts a new file.
+     * @param now The current System.currentTimeMillis().
+     * @throws IOException If the file cannot be created.
+     */
+    private void openFile(long now) throws IOException {
+        String name = "battleship-" + LocalDateTime.now().format(FILE_TIME) + "-" + runId + "-" + (fileCount++) + ".ndjson";
+        file = new BufferedWriter(Files.newBufferedWriter(directory.resolve(name), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 64 * 1024);
+        fileBytes = 0;
+        fileStartMillis = now;
+    }
+    /**
+     * Closes the current file, if any.
+     */
+    private void closeFile() {
+        if (file == null) return;
+        try {
+            file.close();
+        } catch (IOException e) {
+            LOG.error("Could not close an analytics file in {}", directory, e);
+        }
+        file = null;
+    }
+    /**
+     * Writes one record as a line of JSON.
+     * @param batch The batch holding the record.
+     * @param i Index of the record in the batch.
+     * @param text Where the line is written.
+     */
+    private void appendRecord(Batch batch, int i, StringBuilder text) {
+        int event = batch.events[i];
+        int type = GameEvent.type(event);
+        text.append("{\"ts\":").append(batch.timesMillis[i])
+                .append(",\"game\":\"").append(runId).append('-').append(batch.gameIds[i])
+                .append("\",\"seq\":").append(batch.sequences[i])
+                .append(",\"difficulty\":\"").append(Game.GameDifficulty.values()[batch.difficulties[i]].name())
+                .append("\",\"elapsed_us\":").append(batch.elapsedNanos[i] / 1000)
+                .append(",\"type\":\"").append(type < TYPE_NAMES.length ? TYPE_NAMES[type] : "unknown")
+                .append("\",\"side\":\"").append(GameEvent.side(event) == GameEvent.PLAYER ? "player" : "computer").append('"');
+        switch (type) {
+            case GameEvent.PLACE:
+            case GameEvent.SINK:
+                text.append(",\"x\":").append(GameEvent.x(event)).append(",\"y\":").append(GameEvent.y(event))
+                        .append(",\"segments\":").append(GameEvent.segments(event))
+                        .append(",\"sideways\":").append(GameEvent.sideways(event));
+                break;
+            case GameEvent.RESULT:
+                text.append(",\"x\":").append(GameEvent.x(event)).append(",\"y\":").append(GameEvent.y(event))
+                        .append(",\"hit\":").append((GameEvent.arg(event) & GameEvent.HIT_FLAG) != 0)
+                        .append(",\"treasure\":").append((GameEvent.arg(event) & GameEvent.TREASURE_FLAG) != 0);
+                break;
+            case GameEvent.SHOT:
+                text.append(",\"x\":").append(GameEvent.x(event)).append(",\"y\":").append(GameEvent.y(event));
+                if (batch.aiNanos[i] >= 0) {
+                    text.append(",\"ai_us\":").append(batch.aiNanos[i] / 1000);
+                }
+                break;
+            case GameEvent.TREASURE:
+                text.append(",\"x\":").append(GameEvent.x(event)).append(",\"y\":").append(GameEvent.y(event));
+                break;
+            default:
+                break; // EXTRA_TURN, GAME_OVER and UNDO only have the side, which is the winner for GAME_OVER
+        }
+        text.append("}\n");
+    }
+}
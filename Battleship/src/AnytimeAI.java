@@ -0,0 +1,248 @@
+import java.util.Arrays;
+import java.util.Collections;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: AnytimeAI.
+ * Defines an AI that keeps improving its choice of move until its compute budget runs out.
+ * It starts from a score for every cell that counts all ship placements that still fit,
+ * then refines it by sampling random fleets that agree with every hit and miss so far.
+ * The budget is a time limit and a maximum number of samples, so the same AI plays
+ * better the more time it is given and can be used for any number of difficulty levels.
+ */
+public class AnytimeAI extends BattleshipAI {
+    /**
+     * Number of fleets sampled between checks of the deadline.
+     */
+    private static final int SAMPLE_BATCH = 32;
+    /**
+     * How many accepted samples count as much as the placement count score when mixing them.
+     */
+    private static final float SAMPLE_CONFIDENCE = 200f;
+    /**
+     * Maximum time in nanoseconds to spend on one move.
+     */
+    private final long timeBudgetNanos;
+    /**
+     * Maximum number of fleets to sample for one move.
+     */
+    private final int sampleBudget;
+    /**
+     * What the AI currently knows about the player's grid.
+     */
+    private final BoardKnowledge knowledge;
+    /**
+     * Score of each cell from counting every placement that fits.
+     */
+    private final float[] densityScores;
+    /**
+     * Score of each cell from the sampled fleets.
+     */
+    private final float[] sampledScores;
+    /**
+     * Mixed score of every cell not attacked yet, before the placement priors.
+     */
+    private final float[] mixedScores;
+    /**
+     * Mixed score of every valid move when the last move was selected.
+     */
+    private final float[] moveScores;
+    /**
+     * Scores already worked out for boards seen before, by any AI with the same sample budget.
+     */
+    private final ScoreCache scoreCache;
+    /**
+     * Mixed into the state hash of the board to make the key of the score cache, so AIs with
+     * different sample budgets do not share scores.
+     */
+    private final long cacheSalt;
+    /**
+     * Where human players tend to put their ships, or null to treat every cell alike.
+     */
+    private final PlacementPriors priors;
+    /**
+     * Number of fleets sampled by the last move.
+     */
+    private int lastSamples;
+    /**
+     * Creates the AI with a compute budget for each move.
+     * @param playerGrid A reference to the grid controlled by the player for testing attacks.
+     * @param timeBudgetNanos Maximum time in nanoseconds to spend refining a move.
+     * @param sampleBudget Maximum number of random fleets to sample for a move.
+     */
+    public AnytimeAI(SelectionGrid playerGrid, long timeBudgetNanos, int sampleBudget) {
+        this(playerGrid, timeBudgetNanos, sampleBudget, null);
+    }
+    /**
+     * Creates the AI with a compute budget for each move that also weighs every cell by how
+     * often human players put a ship there.
+     * @param playerGrid A reference to the grid controlled by the player for testing attacks.
+     * @param timeBudgetNanos Maximum time in nanoseconds to spend refining a move.
+     * @param sampleBudget Maximum number of random fleets to sample for a move.
+     * @param priors The learned placement weights, or null to treat every cell alike.
+     */
+    public AnytimeAI(SelectionGrid playerGrid, long timeBudgetNanos, int sampleBudget, PlacementPriors priors) {
+        super(playerGrid);
+        this.priors = priors;
+        this.timeBudgetNanos = timeBudgetNanos;
+        this.sampleBudget = sampleBudget;
+        knowledge = new BoardKnowledge();
+        densityScores = new float[BoardKnowledge.cellCount()];
+        sampledScores = new float[BoardKnowledge.cellCount()];
+        mixedScores = new float[BoardKnowledge.cellCount()];
+        moveScores = new float[BoardKnowledge.cellCount()];
+        scoreCache = ScoreCache.getShared();
+        cacheSalt = (sampleBudget + 1L) * 0x9E3779B97F4A7C15L;
+        Collections.shuffle(validMoves, rand);
+        startOpening(openingBook());
+    }
+    /**
+     * Recreates the valid move list and randomises it so ties are broken differently each game.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        Collections.shuffle(validMoves, rand);
+        Arrays.fill(moveScores, 0);
+        startOpening(openingBook());
+    }
+    /**
+     * Gets the opening book to play from. The book assumes ships are placed evenly, so it is not
+     * used once placement priors have learned where players really put them.
+     * @return The default book, or null if the priors have learned anything.
+     */
+    private OpeningBook openingBook() {
+        return priors != null && priors.getGames() > 0 ? null : OpeningBook.getDefault();
+    }
+    /**
+     * Scores every cell by counting the placements that fit, then keeps sampling random fleets
+     * until the time or sample budget is used up. The best move found so far is returned.
+     * @return The selected position to attack.
+     */
+    @Override
+    public Position selectMove() {
+        return selectMove(System.nanoTime() + timeBudgetNanos);
+    }
+    /**
+     * Selects a move like selectMove(), but stops sampling at the deadline if it comes before
+     * the end of the time budget. With a deadline that has already passed only the placement
+     * count score is used, which still takes well under a millisecond. Until the first hit the
+     * move usually comes from the opening book and nothing is computed, and scores worked out
+     * in full for the same board before are taken from the score cache.
+     * @param deadlineNanos The System.nanoTime() by which the move should be ready.
+     * @return The selected position to attack.
+     */
+    @Override
+    public Position selectMove(long deadlineNanos) {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        if (deadlineNanos - deadline < 0) {
+            deadline = deadlineNanos;
+        }
+        Position opening = nextOpeningMove();
+        if (opening != null) {
+            lastSamples = 0;
+            Arrays.fill(moveScores, 0);
+            return opening;
+        }
+        long cacheKey = playerGrid.getStateHash() ^ cacheSalt;
+        if (scoreCache.get(cacheKey, mixedScores)) {
+            lastSamples = 0;
+        } else {
+            knowledge.readFrom(playerGrid);
+            for (int i = 0; i < densityScores.length; i++) {
+                densityScores[i] = 0;
+                sampledScores[i] = 0;
+            }
+            knowledge.density(densityScores);
+
+            int attempts = 0;
+            int accepted = 0;
+            while (attempts < sampleBudget && System.nanoTime() - deadline < 0) {
+                for (int i = 0; i < SAMPLE_BATCH; i++) {
+                    if (knowledge.sample(rand, sampledScores)) {
+                        accepted++;
+                    }
+                }
+                attempts += SAMPLE_BATCH;
+            }
+            lastSamples = attempts;
+            mixScores(accepted);
+            if (attempts >= sampleBudget) { // Scores cut short by the deadline depend on more than the board
+                scoreCache.put(cacheKey, mixedScores);
+            }
+        }
+        Position selectedMove = findBestMove();
+        validMoves.remove(selectedMove);
+        return selectedMove;
+    }
+    /**
+     * Gets how many random fleets the last selectMove() sampled.
+     * @return The number of sampled fleets.
+     */
+    @Override
+    public int getLastSamples() {
+        return lastSamples;
+    }
+    /**
+     * Gets the mixed score of every valid move when the last move was selected.
+     * @return The score of every cell by BoardKnowledge.indexOf().
+     */
+    @Override
+    public float[] getCellScores() {
+        return moveScores;
+    }
+    /**
+     * Mixes the placement count scores with the sampled scores into mixedScores for every cell
+     * not attacked yet, trusting the samples more the more of them were accepted.
+     * @param accepted The number of sampled fleets that were accepted.
+     */
+    private void mixScores(int accepted) {
+        float densityTotal = 0;
+        float sampledTotal = 0;
+        for (int i = 0; i < densityScores.length; i++) {
+            densityTotal += densityScores[i];
+            sampledTotal += sampledScores[i];
+        }
+        float sampleMix = accepted / (accepted + SAMPLE_CONFIDENCE);
+        for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                int index = BoardKnowledge.indexOf(x, y);
+                float score = 0;
+                if (knowledge.getCell(x, y) == BoardKnowledge.UNKNOWN) {
+                    if (densityTotal > 0) {
+                        score += (1 - sampleMix) * densityScores[index] / densityTotal;
+                    }
+                    if (sampledTotal > 0) {
+                        score += sampleMix * sampledScores[index] / sampledTotal;
+                    }
+                }
+                mixedScores[index] = score;
+            }
+        }
+    }
+    /**
+     * Multiplies the mixed scores by the placement priors if there are any and picks the valid
+     * move with the highest score. The priors are applied here rather than in mixScores() so the
+     * cached scores never depend on them.
+     * The valid moves are in a random order so ties are broken randomly.
+     * @return The valid move with the highest score.
+     */
+    private Position findBestMove() {
+        Arrays.fill(moveScores, 0);
+        Position best = validMoves.get(0);
+        float bestScore = -1;
+        for (int i = 0; i < validMoves.size(); i++) {
+            Position move = validMoves.get(i);
+            int index = BoardKnowledge.indexOf(move.x, move.y);
+            float score = mixedScores[index];
+            if (priors != null) {
+                score *= priors.weight(move.x, move.y);
+            }
+            moveScores[index] = score;
+            if (score > bestScore) {
+                bestScore = score;
+                best = move;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,148 @@
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.imageio.ImageIO;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: AssetCache.
+ * Loads images and fonts the first time they are needed and shares them between every grid and ship.
+ * Nothing is read from disk until something is drawn, so games can be created and played without a screen.
+ */
+public class AssetCache {
+    /**
+     * Images that have been loaded, by file name.
+     */
+    private static final Map<String, BufferedImage> images = new ConcurrentHashMap<>();
+    /**
+     * Images with the red filter used for sunk ships, by file name of the original image.
+     */
+    private static final Map<String, BufferedImage> redImages = new ConcurrentHashMap<>();
+    /**
+     * Base fonts that have been loaded, by file name.
+     */
+    private static final Map<String, Font> fonts = new ConcurrentHashMap<>();
+    /**
+     * Files that could not be loaded, so the error is only reported once.
+     */
+    private static final Set<String> failed = ConcurrentHashMap.newKeySet();
+    /**
+     * Time taken to load each image and font from disk.
+     */
+    private static final LatencyHistogram loadTime = Metrics.histogram(Metrics.ASSET_LOAD);
+    /**
+     * Number of requests for assets that were already loaded.
+     */
+    private static final LongAdder hits = Metrics.counter(Metrics.ASSET_HITS);
+    /**
+     * Number of requests that had to load an asset.
+     */
+    private static final LongAdder misses = Metrics.counter(Metrics.ASSET_MISSES);
+    /**
+     * Logger for assets that could not be loaded.
+     */
+    private static final GameLog LOG = GameLog.getLogger("Assets");
+    /**
+     * Gets an image, loading it the first time it is requested.
+     * @param fileName The file path of the image.
+     * @return The loaded image, or null if it could not be loaded.
+     */
+    public static BufferedImage getImage(String fileName) {
+        BufferedImage image = images.get(fileName);
+        if (image != null || failed.contains(fileName)) {
+            hits.increment();
+            return image;
+        }
+        misses.increment();
+        FlightEvents.AssetLoadEvent event = new FlightEvents.AssetLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            image = ImageIO.read(new File(fileName));
+        } catch (IOException e) {
+            LOG.error("Could not load image {}", fileName, e);
+        }
+        loadTime.recordSince(start);
+        commitLoad(event, fileName, "image", image != null);
+        if (image == null) {
+            failed.add(fileName);
+            return null;
+        }
+        BufferedImage existing = images.putIfAbsent(fileName, image);
+        return existing != null ? existing : image;
+    }
+    /**
+     * Gets an image with the red colour filter applied, creating it the first time it is requested.
+     * @param fileName The file path of the original image.
+     * @return The filtered image, or null if the original could not be loaded.
+     */
+    public static BufferedImage getRedImage(String fileName) {
+        BufferedImage image = redImages.get(fileName);
+        if (image != null) {
+            return image;
+        }
+        BufferedImage original = getImage(fileName);
+        if (original == null) {
+            return null;
+        }
+        return redImages.computeIfAbsent(fileName, key -> Ship.applyRedColorFilter(original));
+    }
+    /**
+     * Gets a TrueType font at the specified size, loading and registering it the first time it is requested.
+     * @param fileName The file path of the font.
+     * @param size The point size of the font.
+     * @param fallback The font to use if the file could not be loaded.
+     * @return The loaded font at the specified size, or the fallback.
+     */
+    public static Font getFont(String fileName, float size, Font fallback) {
+        Font font = fonts.get(fileName);
+        if (font == null) {
+            if (failed.contains(fileName)) {
+                hits.increment();
+                return fallback;
+            }
+            misses.increment();
+            FlightEvents.AssetLoadEvent event = new FlightEvents.AssetLoadEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                font = Font.createFont(Font.TRUETYPE_FONT, new File(fileName));
+                GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+                ge.registerFont(font);
+                fonts.putIfAbsent(fileName, font);
+            } catch (IOException | FontFormatException e) {
+                LOG.error("Could not load font {}", fileName, e);
+                failed.add(fileName);
+                return fallback;
+            } finally {
+                loadTime.recordSince(start);
+                commitLoad(event, fileName, "font", !failed.contains(fileName));
+            }
+        } else {
+            hits.increment();
+        }
+        return font.deriveFont(size);
+    }
+    /**
+     * Ends and commits the flight recorder event of a load, if it is being recorded.
+     * @param event The event begun before the load.
+     * @param fileName The file that was loaded.
+     * @param kind The kind of asset, image or font.
+     * @param loaded True if the file could be loaded.
+     */
+    private static void commitLoad(FlightEvents.AssetLoadEvent event, String fileName, String kind, boolean loaded) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileName = fileName;
+            event.kind = kind;
+            event.loaded = loaded;
+            event.commit();
+        }
+    }
+}
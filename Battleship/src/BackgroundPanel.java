@@ -1,6 +1,5 @@
 import javax.swing.*;
 import java.awt.*;
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import javax.swing.Timer;
@@ -41,14 +40,8 @@ public class BackgroundPanel extends JPanel {
      */
     public BackgroundPanel(String imagePath) {
         setOpaque(false);
-        try {
-            backgroundImage = Toolkit.getDefaultToolkit().getImage(imagePath);
-            VT323 = Font.createFont(Font.TRUETYPE_FONT, new File("VT323-Regular.ttf")).deriveFont(20f).deriveFont(Font.BOLD);
-            GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-            ge.registerFont(VT323);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        backgroundImage = Toolkit.getDefaultToolkit().getImage(imagePath);
+        VT323 = AssetCache.getFont("VT323-Regular.ttf", 20f, new Font("Serif", Font.BOLD, 16)).deriveFont(Font.BOLD);
         linesCount = 0;
         linesToShow = 0;
         animationTimer = new Timer(700 , e -> {
@@ -1,5 +1,7 @@
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 /**
  * DSA Project - Battleship Game - Panadol Extra.
  * Class: BattleshipAI.
@@ -16,6 +18,23 @@ public class BattleshipAI {
      * A list of all valid moves. Can be updated after moves to keep it relevant.
      */
     protected List<Position> validMoves;
+    /**
+     * Random generator of the AI, seeded from the context of the game.
+     */
+    protected final Random rand;
+    /**
+     * Logger of the AIs, which trace what they are thinking at the TRACE level.
+     */
+    protected static final GameLog AI_LOG = GameLog.getLogger("AI");
+    /**
+     * The line of the opening book the AI is following, as BoardKnowledge.indexOf() values,
+     * or null if it uses no book or has left it.
+     */
+    private byte[] openingLine;
+    /**
+     * Number of moves of the opening line played so far.
+     */
+    private int openingPlayed;
     /**
      * Creates the basic setup for the AI by setting up references to the player's grid,
      * and creates a list of all valid moves.
@@ -24,8 +43,32 @@ public class BattleshipAI {
      */
     public BattleshipAI(SelectionGrid playerGrid) {
         this.playerGrid = playerGrid;
+        rand = playerGrid.getContext().newRandom();
         createValidMoveList();
     }
+    /**
+     * Creates the AI that plays at the chosen difficulty level. EASY, MEDIUM and HARD use the
+     * fixed strategies, while the levels above HARD use an AnytimeAI with a larger compute budget,
+     * which also uses the learned placement priors when they are loaded.
+     * @param difficulty The chosen difficulty level for the game.
+     * @param playerGrid A reference to the grid controlled by the player for testing attacks.
+     * @return The AI to manage what the computer will do each turn.
+     */
+    public static BattleshipAI forDifficulty(Game.GameDifficulty difficulty, SelectionGrid playerGrid) {
+        switch (difficulty) {
+            case MEDIUM:
+                return new SmarterAI(playerGrid, false, true);
+            case HARD:
+                return new SmarterAI(playerGrid, true, true);
+            case EXPERT:
+                return new AnytimeAI(playerGrid, 15_000_000L, 4_000, PlacementPriors.getShared()); // 15 ms per move
+            case MASTER:
+                return new AnytimeAI(playerGrid, 120_000_000L, 60_000, PlacementPriors.getShared()); // 120 ms per move
+            case EASY:
+            default:
+                return new SimpleRandomAI(playerGrid);
+        }
+    }
     /**
      * Override this method to provide AI logic for choosing which position to attack.
      * Default returns a useless Position.ZERO.
@@ -35,12 +78,140 @@ public class BattleshipAI {
     public Position selectMove() {
         return Position.ZERO;
     }
+    /**
+     * Selects a move that has to be ready by a deadline. AIs that improve their move the longer
+     * they think stop early enough to meet it, the others ignore it.
+     * @param deadlineNanos The System.nanoTime() by which the move should be ready.
+     * @return The position that was chosen as the place to attack.
+     */
+    public Position selectMove(long deadlineNanos) {
+        return selectMove();
+    }
+    /**
+     * Gets if the AIs log what they are thinking while they select their moves.
+     * @return True if tracing is on.
+     */
+    public static boolean isTracing() {
+        return AI_LOG.isEnabled(GameLog.Level.TRACE);
+    }
+    /**
+     * Turns logging what the AIs are thinking on or off for every game in the process.
+     * @param on True to turn tracing on.
+     */
+    public static void setTracing(boolean on) {
+        AI_LOG.setLevel(on ? GameLog.Level.TRACE : GameLog.Level.INFO);
+    }
+    /**
+     * Gets how many random fleets the last selectMove() sampled, for profiling.
+     * AIs that do not sample return 0.
+     * @return The number of sampled fleets.
+     */
+    public int getLastSamples() {
+        return 0;
+    }
+    /**
+     * Gets the score the AI gave every cell when it selected its last move, for the debug overlay.
+     * The array belongs to the AI and is overwritten by the next move.
+     * AIs that do not score cells return null.
+     * @return The score of every cell by BoardKnowledge.indexOf(), higher is more likely to be attacked, or null.
+     */
+    public float[] getCellScores() {
+        return null;
+    }
     /**
      * Recreates the valid move list.
      */
     public void reset() {
         createValidMoveList();
     }
+    /**
+     * Writes what the AI remembers about the game for a GameSnapshot: the moves it has not
+     * tried yet, in the order it would try them. Subclasses with more state add it after this.
+     * @param writer The writer to add the state to.
+     */
+    public void writeState(BitWriter writer) {
+        writePositions(writer, validMoves);
+    }
+    /**
+     * Replaces what the AI remembers with a state written by writeState().
+     * @param reader The reader to take the state from.
+     * @throws IOException If the state is damaged.
+     */
+    public void readState(BitReader reader) throws IOException {
+        validMoves.clear();
+        readPositions(reader, validMoves);
+        openingLine = null; // The book line is not saved, so a resumed game is played without it
+    }
+    /**
+     * Picks a random line of an opening book to play from the first move, for AIs whose first
+     * moves would otherwise take a lot of computing. Call it when a game starts.
+     * @param book The book, or null to play without one.
+     */
+    protected void startOpening(OpeningBook book) {
+        byte[][] lines = book == null ? null : book.linesFor(SelectionGrid.GRID_WIDTH, SelectionGrid.GRID_HEIGHT, SelectionGrid.BOAT_SIZES);
+        openingLine = lines == null || lines.length == 0 ? null : lines[rand.nextInt(lines.length)];
+        openingPlayed = 0;
+    }
+    /**
+     * Gets the next move of the opening line and removes it from the valid moves. The line is left
+     * for good once one of its shots hits, once it runs out, or if its next cell was already tried.
+     * @return The move, or null if the AI has to work out its move itself.
+     */
+    protected Position nextOpeningMove() {
+        if (openingLine == null) return null;
+        if (openingPlayed == openingLine.length || openingPlayed > 0 && !lastOpeningMoveMissed()) {
+            openingLine = null;
+            return null;
+        }
+        int cell = openingLine[openingPlayed] & 0xFF;
+        int x = cell / SelectionGrid.GRID_HEIGHT;
+        int y = cell % SelectionGrid.GRID_HEIGHT;
+        for (int i = 0; i < validMoves.size(); i++) {
+            Position move = validMoves.get(i);
+            if (move.x == x && move.y == y) {
+                validMoves.remove(i);
+                openingPlayed++;
+                return move;
+            }
+        }
+        openingLine = null;
+        return null;
+    }
+    /**
+     * Checks that the last move of the opening line was fired and missed, so the game is still on the line.
+     * @return True if it missed.
+     */
+    private boolean lastOpeningMoveMissed() {
+        int cell = openingLine[openingPlayed - 1] & 0xFF;
+        Marker marker = playerGrid.getMarkerAt(cell / SelectionGrid.GRID_HEIGHT, cell % SelectionGrid.GRID_HEIGHT);
+        return marker.isMarked() && !marker.isShip();
+    }
+    /**
+     * Writes a list of grid positions as a count followed by a cell index for each.
+     * @param writer The writer to add the positions to.
+     * @param positions The positions to write.
+     */
+    protected static void writePositions(BitWriter writer, List<Position> positions) {
+        int cellBits = GameRecordCodec.cellBits(SelectionGrid.GRID_WIDTH, SelectionGrid.GRID_HEIGHT);
+        writer.writeBits(positions.size(), cellBits + 1);
+        for (Position position : positions) {
+            writer.writeBits(position.x * SelectionGrid.GRID_HEIGHT + position.y, cellBits);
+        }
+    }
+    /**
+     * Reads a list of grid positions written by writePositions().
+     * @param reader The reader to take the positions from.
+     * @param positions The list to add the positions to.
+     * @throws IOException If the data is damaged or a position is outside the grid.
+     */
+    protected static void readPositions(BitReader reader, List<Position> positions) throws IOException {
+        int cellBits = GameRecordCodec.cellBits(SelectionGrid.GRID_WIDTH, SelectionGrid.GRID_HEIGHT);
+        int count = reader.readBits(cellBits + 1);
+        for (int i = 0; i < count; i++) {
+            int cell = SelectionGrid.readCell(reader, cellBits);
+            positions.add(new Position(cell / SelectionGrid.GRID_HEIGHT, cell % SelectionGrid.GRID_HEIGHT));
+        }
+    }
     /**
      * Creates a valid move list by populating a list with Positions
      * to reference every grid coordinate.
@@ -0,0 +1,144 @@
+import java.lang.management.ManagementFactory;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: BattleshipStats.
+ * Shows the live statistics of the game and the engine over JMX, so a kiosk or a GameServer
+ * that runs for weeks can be watched with JConsole or any other JMX tool without restarting it.
+ * Every value is read from Metrics, PlaySound and BattleshipAI when it is asked for, so nothing
+ * extra happens during play. register() adds this bean as Battleship:type=Stats and a
+ * DifficultyStats bean for every difficulty as Battleship:type=Difficulty,name=DIFFICULTY.
+ */
+public class BattleshipStats implements BattleshipStatsMBean {
+    /**
+     * Logger for beans that cannot be registered.
+     */
+    private static final GameLog LOG = GameLog.getLogger("BattleshipStats");
+    /**
+     * Name of the bean.
+     */
+    public static final String OBJECT_NAME = "Battleship:type=Stats";
+    /**
+     * Registers the beans with the platform MBean server. Calling it again does nothing.
+     */
+    public static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new BattleshipStats(), new ObjectName(OBJECT_NAME));
+            for (Game.GameDifficulty difficulty : Game.GameDifficulty.values()) {
+                server.registerMBean(new DifficultyStats(difficulty),
+                        new ObjectName("Battleship:type=Difficulty,name=" + difficulty.name()));
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered
+        } catch (JMException e) {
+            LOG.warn("Could not register the JMX beans, the game runs without them", e);
+        }
+    }
+    /**
+     * Gets the number of games that have started and not ended yet.
+     * @return The number of active games.
+     */
+    @Override
+    public long getActiveGames() {
+        return Metrics.getActiveGames();
+    }
+    /**
+     * Gets the number of games finished at every difficulty since the counters were reset.
+     * @return The number of completed games.
+     */
+    @Override
+    public long getGamesCompleted() {
+        long games = 0;
+        for (Game.GameDifficulty difficulty : Game.GameDifficulty.values()) {
+            games += Metrics.getPlayerWins(difficulty) + Metrics.getComputerWins(difficulty);
+        }
+        return games;
+    }
+    /**
+     * Gets the number of sounds playing at the moment.
+     * @return The number of voices in use.
+     */
+    @Override
+    public int getSoundVoicesInUse() {
+        return PlaySound.getVoicesInUse();
+    }
+    /**
+     * Gets the number of asset requests answered from the cache.
+     * @return The number of hits.
+     */
+    @Override
+    public long getAssetCacheHits() {
+        return Metrics.counter(Metrics.ASSET_HITS).sum();
+    }
+    /**
+     * Gets the number of asset requests that had to load the file.
+     * @return The number of misses.
+     */
+    @Override
+    public long getAssetCacheMisses() {
+        return Metrics.counter(Metrics.ASSET_MISSES).sum();
+    }
+    /**
+     * Gets the share of asset requests answered from the cache.
+     * @return The hit rate from 0 to 1, or 0 if nothing was requested.
+     */
+    @Override
+    public double getAssetCacheHitRate() {
+        long hits = getAssetCacheHits();
+        long requests = hits + getAssetCacheMisses();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+    /**
+     * Gets the share of AI moves whose cell scores were found in the score cache.
+     * @return The hit rate from 0 to 1, or 0 if nothing was looked up.
+     */
+    @Override
+    public double getScoreCacheHitRate() {
+        return ScoreCache.getHitRate();
+    }
+    /**
+     * Gets the number of boards in the shared score cache.
+     * @return The number of boards.
+     */
+    @Override
+    public int getScoreCacheSize() {
+        return ScoreCache.getShared().size();
+    }
+    /**
+     * Gets if the AIs print what they are thinking.
+     * @return True if debug tracing is on.
+     */
+    @Override
+    public boolean isDebugTracing() {
+        return BattleshipAI.isTracing();
+    }
+    /**
+     * Turns printing what the AIs are thinking on or off.
+     * @param on True to turn debug tracing on.
+     */
+    @Override
+    public void setDebugTracing(boolean on) {
+        BattleshipAI.setTracing(on);
+    }
+    /**
+     * Switches debug tracing on if it is off and off if it is on.
+     * @return True if debug tracing is now on.
+     */
+    @Override
+    public boolean toggleDebugTracing() {
+        boolean on = !BattleshipAI.isTracing();
+        BattleshipAI.setTracing(on);
+        return on;
+    }
+    /**
+     * Empties every histogram and counter of the Metrics. Active games and voices are not counters and stay.
+     */
+    @Override
+    public void resetCounters() {
+        Metrics.reset();
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: BattleshipStatsMBean.
+ * The management interface of BattleshipStats, as seen in JConsole or any other JMX client.
+ */
+public interface BattleshipStatsMBean {
+    /**
+     * Gets the number of games that have started and not ended yet.
+     * @return The number of active games.
+     */
+    long getActiveGames();
+    /**
+     * Gets the number of games finished at every difficulty since the counters were reset.
+     * @return The number of completed games.
+     */
+    long getGamesCompleted();
+    /**
+     * Gets the number of sounds playing at the moment.
+     * @return The number of voices in use.
+     */
+    int getSoundVoicesInUse();
+    /**
+     * Gets the number of asset requests answered from the cache.
+     * @return The number of hits.
+     */
+    long getAssetCacheHits();
+    /**
+     * Gets the number of asset requests that had to load the file.
+     * @return The number of misses.
+     */
+    long getAssetCacheMisses();
+    /**
+     * Gets the share of asset requests answered from the cache.
+     * @return The hit rate from 0 to 1, or 0 if nothing was requested.
+     */
+    double getAssetCacheHitRate();
+    /**
+     * Gets the share of AI moves whose cell scores were found in the score cache.
+     * @return The hit rate from 0 to 1, or 0 if nothing was looked up.
+     */
+    double getScoreCacheHitRate();
+    /**
+     * Gets the number of boards in the shared score cache.
+     * @return The number of boards.
+     */
+    int getScoreCacheSize();
+    /**
+     * Gets if the AIs print what they are thinking.
+     * @return True if debug tracing is on.
+     */
+    boolean isDebugTracing();
+    /**
+     * Turns printing what the AIs are thinking on or off.
+     * @param on True to turn debug tracing on.
+     */
+    void setDebugTracing(boolean on);
+    /**
+     * Switches debug tracing on if it is off and off if it is on.
+     * @return True if debug tracing is now on.
+     */
+    boolean toggleDebugTracing();
+    /**
+     * Empties every histogram and counter of the Metrics. Active games and voices are not counters and stay.
+     */
+    void resetCounters();
+}
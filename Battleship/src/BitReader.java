@@ -0,0 +1,108 @@
+import java.io.IOException;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: BitReader.
+ * Reads back values written by a BitWriter. Reading past the end of the data
+ * throws an IOException, because it means the data is damaged.
+ */
+public class BitReader {
+    /**
+     * The data being read.
+     */
+    private final byte[] data;
+    /**
+     * Index of the first byte of the data.
+     */
+    private final int offset;
+    /**
+     * Number of bytes of data.
+     */
+    private final int length;
+    /**
+     * Number of bits read so far.
+     */
+    private long bitPosition;
+    /**
+     * Creates a reader over part of an array.
+     * @param data The array holding the data.
+     * @param offset Index of the first byte to read.
+     * @param length Number of bytes that can be read.
+     */
+    public BitReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+    /**
+     * Reads a value written with BitWriter.writeBits().
+     * @param bits The number of bits the value was written with.
+     * @return The value.
+     * @throws IOException If there are not enough bits left.
+     */
+    public int readBits(int bits) throws IOException {
+        int value = 0;
+        for (int i = 0; i < bits; i++) {
+            value = (value << 1) | (readBit() ? 1 : 0);
+        }
+        return value;
+    }
+    /**
+     * Reads a single bit.
+     * @return True if the bit is 1.
+     * @throws IOException If there are no bits left.
+     */
+    public boolean readBit() throws IOException {
+        int byteIndex = (int) (bitPosition >>> 3);
+        if (byteIndex >= length) throw new IOException("Unexpected end of data");
+        boolean bit = (data[offset + byteIndex] & (0x80 >>> (bitPosition & 7))) != 0;
+        bitPosition++;
+        return bit;
+    }
+    /**
+     * Moves to the start of the next byte if part of a byte has been read.
+     */
+    public void alignToByte() {
+        bitPosition = (bitPosition + 7) & ~7L;
+    }
+    /**
+     * Reads a number written with BitWriter.writeVarLong().
+     * @return The value.
+     * @throws IOException If the data ends early or the number is too long.
+     */
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed variable length number");
+    }
+    /**
+     * Reads a whole byte at a byte boundary.
+     * @return The byte as a value from 0 to 255.
+     * @throws IOException If there are no bytes left.
+     */
+    public int readByte() throws IOException {
+        alignToByte();
+        int byteIndex = (int) (bitPosition >>> 3);
+        if (byteIndex >= length) throw new IOException("Unexpected end of data");
+        bitPosition += 8;
+        return data[offset + byteIndex] & 0xFF;
+    }
+    /**
+     * Reads a 32 bit number written with BitWriter.writeInt().
+     * @return The value.
+     * @throws IOException If there are not enough bytes left.
+     */
+    public int readInt() throws IOException {
+        return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+    }
+    /**
+     * Gets the number of whole or partly read bytes.
+     * @return The number of bytes used so far.
+     */
+    public int position() {
+        return (int) ((bitPosition + 7) >>> 3);
+    }
+}
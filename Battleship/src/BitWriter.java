@@ -0,0 +1,122 @@
+import java.util.Arrays;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: BitWriter.
+ * Writes values into a growing byte array using only as many bits as each value needs.
+ * Variable length integers are written byte aligned, 7 bits at a time.
+ */
+public class BitWriter {
+    /**
+     * The bytes written so far.
+     */
+    private byte[] buffer;
+    /**
+     * Number of bits written so far.
+     */
+    private long bitPosition;
+    /**
+     * Creates a writer with room for the specified number of bytes before it has to grow.
+     * @param initialCapacity The starting size of the buffer in bytes.
+     */
+    public BitWriter(int initialCapacity) {
+        buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+    /**
+     * Writes the lowest bits of a value, most significant bit first.
+     * @param value The value to write.
+     * @param bits How many of the lowest bits to write, from 0 to 32.
+     */
+    public void writeBits(int value, int bits) {
+        for (int i = bits - 1; i >= 0; i--) {
+            writeBit(((value >>> i) & 1) != 0);
+        }
+    }
+    /**
+     * Writes a single bit.
+     * @param bit True to write a 1.
+     */
+    public void writeBit(boolean bit) {
+        int byteIndex = (int) (bitPosition >>> 3);
+        ensureCapacity(byteIndex + 1);
+        if (bit) {
+            buffer[byteIndex] |= (byte) (0x80 >>> (bitPosition & 7));
+        }
+        bitPosition++;
+    }
+    /**
+     * Moves to the start of the next byte if part of a byte has been written.
+     */
+    public void alignToByte() {
+        bitPosition = (bitPosition + 7) & ~7L;
+    }
+    /**
+     * Writes a non-negative number 7 bits at a time, using the top bit of each byte to show that more follow.
+     * @param value The value to write.
+     */
+    public void writeVarLong(long value) {
+        alignToByte();
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+    /**
+     * Writes a whole byte at a byte boundary.
+     * @param value The byte to write.
+     */
+    public void writeByte(int value) {
+        alignToByte();
+        int byteIndex = (int) (bitPosition >>> 3);
+        ensureCapacity(byteIndex + 1);
+        buffer[byteIndex] = (byte) value;
+        bitPosition += 8;
+    }
+    /**
+     * Writes a 32 bit number at a byte boundary, most significant byte first.
+     * @param value The value to write.
+     */
+    public void writeInt(int value) {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+    /**
+     * Gets the number of bytes used so far, counting a partly written byte.
+     * @return The length of the written data in bytes.
+     */
+    public int length() {
+        return (int) ((bitPosition + 7) >>> 3);
+    }
+    /**
+     * Gets the internal buffer, which is valid up to length().
+     * @return The buffer holding the written data.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+    /**
+     * Copies the written data into a new array.
+     * @return The written bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length());
+    }
+    /**
+     * Empties the writer so the buffer can be used again.
+     */
+    public void clear() {
+        Arrays.fill(buffer, 0, length(), (byte) 0);
+        bitPosition = 0;
+    }
+    /**
+     * Grows the buffer if it is smaller than the specified size.
+     * @param size The number of bytes needed.
+     */
+    private void ensureCapacity(int size) {
+        if (size > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(size, buffer.length * 2));
+        }
+    }
+}
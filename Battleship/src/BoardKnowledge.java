@@ -0,0 +1,404 @@
+import java.util.Random;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: BoardKnowledge.
+ * Stores what an attacker knows about a grid: which cells were missed, which were hit,
+ * which belong to ships that have already sunk, and which ship sizes are still afloat.
+ * It can score every cell either by counting all ship placements that still fit, or by
+ * sampling complete random fleets that agree with everything seen so far.
+ * Cells are stored in a flat array using the index x * GRID_HEIGHT + y.
+ */
+public class BoardKnowledge {
+    /**
+     * The cell has not been attacked yet.
+     */
+    public static final byte UNKNOWN = 0;
+    /**
+     * The cell was attacked and there was no ship.
+     */
+    public static final byte MISS = 1;
+    /**
+     * The cell was attacked and hit a ship that is still afloat.
+     */
+    public static final byte HIT = 2;
+    /**
+     * The cell belongs to a ship that has been sunk.
+     */
+    public static final byte SUNK = 3;
+    /**
+     * Multiplier applied for every known hit that a placement covers, so that cells
+     * around hits are strongly preferred while a ship is being hunted down.
+     */
+    private static final float HIT_WEIGHT = 20f;
+    /**
+     * Number of random attempts to fit a single ship while sampling a fleet.
+     */
+    private static final int PLACEMENT_TRIES = 40;
+    /**
+     * State of every cell on the grid.
+     */
+    private final byte[] cells = new byte[SelectionGrid.GRID_WIDTH * SelectionGrid.GRID_HEIGHT];
+    /**
+     * Sizes of the ships that have not been sunk yet. Only the first remainingCount entries are used.
+     */
+    private final int[] remainingShips = new int[SelectionGrid.BOAT_SIZES.length];
+    /**
+     * Number of ships that have not been sunk yet.
+     */
+    private int remainingCount;
+    /**
+     * Indexes of the cells that are HIT. Only the first hitCount entries are used.
+     */
+    private final int[] hitCells = new int[cells.length];
+    /**
+     * Number of cells that are HIT.
+     */
+    private int hitCount;
+    /**
+     * Ships found sunk while reading a grid, used to work out the remaining fleet.
+     */
+    private final Ship[] sunkShips = new Ship[SelectionGrid.BOAT_SIZES.length];
+    /**
+     * Cells used by the fleet that is currently being sampled.
+     */
+    private final boolean[] occupied = new boolean[cells.length];
+    /**
+     * Order the remaining ships are placed in while sampling.
+     */
+    private final int[] shipOrder = new int[SelectionGrid.BOAT_SIZES.length];
+    /**
+     * Creates knowledge of an untouched grid with the full fleet still afloat.
+     */
+    public BoardKnowledge() {
+        clear();
+    }
+    /**
+     * Gets the flat index used for a grid coordinate.
+     * @param x X coordinate in the grid.
+     * @param y Y coordinate in the grid.
+     * @return The index of the cell in the flat arrays.
+     */
+    public static int indexOf(int x, int y) {
+        return x * SelectionGrid.GRID_HEIGHT + y;
+    }
+    /**
+     * Gets the number of cells including the label row and column.
+     * @return The length needed for arrays that hold one value per cell.
+     */
+    public static int cellCount() {
+        return SelectionGrid.GRID_WIDTH * SelectionGrid.GRID_HEIGHT;
+    }
+    /**
+     * Forgets everything so every cell is UNKNOWN and the full fleet is afloat.
+     */
+    public void clear() {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = UNKNOWN;
+        }
+        remainingCount = SelectionGrid.BOAT_SIZES.length;
+        System.arraycopy(SelectionGrid.BOAT_SIZES, 0, remainingShips, 0, remainingCount);
+        hitCount = 0;
+    }
+    /**
+     * Reads what an attacker can see on the grid. Only marked cells are looked at, and a ship
+     * is only treated as sunk once all of its segments have been destroyed.
+     * @param grid The grid being attacked.
+     */
+    public void readFrom(SelectionGrid grid) {
+        clear();
+        int sunkCount = 0;
+        for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                Marker marker = grid.getMarkerAt(x, y);
+                if (!marker.isMarked()) continue;
+                if (!marker.isShip()) {
+                    cells[indexOf(x, y)] = MISS;
+                } else if (marker.getAssociatedShip().isDestroyed()) {
+                    cells[indexOf(x, y)] = SUNK;
+                    Ship ship = marker.getAssociatedShip();
+                    boolean seen = false;
+                    for (int i = 0; i < sunkCount; i++) {
+                        if (sunkShips[i] == ship) {
+                            seen = true;
+                            break;
+                        }
+                    }
+                    if (!seen && sunkCount < sunkShips.length) {
+                        sunkShips[sunkCount++] = ship;
+                    }
+                } else {
+                    cells[indexOf(x, y)] = HIT;
+                    hitCells[hitCount++] = indexOf(x, y);
+                }
+            }
+        }
+        for (int i = 0; i < sunkCount; i++) {
+            removeRemainingShip(sunkShips[i].getSegments());
+            sunkShips[i] = null;
+        }
+    }
+    /**
+     * Reads what an attacker can see on a snapshot of a grid, like readFrom(SelectionGrid) does
+     * for the grid itself. Snapshots never change, so this can be done on any thread.
+     * @param board The snapshot of the grid being attacked.
+     */
+    public void readFrom(BoardSnapshot board) {
+        clear();
+        for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                if (!board.isAttacked(x, y)) continue;
+                setCell(x, y, !board.isShipAt(x, y) ? MISS : board.isSunkAt(x, y) ? SUNK : HIT);
+            }
+        }
+        int[] sunk = new int[board.getShipCount()];
+        int sunkCount = board.getSunkShipSegments(sunk);
+        for (int i = 0; i < sunkCount; i++) {
+            removeRemainingShip(sunk[i]);
+        }
+    }
+    /**
+     * Records the result of an attack on a single cell.
+     * @param x X coordinate in the grid.
+     * @param y Y coordinate in the grid.
+     * @param state One of MISS, HIT or SUNK.
+     */
+    public void setCell(int x, int y, byte state) {
+        int index = indexOf(x, y);
+        if (cells[index] == HIT && state != HIT) {
+            removeHitCell(index);
+        } else if (cells[index] != HIT && state == HIT) {
+            hitCells[hitCount++] = index;
+        }
+        cells[index] = state;
+    }
+    /**
+     * Gets the state of a cell.
+     * @param x X coordinate in the grid.
+     * @param y Y coordinate in the grid.
+     * @return One of UNKNOWN, MISS, HIT or SUNK.
+     */
+    public byte getCell(int x, int y) {
+        return cells[indexOf(x, y)];
+    }
+    /**
+     * Removes one ship of the given size from the fleet that is still afloat.
+     * @param segments Size of the ship that has sunk.
+     */
+    public void removeRemainingShip(int segments) {
+        for (int i = 0; i < remainingCount; i++) {
+            if (remainingShips[i] == segments) {
+                remainingShips[i] = remainingShips[remainingCount - 1];
+                remainingCount--;
+                return;
+            }
+        }
+    }
+    /**
+     * Gets the number of ships that are still afloat.
+     * @return Number of ships not yet sunk.
+     */
+    public int getRemainingCount() {
+        return remainingCount;
+    }
+    /**
+     * Gets if there are hits on ships that have not sunk yet.
+     * @return True if a ship has been found but is not yet destroyed.
+     */
+    public boolean isTargeting() {
+        return hitCount > 0;
+    }
+    /**
+     * Scores every unknown cell by counting each ship placement of the remaining fleet that still
+     * fits around the known misses and sunk ships. Placements through known hits count for much more.
+     * The scores are added to the values already in the array.
+     * @param scores One value per cell, see cellCount().
+     * @return The number of placements that were considered.
+     */
+    public int density(float[] scores) {
+        int considered = 0;
+        for (int i = 0; i < remainingCount; i++) {
+            int segments = remainingShips[i];
+            for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                    considered += addPlacement(scores, x, y, segments, true);
+                    considered += addPlacement(scores, x, y, segments, false);
+                }
+            }
+        }
+        return considered;
+    }
+    /**
+     * Adds the weight of a single placement to the scores if the placement is possible.
+     * @param scores One value per cell.
+     * @param gridX X coordinate of the first segment.
+     * @param gridY Y coordinate of the first segment.
+     * @param segments The number of segments of the ship.
+     * @param sideways True if the ship is horizontal.
+     * @return 1 if the placement was possible, otherwise 0.
+     */
+    private int addPlacement(float[] scores, int gridX, int gridY, int segments, boolean sideways) {
+        int hits = countPlacementHits(gridX, gridY, segments, sideways);
+        if (hits < 0) return 0;
+        // While hunting a found ship, placements that do not explain any hits are not interesting
+        if (hitCount > 0 && hits == 0) return 1;
+        float weight = 1f;
+        for (int i = 0; i < hits; i++) {
+            weight *= HIT_WEIGHT;
+        }
+        int step = sideways ? SelectionGrid.GRID_HEIGHT : 1;
+        int index = indexOf(gridX, gridY);
+        for (int i = 0; i < segments; i++, index += step) {
+            if (cells[index] == UNKNOWN) {
+                scores[index] += weight;
+            }
+        }
+        return 1;
+    }
+    /**
+     * Tests a placement against the known cells.
+     * @param gridX X coordinate of the first segment.
+     * @param gridY Y coordinate of the first segment.
+     * @param segments The number of segments of the ship.
+     * @param sideways True if the ship is horizontal.
+     * @return The number of known hits the placement covers, or -1 if the placement is impossible.
+     */
+    private int countPlacementHits(int gridX, int gridY, int segments, boolean sideways) {
+        if (gridX < 1 || gridY < 1) return -1;
+        if (sideways ? gridX + segments > SelectionGrid.GRID_WIDTH : gridY + segments > SelectionGrid.GRID_HEIGHT) return -1;
+        int step = sideways ? SelectionGrid.GRID_HEIGHT : 1;
+        int index = indexOf(gridX, gridY);
+        int hits = 0;
+        for (int i = 0; i < segments; i++, index += step) {
+            byte cell = cells[index];
+            if (cell == MISS || cell == SUNK || occupied[index]) return -1;
+            if (cell == HIT) hits++;
+        }
+        return hits;
+    }
+    /**
+     * Samples one complete random fleet that agrees with the known cells. The remaining ships are
+     * placed randomly around the misses and sunk ships, and the fleet is rejected unless it covers
+     * every known hit. When a fleet is accepted, every unknown cell it covers gets one more count.
+     * @param rand The random generator to use.
+     * @param counts One value per cell that accepted samples are added to.
+     * @return True if a consistent fleet was found, false if the sample was rejected.
+     */
+    public boolean sample(Random rand, float[] counts) {
+        if (!placeRandomFleet(rand, false)) return false;
+        for (int i = 0; i < cells.length; i++) {
+            if (occupied[i] && cells[i] == UNKNOWN) {
+                counts[i]++;
+            }
+        }
+        return true;
+    }
+    /**
+     * Samples one complete random fleet that agrees with the known cells, like sample(), and
+     * gives the cells it covers instead of counting them, for playing the rest of a game out.
+     * Ships are placed through the hits they have to cover first, which finds a fleet far more
+     * often once several ships have been hit, at the cost of not every fleet being equally likely.
+     * @param rand The random generator to use.
+     * @param shipCells One value per cell, set to true where a ship that has not sunk is and false elsewhere.
+     * @return True if a consistent fleet was found, false if the sample was rejected and shipCells is unchanged.
+     */
+    public boolean sampleFleet(Random rand, boolean[] shipCells) {
+        if (!placeRandomFleet(rand, true)) return false;
+        System.arraycopy(occupied, 0, shipCells, 0, occupied.length);
+        return true;
+    }
+    /**
+     * Places the remaining ships randomly around the misses and sunk ships into occupied.
+     * @param rand The random generator to use.
+     * @param throughHits True to try placing each ship through a hit not covered yet before anywhere else.
+     * @return True if every ship fitted and the fleet covers every known hit.
+     */
+    private boolean placeRandomFleet(Random rand, boolean throughHits) {
+        for (int i = 0; i < occupied.length; i++) {
+            occupied[i] = false;
+        }
+        System.arraycopy(remainingShips, 0, shipOrder, 0, remainingCount);
+        for (int i = remainingCount - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int temp = shipOrder[i];
+            shipOrder[i] = shipOrder[j];
+            shipOrder[j] = temp;
+        }
+        // Place the fleet anywhere it fits
+        for (int placed = 0; placed < remainingCount; placed++) {
+            int segments = shipOrder[placed];
+            boolean found = throughHits && placeThroughHit(rand, segments);
+            for (int attempt = 0; attempt < PLACEMENT_TRIES && !found; attempt++) {
+                boolean sideways = rand.nextBoolean();
+                int gridX = 1 + rand.nextInt(sideways ? SelectionGrid.GRID_WIDTH - segments : SelectionGrid.GRID_WIDTH - 1);
+                int gridY = 1 + rand.nextInt(sideways ? SelectionGrid.GRID_HEIGHT - 1 : SelectionGrid.GRID_HEIGHT - segments);
+                if (countPlacementHits(gridX, gridY, segments, sideways) >= 0) {
+                    occupy(gridX, gridY, segments, sideways);
+                    found = true;
+                }
+            }
+            if (!found) return false;
+        }
+        // The fleet has to explain every known hit
+        for (int h = 0; h < hitCount; h++) {
+            if (!occupied[hitCells[h]]) return false;
+        }
+        return true;
+    }
+    /**
+     * Tries to place a ship so it covers a random known hit that no placed ship covers yet.
+     * @param rand The random generator to use.
+     * @param segments The number of segments of the ship.
+     * @return True if the ship was placed, false if there is no such hit or the ship did not fit through it.
+     */
+    private boolean placeThroughHit(Random rand, int segments) {
+        int uncovered = 0;
+        for (int h = 0; h < hitCount; h++) {
+            if (!occupied[hitCells[h]]) uncovered++;
+        }
+        if (uncovered == 0) return false;
+        int pick = rand.nextInt(uncovered);
+        int hit = -1;
+        for (int h = 0; h < hitCount && hit < 0; h++) {
+            if (!occupied[hitCells[h]] && pick-- == 0) hit = hitCells[h];
+        }
+        int hitX = hit / SelectionGrid.GRID_HEIGHT;
+        int hitY = hit % SelectionGrid.GRID_HEIGHT;
+        for (int attempt = 0; attempt < PLACEMENT_TRIES; attempt++) {
+            boolean sideways = rand.nextBoolean();
+            int offset = rand.nextInt(segments);
+            int gridX = sideways ? hitX - offset : hitX;
+            int gridY = sideways ? hitY : hitY - offset;
+            if (countPlacementHits(gridX, gridY, segments, sideways) >= 0) {
+                occupy(gridX, gridY, segments, sideways);
+                return true;
+            }
+        }
+        return false;
+    }
+    /**
+     * Marks the cells of a sampled ship as used.
+     * @param gridX X coordinate of the first segment.
+     * @param gridY Y coordinate of the first segment.
+     * @param segments The number of segments of the ship.
+     * @param sideways True if the ship is horizontal.
+     */
+    private void occupy(int gridX, int gridY, int segments, boolean sideways) {
+        int step = sideways ? SelectionGrid.GRID_HEIGHT : 1;
+        int index = indexOf(gridX, gridY);
+        for (int i = 0; i < segments; i++, index += step) {
+            occupied[index] = true;
+        }
+    }
+    /**
+     * Removes a cell from the list of hit cells.
+     * @param index The index of the cell.
+     */
+    private void removeHitCell(int index) {
+        for (int i = 0; i < hitCount; i++) {
+            if (hitCells[i] == index) {
+                hitCells[i] = hitCells[--hitCount];
+                return;
+            }
+        }
+    }
+}
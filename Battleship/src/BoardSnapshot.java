@@ -0,0 +1,269 @@
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: BoardSnapshot.
+ * An unchangeable picture of one grid: where the ships are and which cells have been attacked.
+ * Adding a ship or a shot gives a new snapshot in constant time without copying anything, because
+ * the new snapshot shares the ships of the old one and the attacked cells fit in two longs. Every
+ * earlier snapshot stays valid, so keeping one per move costs a few dozen bytes each, which makes
+ * them cheap enough for undo and for AIs that look ahead by trying moves on a copy of the board.
+ * Whether an attacked cell hit and whether a ship is sunk follow from the ships and the shots,
+ * and opened treasures from the shots, so none of them are stored.
+ */
+public final class BoardSnapshot {
+    /**
+     * A board with no ships and no shots.
+     */
+    public static final BoardSnapshot EMPTY = new BoardSnapshot(null, 0, 0, 0);
+    /**
+     * The last ship placed, linked to the ones placed before it, or null if there are none.
+     */
+    private final ShipNode ships;
+    /**
+     * Attacked cells with a BoardKnowledge.indexOf() below 64, one bit each.
+     */
+    private final long attackedLow;
+    /**
+     * Attacked cells with a BoardKnowledge.indexOf() of 64 or more, one bit each.
+     */
+    private final long attackedHigh;
+    /**
+     * Number of attacked cells.
+     */
+    private final int attackedCount;
+    /**
+     * One ship of a snapshot. Nodes are never changed, so every snapshot placed on top of them can share them.
+     */
+    private static final class ShipNode {
+        /**
+         * X coordinate of the first cell of the ship.
+         */
+        final int x;
+        /**
+         * Y coordinate of the first cell of the ship.
+         */
+        final int y;
+        /**
+         * Number of cells of the ship.
+         */
+        final int segments;
+        /**
+         * True if the ship runs along the x axis.
+         */
+        final boolean sideways;
+        /**
+         * The ship placed before this one, or null.
+         */
+        final ShipNode previous;
+        /**
+         * Number of ships up to and including this one.
+         */
+        final int count;
+        /**
+         * Creates a ship on top of the ones placed before it.
+         * @param x X coordinate of the first cell.
+         * @param y Y coordinate of the first cell.
+         * @param segments Number of cells.
+         * @param sideways True if the ship runs along the x axis.
+         * @param previous The ship placed before, or null.
+         */
+        ShipNode(int x, int y, int segments, boolean sideways, ShipNode previous) {
+            this.x = x;
+            this.y = y;
+            this.segments = segments;
+            this.sideways = sideways;
+            this.previous = previous;
+            count = previous == null ? 1 : previous.count + 1;
+        }
+        /**
+         * Checks if the ship covers a cell.
+         * @param cellX X coordinate of the cell.
+         * @param cellY Y coordinate of the cell.
+         * @return True if it does.
+         */
+        boolean covers(int cellX, int cellY) {
+            return sideways ? cellY == y && cellX >= x && cellX < x + segments
+                    : cellX == x && cellY >= y && cellY < y + segments;
+        }
+    }
+    /**
+     * Creates a snapshot.
+     * @param ships The last ship placed, or null.
+     * @param attackedLow Attacked cells with an index below 64.
+     * @param attackedHigh Attacked cells with an index of 64 or more.
+     * @param attackedCount Number of attacked cells.
+     */
+    private BoardSnapshot(ShipNode ships, long attackedLow, long attackedHigh, int attackedCount) {
+        this.ships = ships;
+        this.attackedLow = attackedLow;
+        this.attackedHigh = attackedHigh;
+        this.attackedCount = attackedCount;
+    }
+    /**
+     * Takes a snapshot of a grid. This looks at every cell, so keep a snapshot up to date with
+     * withShip() and withShot() instead of taking a new one after every move.
+     * @param grid The grid.
+     * @return The snapshot of its ships and attacked cells.
+     */
+    public static BoardSnapshot of(SelectionGrid grid) {
+        BoardSnapshot snapshot = EMPTY;
+        for (Ship ship : grid.getShips()) {
+            snapshot = snapshot.withShip(ship);
+        }
+        for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                if (grid.getMarkerAt(x, y).isMarked()) snapshot = snapshot.withShot(x, y);
+            }
+        }
+        return snapshot;
+    }
+    /**
+     * Gets a snapshot with one more ship.
+     * @param x X coordinate of the first cell of the ship.
+     * @param y Y coordinate of the first cell of the ship.
+     * @param segments Number of cells of the ship.
+     * @param sideways True if the ship runs along the x axis.
+     * @return The new snapshot, sharing everything else with this one.
+     */
+    public BoardSnapshot withShip(int x, int y, int segments, boolean sideways) {
+        return new BoardSnapshot(new ShipNode(x, y, segments, sideways, ships), attackedLow, attackedHigh, attackedCount);
+    }
+    /**
+     * Gets a snapshot with one more ship, placed where a ship of a grid is.
+     * @param ship The ship.
+     * @return The new snapshot, sharing everything else with this one.
+     */
+    public BoardSnapshot withShip(Ship ship) {
+        return withShip(ship.getGridPosition().x, ship.getGridPosition().y, ship.getSegments(), ship.isSideways());
+    }
+    /**
+     * Gets a snapshot with one more attacked cell.
+     * @param x X coordinate of the cell.
+     * @param y Y coordinate of the cell.
+     * @return The new snapshot sharing the ships with this one, or this one if the cell was already attacked.
+     */
+    public BoardSnapshot withShot(int x, int y) {
+        if (isAttacked(x, y)) return this;
+        int index = BoardKnowledge.indexOf(x, y);
+        return index < 64 ? new BoardSnapshot(ships, attackedLow | 1L << index, attackedHigh, attackedCount + 1)
+                : new BoardSnapshot(ships, attackedLow, attackedHigh | 1L << (index - 64), attackedCount + 1);
+    }
+    /**
+     * Checks if a cell has been attacked.
+     * @param x X coordinate of the cell.
+     * @param y Y coordinate of the cell.
+     * @return True if it has.
+     */
+    public boolean isAttacked(int x, int y) {
+        int index = BoardKnowledge.indexOf(x, y);
+        return index < 64 ? (attackedLow >>> index & 1) != 0 : (attackedHigh >>> (index - 64) & 1) != 0;
+    }
+    /**
+     * Gets the number of attacked cells.
+     * @return The number of shots that have landed on the board.
+     */
+    public int getAttackedCount() {
+        return attackedCount;
+    }
+    /**
+     * Gets the number of ships.
+     * @return The number of ships placed.
+     */
+    public int getShipCount() {
+        return ships == null ? 0 : ships.count;
+    }
+    /**
+     * Finds the ship covering a cell.
+     * @param x X coordinate of the cell.
+     * @param y Y coordinate of the cell.
+     * @return The ship, or null if the cell is empty.
+     */
+    private ShipNode shipAt(int x, int y) {
+        for (ShipNode ship = ships; ship != null; ship = ship.previous) {
+            if (ship.covers(x, y)) return ship;
+        }
+        return null;
+    }
+    /**
+     * Checks if a ship covers a cell.
+     * @param x X coordinate of the cell.
+     * @param y Y coordinate of the cell.
+     * @return True if it does.
+     */
+    public boolean isShipAt(int x, int y) {
+        return shipAt(x, y) != null;
+    }
+    /**
+     * Checks if a cell was attacked and hit a ship.
+     * @param x X coordinate of the cell.
+     * @param y Y coordinate of the cell.
+     * @return True if it was.
+     */
+    public boolean isHit(int x, int y) {
+        return isAttacked(x, y) && isShipAt(x, y);
+    }
+    /**
+     * Checks if the ship covering a cell has been hit on every cell.
+     * @param x X coordinate of the cell.
+     * @param y Y coordinate of the cell.
+     * @return True if there is a ship there and it is sunk.
+     */
+    public boolean isSunkAt(int x, int y) {
+        ShipNode ship = shipAt(x, y);
+        return ship != null && isSunk(ship);
+    }
+    /**
+     * Checks if a ship has been hit on every cell.
+     * @param ship The ship.
+     * @return True if it is sunk.
+     */
+    private boolean isSunk(ShipNode ship) {
+        for (int i = 0; i < ship.segments; i++) {
+            if (!isAttacked(ship.sideways ? ship.x + i : ship.x, ship.sideways ? ship.y : ship.y + i)) return false;
+        }
+        return true;
+    }
+    /**
+     * Gets the sizes of the sunk ships.
+     * @param segments Receives the number of cells of every sunk ship, it needs room for getShipCount() values.
+     * @return The number of sunk ships.
+     */
+    public int getSunkShipSegments(int[] segments) {
+        int count = 0;
+        for (ShipNode ship = ships; ship != null; ship = ship.previous) {
+            if (isSunk(ship)) segments[count++] = ship.segments;
+        }
+        return count;
+    }
+    /**
+     * Checks if every ship has been sunk.
+     * @return True if there is at least one ship and all of them are sunk.
+     */
+    public boolean areAllShipsSunk() {
+        if (ships == null) return false;
+        for (ShipNode ship = ships; ship != null; ship = ship.previous) {
+            if (!isSunk(ship)) return false;
+        }
+        return true;
+    }
+    /**
+     * Puts a grid in the state of this snapshot, keeping its treasures. The ships are placed in
+     * the order they were added and the cells are marked directly, so no shots are fired again.
+     * @param grid The grid to change.
+     */
+    public void restore(SelectionGrid grid) {
+        grid.reset();
+        ShipNode[] order = new ShipNode[getShipCount()];
+        for (ShipNode ship = ships; ship != null; ship = ship.previous) {
+            order[ship.count - 1] = ship;
+        }
+        for (ShipNode ship : order) {
+            grid.placeShip(ship.x, ship.y, ship.segments, ship.sideways);
+        }
+        for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                if (isAttacked(x, y)) grid.restoreShot(x, y);
+            }
+        }
+        grid.finishRestore();
+    }
+}
@@ -1,8 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
-import java.io.File;
-import java.io.IOException;
 import javax.swing.border.Border;
 /**
  * DSA Project - Battleship Game - Panadol Extra.
@@ -10,16 +8,13 @@ import javax.swing.border.Border;
  * Manages custom buttons and border styles for Swing components.
  */
 public class ButtonManager {
-    private static Font VT323;
-    static {
-        try {
-            VT323 = Font.createFont(Font.TRUETYPE_FONT, new File("VT323-Regular.ttf")).deriveFont(30f).deriveFont(Font.BOLD); // Adjust the font size as needed
-            GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-            ge.registerFont(VT323);
-        } catch (IOException | FontFormatException e) {
-            e.printStackTrace();
-            VT323 = new Font("Serif", Font.BOLD, 20);
-        }
+    /**
+     * Gets the font of the buttons from the shared AssetCache, so nothing is loaded until a
+     * button is created and every window uses the same immutable font.
+     * @return The VT323 font at 30 points in bold, or a serif font if it could not be loaded.
+     */
+    private static Font buttonFont() {
+        return AssetCache.getFont("VT323-Regular.ttf", 30f, new Font("Serif", Font.BOLD, 20)).deriveFont(Font.BOLD);
     }
     /**
      * A custom Border implementation that creates a rounded border for Swing components.
@@ -66,19 +61,19 @@ public class ButtonManager {
             setFocusPainted(false);
             setContentAreaFilled(false);
             setOpaque(false);
-            setFont(VT323);
+            setFont(buttonFont());
 
             // Adding mouse hover effects
             addMouseListener(new java.awt.event.MouseAdapter() {
                 public void mouseEntered(java.awt.event.MouseEvent evt) {
                     setBackground(hoverBackgroundColor);
                     setBorderThickness(10);
-                    setFont(VT323);
+                    setFont(buttonFont());
                 }
                 public void mouseExited(java.awt.event.MouseEvent evt) {
                     setBackground(normalBackgroundColor);
                     setBorderThickness(10);
-                    setFont(VT323);
+                    setFont(buttonFont());
                 }
             });
         }
@@ -116,7 +111,7 @@ public class ButtonManager {
             // Mouse effects for hover in and hover out
             button.addMouseListener(new java.awt.event.MouseAdapter() {
                 public void mouseEntered(java.awt.event.MouseEvent evt) {
-                    button.setFont(VT323);
+                    button.setFont(buttonFont());
                     button.setForeground(Color.YELLOW);
                 }
                 public void mouseExited(java.awt.event.MouseEvent evt) {
@@ -135,7 +130,7 @@ public class ButtonManager {
             button.setContentAreaFilled(false);
             button.setBorderPainted(false);
             button.setForeground(Color.WHITE);
-            button.setFont(VT323);
+            button.setFont(buttonFont());
             button.setFocusPainted(false);
             button.setBorder(new RoundedBorder(10, 1));
 
@@ -0,0 +1,71 @@
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: DensityMovePredictor.
+ * Predicts the computer's next shot as the cell that the most remaining ship placements pass through,
+ * the same score the AnytimeAI starts from. Ties go to the lowest cell index, so the prediction
+ * is always the same for the same events.
+ */
+public class DensityMovePredictor implements MovePredictor {
+    /**
+     * What the computer knows about the player's grid.
+     */
+    private final BoardKnowledge knowledge = new BoardKnowledge();
+    /**
+     * Score of each cell for the current prediction.
+     */
+    private final float[] scores = new float[BoardKnowledge.cellCount()];
+    /**
+     * Forgets the previous game.
+     */
+    @Override
+    public void reset() {
+        knowledge.clear();
+    }
+    /**
+     * Records the results of the computer's shots and the ships it has sunk.
+     * @param event The packed event, see GameEvent.
+     */
+    @Override
+    public void observe(int event) {
+        if (GameEvent.side(event) != GameEvent.COMPUTER) return;
+        int type = GameEvent.type(event);
+        if (type == GameEvent.RESULT) {
+            boolean hit = (GameEvent.arg(event) & GameEvent.HIT_FLAG) != 0;
+            knowledge.setCell(GameEvent.x(event), GameEvent.y(event), hit ? BoardKnowledge.HIT : BoardKnowledge.MISS);
+        } else if (type == GameEvent.SINK) {
+            int x = GameEvent.x(event);
+            int y = GameEvent.y(event);
+            for (int i = 0; i < GameEvent.segments(event); i++) {
+                if (GameEvent.sideways(event)) {
+                    knowledge.setCell(x + i, y, BoardKnowledge.SUNK);
+                } else {
+                    knowledge.setCell(x, y + i, BoardKnowledge.SUNK);
+                }
+            }
+            knowledge.removeRemainingShip(GameEvent.segments(event));
+        }
+    }
+    /**
+     * Finds the unknown cell with the highest placement count.
+     * @return The index of the cell, or -1 if every cell has been attacked.
+     */
+    @Override
+    public int predictComputerShot() {
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = 0;
+        }
+        knowledge.density(scores);
+        int best = -1;
+        float bestScore = -1;
+        for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                int index = BoardKnowledge.indexOf(x, y);
+                if (knowledge.getCell(x, y) == BoardKnowledge.UNKNOWN && scores[index] > bestScore) {
+                    bestScore = scores[index];
+                    best = index;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: DifficultyStats.
+ * The results of the finished games and the AI move times of one difficulty, read from the
+ * Metrics for JMX. BattleshipStats.register() registers one for every difficulty.
+ */
+public class DifficultyStats implements DifficultyStatsMBean {
+    /**
+     * The difficulty the statistics are about.
+     */
+    private final Game.GameDifficulty difficulty;
+    /**
+     * Creates the statistics of a difficulty.
+     * @param difficulty The difficulty.
+     */
+    public DifficultyStats(Game.GameDifficulty difficulty) {
+        this.difficulty = difficulty;
+    }
+    /**
+     * Gets the number of games finished at this difficulty.
+     * @return The wins of both sides.
+     */
+    @Override
+    public long getGamesCompleted() {
+        return getPlayerWins() + getComputerWins();
+    }
+    /**
+     * Gets the number of games the player won.
+     * @return The player's wins.
+     */
+    @Override
+    public long getPlayerWins() {
+        return Metrics.getPlayerWins(difficulty);
+    }
+    /**
+     * Gets the number of games the computer won.
+     * @return The computer's wins.
+     */
+    @Override
+    public long getComputerWins() {
+        return Metrics.getComputerWins(difficulty);
+    }
+    /**
+     * Gets the share of finished games the player won.
+     * @return The win ratio from 0 to 1, or 0 if no game has finished.
+     */
+    @Override
+    public double getPlayerWinRatio() {
+        long games = getGamesCompleted();
+        return games == 0 ? 0 : (double) getPlayerWins() / games;
+    }
+    /**
+     * Gets the mean number of shots fired by both sides in a finished game.
+     * @return The mean shots per game, or 0 if no game has finished.
+     */
+    @Override
+    public double getMeanShotsPerGame() {
+        long games = getGamesCompleted();
+        return games == 0 ? 0 : (double) Metrics.getGameShots(difficulty) / games;
+    }
+    /**
+     * Gets the number of moves selected by the AI.
+     * @return The number of timed moves.
+     */
+    @Override
+    public long getAIMoves() {
+        return moveTimes().getCount();
+    }
+    /**
+     * Gets the median time of the AI to select a move.
+     * @return The p50 in microseconds.
+     */
+    @Override
+    public double getAIMoveP50Micros() {
+        return moveTimes().getPercentile(50) / 1e3;
+    }
+    /**
+     * Gets the time within which 99% of the AI moves were selected.
+     * @return The p99 in microseconds.
+     */
+    @Override
+    public double getAIMoveP99Micros() {
+        return moveTimes().getPercentile(99) / 1e3;
+    }
+    /**
+     * Gets the time within which 99.9% of the AI moves were selected.
+     * @return The p999 in microseconds.
+     */
+    @Override
+    public double getAIMoveP999Micros() {
+        return moveTimes().getPercentile(99.9) / 1e3;
+    }
+    /**
+     * Gets the longest time the AI took to select a move.
+     * @return The maximum in microseconds.
+     */
+    @Override
+    public double getAIMoveMaxMicros() {
+        return moveTimes().getMax() / 1e3;
+    }
+    /**
+     * Copies the histogram of the AI move times.
+     * @return The snapshot.
+     */
+    private LatencyHistogram.Snapshot moveTimes() {
+        return Metrics.aiMoveTime(difficulty).snapshot(false);
+    }
+}
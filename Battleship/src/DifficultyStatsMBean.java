@@ -0,0 +1,57 @@
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: DifficultyStatsMBean.
+ * The management interface of DifficultyStats, as seen in JConsole or any other JMX client.
+ */
+public interface DifficultyStatsMBean {
+    /**
+     * Gets the number of games finished at this difficulty.
+     * @return The number of completed games.
+     */
+    long getGamesCompleted();
+    /**
+     * Gets the number of games the player won.
+     * @return The player's wins.
+     */
+    long getPlayerWins();
+    /**
+     * Gets the number of games the computer won.
+     * @return The computer's wins.
+     */
+    long getComputerWins();
+    /**
+     * Gets the share of finished games the player won.
+     * @return The win ratio from 0 to 1, or 0 if no game has finished.
+     */
+    double getPlayerWinRatio();
+    /**
+     * Gets the mean number of shots fired by both sides in a finished game.
+     * @return The mean shots per game, or 0 if no game has finished.
+     */
+    double getMeanShotsPerGame();
+    /**
+     * Gets the number of moves selected by the AI.
+     * @return The number of timed moves.
+     */
+    long getAIMoves();
+    /**
+     * Gets the median time of the AI to select a move.
+     * @return The p50 in microseconds.
+     */
+    double getAIMoveP50Micros();
+    /**
+     * Gets the time within which 99% of the AI moves were selected.
+     * @return The p99 in microseconds.
+     */
+    double getAIMoveP99Micros();
+    /**
+     * Gets the time within which 99.9% of the AI moves were selected.
+     * @return The p999 in microseconds.
+     */
+    double getAIMoveP999Micros();
+    /**
+     * Gets the longest time the AI took to select a move.
+     * @return The maximum in microseconds.
+     */
+    double getAIMoveMaxMicros();
+}
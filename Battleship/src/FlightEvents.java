@@ -0,0 +1,220 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: FlightEvents.
+ * The JDK Flight Recorder events of the game, so a recording shows AI moves, shots, sunk ships,
+ * asset loads, sounds and frame paints next to the GC, allocation and thread events of the JVM
+ * in JDK Mission Control. Record with -XX:StartFlightRecording or jcmd JFR.start; the events are
+ * under the Battleship category.
+ * Each event is begun before the work and committed after it, and fields that take work to fill
+ * are only set when shouldCommit() is true. The events of every shot, AI move and frame are only
+ * created while a recording wants them, checked on a probe event, so when nothing is recording
+ * they cost one check and allocate nothing, and can stay in the shipped game.
+ */
+public class FlightEvents {
+    /**
+     * Never committed, only asked if AI move events are recorded.
+     */
+    private static final AIMoveEvent AI_MOVE_PROBE = new AIMoveEvent();
+    /**
+     * Never committed, only asked if shot events are recorded.
+     */
+    private static final ShotEvent SHOT_PROBE = new ShotEvent();
+    /**
+     * Never committed, only asked if frame paint events are recorded.
+     */
+    private static final FramePaintEvent FRAME_PAINT_PROBE = new FramePaintEvent();
+    /**
+     * Begins an AI move event if they are recorded.
+     * @return The begun event, or null if nothing records it.
+     */
+    public static AIMoveEvent beginAIMove() {
+        if (!AI_MOVE_PROBE.isEnabled()) return null;
+        AIMoveEvent event = new AIMoveEvent();
+        event.begin();
+        return event;
+    }
+    /**
+     * Begins a shot event if they are recorded.
+     * @return The begun event, or null if nothing records it.
+     */
+    public static ShotEvent beginShot() {
+        if (!SHOT_PROBE.isEnabled()) return null;
+        ShotEvent event = new ShotEvent();
+        event.begin();
+        return event;
+    }
+    /**
+     * Begins a frame paint event if they are recorded.
+     * @return The begun event, or null if nothing records it.
+     */
+    public static FramePaintEvent beginFramePaint() {
+        if (!FRAME_PAINT_PROBE.isEnabled()) return null;
+        FramePaintEvent event = new FramePaintEvent();
+        event.begin();
+        return event;
+    }
+    /**
+     * The computer's AI selecting a move.
+     */
+    @Name("battleship.AIMove")
+    @Label("AI Move")
+    @Category({"Battleship", "AI"})
+    @Description("The computer's AI selecting a move")
+    public static class AIMoveEvent extends Event {
+        /**
+         * Class of the AI.
+         */
+        @Label("Strategy")
+        String strategy;
+        /**
+         * Difficulty of the game.
+         */
+        @Label("Difficulty")
+        String difficulty;
+        /**
+         * Number of untried cells the AI chose from.
+         */
+        @Label("Candidates")
+        int candidates;
+        /**
+         * Number of random fleets the AI sampled.
+         */
+        @Label("Samples")
+        int samples;
+        /**
+         * Column of the selected cell.
+         */
+        @Label("X")
+        int x;
+        /**
+         * Row of the selected cell.
+         */
+        @Label("Y")
+        int y;
+    }
+    /**
+     * A shot being resolved on a grid.
+     */
+    @Name("battleship.Shot")
+    @Label("Shot")
+    @Category("Battleship")
+    @Description("A shot being resolved on a grid")
+    public static class ShotEvent extends Event {
+        /**
+         * Side that fired, PLAYER or COMPUTER.
+         */
+        @Label("Side")
+        String side;
+        /**
+         * Column of the cell attacked.
+         */
+        @Label("X")
+        int x;
+        /**
+         * Row of the cell attacked.
+         */
+        @Label("Y")
+        int y;
+        /**
+         * True if the shot hit a ship.
+         */
+        @Label("Hit")
+        boolean hit;
+        /**
+         * True if the shot found a treasure.
+         */
+        @Label("Treasure")
+        boolean treasure;
+        /**
+         * True if the shot ended the game.
+         */
+        @Label("Game Over")
+        boolean gameOver;
+    }
+    /**
+     * A ship being sunk.
+     */
+    @Name("battleship.ShipSunk")
+    @Label("Ship Sunk")
+    @Category("Battleship")
+    @Description("A ship being sunk")
+    public static class ShipSunkEvent extends Event {
+        /**
+         * Side that sank the ship, PLAYER or COMPUTER.
+         */
+        @Label("Side")
+        String side;
+        /**
+         * Length of the ship.
+         */
+        @Label("Segments")
+        int segments;
+        /**
+         * Number of shots the side has fired in the game so far.
+         */
+        @Label("Shots Fired")
+        int shotsFired;
+    }
+    /**
+     * An image or font being loaded from disk.
+     */
+    @Name("battleship.AssetLoad")
+    @Label("Asset Load")
+    @Category("Battleship")
+    @Description("An image or font being loaded from disk")
+    public static class AssetLoadEvent extends Event {
+        /**
+         * File that was loaded.
+         */
+        @Label("File")
+        String fileName;
+        /**
+         * Kind of asset, image or font.
+         */
+        @Label("Kind")
+        String kind;
+        /**
+         * True if the file could be loaded.
+         */
+        @Label("Loaded")
+        boolean loaded;
+    }
+    /**
+     * A sound being decoded and started.
+     */
+    @Name("battleship.SoundPlayback")
+    @Label("Sound Playback")
+    @Category("Battleship")
+    @Description("A sound being decoded and started")
+    public static class SoundPlaybackEvent extends Event {
+        /**
+         * File of the sound.
+         */
+        @Label("File")
+        String fileName;
+        /**
+         * True if the clip started.
+         */
+        @Label("Started")
+        boolean started;
+    }
+    /**
+     * GamePanel painting a frame.
+     */
+    @Name("battleship.FramePaint")
+    @Label("Frame Paint")
+    @Category("Battleship")
+    @Description("GamePanel painting a frame")
+    public static class FramePaintEvent extends Event {
+        /**
+         * State of the game while the frame was painted.
+         */
+        @Label("Game State")
+        String gameState;
+    }
+}
@@ -10,11 +10,19 @@ import java.awt.event.KeyListener;
  * game states like difficulty selection and strategy display.
  */
 public class Game implements KeyListener {
+    /**
+     * Logger for the key presses, shown at DEBUG level.
+     */
+    private static final GameLog LOG = GameLog.getLogger("Input");
     /**
      * Entry point for the application to create an instance of the Game class.
      * @param args Not used.
      */
     public static void main(String[] args) {
+        Metrics.startDumpIfConfigured();
+        AnalyticsSink.startIfConfigured();
+        PlacementPriors.loadIfConfigured();
+        BattleshipStats.register();
         Game game = new Game();
     }
     /**
@@ -27,9 +35,10 @@ public class Game implements KeyListener {
     private JFrame frame;
     /**
      * Enum for representing game difficulty levels.
+     * EXPERT and MASTER give the computer a bigger thinking budget for every move.
      */
     public enum GameDifficulty {
-        EASY, MEDIUM, HARD
+        EASY, MEDIUM, HARD, EXPERT, MASTER
     }
     /**
      * Creates the JFrame with a GamePanel inside it, attaches a key listener,
@@ -137,7 +146,7 @@ public class Game implements KeyListener {
         lvPanel.setPreferredSize(new Dimension(1192 / 2, 705));
 
         // Panel for difficulty selection buttons
-        JPanel buttonDifficuly = new JPanel(new GridLayout(3, 1, 40, 60)); //
+        JPanel buttonDifficuly = new JPanel(new GridLayout(5, 1, 40, 15)); //
         buttonDifficuly.setOpaque(false); //
 
         // Creating and adding custom buttons for different difficulty levels
@@ -158,10 +167,22 @@ public class Game implements KeyListener {
         hardButton.setForeground(new Color(10, 139 - 50, 50 - 50));
         buttonDifficuly.add(hardButton);
 
+        ButtonManager.RoundedButton expertButton = new ButtonManager.RoundedButton("EXPERT");
+        expertButton.addActionListener(e -> startGame(GameDifficulty.EXPERT));
+        expertButton.setForeground(new Color(10, 139 - 50, 50 - 50));
+        buttonDifficuly.add(expertButton);
+
+        ButtonManager.RoundedButton masterButton = new ButtonManager.RoundedButton("MASTER");
+        masterButton.addActionListener(e -> startGame(GameDifficulty.MASTER));
+        masterButton.setForeground(new Color(10, 139 - 50, 50 - 50));
+        buttonDifficuly.add(masterButton);
+
         // Setting button sizes
         easyButton.setPreferredSize(new Dimension(110, 50)); //
         mediumButton.setPreferredSize(new Dimension(110, 50)); //
         hardButton.setPreferredSize(new Dimension(110, 50));
+        expertButton.setPreferredSize(new Dimension(110, 50));
+        masterButton.setPreferredSize(new Dimension(110, 50));
 
         // Wrapper panel for positioning the buttons
         JPanel wrapperPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -187,7 +208,9 @@ public class Game implements KeyListener {
      */
     @Override
     public void keyPressed(KeyEvent e) {
-        System.out.println("Key Pressed: " + KeyEvent.getKeyText(e.getKeyCode())); // For debugging
+        if (LOG.isEnabled(GameLog.Level.DEBUG)) {
+            LOG.debug("Key pressed: {}", KeyEvent.getKeyText(e.getKeyCode()));
+        }
         gamePanel.handleInput(e.getKeyCode());
     }
     /**
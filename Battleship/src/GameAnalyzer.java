@@ -0,0 +1,446 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameAnalyzer.
+ * Scans directories of GameArchive files and adds up, over every game in them, where players put
+ * their ships, where they fire their first shot, how often a shot hits by how many shots a side
+ * has fired, and after how many shots the treasures are found.
+ * Every archive is cut into runs of games that are read with one read each and decoded one game
+ * at a time. The runs are spread over all cores with a parallel stream, and each thread adds its
+ * games into its own Stats, a few arrays of counts, which are merged at the end. Memory therefore
+ * depends on the number of threads, not on the number of games, and archives are opened read-only
+ * so they can be analysed while a server is still writing them.
+ * With --priors the player placements are also added to the PlacementPriors table in that directory.
+ * Run it with: java GameAnalyzer [--priors directory] directory-or-archive...
+ */
+public class GameAnalyzer {
+    /**
+     * Number of games read together and handled by one task.
+     */
+    private static final int GAMES_PER_RUN = 2048;
+    /**
+     * Most shots a side can fire, one for every playable cell.
+     */
+    private static final int MAX_SHOTS = (SelectionGrid.GRID_WIDTH - 1) * (SelectionGrid.GRID_HEIGHT - 1);
+    /**
+     * Number of shots grouped together in one row of the hit rate table.
+     */
+    private static final int SHOTS_PER_ROW = 10;
+    /**
+     * A run of games of one archive, the unit of work of the parallel stream.
+     */
+    private static class Run {
+        /**
+         * The archive holding the games.
+         */
+        final GameArchive archive;
+        /**
+         * The number of the first game.
+         */
+        final long first;
+        /**
+         * The number of games.
+         */
+        final int games;
+        /**
+         * Creates a run.
+         * @param archive The archive holding the games.
+         * @param first The number of the first game.
+         * @param games The number of games.
+         */
+        Run(GameArchive archive, long first, int games) {
+            this.archive = archive;
+            this.first = first;
+            this.games = games;
+        }
+    }
+    /**
+     * Counts added up over many games. One is filled by each thread and they are merged at the end.
+     */
+    public static class Stats {
+        /**
+         * Number of games.
+         */
+        private long games;
+        /**
+         * Number of events in the games.
+         */
+        private long events;
+        /**
+         * Number of games that could not be decoded.
+         */
+        private long damaged;
+        /**
+         * Number of games of each difficulty, by ordinal.
+         */
+        private final long[] gamesByDifficulty = new long[Game.GameDifficulty.values().length];
+        /**
+         * Number of games won by each side.
+         */
+        private final long[] wins = new long[2];
+        /**
+         * Number of times each cell held one of the player's ships, by BoardKnowledge.indexOf().
+         */
+        private final long[] playerShipCells = new long[BoardKnowledge.cellCount()];
+        /**
+         * Number of games in which the player's first shot went at each cell.
+         */
+        private final long[] firstShotCells = new long[BoardKnowledge.cellCount()];
+        /**
+         * For each side, the number of shots fired as its nth shot of a game, at index n - 1.
+         */
+        private final long[][] shotsByTurn = new long[2][MAX_SHOTS];
+        /**
+         * For each side, the number of its nth shots that hit.
+         */
+        private final long[][] hitsByTurn = new long[2][MAX_SHOTS];
+        /**
+         * Number of treasures hidden.
+         */
+        private long treasuresHidden;
+        /**
+         * For each side, the number of treasures found with its nth shot of a game.
+         */
+        private final long[][] treasuresByTurn = new long[2][MAX_SHOTS];
+        /**
+         * Adds up the events of a game.
+         * @param record The game.
+         */
+        void add(GameRecord record) {
+            games++;
+            events += record.size();
+            gamesByDifficulty[record.getDifficulty().ordinal()]++;
+            int[] shots = new int[2];
+            boolean firstShotSeen = false;
+            for (int i = 0; i < record.size(); i++) {
+                int event = record.get(i);
+                int side = GameEvent.side(event);
+                switch (GameEvent.type(event)) {
+                    case GameEvent.PLACE:
+                        if (side == GameEvent.PLAYER) PlacementPriors.addShipCells(event, playerShipCells);
+                        break;
+                    case GameEvent.TREASURE:
+                        treasuresHidden++;
+                        break;
+                    case GameEvent.SHOT:
+                        if (side == GameEvent.PLAYER && !firstShotSeen) {
+                            firstShotSeen = true;
+                            firstShotCells[BoardKnowledge.indexOf(GameEvent.x(event), GameEvent.y(event))]++;
+                        }
+                        if (shots[side] < MAX_SHOTS) {
+                            shotsByTurn[side][shots[side]]++;
+                        }
+                        shots[side]++;
+                        break;
+                    case GameEvent.RESULT:
+                        int turn = Math.min(shots[side], MAX_SHOTS) - 1;
+                        if (turn < 0) break;
+                        if ((GameEvent.arg(event) & GameEvent.HIT_FLAG) != 0) hitsByTurn[side][turn]++;
+                        if ((GameEvent.arg(event) & GameEvent.TREASURE_FLAG) != 0) treasuresByTurn[side][turn]++;
+                        break;
+                    case GameEvent.GAME_OVER:
+                        wins[side]++;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        /**
+         * Adds the counts of another Stats to this one.
+         * @param other The counts to add.
+         */
+        void merge(Stats other) {
+            games += other.games;
+            events += other.events;
+            damaged += other.damaged;
+            treasuresHidden += other.treasuresHidden;
+            addAll(gamesByDifficulty, other.gamesByDifficulty);
+            addAll(wins, other.wins);
+            addAll(playerShipCells, other.playerShipCells);
+            addAll(firstShotCells, other.firstShotCells);
+            for (int side = 0; side < 2; side++) {
+                addAll(shotsByTurn[side], other.shotsByTurn[side]);
+                addAll(hitsByTurn[side], other.hitsByTurn[side]);
+                addAll(treasuresByTurn[side], other.treasuresByTurn[side]);
+            }
+        }
+        /**
+         * Adds one array of counts to another.
+         * @param into The counts to add to.
+         * @param from The counts to add.
+         */
+        private static void addAll(long[] into, long[] from) {
+            for (int i = 0; i < into.length; i++) {
+                into[i] += from[i];
+            }
+        }
+        /**
+         * Gets the number of games analysed.
+         * @return The number of games.
+         */
+        public long getGames() {
+            return games;
+        }
+        /**
+         * Gets the number of events in the games analysed.
+         * @return The number of events.
+         */
+        public long getEvents() {
+            return events;
+        }
+        /**
+         * Gets the number of games that could not be decoded and were skipped.
+         * @return The number of damaged games.
+         */
+        public long getDamaged() {
+            return damaged;
+        }
+        /**
+         * Gets how many games each cell held one of the player's ships in.
+         * @return A copy of the counts by BoardKnowledge.indexOf().
+         */
+        public long[] getPlayerShipCells() {
+            return playerShipCells.clone();
+        }
+        /**
+         * Gets the hit rate of a side's nth shot of a game.
+         * @param side GameEvent.PLAYER or GameEvent.COMPUTER.
+         * @param turn The number of the shot, from 1.
+         * @return The share of those shots that hit, or 0 if there were none.
+         */
+        public double getHitRate(int side, int turn) {
+            long shots = shotsByTurn[side][turn - 1];
+            return shots == 0 ? 0 : (double) hitsByTurn[side][turn - 1] / shots;
+        }
+        /**
+         * Gets how often a cell held one of the player's ships.
+         * @param x X coordinate in the grid.
+         * @param y Y coordinate in the grid.
+         * @return The share of games in which a ship covered the cell.
+         */
+        public double getPlacementShare(int x, int y) {
+            return games == 0 ? 0 : (double) playerShipCells[BoardKnowledge.indexOf(x, y)] / games;
+        }
+        /**
+         * Gets how often the player fired the first shot at a cell.
+         * @param x X coordinate in the grid.
+         * @param y Y coordinate in the grid.
+         * @return The share of games whose first player shot went there.
+         */
+        public double getFirstShotShare(int x, int y) {
+            return games == 0 ? 0 : (double) firstShotCells[BoardKnowledge.indexOf(x, y)] / games;
+        }
+        /**
+         * Formats everything as text tables.
+         * @return The report.
+         */
+        public String format() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.ROOT, "%d games, %d events, %d damaged games skipped%n", games, events, damaged));
+            for (Game.GameDifficulty difficulty : Game.GameDifficulty.values()) {
+                if (gamesByDifficulty[difficulty.ordinal()] > 0) {
+                    text.append(String.format(Locale.ROOT, "  %-8s %d games%n", difficulty, gamesByDifficulty[difficulty.ordinal()]));
+                }
+            }
+            long finished = wins[GameEvent.PLAYER] + wins[GameEvent.COMPUTER];
+            text.append(String.format(Locale.ROOT, "Player won %.1f%% of %d finished games%n",
+                    finished == 0 ? 0 : 100.0 * wins[GameEvent.PLAYER] / finished, finished));
+            formatHeatmap(text, "Player ship placements (% of games the cell held a ship)", playerShipCells);
+            formatHeatmap(text, "Player first shots (% of games)", firstShotCells);
+            formatHitRates(text);
+            formatTreasures(text);
+            return text.toString();
+        }
+        /**
+         * Writes a heatmap as a grid of percentages of the games.
+         * @param text Where the heatmap is written.
+         * @param title Line shown above the grid.
+         * @param cells Count of every cell.
+         */
+        private void formatHeatmap(StringBuilder text, String title, long[] cells) {
+            text.append(String.format(Locale.ROOT, "%n%s%n   ", title));
+            for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                text.append(String.format(Locale.ROOT, "%6d", x));
+            }
+            text.append(String.format(Locale.ROOT, "%n"));
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                text.append(String.format(Locale.ROOT, "%3d", y));
+                for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                    text.append(String.format(Locale.ROOT, "%6.1f", games == 0 ? 0 : 100.0 * cells[BoardKnowledge.indexOf(x, y)] / games));
+                }
+                text.append(String.format(Locale.ROOT, "%n"));
+            }
+        }
+        /**
+         * Writes the hit rate of each side by groups of shots.
+         * @param text Where the table is written.
+         */
+        private void formatHitRates(StringBuilder text) {
+            text.append(String.format(Locale.ROOT, "%nHit rate by shot number%n%-9s %10s %8s %10s %8s%n",
+                    "shots", "player", "hits", "computer", "hits"));
+            for (int start = 0; start < MAX_SHOTS; start += SHOTS_PER_ROW) {
+                long[] shots = new long[2];
+                long[] hits = new long[2];
+                for (int side = 0; side < 2; side++) {
+                    for (int turn = start; turn < start + SHOTS_PER_ROW; turn++) {
+                        shots[side] += shotsByTurn[side][turn];
+                        hits[side] += hitsByTurn[side][turn];
+                    }
+                }
+                if (shots[0] == 0 && shots[1] == 0) continue;
+                text.append(String.format(Locale.ROOT, "%-9s %10d %7.1f%% %10d %7.1f%%%n", (start + 1) + "-" + (start + SHOTS_PER_ROW),
+                        shots[0], shots[0] == 0 ? 0 : 100.0 * hits[0] / shots[0],
+                        shots[1], shots[1] == 0 ? 0 : 100.0 * hits[1] / shots[1]));
+            }
+        }
+        /**
+         * Writes how many treasures were found and after how many shots.
+         * @param text Where the lines are written.
+         */
+        private void formatTreasures(StringBuilder text) {
+            text.append(String.format(Locale.ROOT, "%nTreasures: %d hidden%n", treasuresHidden));
+            for (int side = 0; side < 2; side++) {
+                long found = 0;
+                long shotSum = 0;
+                for (int turn = 0; turn < MAX_SHOTS; turn++) {
+                    found += treasuresByTurn[side][turn];
+                    shotSum += treasuresByTurn[side][turn] * (turn + 1);
+                }
+                if (found == 0) continue;
+                text.append(String.format(Locale.ROOT, "  %-8s found %d (%.1f%%), mean shot %.1f, median shot %d, 90%% by shot %d%n",
+                        side == GameEvent.PLAYER ? "player" : "computer", found,
+                        treasuresHidden == 0 ? 0 : 100.0 * found / treasuresHidden, (double) shotSum / found,
+                        percentileTurn(treasuresByTurn[side], found, 0.5), percentileTurn(treasuresByTurn[side], found, 0.9)));
+            }
+        }
+        /**
+         * Finds the shot number by which a share of the treasures were found.
+         * @param byTurn Treasures found with each shot number.
+         * @param found Total treasures found.
+         * @param share The share, from 0 to 1.
+         * @return The shot number, from 1.
+         */
+        private static int percentileTurn(long[] byTurn, long found, double share) {
+            long target = Math.max(1, (long) Math.ceil(found * share));
+            long seen = 0;
+            for (int turn = 0; turn < byTurn.length; turn++) {
+                seen += byTurn[turn];
+                if (seen >= target) return turn + 1;
+            }
+            return byTurn.length;
+        }
+    }
+    /**
+     * Analyses every game of the archives found under some paths.
+     * @param paths Archives, or directories that are searched for archives.
+     * @return The counts over all games.
+     * @throws IOException If a directory or archive cannot be opened.
+     */
+    public static Stats analyze(List<Path> paths) throws IOException {
+        List<GameArchive> archives = new ArrayList<>();
+        try {
+            for (Path archivePath : findArchives(paths)) {
+                archives.add(GameArchive.openReadOnly(archivePath));
+            }
+            List<Run> runs = new ArrayList<>();
+            for (GameArchive archive : archives) {
+                for (long first = 0; first < archive.size(); first += GAMES_PER_RUN) {
+                    runs.add(new Run(archive, first, (int) Math.min(GAMES_PER_RUN, archive.size() - first)));
+                }
+            }
+            return runs.parallelStream().collect(Stats::new, GameAnalyzer::addRun, Stats::merge);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (GameArchive archive : archives) {
+                archive.close();
+            }
+        }
+    }
+    /**
+     * Finds the archives under some paths: every file that has an index file next to it.
+     * @param paths Archives, or directories that are searched for archives.
+     * @return The data files of the archives, in path order.
+     * @throws IOException If a directory cannot be read.
+     */
+    static List<Path> findArchives(List<Path> paths) throws IOException {
+        List<Path> found = new ArrayList<>();
+        for (Path path : paths) {
+            try (Stream<Path> files = Files.walk(path)) {
+                found.addAll(files.filter(Files::isRegularFile)
+                        .filter(file -> !file.getFileName().toString().endsWith(".idx"))
+                        .filter(file -> Files.isRegularFile(GameArchive.indexPath(file)))
+                        .sorted()
+                        .collect(Collectors.toList()));
+            }
+        }
+        return found;
+    }
+    /**
+     * Reads a run of games in one read and adds them up one at a time. A game that cannot be decoded is counted as damaged and skipped.
+     * @param stats The counts of the current thread.
+     * @param run The run to add.
+     */
+    private static void addRun(Stats stats, Run run) {
+        byte[] entries;
+        try {
+            entries = run.archive.readEncodedRange(run.first, run.games);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int offset = 0;
+        for (int i = 0; i < run.games; i++) {
+            int length = (entries[offset] & 0xFF) << 24 | (entries[offset + 1] & 0xFF) << 16
+                    | (entries[offset + 2] & 0xFF) << 8 | (entries[offset + 3] & 0xFF);
+            offset += 4;
+            try {
+                stats.add(run.archive.decode(entries, offset, length));
+            } catch (IOException e) {
+                stats.damaged++;
+            }
+            offset += length;
+        }
+    }
+    /**
+     * Analyses the archives named on the command line and prints the report.
+     * @param args Archives, or directories that are searched for archives, after an optional --priors directory.
+     * @throws IOException If a directory, archive or prior table cannot be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        Path priorsDirectory = null;
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--priors") && i + 1 < args.length) {
+                priorsDirectory = Paths.get(args[++i]);
+            } else {
+                paths.add(Paths.get(args[i]));
+            }
+        }
+        if (paths.isEmpty()) {
+            System.out.println("Usage: java GameAnalyzer [--priors directory] directory-or-archive...");
+            return;
+        }
+        long start = System.nanoTime();
+        Stats stats = analyze(paths);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(stats.format());
+        System.out.printf(Locale.ROOT, "%nAnalysed in %.2f s (%.0f games per second, %.1f million events per second) on %d threads%n",
+                seconds, stats.getGames() / seconds, stats.getEvents() / seconds / 1e6, Runtime.getRuntime().availableProcessors());
+        if (priorsDirectory != null) {
+            try (PlacementPriors priors = new PlacementPriors(priorsDirectory, SelectionGrid.GRID_WIDTH, SelectionGrid.GRID_HEIGHT)) {
+                priors.addGames(stats.getGames(), stats.getPlayerShipCells());
+                System.out.printf(Locale.ROOT, "Placement priors in %s now learned from %d games%n", priorsDirectory, priors.getGames());
+            }
+        }
+    }
+}
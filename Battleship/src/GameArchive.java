@@ -0,0 +1,355 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameArchive.
+ * An append-only file of encoded games with a separate index file for finding any game directly.
+ * The data file starts with an 8 byte header (magic number, version and flags), followed by one entry
+ * per game: a 4 byte length and the bytes from GameRecordCodec. The index file next to it holds the
+ * 8 byte offset of every entry, so game n is found by reading the offset at n * 8.
+ * If the index is missing or shorter than the data, for example after a crash, it is rebuilt on open
+ * and any half written entry at the end of the data is cut off.
+ */
+public class GameArchive implements Closeable {
+    /**
+     * The magic number at the start of every archive, "BSAR".
+     */
+    private static final int MAGIC = 0x42534152;
+    /**
+     * Version of the archive layout.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Flag set when the computer's shots are encoded against a DensityMovePredictor.
+     */
+    private static final int FLAG_PREDICTED = 1;
+    /**
+     * Size of the header of the data file in bytes.
+     */
+    public static final int HEADER_SIZE = 8;
+    /**
+     * Size of an index entry in bytes.
+     */
+    private static final int INDEX_ENTRY_SIZE = 8;
+    /**
+     * The file holding the encoded games.
+     */
+    private final FileChannel data;
+    /**
+     * The file holding the offset of each game.
+     */
+    private final FileChannel index;
+    /**
+     * True if the computer's shots are encoded against a predictor.
+     */
+    private final boolean predicted;
+    /**
+     * Predictor used while appending games.
+     */
+    private final MovePredictor encodePredictor;
+    /**
+     * True if the archive was opened with openReadOnly().
+     */
+    private final boolean readOnly;
+    /**
+     * Number of games in the archive.
+     */
+    private long count;
+    /**
+     * Offset in the data file where the next game will be written.
+     */
+    private long end;
+    /**
+     * Opens an archive, creating it if it does not exist yet.
+     * @param path The path of the data file. The index is stored next to it with ".idx" added.
+     * @param predicted True to encode the computer's shots against a predictor when creating a new archive.
+     *                  An existing archive keeps the setting it was created with.
+     * @throws IOException If the files cannot be opened or are not an archive.
+     */
+    public GameArchive(Path path, boolean predicted) throws IOException {
+        this(path, predicted, false);
+    }
+    /**
+     * Opens an archive.
+     * @param path The path of the data file.
+     * @param predicted True to encode against a predictor if a new archive is created.
+     * @param readOnly True to only read an existing archive, without creating or repairing anything.
+     * @throws IOException If the files cannot be opened or are not an archive.
+     */
+    private GameArchive(Path path, boolean predicted, boolean readOnly) throws IOException {
+        this.readOnly = readOnly;
+        OpenOption[] options = readOnly ? new OpenOption[] {StandardOpenOption.READ}
+                : new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        data = FileChannel.open(path, options);
+        FileChannel indexChannel = null;
+        try {
+            indexChannel = FileChannel.open(indexPath(path), options);
+        } catch (IOException e) {
+            data.close();
+            throw e;
+        }
+        index = indexChannel;
+        try {
+            if (data.size() == 0 && !readOnly) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).put((byte) VERSION).put((byte) (predicted ? FLAG_PREDICTED : 0)).putShort((short) 0).flip();
+                writeFully(data, header, 0);
+                index.truncate(0);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(data, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException(path + " is not a game archive");
+            int version = header.get();
+            if (version != VERSION) throw new IOException("Unsupported game archive version " + version);
+            this.predicted = (header.get() & FLAG_PREDICTED) != 0;
+            encodePredictor = this.predicted ? new DensityMovePredictor() : null;
+            if (readOnly) {
+                countCompleteEntries();
+            } else {
+                recoverIndex();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+    /**
+     * Opens an existing archive for reading only, for example to analyse it while a game server
+     * is still appending to it. Nothing is repaired, a half written entry at the end is just not counted.
+     * @param path The path of the data file.
+     * @return The archive, which cannot be appended to.
+     * @throws IOException If the files cannot be opened or are not an archive.
+     */
+    public static GameArchive openReadOnly(Path path) throws IOException {
+        return new GameArchive(path, false, true);
+    }
+    /**
+     * Gets the path of the index file for an archive.
+     * @param path The path of the data file.
+     * @return The path of the index file.
+     */
+    public static Path indexPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".idx");
+    }
+    /**
+     * Makes sure the index covers exactly the complete entries in the data file.
+     * @throws IOException If the files cannot be read or written.
+     */
+    private void recoverIndex() throws IOException {
+        long indexed = index.size() / INDEX_ENTRY_SIZE;
+        long position = HEADER_SIZE;
+        if (indexed > 0) {
+            long lastOffset = readOffset(indexed - 1);
+            int lastLength = readLength(lastOffset);
+            position = lastLength < 0 ? HEADER_SIZE : lastOffset + 4 + lastLength;
+            if (lastLength < 0 || position > data.size()) {
+                // The index is ahead of the data, so rebuild it from the start
+                indexed = 0;
+                position = HEADER_SIZE;
+            }
+        }
+        index.truncate(indexed * INDEX_ENTRY_SIZE);
+        ByteBuffer offset = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        while (true) {
+            int length = readLength(position);
+            if (length < 0 || position + 4 + length > data.size()) break;
+            offset.clear();
+            offset.putLong(position).flip();
+            writeFully(index, offset, indexed * INDEX_ENTRY_SIZE);
+            indexed++;
+            position += 4 + length;
+        }
+        data.truncate(position);
+        count = indexed;
+        end = position;
+    }
+    /**
+     * Counts the games whose index entry and data are both complete, without changing either file.
+     * @throws IOException If the files cannot be read.
+     */
+    private void countCompleteEntries() throws IOException {
+        count = index.size() / INDEX_ENTRY_SIZE;
+        end = HEADER_SIZE;
+        while (count > 0) {
+            long lastOffset = readOffset(count - 1);
+            int lastLength = readLength(lastOffset);
+            if (lastLength >= 0 && lastOffset + 4 + lastLength <= data.size()) {
+                end = lastOffset + 4 + lastLength;
+                break;
+            }
+            count--;
+        }
+    }
+    /**
+     * Encodes a game and appends it to the archive.
+     * @param record The game to store.
+     * @return The number of the game in the archive, starting at 0.
+     * @throws IOException If the game cannot be written.
+     */
+    public synchronized long append(GameRecord record) throws IOException {
+        byte[] encoded = GameRecordCodec.encode(record, encodePredictor);
+        ByteBuffer entry = ByteBuffer.allocate(4 + encoded.length);
+        entry.putInt(encoded.length).put(encoded).flip();
+        writeFully(data, entry, end);
+        ByteBuffer offset = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        offset.putLong(end).flip();
+        writeFully(index, offset, count * INDEX_ENTRY_SIZE);
+        end += entry.limit();
+        return count++;
+    }
+    /**
+     * Gets the number of games in the archive.
+     * @return The number of games.
+     */
+    public synchronized long size() {
+        return count;
+    }
+    /**
+     * Gets if the computer's shots are encoded against a predictor.
+     * @return True if a DensityMovePredictor is needed to decode the games.
+     */
+    public boolean isPredicted() {
+        return predicted;
+    }
+    /**
+     * Reads the encoded bytes of a game without decoding them.
+     * @param gameNumber The number of the game, from 0 to size() - 1.
+     * @return The encoded game.
+     * @throws IOException If the game cannot be read.
+     */
+    public byte[] readEncoded(long gameNumber) throws IOException {
+        if (gameNumber < 0 || gameNumber >= size()) throw new IndexOutOfBoundsException("Game " + gameNumber + " of " + size());
+        long offset = readOffset(gameNumber);
+        int length = readLength(offset);
+        if (length < 0) throw new IOException("Damaged archive entry " + gameNumber);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(data, buffer, offset + 4);
+        return buffer.array();
+    }
+    /**
+     * Reads several games in one read, as they lie in the data file: each one a 4 byte length
+     * followed by its encoded bytes. Reading games in runs like this avoids a read of the index
+     * and two reads of the data for every game.
+     * @param first The number of the first game.
+     * @param games The number of games, so that first + games is at most size().
+     * @return The entries of the games, back to back.
+     * @throws IOException If the games cannot be read.
+     */
+    public byte[] readEncodedRange(long first, int games) throws IOException {
+        long total = size();
+        if (first < 0 || games < 0 || first + games > total) throw new IndexOutOfBoundsException("Games " + first + " to " + (first + games) + " of " + total);
+        if (games == 0) return new byte[0];
+        long start = readOffset(first);
+        long stop = first + games < total ? readOffset(first + games) : endOfGames();
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(stop - start));
+        readFully(data, buffer, start);
+        return buffer.array();
+    }
+    /**
+     * Gets the offset just after the last game.
+     * @return The offset in the data file.
+     */
+    private synchronized long endOfGames() {
+        return end;
+    }
+    /**
+     * Reads and decodes a game.
+     * @param gameNumber The number of the game, from 0 to size() - 1.
+     * @return The decoded game.
+     * @throws IOException If the game cannot be read or is damaged.
+     */
+    public GameRecord read(long gameNumber) throws IOException {
+        byte[] encoded = readEncoded(gameNumber);
+        return decode(encoded, 0, encoded.length);
+    }
+    /**
+     * Decodes a game read from this archive.
+     * @param encoded The array holding the encoded game.
+     * @param offset Index of the first byte of the game.
+     * @param length Number of bytes in the game.
+     * @return The decoded game.
+     * @throws IOException If the game is damaged.
+     */
+    public GameRecord decode(byte[] encoded, int offset, int length) throws IOException {
+        return GameRecordCodec.decode(encoded, offset, length, predicted ? new DensityMovePredictor() : null);
+    }
+    /**
+     * Writes any buffered data to the disk.
+     * @throws IOException If the files cannot be written.
+     */
+    public synchronized void flush() throws IOException {
+        if (readOnly) return;
+        data.force(false);
+        index.force(false);
+    }
+    /**
+     * Flushes and closes the archive.
+     * @throws IOException If the files cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (!readOnly && data.isOpen()) data.force(false);
+            if (!readOnly && index.isOpen()) index.force(false);
+        } finally {
+            data.close();
+            index.close();
+        }
+    }
+    /**
+     * Reads the offset of a game from the index.
+     * @param gameNumber The number of the game.
+     * @return The offset of the game's entry in the data file.
+     * @throws IOException If the index cannot be read.
+     */
+    private long readOffset(long gameNumber) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        readFully(index, buffer, gameNumber * INDEX_ENTRY_SIZE);
+        return buffer.getLong(0);
+    }
+    /**
+     * Reads the length of an entry in the data file.
+     * @param offset The offset of the entry.
+     * @return The length of the encoded game, or -1 if there is no complete length at the offset.
+     * @throws IOException If the data file cannot be read.
+     */
+    private int readLength(long offset) throws IOException {
+        if (offset + 4 > data.size()) return -1;
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        readFully(data, buffer, offset);
+        int length = buffer.getInt(0);
+        return length < 0 ? -1 : length;
+    }
+    /**
+     * Reads until the buffer is full.
+     * @param channel The file to read from.
+     * @param buffer The buffer to fill.
+     * @param position The offset in the file to read from.
+     * @throws IOException If the end of the file is reached first.
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of file");
+            position += read;
+        }
+    }
+    /**
+     * Writes the whole buffer.
+     * @param channel The file to write to.
+     * @param buffer The buffer to write.
+     * @param position The offset in the file to write at.
+     * @throws IOException If the file cannot be written.
+     */
+    static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.Random;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameContext.
+ * The settings and random numbers that belong to one game instead of the whole program, so any
+ * number of games, headless matches and AIs can run side by side without affecting each other.
+ * The grids and AIs of a game share its context and each takes its own random generator from it,
+ * so a game created from a context with a fixed seed places the same treasures and ships every
+ * time, and so do the AIs from Easy to Hard. The Expert and Master AIs sample until a time limit,
+ * and reuse scores from the shared ScoreCache and weights from the learned PlacementPriors, so
+ * their moves can differ between runs even with the same seed.
+ * A context is used by one game at a time and is not thread-safe.
+ */
+public class GameContext {
+    /**
+     * The seed the context was created with.
+     */
+    private final long seed;
+    /**
+     * Hands out the seeds of the random generators of the grids and AIs.
+     */
+    private final Random seeds;
+    /**
+     * True while the computer's ships and treasures are shown.
+     */
+    private boolean debugMode;
+    /**
+     * Creates a context with a random seed.
+     */
+    public GameContext() {
+        this(new Random().nextLong());
+    }
+    /**
+     * Creates a context with a fixed seed, so games created from it can be repeated.
+     * @param seed The seed.
+     */
+    public GameContext(long seed) {
+        this.seed = seed;
+        seeds = new Random(seed);
+    }
+    /**
+     * Creates a random generator for a grid or AI of this game, seeded from the context.
+     * @return A new random generator.
+     */
+    public Random newRandom() {
+        return new Random(seeds.nextLong());
+    }
+    /**
+     * Gets the seed the context was created with.
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+    /**
+     * Gets if the debug mode is on, which shows the computer's ships and treasures.
+     * @return True if the debug mode is on.
+     */
+    public boolean isDebugMode() {
+        return debugMode;
+    }
+    /**
+     * Turns the debug mode on or off.
+     * @param debugMode True to show the computer's ships and treasures.
+     */
+    public void setDebugMode(boolean debugMode) {
+        this.debugMode = debugMode;
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameEvent.
+ * Defines the events that happen during a game and packs each one into a single int,
+ * so a whole game can be stored as a small int array without creating an object per event.
+ * Bits 0-3 hold the type, bit 4 the side, bits 5-12 the x coordinate,
+ * bits 13-20 the y coordinate and bits 21-31 an extra argument that depends on the type.
+ */
+public class GameEvent {
+    /**
+     * A ship was placed. The argument holds the segments and whether it is sideways.
+     */
+    public static final int PLACE = 1;
+    /**
+     * A treasure was hidden on the computer's grid.
+     */
+    public static final int TREASURE = 2;
+    /**
+     * A side fired a shot at the other side's grid.
+     */
+    public static final int SHOT = 3;
+    /**
+     * The result of the previous shot. The argument holds the HIT_FLAG and TREASURE_FLAG.
+     */
+    public static final int RESULT = 4;
+    /**
+     * A side gained an extra turn by finding a treasure.
+     */
+    public static final int EXTRA_TURN = 5;
+    /**
+     * A side sank a ship. The coordinate is the first segment of the ship and the argument
+     * holds its segments and whether it is sideways.
+     */
+    public static final int SINK = 6;
+    /**
+     * The game ended and the side is the winner.
+     */
+    public static final int GAME_OVER = 7;
+    /**
+     * The side of the human player. For PLACE and TREASURE it is the owner of the grid,
+     * for all other events it is the side taking the action.
+     */
+    public static final int PLAYER = 0;
+    /**
+     * The side of the computer.
+     */
+    public static final int COMPUTER = 1;
+    /**
+     * Set in the argument of a RESULT when the shot hit.
+     */
+    public static final int HIT_FLAG = 1;
+    /**
+     * Set in the argument of a RESULT when the shot found a treasure.
+     */
+    public static final int TREASURE_FLAG = 2;
+    /**
+     * Names of the types for printing.
+     */
+    private static final String[] TYPE_NAMES = {"NONE", "PLACE", "TREASURE", "SHOT", "RESULT", "EXTRA_TURN", "SINK", "GAME_OVER"};
+    /**
+     * Packs an event into an int.
+     * @param type The type of event, for example SHOT.
+     * @param side PLAYER or COMPUTER.
+     * @param x X coordinate in the grid, or 0 when not used.
+     * @param y Y coordinate in the grid, or 0 when not used.
+     * @param arg Extra argument that depends on the type, or 0 when not used.
+     * @return The packed event.
+     */
+    public static int pack(int type, int side, int x, int y, int arg) {
+        return (type & 0xF) | (side & 1) << 4 | (x & 0xFF) << 5 | (y & 0xFF) << 13 | (arg & 0x7FF) << 21;
+    }
+    /**
+     * Creates the argument used to describe a ship for PLACE and SINK events.
+     * @param segments The number of segments in the ship.
+     * @param sideways True if the ship is horizontal.
+     * @return The argument describing the ship.
+     */
+    public static int shipArg(int segments, boolean sideways) {
+        return segments << 1 | (sideways ? 1 : 0);
+    }
+    /**
+     * Gets the type of a packed event.
+     * @param event The packed event.
+     * @return The type of the event.
+     */
+    public static int type(int event) {
+        return event & 0xF;
+    }
+    /**
+     * Gets the side of a packed event.
+     * @param event The packed event.
+     * @return PLAYER or COMPUTER.
+     */
+    public static int side(int event) {
+        return event >>> 4 & 1;
+    }
+    /**
+     * Gets the x coordinate of a packed event.
+     * @param event The packed event.
+     * @return X coordinate in the grid.
+     */
+    public static int x(int event) {
+        return event >>> 5 & 0xFF;
+    }
+    /**
+     * Gets the y coordinate of a packed event.
+     * @param event The packed event.
+     * @return Y coordinate in the grid.
+     */
+    public static int y(int event) {
+        return event >>> 13 & 0xFF;
+    }
+    /**
+     * Gets the extra argument of a packed event.
+     * @param event The packed event.
+     * @return The argument of the event.
+     */
+    public static int arg(int event) {
+        return event >>> 21 & 0x7FF;
+    }
+    /**
+     * Gets the segments of the ship described by a PLACE or SINK event.
+     * @param event The packed event.
+     * @return The number of segments in the ship.
+     */
+    public static int segments(int event) {
+        return arg(event) >>> 1;
+    }
+    /**
+     * Gets if the ship described by a PLACE or SINK event is horizontal.
+     * @param event The packed event.
+     * @return True if the ship is sideways.
+     */
+    public static boolean sideways(int event) {
+        return (arg(event) & 1) != 0;
+    }
+    /**
+     * Creates a readable description of a packed event for debugging.
+     * @param event The packed event.
+     * @return A description such as "SHOT COMPUTER 3,7 0".
+     */
+    public static String toString(int event) {
+        int type = type(event);
+        String name = type < TYPE_NAMES.length ? TYPE_NAMES[type] : "UNKNOWN";
+        return name + " " + (side(event) == PLAYER ? "PLAYER" : "COMPUTER") + " " + x(event) + "," + y(event) + " " + arg(event);
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Interface: GameEventListener.
+ * Told about every event a Match records, as it happens. Listeners are called on the thread
+ * that plays the match, so they must return quickly and pass any slow work on to another thread.
+ */
+public interface GameEventListener {
+    /**
+     * Called after an event has been appended to the record of the match.
+     * @param event The packed event, see GameEvent.
+     */
+    void eventRecorded(int event);
+    /**
+     * Called when the record of the match is cleared for a new game.
+     */
+    void gameReset();
+    /**
+     * Called when undo took events off the end of the record, so the game goes on from an earlier
+     * point. By default the listener is told about a reset followed by every event that is left,
+     * like when a saved game is resumed.
+     * @param record The record of the match, holding the events that are left.
+     */
+    default void recordTruncated(GameRecord record) {
+        gameReset();
+        for (int i = 0; i < record.size(); i++) {
+            eventRecorded(record.get(i));
+        }
+    }
+}
@@ -0,0 +1,494 @@
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameLog.
+ * A named logger that never makes the thread that logs wait. A message is copied into the next
+ * free entry of a lock-free ring buffer shared by every logger, and one background thread takes
+ * the entries out in order, fills the {} placeholders of the pattern with the parameters and
+ * prints the lines. Formatting happens on that thread, so the EDT and the AI threads only pay for
+ * the level check and a few field writes. Parameters must not change after they are logged,
+ * so pass a copy of anything the caller keeps changing. When the ring is full the message is
+ * dropped and counted instead of waiting, and the count is printed once there is room again.
+ * Each logger has its own level, which can be changed while the game runs. The default level is
+ * INFO, or the one in the battleship.log.level system property.
+ */
+public class GameLog {
+    /**
+     * How important a message is, from the most important to the most detailed.
+     */
+    public enum Level {
+        /**
+         * Something failed.
+         */
+        ERROR,
+        /**
+         * Something went wrong but the game carries on.
+         */
+        WARN,
+        /**
+         * Normal events worth knowing about.
+         */
+        INFO,
+        /**
+         * Details for finding problems.
+         */
+        DEBUG,
+        /**
+         * Step by step tracing, for example of what an AI is thinking.
+         */
+        TRACE
+    }
+    /**
+     * System property with the default level of every logger.
+     */
+    public static final String LEVEL_PROPERTY = "battleship.log.level";
+    /**
+     * Number of entries in the ring, a power of two.
+     */
+    private static final int CAPACITY = 8192;
+    /**
+     * Longest time the background thread sleeps before looking at the ring again.
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * Format of the time at the start of every line.
+     */
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    /**
+     * Level of loggers that have not been given one.
+     */
+    private static final Level DEFAULT_LEVEL = parseLevel(System.getProperty(LEVEL_PROPERTY), Level.INFO);
+    /**
+     * Loggers by name.
+     */
+    private static final Map<String, GameLog> loggers = new ConcurrentHashMap<>();
+    /**
+     * The entries of the ring, reused for every message.
+     */
+    private static final Entry[] entries = new Entry[CAPACITY];
+    /**
+     * Sequence number of every entry: equal to the position a writer may fill, one more once it
+     * has been filled, and the position one lap later once it has been printed.
+     */
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    /**
+     * Position the next message will be written to.
+     */
+    private static final AtomicLong tail = new AtomicLong();
+    /**
+     * Position the background thread will print next. Only that thread changes it.
+     */
+    private static volatile long head;
+    /**
+     * Number of messages dropped because the ring was full.
+     */
+    private static final LongAdder dropped = new LongAdder();
+    /**
+     * True while the background thread is asleep, so writers know to wake it.
+     */
+    private static volatile boolean sleeping;
+    /**
+     * Where the lines are printed.
+     */
+    private static volatile PrintStream out = System.err;
+    /**
+     * The thread that prints the messages.
+     */
+    private static final Thread drainer;
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            entries[i] = new Entry();
+            sequences.set(i, i);
+        }
+        drainer = new Thread(GameLog::drainLoop, "game-log");
+        drainer.setDaemon(true);
+        drainer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> awaitDrained(TimeUnit.SECONDS.toNanos(1))));
+    }
+    /**
+     * The name of the logger, printed on every line.
+     */
+    private final String name;
+    /**
+     * The most detailed level that is printed.
+     */
+    private volatile Level level = DEFAULT_LEVEL;
+    /**
+     * One message in the ring.
+     */
+    private static class Entry {
+        /**
+         * Time the message was logged, in milliseconds since the epoch.
+         */
+        long timeMillis;
+        /**
+         * Level of the message.
+         */
+        Level level;
+        /**
+         * Name of the logger.
+         */
+        String logger;
+        /**
+         * Name of the thread that logged the message.
+         */
+        String thread;
+        /**
+         * The message with {} where the parameters go.
+         */
+        String pattern;
+        /**
+         * First parameter.
+         */
+        Object first;
+        /**
+         * Second parameter.
+         */
+        Object second;
+        /**
+         * Number of parameters given.
+         */
+        int parameters;
+    }
+    /**
+     * Creates a logger.
+     * @param name The name of the logger.
+     */
+    private GameLog(String name) {
+        this.name = name;
+    }
+    /**
+     * Reads the name of a level, in any case.
+     * @param text The name, or null.
+     * @param fallback The level used if the name is missing or unknown.
+     * @return The level.
+     */
+    public static Level parseLevel(String text, Level fallback) {
+        if (text == null) return fallback;
+        try {
+            return Level.valueOf(text.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+    /**
+     * Gets the logger with a name, creating it the first time it is requested.
+     * @param name The name of the logger.
+     * @return The logger.
+     */
+    public static GameLog getLogger(String name) {
+        return loggers.computeIfAbsent(name, GameLog::new);
+    }
+    /**
+     * Sets where every logger prints its lines.
+     * @param stream The stream, System.err by default.
+     */
+    public static void setOutput(PrintStream stream) {
+        out = stream;
+    }
+    /**
+     * Gets the number of messages dropped because the ring was full.
+     * @return The number of dropped messages.
+     */
+    public static long getDroppedMessages() {
+        return dropped.sum();
+    }
+    /**
+     * Gets the name of the logger.
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+    /**
+     * Gets the most detailed level the logger prints.
+     * @return The level.
+     */
+    public Level getLevel() {
+        return level;
+    }
+    /**
+     * Sets the most detailed level the logger prints.
+     * @param level The level.
+     */
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+    /**
+     * Gets if messages at a level are printed. Check it before working out a parameter that costs something.
+     * @param messageLevel The level of the message.
+     * @return True if the message would be printed.
+     */
+    public boolean isEnabled(Level messageLevel) {
+        return messageLevel.ordinal() <= level.ordinal();
+    }
+    /**
+     * Logs an error.
+     * @param message The message.
+     */
+    public void error(String message) {
+        log(Level.ERROR, message, null, null, 0);
+    }
+    /**
+     * Logs an error with a parameter. A Throwable that has no {} left for it is printed with its stack trace.
+     * @param pattern The message with {} where the parameter goes.
+     * @param first The parameter.
+     */
+    public void error(String pattern, Object first) {
+        log(Level.ERROR, pattern, first, null, 1);
+    }
+    /**
+     * Logs an error with two parameters. A Throwable that has no {} left for it is printed with its stack trace.
+     * @param pattern The message with {} where the parameters go.
+     * @param first The first parameter.
+     * @param second The second parameter.
+     */
+    public void error(String pattern, Object first, Object second) {
+        log(Level.ERROR, pattern, first, second, 2);
+    }
+    /**
+     * Logs a warning.
+     * @param message The message.
+     */
+    public void warn(String message) {
+        log(Level.WARN, message, null, null, 0);
+    }
+    /**
+     * Logs a warning with a parameter. A Throwable that has no {} left for it is printed with its stack trace.
+     * @param pattern The message with {} where the parameter goes.
+     * @param first The parameter.
+     */
+    public void warn(String pattern, Object first) {
+        log(Level.WARN, pattern, first, null, 1);
+    }
+    /**
+     * Logs a warning with two parameters. A Throwable that has no {} left for it is printed with its stack trace.
+     * @param pattern The message with {} where the parameters go.
+     * @param first The first parameter.
+     * @param second The second parameter.
+     */
+    public void warn(String pattern, Object first, Object second) {
+        log(Level.WARN, pattern, first, second, 2);
+    }
+    /**
+     * Logs an informative message.
+     * @param message The message.
+     */
+    public void info(String message) {
+        log(Level.INFO, message, null, null, 0);
+    }
+    /**
+     * Logs an informative message with a parameter.
+     * @param pattern The message with {} where the parameter goes.
+     * @param first The parameter.
+     */
+    public void info(String pattern, Object first) {
+        log(Level.INFO, pattern, first, null, 1);
+    }
+    /**
+     * Logs an informative message with two parameters.
+     * @param pattern The message with {} where the parameters go.
+     * @param first The first parameter.
+     * @param second The second parameter.
+     */
+    public void info(String pattern, Object first, Object second) {
+        log(Level.INFO, pattern, first, second, 2);
+    }
+    /**
+     * Logs a debug message.
+     * @param message The message.
+     */
+    public void debug(String message) {
+        log(Level.DEBUG, message, null, null, 0);
+    }
+    /**
+     * Logs a debug message with a parameter.
+     * @param pattern The message with {} where the parameter goes.
+     * @param first The parameter.
+     */
+    public void debug(String pattern, Object first) {
+        log(Level.DEBUG, pattern, first, null, 1);
+    }
+    /**
+     * Logs a debug message with two parameters.
+     * @param pattern The message with {} where the parameters go.
+     * @param first The first parameter.
+     * @param second The second parameter.
+     */
+    public void debug(String pattern, Object first, Object second) {
+        log(Level.DEBUG, pattern, first, second, 2);
+    }
+    /**
+     * Logs a trace message.
+     * @param message The message.
+     */
+    public void trace(String message) {
+        log(Level.TRACE, message, null, null, 0);
+    }
+    /**
+     * Logs a trace message with a parameter.
+     * @param pattern The message with {} where the parameter goes.
+     * @param first The parameter.
+     */
+    public void trace(String pattern, Object first) {
+        log(Level.TRACE, pattern, first, null, 1);
+    }
+    /**
+     * Logs a trace message with two parameters.
+     * @param pattern The message with {} where the parameters go.
+     * @param first The first parameter.
+     * @param second The second parameter.
+     */
+    public void trace(String pattern, Object first, Object second) {
+        log(Level.TRACE, pattern, first, second, 2);
+    }
+    /**
+     * Puts a message into the ring if its level is printed, or drops it if the ring is full.
+     * @param messageLevel The level of the message.
+     * @param pattern The message with {} where the parameters go.
+     * @param first The first parameter.
+     * @param second The second parameter.
+     * @param parameters The number of parameters given.
+     */
+    private void log(Level messageLevel, String pattern, Object first, Object second, int parameters) {
+        if (!isEnabled(messageLevel)) return;
+        long position = tail.get();
+        int index;
+        while (true) {
+            index = (int) position & (CAPACITY - 1);
+            long free = sequences.get(index) - position;
+            if (free == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (free < 0) {
+                dropped.increment(); // The entry a lap ago has not been printed yet, so the ring is full
+                return;
+            } else {
+                position = tail.get(); // Another writer took this position
+            }
+        }
+        Entry entry = entries[index];
+        entry.timeMillis = System.currentTimeMillis();
+        entry.level = messageLevel;
+        entry.logger = name;
+        entry.thread = Thread.currentThread().getName();
+        entry.pattern = pattern;
+        entry.first = first;
+        entry.second = second;
+        entry.parameters = parameters;
+        sequences.set(index, position + 1);
+        if (sleeping) {
+            LockSupport.unpark(drainer);
+        }
+    }
+    /**
+     * Prints the messages as they arrive, sleeping while the ring is empty.
+     */
+    private static void drainLoop() {
+        StringBuilder text = new StringBuilder(1024);
+        long reportedDrops = 0;
+        while (true) {
+            int printed = 0;
+            while (true) {
+                long position = head;
+                int index = (int) position & (CAPACITY - 1);
+                if (sequences.get(index) != position + 1) break;
+                format(entries[index], text);
+                clear(entries[index]);
+                sequences.set(index, position + CAPACITY);
+                head = position + 1;
+                printed++;
+            }
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                text.append(TIME_FORMAT.format(Instant.now())).append(" WARN  [game-log] GameLog - ")
+                        .append(drops - reportedDrops).append(" messages dropped because the log could not keep up\n");
+                reportedDrops = drops;
+                printed++;
+            }
+            if (printed > 0) {
+                PrintStream stream = out;
+                stream.print(text);
+                stream.flush();
+                text.setLength(0);
+                continue;
+            }
+            sleeping = true;
+            // Look again after saying so, so a writer that missed the flag has already published its message
+            if (sequences.get((int) head & (CAPACITY - 1)) != head + 1) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+    /**
+     * Writes one message as a line, followed by the stack trace of a Throwable that has no {} left for it.
+     * @param entry The message.
+     * @param text Where the line is written.
+     */
+    private static void format(Entry entry, StringBuilder text) {
+        text.append(TIME_FORMAT.format(Instant.ofEpochMilli(entry.timeMillis))).append(' ');
+        text.append(entry.level.name());
+        for (int i = entry.level.name().length(); i < 5; i++) {
+            text.append(' ');
+        }
+        text.append(" [").append(entry.thread).append("] ").append(entry.logger).append(" - ");
+
+        Object[] parameters = {entry.first, entry.second};
+        int used = 0;
+        int start = 0;
+        String pattern = entry.pattern;
+        int placeholder;
+        while (used < entry.parameters && (placeholder = pattern.indexOf("{}", start)) >= 0) {
+            text.append(pattern, start, placeholder).append(parameters[used++]);
+            start = placeholder + 2;
+        }
+        text.append(pattern, start, pattern.length()).append('\n');
+
+        if (used < entry.parameters && parameters[entry.parameters - 1] instanceof Throwable) {
+            StringWriter trace = new StringWriter();
+            ((Throwable) parameters[entry.parameters - 1]).printStackTrace(new PrintWriter(trace));
+            text.append(trace);
+        }
+    }
+    /**
+     * Lets go of what an entry refers to, so printed messages do not keep objects alive.
+     * @param entry The entry.
+     */
+    private static void clear(Entry entry) {
+        entry.level = null;
+        entry.logger = null;
+        entry.thread = null;
+        entry.pattern = null;
+        entry.first = null;
+        entry.second = null;
+    }
+    /**
+     * Waits until every message logged so far has been printed, used when the JVM shuts down.
+     * @param timeoutNanos Longest time to wait.
+     * @return True if everything was printed in time.
+     */
+    static boolean awaitDrained(long timeoutNanos) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (head < target) {
+            if (System.nanoTime() - deadline >= 0) return false;
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+}
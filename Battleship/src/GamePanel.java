@@ -4,12 +4,14 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
-import java.io.File;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.TimerTask;
 import java.util.Timer;
-import javax.imageio.ImageIO;
 /**
  * DSA Project - Battleship Game - Panadol Extra.
  * Class: GamePanel.
@@ -20,7 +22,14 @@ import javax.imageio.ImageIO;
  * In the attack phase, the player targets the computer's grid to destroy its ships and find the hidden treasures.
  * The status panel provides updates on game progress and the comparative state of both player and computer grids.
  * It also handles player inputs, enabling actions like ship placement, attacking, and toggling debug mode.
- * The AI determines the computer's moves, and the panel manages the game flow based on the current state.
+ * The rules of the game are kept in a Match, which also records every event so a finished game
+ * can be replayed on the panel by pressing L. F5 saves the game in progress and F9 resumes it.
+ * Z takes back the last ship placed or the last shot, as many times as wanted; a game with an
+ * undone shot becomes a practice game that is not counted.
+ * While the player attacks, a WinEstimator works out their chance of winning in the background
+ * after every turn, shown in the status panel between the hit counts.
+ * N starts a game against another person over the network, played through a NetworkMatch
+ * with the other player's grid shown in place of the computer's grid.
  * Additionally, it contains methods to handle mouse and key events for gameplay interactions.
  */
 public class GamePanel extends JPanel implements MouseListener, MouseMotionListener {
@@ -32,13 +41,13 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
      */
     public enum GameState { PlacingShips, FiringShots, GameOver }
     /**
-     * Variable to store and calculate computer's score.
+     * Logger for saved games and network games that fail.
      */
-    private int compCount;
+    private static final GameLog LOG = GameLog.getLogger("GamePanel");
     /**
-     * Variable to store and calculate player's score.
+     * File the game in progress is saved to with F5 and resumed from with F9.
      */
-    private int playerCount;
+    private static final String SAVE_FILE = "savegame.bsg";
     /**
      * Reference to the status panel to pass text messages to show what is happening.
      */
@@ -52,10 +61,33 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
      */
     protected SelectionGrid player;
     /**
-     * AI to manage what the computer will do each turn.
+     * The rules of the game, including the AI, the hit counters and the record of the game.
      */
-    private BattleshipAI aiController;
-
+    private Match match;
+    /**
+     * The network game being played instead of the match, or null.
+     */
+    private NetworkMatch network;
+    /**
+     * The hub started by this window when no hub was running yet, so a second window can join it.
+     */
+    private NetPlayHub hub;
+    /**
+     * Sends the events of the match to the spectator windows opened with V.
+     */
+    private MatchFeed feed;
+    /**
+     * Record of the last finished game, kept so it can still be replayed after a restart.
+     */
+    private GameRecord lastRecord;
+    /**
+     * The replay being shown, or null while the game is being played normally.
+     */
+    private GameReplay replay;
+    /**
+     * Timer that steps the replay being shown.
+     */
+    private javax.swing.Timer replayTimer;
     /**
      * Reference to the temporary ship that is being placed during the PlacingShips state.
      */
@@ -65,22 +97,29 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
      */
     private Position tempPlacingPosition;
     /**
-     * Reference to which ship should be placed next during the PlacingShips state.
+     * The context of the games in this window, holding the debug mode toggled with D.
+     */
+    private final GameContext context = new GameContext();
+    /**
+     * Time taken to paint each frame.
      */
-    private int placingShipIndex;
+    private final LatencyHistogram frameTime = Metrics.histogram(Metrics.FRAME_TIME);
     /**
-     * The game state to represent whether the player can place ships, attack the computer,
-     * or if the game is already over.
+     * Time from the player's click to the computer's answer being shown.
      */
-    private GameState gameState;
+    private final LatencyHistogram turnLatency = Metrics.histogram(Metrics.TURN_LATENCY);
     /**
-     * A state that can be toggled with D to show the computer's ships.
+     * Counts every frame and shows the performance of the game in debug mode.
      */
-    public static boolean debugModeActive;
+    private final PerformanceOverlay overlay = new PerformanceOverlay();
     /**
-     * A state that can be toggled when player hit treasures.
+     * Works out the player's chance of winning after every turn.
      */
-    public boolean hasExtraTurn;
+    private final WinEstimator winEstimator = new WinEstimator();
+    /**
+     * Number of estimates asked for, so only the result of the latest one is shown.
+     */
+    private int estimateGeneration;
     /**
      * Image to draw as the background of the grids.
      */
@@ -116,20 +155,13 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
      * @param difficulty The difficulty level chosen for the game.
      */
     public GamePanel(Game.GameDifficulty difficulty) {
-        try {
-            radarBG = ImageIO.read(new File("radar.png")); // Load the radar image
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        // Choose the AI asociated to the difficulty
-        int aiChoice = mapDifficultyToAIChoice(difficulty);
+        radarBG = AssetCache.getImage("radar.png"); // Load the radar image
 
         // Gap between the two grids
         int gap = 60;
         // Initialize the grids
-        computer = new SelectionGrid(0, 0, true);
-        player = new SelectionGrid(computer.getWidth() + gap, 0, false);
+        computer = new SelectionGrid(0, 0, true, context);
+        player = new SelectionGrid(computer.getWidth() + gap, 0, false, context);
         setLayout(new BorderLayout());
         setBackground(Color.BLACK);
         int totalWidth = computer.getWidth() + player.getWidth() + gap;
@@ -138,59 +170,59 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
         addMouseListener(this);
         addMouseMotionListener(this);
 
-        // Choose the AI to play with player
-        if (aiChoice == 0) {
-            aiController = new SimpleRandomAI(player);
-        } else if (aiChoice == 1) {
-            aiController = new SmarterAI(player, false, true);
-        } else {
-            aiController = new SmarterAI(player, true, true);
-        }
+        // Choose the AI asociated to the difficulty
+        match = new Match(computer, player, BattleshipAI.forDifficulty(difficulty, player), difficulty);
+        match.setUndoEnabled(true);
+        feed = MatchFeed.attach(match);
+        AnalyticsSink.attachIfStarted(match);
+        PlacementPriors.attachIfLoaded(match);
 
         // Draw the status panel at the bottom of the grid
         statusPanel = new StatusPanel(new Position(0, maxHeight), totalWidth, 49);
 
-        hasExtraTurn = false;
         restart();
     }
-    /**
-     * Maps the specified game difficulty level to an AI choice, allowing the selection
-     * of an appropriate AI strategy based on the game's difficulty.
-     * @param difficulty The chosen difficulty level for the game.
-     * @return An integer representing the AI strategy choice:
-     *         0 for EASY, 1 for MEDIUM, 2 for HARD, defaulting to 0 for other cases.
-     */
-    private int mapDifficultyToAIChoice(Game.GameDifficulty difficulty) {
-        switch (difficulty) {
-            case EASY:
-                return 0;
-            case MEDIUM:
-                return 1;
-            case HARD:
-                return 2;
-            default:
-                return 0;} 
-        }
     /**
      * Draws the grids with radar background for both players, any ship being placed, and the status panel.
      * @param g Reference to the Graphics object for drawing.
      */
     public void paint(Graphics g) {
+        FlightEvents.FramePaintEvent event = FlightEvents.beginFramePaint();
+        long start = System.nanoTime();
         super.paint(g);
         drawRadarBackground(g, computer.getPosition().x, computer.getPosition().y, computer.getWidth(), computer.getHeight());
         drawRadarBackground(g, player.getPosition().x, player.getPosition().y, player.getWidth(), player.getHeight());
-        computer.paint(g);
+        if(network != null) {
+            network.getOpponentGrid().paint(g);
+        } else {
+            computer.paint(g);
+        }
         player.paint(g);
-        if(gameState == GameState.PlacingShips) {
+        if(currentState() == GameState.PlacingShips && replay == null) {
             placingShip.paint(g);
         }
         statusPanel.paint(g);
+        long frameNanos = System.nanoTime() - start;
+        frameTime.record(frameNanos);
+        overlay.frameFinished(g, getWidth(), getHeight(), frameNanos);
+        if (event != null && event.shouldCommit()) {
+            event.gameState = currentState().name();
+            event.commit();
+        }
+        if (context.isDebugMode()) {
+            overlay.paint(g, player, network == null ? match : null);
+        }
     }
     /**
      * Handles input based on keys that are pressed.
      * Escape quits the application. S restarts.
      * R rotates the ship while in PlacingShips state.
      * D activates the debug mode to show computer ships and treasures.
+     * L replays the last finished game.
+     * F5 saves the game in progress and F9 resumes the saved game.
+     * Z undoes the last ship placed or the last shot.
+     * N starts a network game against another player.
+     * V opens a window for a spectator to watch the game.
      * @param keyCode The key that was pressed.
      */
     public void handleInput(int keyCode) {
@@ -198,11 +230,23 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
             System.exit(1);
         } else if(keyCode == KeyEvent.VK_S) {
             restart(); //S to restart
-        } else if(gameState == GameState.PlacingShips && keyCode == KeyEvent.VK_R) {
+        } else if(network == null && keyCode == KeyEvent.VK_L) {
+            startReplay(); //L to replay the last finished game
+        } else if(keyCode == KeyEvent.VK_N) {
+            startNetworkGame(); //N to play against another player
+        } else if(keyCode == KeyEvent.VK_V) {
+            SpectatorView.open(feed); //V to open a spectator window
+        } else if(replay == null && network == null && keyCode == KeyEvent.VK_F5) {
+            saveGame(); //F5 to save the game
+        } else if(keyCode == KeyEvent.VK_F9) {
+            loadGame(); //F9 to resume the saved game
+        } else if(replay == null && network == null && keyCode == KeyEvent.VK_Z) {
+            undoMove(); //Z to undo the last move
+        } else if(replay == null && currentState() == GameState.PlacingShips && keyCode == KeyEvent.VK_R) {
             placingShip.toggleSideways(); //R to rotate the ship
             updateShipPlacement(tempPlacingPosition);
         } else if(keyCode == KeyEvent.VK_D) {
-            debugModeActive = !debugModeActive; //D to active the debug mode
+            context.setDebugMode(!context.isDebugMode()); //D to active the debug mode
         }
         repaint();
     }
@@ -210,30 +254,267 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
      * Resets all the class's properties back to their defaults ready for a new game to begin.
      */
     public void restart() {
+        startOver(true);
+    }
+    /**
+     * Stops any replay or network game and resets the score, the grids and the ship being placed.
+     * @param localGame True to start a new game against the computer, false to only clear the
+     *                  match for a network game, so no local game is counted or recorded.
+     */
+    private void startOver(boolean localGame) {
+        stopReplay();
+        leaveNetworkGame();
         // Reset the score and the process
         statusPanel.setCompHitCount(0);
         statusPanel.setPlayerHitCount(0);
-        compCount=0;
-        playerCount =0;
-        computer.reset();
-        player.reset();
+        if (localGame) {
+            match.restart();
+        } else {
+            match.reset();
+        }
 
         // Player can see their own ships by default
         player.setShowShips(true);
-        aiController.reset();
 
         // Reset all the features to default
         tempPlacingPosition = new Position(0,0);
         placingShip = new Ship(new Position(0,0),
                 new Position(player.getPosition().x,player.getPosition().y),
                 SelectionGrid.BOAT_SIZES[0], true);
-        placingShipIndex = 0;
         updateShipPlacement(tempPlacingPosition);
-        computer.populateShips();
-        debugModeActive = false;
+        context.setDebugMode(false);
+        statusPanel.reset();
+        updateWinChance();
+    }
+    /**
+     * Saves the game in progress to the save file as a GameSnapshot.
+     */
+    private void saveGame() {
+        try {
+            Files.write(Paths.get(SAVE_FILE), GameSnapshot.save(match));
+            statusPanel.setTopLine("GAME SAVED. PRESS F9 TO RESUME IT LATER.");
+        } catch (IOException e) {
+            LOG.error("Could not save the game to {}", SAVE_FILE, e);
+            statusPanel.setTopLine("SAVE FAILED.");
+        }
+    }
+    /**
+     * Resumes the game in the save file exactly where it was saved. If it was saved at another
+     * difficulty a new match with the AI for that difficulty is created for it.
+     */
+    private void loadGame() {
+        try {
+            byte[] snapshot = Files.readAllBytes(Paths.get(SAVE_FILE));
+            Game.GameDifficulty difficulty = GameSnapshot.readDifficulty(snapshot);
+            stopReplay();
+            leaveNetworkGame();
+            if (difficulty != match.getDifficulty()) {
+                match.removeListener(feed);
+                match.abandon();
+                match = new Match(computer, player, BattleshipAI.forDifficulty(difficulty, player), difficulty);
+                match.setUndoEnabled(true);
+                match.addListener(feed);
+                AnalyticsSink.attachIfStarted(match);
+                PlacementPriors.attachIfLoaded(match);
+            }
+            GameSnapshot.restore(match, snapshot);
+        } catch (NoSuchFileException e) {
+            statusPanel.setTopLine("NO SAVED GAME.");
+            return;
+        } catch (IOException e) {
+            LOG.error("Could not resume the game saved in {}", SAVE_FILE, e);
+            statusPanel.setTopLine("NO SAVED GAME.");
+            statusPanel.setBottomLine("THE SAVE FILE COULD NOT BE READ.");
+            return;
+        }
+
+        player.setShowShips(true);
+        statusPanel.reset();
+        statusPanel.setPlayerHitCount(match.getPlayerHits());
+        statusPanel.setCompHitCount(match.getCompHits());
+        if (match.getGameState() == GameState.PlacingShips) {
+            placingShip = new Ship(new Position(0,0),
+                    new Position(player.getPosition().x,player.getPosition().y),
+                    match.getNextShipSegments(), true);
+            updateShipPlacement(new Position(0,0));
+        } else if (match.getGameState() == GameState.FiringShots) {
+            statusPanel.setTopLine("GAME RESUMED. ATTACK THE ENEMY!");
+            statusPanel.setBottomLine("DESTROY ALL SHIPS TO WIN!");
+        } else {
+            statusPanel.showGameOver(match.getWinner() == GameEvent.PLAYER);
+        }
+        updateWinChance();
+    }
+    /**
+     * Takes back the last ship placed or the last shot of the player with the computer's answer,
+     * and shows the board as it was before.
+     */
+    private void undoMove() {
+        if (!match.undo()) return;
         statusPanel.reset();
-        gameState = GameState.PlacingShips;
-        hasExtraTurn = false;
+        statusPanel.setPlayerHitCount(match.getPlayerHits());
+        statusPanel.setCompHitCount(match.getCompHits());
+        player.setShowShips(true);
+        if (match.getGameState() == GameState.PlacingShips) {
+            placingShip = new Ship(new Position(0,0),
+                    new Position(player.getPosition().x,player.getPosition().y),
+                    match.getNextShipSegments(), true);
+            updateShipPlacement(tempPlacingPosition);
+        } else {
+            statusPanel.setTopLine("SHOT TAKEN BACK. THIS IS NOW A PRACTICE GAME.");
+            statusPanel.setBottomLine("IT WILL NOT COUNT IN THE STATISTICS.");
+        }
+        updateWinChance();
+    }
+    /**
+     * Starts working out the player's chance of winning in the background, or hides it when the
+     * player is not attacking the computer. The result is shown when it arrives, unless another
+     * estimate was asked for in the meantime.
+     */
+    private void updateWinChance() {
+        winEstimator.cancel();
+        int generation = ++estimateGeneration;
+        if (network != null || replay != null || match.getGameState() != GameState.FiringShots) {
+            statusPanel.setWinChance(-1);
+            return;
+        }
+        winEstimator.estimate(match, chance -> SwingUtilities.invokeLater(() -> {
+            if (generation != estimateGeneration) return;
+            statusPanel.setWinChance(chance);
+            repaint();
+        }));
+    }
+    /**
+     * Starts a game against another player in room 0 of the NetPlayHub on this computer.
+     * If no hub is running yet this window starts one, and the next window to press N joins it.
+     */
+    private void startNetworkGame() {
+        startOver(false);
+        network = new NetworkMatch(player, computer.getPosition().x, computer.getPosition().y, new NetworkMatch.Listener() {
+            @Override
+            public void started(boolean myTurn) {
+                statusPanel.setTopLine("ATTACK THE ENEMY!");
+                statusPanel.setBottomLine(myTurn ? "YOU FIRE FIRST." : "THE OTHER PLAYER FIRES FIRST.");
+                repaint();
+            }
+            @Override
+            public void opponentShot(ShotResult result) {
+                showComputerShot(result, true);
+                repaint();
+            }
+            @Override
+            public void shotAnswered(ShotResult result) {
+                showPlayerShot(result, true);
+                repaint();
+            }
+            @Override
+            public void desync(int turn) {
+                statusPanel.setTopLine("THE GAMES DO NOT MATCH ANY MORE AT TURN " + turn + "!");
+                repaint();
+            }
+            @Override
+            public void opponentLeft() {
+                statusPanel.setTopLine("THE OTHER PLAYER HAS LEFT.");
+                statusPanel.setBottomLine("PRESS S TO RESTART.");
+                repaint();
+            }
+        });
+        try {
+            try {
+                network.connect("localhost", NetPlayHub.DEFAULT_PORT, 0, SwingUtilities::invokeLater);
+            } catch (ConnectException e) {
+                hub = new NetPlayHub(NetPlayHub.DEFAULT_PORT);
+                network.connect("localhost", NetPlayHub.DEFAULT_PORT, 0, SwingUtilities::invokeLater);
+            }
+        } catch (IOException e) {
+            LOG.error("Could not start a network game on port {}", NetPlayHub.DEFAULT_PORT, e);
+            network = null;
+            statusPanel.setTopLine("COULD NOT START A NETWORK GAME.");
+            return;
+        }
+        statusPanel.setTopLine("NETWORK GAME: PLACE YOUR SHIPS.");
+        statusPanel.setBottomLine("WAITING FOR ANOTHER PLAYER TO PRESS N.");
+    }
+    /**
+     * Leaves the network game if one is being played. A hub started by this window keeps
+     * running so other windows can still use it.
+     */
+    private void leaveNetworkGame() {
+        if (network != null) {
+            network.close();
+            network = null;
+        }
+    }
+    /**
+     * Gets the state of the game being played, either the match or the network game.
+     * @return PlacingShips, FiringShots or GameOver.
+     */
+    private GameState currentState() {
+        return network != null ? network.getGameState() : match.getGameState();
+    }
+    /**
+     * Gets the size of the ship the player has to place next.
+     * @return The number of segments of the next ship.
+     */
+    private int nextShipSegments() {
+        return network != null ? network.getNextShipSegments() : match.getNextShipSegments();
+    }
+    /**
+     * Replays the game that has just finished, or the last finished game, on the grids.
+     * The placements are shown straight away and then one shot is shown at a time.
+     */
+    private void startReplay() {
+        GameRecord recordToReplay = match.getGameState() == GameState.GameOver ? match.getRecord().copy() : lastRecord;
+        if (recordToReplay == null) {
+            return;
+        }
+        stopReplay();
+        lastRecord = recordToReplay;
+        statusPanel.setCompHitCount(0);
+        statusPanel.setPlayerHitCount(0);
+        replay = new GameReplay(recordToReplay, match);
+        updateWinChance();
+        player.setShowShips(true);
+        statusPanel.setTopLine("REPLAY");
+        statusPanel.setBottomLine("PRESS S TO RESTART AGAIN.");
+        replayTimer = new javax.swing.Timer(400, e -> stepReplay());
+        replayTimer.start();
+    }
+    /**
+     * Shows the next shot of the replay, placing any ships that come before it.
+     * Stops the timer once the whole game has been shown.
+     */
+    private void stepReplay() {
+        boolean stepped;
+        do {
+            stepped = replay.step();
+        } while (stepped && replay.getLastShot() == null);
+
+        ShotResult shot = replay.getLastShot();
+        if (shot != null) {
+            if (shot.getSide() == GameEvent.PLAYER) {
+                showPlayerShot(shot, false);
+            } else {
+                showComputerShot(shot, false);
+            }
+        }
+        if (!stepped) {
+            replayTimer.stop();
+            if (replay.getDivergenceIndex() >= 0) {
+                statusPanel.setTopLine("REPLAY DIFFERS AT EVENT " + replay.getDivergenceIndex());
+            }
+        }
+        repaint();
+    }
+    /**
+     * Stops the replay being shown, if there is one.
+     */
+    private void stopReplay() {
+        if (replayTimer != null) {
+            replayTimer.stop();
+            replayTimer = null;
+        }
+        replay = null;
     }
     /**
      * Uses the mouse position to test update the ship being placed during the
@@ -244,30 +525,33 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
     private void tryPlaceShip(Position mousePosition) {
         Position targetPosition = player.getPositionInGrid(mousePosition.x, mousePosition.y);
         updateShipPlacement(targetPosition);
-        if(player.canPlaceShipAt(targetPosition.x, targetPosition.y,
-                SelectionGrid.BOAT_SIZES[placingShipIndex],placingShip.isSideways())) {
+        boolean placed = network != null
+                ? network.placePlayerShip(placingShip, tempPlacingPosition.x, tempPlacingPosition.y)
+                : match.placePlayerShip(placingShip, tempPlacingPosition.x, tempPlacingPosition.y);
+        if(placed) {
             placeShip(targetPosition);
         }
     }
     /**
-     * Finalises the insertion of the ship being placed by storing it in the player's grid.
-     * Then either prepares the next ship for placing, or moves to the next state.
-     * @param targetPosition The position on the grid to insert the ship at.
+     * Called once the ship being placed has been stored in the player's grid.
+     * Either prepares the next ship for placing, or shows that the attack can begin.
+     * @param targetPosition The position on the grid the ship was inserted at.
      */
     private void placeShip(Position targetPosition) {
-        player.placeShip(placingShip,tempPlacingPosition.x,tempPlacingPosition.y);
-        placingShipIndex++;
         // If there are still ships to place
-        if(placingShipIndex < SelectionGrid.BOAT_SIZES.length) {
+        if(currentState() == GameState.PlacingShips) {
             placingShip = new Ship(new Position(targetPosition.x, targetPosition.y),
                     new Position(player.getPosition().x + targetPosition.x * SelectionGrid.CELL_SIZE,
                             player.getPosition().y + targetPosition.y * SelectionGrid.CELL_SIZE),
-                    SelectionGrid.BOAT_SIZES[placingShipIndex], true);
+                    nextShipSegments(), true);
             updateShipPlacement(tempPlacingPosition);
+        } else if(network != null && !network.isStarted()) {
+            statusPanel.setTopLine("ALL SHIPS PLACED.");
+            statusPanel.setBottomLine("WAITING FOR THE OTHER PLAYER...");
         } else {
-            gameState = GameState.FiringShots;
             statusPanel.setTopLine("ATTACK THE ENEMY!");
             statusPanel.setBottomLine("DESTROY ALL SHIPS TO WIN!");
+            updateWinChance();
         }
     }
     /**
@@ -278,6 +562,7 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
      * @param mousePosition Mouse coordinates inside the panel.
      */
     private void tryFireAtComputer(Position mousePosition) {
+        long start = System.nanoTime();
         Position targetPosition = computer.getPositionInGrid(mousePosition.x,mousePosition.y);
 
         // Ignore if position was already clicked
@@ -288,62 +573,61 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
         // Play the sound
         PlaySound.playSound("shoot.wav");
 
-        if(!computer.isPositionMarked(targetPosition)) {
-            doPlayerTurn(targetPosition);
+        ShotResult playerShot = match.firePlayerShot(targetPosition);
+        if(playerShot != null) {
+            winEstimator.cancel(); // The estimate was for the turn that just ended
+            showPlayerShot(playerShot, true);
             // Only do the AI turn if the game didn't end from the player's turn and player didn't have extra turn from treasure.
-            if(!computer.areAllShipsDestroyed() && !hasExtraTurn) {
-                doAITurn();
+            if(match.isComputerTurn()) {
+                showComputerShot(match.doAITurn(), true);
+                turnLatency.recordSince(start);
             }
-            hasExtraTurn = false;
+            updateWinChance();
         }
     }
     /**
-     * Sets the state to indicate that an extra turn is available.
-     * This method is used to signal an additional turn opportunity.
+     * Fires at the other player's grid in a network game. The result is shown when the other player answers.
+     * @param mousePosition Mouse coordinates inside the panel.
      */
-    public void extraTurn() {
-        hasExtraTurn = true;
+    private void tryFireAtOpponent(Position mousePosition) {
+        Position targetPosition = computer.getPositionInGrid(mousePosition.x, mousePosition.y);
+        if (network.fire(targetPosition)) {
+            PlaySound.playSound("shoot.wav");
+        } else if (!network.isMyTurn() && network.getGameState() == GameState.FiringShots) {
+            statusPanel.setTopLine("WAIT FOR YOUR TURN.");
+        }
     }
     /**
-     * Processes the player's turn based on where they selected to attack.
-     * Based on the result of the attack a message is displayed to the player,
-     * and if they destroyed the last ship the game updates to a won state.
-     * @param targetPosition The grid position clicked on by the player.
+     * Shows the result of the player's shot. Based on the result of the attack a message is
+     * displayed to the player, and if they destroyed the last ship the game shows the won state.
+     * @param result The result of the player's shot.
+     * @param live True while playing, false while replaying so no sounds or videos are played.
      */
-    private void doPlayerTurn(Position targetPosition) {
-        boolean hit = computer.markPosition(targetPosition, true);
-        boolean hitTreasure = computer.isTreasureAtPosition(targetPosition);
+    private void showPlayerShot(ShotResult result, boolean live) {
         String statusMessage = "";
+        statusPanel.setPlayerHitCount(network != null ? network.getPlayerHits() : match.getPlayerHits()); // Update score
 
-        // Handle the situation that player hit a ship
-        if (hit) {
-            playerCount++; // Update score
-            statusPanel.setPlayerHitCount(playerCount);
-        }
         // Handle the situation that player hit a treasure
-        if(hitTreasure) {
-            computer.markTreasureAsOpened(targetPosition); // Mark the treasure state as opened
+        if(result.isTreasure()) {
             statusMessage = "TREASURE FOUND! YOU HAVE 1 MORE MOVE!!";
-            extraTurn(); // The player gained extra turn
-            // Timer to manage the sound of treasure to prevent overlapping with the shooting sound
-            Timer timer = new Timer();
-            timer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    PlaySound.playSound("treasure.wav");
-                }
-            }, 50);
+            if(live) {
+                // Timer to manage the sound of treasure to prevent overlapping with the shooting sound
+                Timer timer = new Timer();
+                timer.schedule(new TimerTask() {
+                    @Override
+                    public void run() {
+                        PlaySound.playSound("treasure.wav");
+                    }
+                }, 50);
+            }
         }
 
         // Hit/Miss, destroyed message
-        String hitMiss = hit ? "HIT!" : "MISSED!";
+        String hitMiss = result.isHit() ? "HIT!" : "MISSED!";
         String destroyed = "";
 
-        // Draw a marker at a cell when player shoot
-        Marker marker = computer.getMarkerAtPosition(targetPosition);
-
         // Handle destroyed ships
-        if(hit && marker.getAssociatedShip() != null && marker.getAssociatedShip().isDestroyed()) {
+        if(result.getSunkShip() != null) {
             destroyed = "ENEMY'S SHIP HAS SUNK!";
         }
 
@@ -351,35 +635,29 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
         statusPanel.setTopLine(statusMessage + " YOU " + hitMiss + " " + destroyed);
 
         // Checking if the player win
-        if(computer.areAllShipsDestroyed()) {
-            gameState = GameState.GameOver;
+        if(result.isGameOver()) {
             statusPanel.showGameOver(true);
-            PlayVideo.playVideo("toothless.mp4"); // Play video
+            if(live) {
+                if(network == null) lastRecord = match.getRecord().copy();
+                PlayVideo.playVideo("toothless.mp4"); // Play video
+            }
         }
     }
     /**
-     * Processes the AI turn by using the AI Controller to select a move.
-     * Then processes the result to display it to the player. If the AI
-     * destroyed the last ship the game will end with AI winning.
+     * Shows the result of the computer's shot to the player. If the AI
+     * destroyed the last ship the game shows the AI winning.
+     * @param result The result of the computer's shot.
+     * @param live True while playing, false while replaying so no videos are played.
      */
-    private void doAITurn() {
-        // Select move
-        Position aiMove = aiController.selectMove();
-        boolean hit = player.markPosition(aiMove, false);
-
+    private void showComputerShot(ShotResult result, boolean live) {
         // Message
-        String hitMiss = hit ? "HIT!" : "MISSED!";
+        String hitMiss = result.isHit() ? "HIT!" : "MISSED!";
         String destroyed = "";
 
-        // Handle hit situation
-        if(hit) {
-            compCount++; // Update score
-            statusPanel.setCompHitCount(compCount);
-        }
+        // Update score
+        statusPanel.setCompHitCount(network != null ? network.getOpponentHits() : match.getCompHits());
 
-        // Draw a marker when the computer shoot
-        Marker marker = player.getMarkerAtPosition(aiMove);
-        if(hit && marker.getAssociatedShip() != null && marker.getAssociatedShip().isDestroyed()) {
+        if(result.getSunkShip() != null) {
             destroyed = "YOUR SHIP HAS SUNK!";
         }
 
@@ -387,11 +665,13 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
         statusPanel.setBottomLine("ENEMY " + hitMiss + " " + destroyed);
 
         // Checking if the computer win
-        if(player.areAllShipsDestroyed()) {
+        if(result.isGameOver()) {
             // Computer wins!
-            gameState = GameState.GameOver;
             statusPanel.showGameOver(false);
-            PlayVideo.playVideo("meme12.mp4"); // Play video
+            if(live) {
+                if(network == null) lastRecord = match.getRecord().copy();
+                PlayVideo.playVideo("meme12.mp4"); // Play video
+            }
         }
     }
     /**
@@ -412,9 +692,9 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
     private void updateShipPlacement(Position targetPos) {
         // Constrain to fit inside the grid
         if(placingShip.isSideways()) {
-            targetPos.x = Math.min(targetPos.x, SelectionGrid.GRID_WIDTH - SelectionGrid.BOAT_SIZES[placingShipIndex]);
+            targetPos.x = Math.min(targetPos.x, SelectionGrid.GRID_WIDTH - nextShipSegments());
         } else {
-            targetPos.y = Math.min(targetPos.y, SelectionGrid.GRID_HEIGHT - SelectionGrid.BOAT_SIZES[placingShipIndex]);
+            targetPos.y = Math.min(targetPos.y, SelectionGrid.GRID_HEIGHT - nextShipSegments());
         }
 
         // Update drawing position to use the new target position
@@ -426,8 +706,10 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
         tempPlacingPosition = targetPos;
 
         // Change the colour of the ship based on whether it could be placed at the current location.
-        if(player.canPlaceShipAt(tempPlacingPosition.x, tempPlacingPosition.y,
-                SelectionGrid.BOAT_SIZES[placingShipIndex],placingShip.isSideways())) {
+        boolean canPlace = network != null
+                ? network.canPlacePlayerShip(tempPlacingPosition.x, tempPlacingPosition.y, placingShip.isSideways())
+                : match.canPlacePlayerShip(tempPlacingPosition.x, tempPlacingPosition.y, placingShip.isSideways());
+        if(canPlace) {
         }
     }
     /**
@@ -439,11 +721,16 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
      */
     @Override
     public void mouseReleased(MouseEvent e) {
+        if(replay != null) return;
         Position mousePosition = new Position(e.getX(), e.getY());
-        if(gameState == GameState.PlacingShips && player.isPositionInside(mousePosition)) {
+        if(currentState() == GameState.PlacingShips && player.isPositionInside(mousePosition)) {
             tryPlaceShip(mousePosition);
-        } else if(gameState == GameState.FiringShots && computer.isPositionInside(mousePosition)) {
-            tryFireAtComputer(mousePosition);
+        } else if(currentState() == GameState.FiringShots && computer.isPositionInside(mousePosition)) {
+            if(network != null) {
+                tryFireAtOpponent(mousePosition);
+            } else {
+                tryFireAtComputer(mousePosition);
+            }
         }
         repaint();
     }
@@ -454,7 +741,7 @@ public class GamePanel extends JPanel implements MouseListener, MouseMotionListe
      */
     @Override
     public void mouseMoved(MouseEvent e) {
-        if(gameState != GameState.PlacingShips) return;
+        if(currentState() != GameState.PlacingShips || replay != null) return;
         tryMovePlacingShip(new Position(e.getX(), e.getY()));
         repaint();
     }
@@ -0,0 +1,136 @@
+import java.util.Arrays;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameRecord.
+ * An append-only list of the events of one game, stored as packed ints (see GameEvent).
+ * Only undoing a move takes events back off the end.
+ * It holds everything needed to rebuild the game: the treasures, every ship placement,
+ * every shot and what happened because of it.
+ */
+public class GameRecord {
+    /**
+     * The packed events. Only the first size entries are used.
+     */
+    private int[] events;
+    /**
+     * Number of events in the record.
+     */
+    private int size;
+    /**
+     * The difficulty the game was played at.
+     */
+    private Game.GameDifficulty difficulty;
+    /**
+     * Time the game was started in milliseconds since the epoch.
+     */
+    private long startTime;
+    /**
+     * Creates an empty record for a game at the specified difficulty.
+     * @param difficulty The difficulty the game is played at.
+     */
+    public GameRecord(Game.GameDifficulty difficulty) {
+        events = new int[256]; // Enough for a typical game without growing
+        this.difficulty = difficulty;
+        startTime = System.currentTimeMillis();
+    }
+    /**
+     * Adds an event to the end of the record.
+     * @param event The packed event.
+     */
+    public void append(int event) {
+        if (size == events.length) {
+            events = Arrays.copyOf(events, size * 2);
+        }
+        events[size++] = event;
+    }
+    /**
+     * Gets an event from the record.
+     * @param index The position of the event in the record.
+     * @return The packed event.
+     */
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Event " + index + " of " + size);
+        return events[index];
+    }
+    /**
+     * Gets the number of events in the record.
+     * @return The number of events.
+     */
+    public int size() {
+        return size;
+    }
+    /**
+     * Removes the events after the first ones, for undoing moves.
+     * @param newSize The number of events to keep.
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) throw new IndexOutOfBoundsException("Cannot keep " + newSize + " of " + size + " events");
+        size = newSize;
+    }
+    /**
+     * Removes all of the events and restarts the clock for a new game.
+     */
+    public void clear() {
+        size = 0;
+        startTime = System.currentTimeMillis();
+    }
+    /**
+     * Gets the difficulty the game was played at.
+     * @return The difficulty of the game.
+     */
+    public Game.GameDifficulty getDifficulty() {
+        return difficulty;
+    }
+    /**
+     * Gets the time the game was started.
+     * @return Milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+    /**
+     * Sets the time the game was started, used when loading a stored record.
+     * @param startTime Milliseconds since the epoch.
+     */
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+    /**
+     * Creates an independent copy of the record that will not change when this one does.
+     * @return A copy of the record.
+     */
+    public GameRecord copy() {
+        GameRecord copy = new GameRecord(difficulty);
+        copy.events = Arrays.copyOf(events, Math.max(size, 1));
+        copy.size = size;
+        copy.startTime = startTime;
+        return copy;
+    }
+    /**
+     * Replaces the events and start time of this record with those of another record,
+     * for example when a saved game is resumed.
+     * @param other The record to copy.
+     */
+    public void copyFrom(GameRecord other) {
+        if (events.length < other.size) {
+            events = new int[other.size];
+        }
+        System.arraycopy(other.events, 0, events, 0, other.size);
+        size = other.size;
+        startTime = other.startTime;
+    }
+    /**
+     * Counts the shots fired by a side.
+     * @param side GameEvent.PLAYER or GameEvent.COMPUTER.
+     * @return The number of SHOT events for the side.
+     */
+    public int countShots(int side) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (GameEvent.type(events[i]) == GameEvent.SHOT && GameEvent.side(events[i]) == side) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
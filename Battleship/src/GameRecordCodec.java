@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.util.zip.CRC32;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameRecordCodec.
+ * Converts a GameRecord to a compact binary form and back.
+ * The header is a format version followed by variable length numbers for the flags, the grid size,
+ * the difficulty, the start time and the number of events. Each event is then packed into as few
+ * bits as possible: 3 bits of type, 1 bit of side and a cell index that needs 7 bits on an 11x11 grid.
+ * The position of a RESULT is not stored because it is always the position of the shot before it.
+ * When a MovePredictor is used, a computer shot that matches the prediction is stored as a single bit.
+ * The data ends with a CRC32 of everything before it.
+ */
+public class GameRecordCodec {
+    /**
+     * Version of the format, stored in the first byte.
+     */
+    public static final int FORMAT_VERSION = 1;
+    /**
+     * Flag set when computer shots are stored against a MovePredictor.
+     */
+    private static final int FLAG_PREDICTED = 1;
+    /**
+     * Number of bits used for the type of an event.
+     */
+    private static final int TYPE_BITS = 3;
+    /**
+     * Number of bits used for the segments of a ship.
+     */
+    private static final int SEGMENT_BITS = 4;
+    /**
+     * Encodes a record without a predictor.
+     * @param record The record to encode.
+     * @return The encoded bytes.
+     */
+    public static byte[] encode(GameRecord record) {
+        return encode(record, null);
+    }
+    /**
+     * Encodes a record.
+     * @param record The record to encode.
+     * @param predictor Predictor for the computer's shots, or null to store every shot in full.
+     *                  The same kind of predictor must be passed to decode().
+     * @return The encoded bytes.
+     */
+    public static byte[] encode(GameRecord record, MovePredictor predictor) {
+        BitWriter writer = new BitWriter(16 + record.size() * 2);
+        writer.writeByte(FORMAT_VERSION);
+        writer.writeVarLong(predictor != null ? FLAG_PREDICTED : 0);
+        writer.writeVarLong(SelectionGrid.GRID_WIDTH);
+        writer.writeVarLong(SelectionGrid.GRID_HEIGHT);
+        writer.writeVarLong(record.getDifficulty().ordinal());
+        writer.writeVarLong(record.getStartTime());
+        writer.writeVarLong(record.size());
+        int cellBits = cellBits(SelectionGrid.GRID_WIDTH, SelectionGrid.GRID_HEIGHT);
+        if (predictor != null) {
+            predictor.reset();
+        }
+
+        for (int i = 0; i < record.size(); i++) {
+            int event = record.get(i);
+            int type = GameEvent.type(event);
+            int side = GameEvent.side(event);
+            int cell = GameEvent.x(event) * SelectionGrid.GRID_HEIGHT + GameEvent.y(event);
+            writer.writeBits(type, TYPE_BITS);
+            writer.writeBits(side, 1);
+            switch (type) {
+                case GameEvent.PLACE:
+                case GameEvent.SINK:
+                    writer.writeBits(cell, cellBits);
+                    writer.writeBits(GameEvent.segments(event), SEGMENT_BITS);
+                    writer.writeBit(GameEvent.sideways(event));
+                    break;
+                case GameEvent.TREASURE:
+                    writer.writeBits(cell, cellBits);
+                    break;
+                case GameEvent.SHOT:
+                    if (predictor != null && side == GameEvent.COMPUTER) {
+                        boolean predicted = predictor.predictComputerShot() == cell;
+                        writer.writeBit(predicted);
+                        if (predicted) break;
+                    }
+                    writer.writeBits(cell, cellBits);
+                    break;
+                case GameEvent.RESULT:
+                    writer.writeBits(GameEvent.arg(event), 2);
+                    break;
+                default:
+                    // EXTRA_TURN and GAME_OVER only need the side
+                    break;
+            }
+            if (predictor != null) {
+                predictor.observe(event);
+            }
+        }
+
+        writer.alignToByte();
+        CRC32 crc = new CRC32();
+        crc.update(writer.buffer(), 0, writer.length());
+        writer.writeInt((int) crc.getValue());
+        return writer.toByteArray();
+    }
+    /**
+     * Decodes a record that was encoded without a predictor.
+     * @param data The encoded bytes.
+     * @return The decoded record.
+     * @throws IOException If the data is damaged or needs a predictor.
+     */
+    public static GameRecord decode(byte[] data) throws IOException {
+        return decode(data, 0, data.length, null);
+    }
+    /**
+     * Decodes a record.
+     * @param data The array holding the encoded bytes.
+     * @param offset Index of the first encoded byte.
+     * @param length Number of encoded bytes.
+     * @param predictor The same kind of predictor used to encode, or null if none was used.
+     * @return The decoded record.
+     * @throws IOException If the data is damaged, uses an unknown version, or needs a predictor that was not given.
+     */
+    public static GameRecord decode(byte[] data, int offset, int length, MovePredictor predictor) throws IOException {
+        if (length < 5) throw new IOException("Game record too short");
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length - 4);
+        BitReader crcReader = new BitReader(data, offset + length - 4, 4);
+        if (crcReader.readInt() != (int) crc.getValue()) throw new IOException("Game record checksum does not match");
+
+        BitReader reader = new BitReader(data, offset, length - 4);
+        int version = reader.readByte();
+        if (version != FORMAT_VERSION) throw new IOException("Unsupported game record version " + version);
+        long flags = reader.readVarLong();
+        int width = (int) reader.readVarLong();
+        int height = (int) reader.readVarLong();
+        int difficulty = (int) reader.readVarLong();
+        long startTime = reader.readVarLong();
+        long size = reader.readVarLong();
+        Game.GameDifficulty[] difficulties = Game.GameDifficulty.values();
+        if (difficulty >= difficulties.length) throw new IOException("Unknown difficulty " + difficulty);
+        if (width < 1 || height < 1 || width > 255 || height > 255) throw new IOException("Bad grid size " + width + "x" + height);
+        boolean usesPredictor = (flags & FLAG_PREDICTED) != 0;
+        if (usesPredictor) {
+            if (predictor == null) throw new IOException("Game record needs a move predictor");
+            if (width != SelectionGrid.GRID_WIDTH || height != SelectionGrid.GRID_HEIGHT) {
+                throw new IOException("Predicted game record for a " + width + "x" + height + " grid");
+            }
+            predictor.reset();
+        }
+        int cellBits = cellBits(width, height);
+
+        GameRecord record = new GameRecord(difficulties[difficulty]);
+        record.setStartTime(startTime);
+        int[] lastShotX = new int[2];
+        int[] lastShotY = new int[2];
+        for (long i = 0; i < size; i++) {
+            int type = reader.readBits(TYPE_BITS);
+            int side = reader.readBits(1);
+            int x = 0;
+            int y = 0;
+            int arg = 0;
+            switch (type) {
+                case GameEvent.PLACE:
+                case GameEvent.SINK: {
+                    int cell = reader.readBits(cellBits);
+                    x = cell / height;
+                    y = cell % height;
+                    int segments = reader.readBits(SEGMENT_BITS);
+                    arg = GameEvent.shipArg(segments, reader.readBit());
+                    break;
+                }
+                case GameEvent.TREASURE: {
+                    int cell = reader.readBits(cellBits);
+                    x = cell / height;
+                    y = cell % height;
+                    break;
+                }
+                case GameEvent.SHOT: {
+                    int cell;
+                    if (usesPredictor && side == GameEvent.COMPUTER && reader.readBit()) {
+                        cell = predictor.predictComputerShot();
+                        if (cell < 0) throw new IOException("Predicted shot with nothing left to predict");
+                    } else {
+                        cell = reader.readBits(cellBits);
+                    }
+                    x = cell / height;
+                    y = cell % height;
+                    lastShotX[side] = x;
+                    lastShotY[side] = y;
+                    break;
+                }
+                case GameEvent.RESULT:
+                    x = lastShotX[side];
+                    y = lastShotY[side];
+                    arg = reader.readBits(2);
+                    break;
+                case GameEvent.EXTRA_TURN:
+                case GameEvent.GAME_OVER:
+                    break;
+                default:
+                    throw new IOException("Unknown event type " + type);
+            }
+            int event = GameEvent.pack(type, side, x, y, arg);
+            record.append(event);
+            if (usesPredictor) {
+                predictor.observe(event);
+            }
+        }
+        return record;
+    }
+    /**
+     * Gets the number of bits needed to store any cell index of a grid.
+     * @param width Number of cells horizontally.
+     * @param height Number of cells vertically.
+     * @return The number of bits for a cell index, 7 for an 11x11 grid.
+     */
+    public static int cellBits(int width, int height) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(width * height - 1));
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameReplay.
+ * Plays a recorded game again through a Match, one placement or shot at a time.
+ * Only the placements and shots are taken from the record. The results are worked out
+ * again by the match and compared with the record, so a replay finds the first event
+ * where the rules now behave differently from when the game was played.
+ */
+public class GameReplay {
+    /**
+     * The record being replayed.
+     */
+    private final GameRecord source;
+    /**
+     * The match the record is replayed through.
+     */
+    private final Match match;
+    /**
+     * The result of the shot applied by the last step, or null if it placed a ship.
+     */
+    private ShotResult lastShot;
+    /**
+     * Index of the first event that did not match the record, or -1.
+     */
+    private int divergedAt;
+    /**
+     * Prepares to replay a record by clearing the match and hiding the recorded treasures.
+     * @param source The record to replay.
+     * @param match The match to replay it through. Everything in it is reset.
+     */
+    public GameReplay(GameRecord source, Match match) {
+        this.source = source;
+        this.match = match;
+        divergedAt = -1;
+        match.reset();
+        List<Position> treasures = new ArrayList<>();
+        for (int i = 0; i < source.size(); i++) {
+            int event = source.get(i);
+            if (GameEvent.type(event) == GameEvent.TREASURE) {
+                treasures.add(new Position(GameEvent.x(event), GameEvent.y(event)));
+            }
+        }
+        match.setTreasures(treasures);
+        checkEvents(0);
+    }
+    /**
+     * Replays a whole record at full speed in a match that is not shown on the screen.
+     * @param record The record to replay.
+     * @return The match in the state at the end of the record.
+     */
+    public static Match replayHeadless(GameRecord record) {
+        Match match = Match.createHeadless(record.getDifficulty());
+        new GameReplay(record, match).runToEnd();
+        return match;
+    }
+    /**
+     * Gets if there are more placements or shots to replay.
+     * @return True if step() will apply another event.
+     */
+    public boolean hasNext() {
+        return divergedAt < 0 && match.getRecord().size() < source.size();
+    }
+    /**
+     * Applies the next placement or shot from the record to the match.
+     * @return True if an event was applied, false if the replay is finished or has diverged.
+     */
+    public boolean step() {
+        lastShot = null;
+        if (!hasNext()) return false;
+        int start = match.getRecord().size();
+        int event = source.get(start);
+        int x = GameEvent.x(event);
+        int y = GameEvent.y(event);
+        boolean applied = true;
+        switch (GameEvent.type(event)) {
+            case GameEvent.PLACE:
+                if (GameEvent.side(event) == GameEvent.COMPUTER) {
+                    match.placeComputerShip(x, y, GameEvent.segments(event), GameEvent.sideways(event));
+                } else {
+                    applied = match.placePlayerShip(x, y, GameEvent.sideways(event));
+                }
+                break;
+            case GameEvent.SHOT:
+                if (GameEvent.side(event) == GameEvent.PLAYER) {
+                    lastShot = match.firePlayerShot(new Position(x, y));
+                    applied = lastShot != null;
+                } else {
+                    lastShot = match.fireComputerShot(new Position(x, y));
+                }
+                break;
+            default:
+                // The record has a result where the match expected a placement or a shot
+                applied = false;
+        }
+        if (!applied) {
+            divergedAt = start;
+            return false;
+        }
+        checkEvents(start);
+        return true;
+    }
+    /**
+     * Replays every remaining event in the record.
+     */
+    public void runToEnd() {
+        while (step()) {
+            // Keep stepping
+        }
+    }
+    /**
+     * Compares the events the match recorded since an index with the events in the source record.
+     * @param from The index of the first event to compare.
+     */
+    private void checkEvents(int from) {
+        GameRecord replayed = match.getRecord();
+        for (int i = from; i < replayed.size(); i++) {
+            if (i >= source.size() || replayed.get(i) != source.get(i)) {
+                divergedAt = i;
+                return;
+            }
+        }
+    }
+    /**
+     * Gets the result of the shot applied by the last step.
+     * @return The result of the shot, or null if the last step placed a ship.
+     */
+    public ShotResult getLastShot() {
+        return lastShot;
+    }
+    /**
+     * Gets the index of the first event that the match did not reproduce.
+     * @return The index into the record, or -1 if everything matched so far.
+     */
+    public int getDivergenceIndex() {
+        return divergedAt;
+    }
+    /**
+     * Gets if the whole record has been replayed without differences.
+     * @return True if the replay reached the end of the record.
+     */
+    public boolean isFinished() {
+        return divergedAt < 0 && match.getRecord().size() == source.size();
+    }
+    /**
+     * Gets the match the record is replayed through.
+     * @return The match of this replay.
+     */
+    public Match getMatch() {
+        return match;
+    }
+}
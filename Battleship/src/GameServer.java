@@ -0,0 +1,210 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameServer.
+ * Hosts many games at once without a window, behind a line based TCP protocol (see GameSession).
+ * Every connection gets its own GameSession with its own Match, so sessions never share grids or AIs.
+ * Sessions run on virtual threads when the JVM has them, so tens of thousands of mostly idle
+ * connections only cost a small stack each. On older JVMs, or on JDK 19 without --enable-preview,
+ * a cached thread pool is used instead.
+ * Run it with: java GameServer [port] [idle timeout in seconds]
+ */
+public class GameServer implements Closeable {
+    /**
+     * Logger for connections that fail.
+     */
+    private static final GameLog LOG = GameLog.getLogger("GameServer");
+    /**
+     * Port used when none is given.
+     */
+    public static final int DEFAULT_PORT = 7777;
+    /**
+     * Idle timeout used when none is given.
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    /**
+     * Most AI moves that may wait for the shared pool before sessions compute their own.
+     */
+    private static final int MAX_QUEUED_MOVES = 4096;
+    /**
+     * The socket accepting new connections.
+     */
+    private final ServerSocket serverSocket;
+    /**
+     * Runs the accept loop and one task for every session.
+     */
+    private final ExecutorService executor;
+    /**
+     * True if the executor uses virtual threads.
+     */
+    private final boolean virtualThreads;
+    /**
+     * How long a session may wait for a command before it is closed.
+     */
+    private final int idleTimeoutMillis;
+    /**
+     * The sessions that are currently connected, by id.
+     */
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    /**
+     * Id for the next session.
+     */
+    private final AtomicLong nextSessionId = new AtomicLong();
+    /**
+     * Number of games finished by all sessions.
+     */
+    private final AtomicLong gamesFinished = new AtomicLong();
+    /**
+     * Released when the server is closed.
+     */
+    private final CountDownLatch closed = new CountDownLatch(1);
+    /**
+     * Computes the AI moves of every session on a shared pool.
+     */
+    private final AIScheduler aiScheduler;
+    /**
+     * Starts a server on localhost.
+     * @param port The port to listen on, or 0 to pick a free port.
+     * @param idleTimeoutMillis How long a session may wait for a command before it is closed.
+     * @throws IOException If the port cannot be opened.
+     */
+    public GameServer(int port, int idleTimeoutMillis) throws IOException {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        aiScheduler = new AIScheduler(Runtime.getRuntime().availableProcessors(), MAX_QUEUED_MOVES);
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        ExecutorService virtual = createVirtualThreadExecutor();
+        virtualThreads = virtual != null;
+        executor = virtualThreads ? virtual : Executors.newCachedThreadPool();
+        executor.execute(this::acceptLoop);
+    }
+    /**
+     * Creates an executor that starts a virtual thread for every task, if the JVM supports it.
+     * Reflection is used so the game still compiles and runs on JVMs without virtual threads.
+     * @return The executor, or null if virtual threads are not available.
+     */
+    static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+    /**
+     * Accepts connections until the server is closed and starts a session for each one.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setSoTimeout(idleTimeoutMillis);
+                socket.setTcpNoDelay(true);
+                GameSession session = new GameSession(this, nextSessionId.incrementAndGet(), socket);
+                sessions.put(session.getId(), session);
+                executor.execute(session);
+            } catch (SocketException e) {
+                // The server socket was closed
+            } catch (IOException e) {
+                LOG.error("Could not accept a connection", e);
+            }
+        }
+    }
+    /**
+     * Called by a session when its connection has closed.
+     * @param session The session that ended.
+     */
+    void sessionClosed(GameSession session) {
+        sessions.remove(session.getId());
+    }
+    /**
+     * Called by a session every time one of its games ends.
+     */
+    void gameFinished() {
+        gamesFinished.incrementAndGet();
+    }
+    /**
+     * Gets the port the server is listening on.
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    /**
+     * Gets the number of connected sessions.
+     * @return The number of sessions.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+    /**
+     * Gets the number of games finished since the server started.
+     * @return The number of finished games.
+     */
+    public long getGamesFinished() {
+        return gamesFinished.get();
+    }
+    /**
+     * Gets the scheduler that computes the AI moves of every session.
+     * @return The AI scheduler.
+     */
+    public AIScheduler getAIScheduler() {
+        return aiScheduler;
+    }
+    /**
+     * Gets if sessions run on virtual threads.
+     * @return True for virtual threads, false for platform threads.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+    /**
+     * Stops accepting connections and closes every session.
+     * @throws IOException If the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (GameSession session : sessions.values()) {
+            session.close();
+        }
+        executor.shutdown();
+        aiScheduler.close();
+        closed.countDown();
+    }
+    /**
+     * Waits until the server is closed.
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public void awaitClose() throws InterruptedException {
+        closed.await();
+    }
+    /**
+     * Starts a server and keeps it running until the process is stopped.
+     * @param args Optional port and idle timeout in seconds.
+     * @throws IOException If the port cannot be opened.
+     * @throws InterruptedException If the main thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int idleTimeout = args.length > 1 ? Integer.parseInt(args[1]) * 1000 : DEFAULT_IDLE_TIMEOUT_MILLIS;
+        GameServer server = new GameServer(port, idleTimeout);
+        Metrics.startDumpIfConfigured();
+        AnalyticsSink.startIfConfigured();
+        PlacementPriors.loadIfConfigured();
+        BattleshipStats.register();
+        System.out.println("Battleship server on port " + server.getPort()
+                + (server.usesVirtualThreads() ? " using virtual threads" : " using platform threads"));
+        server.awaitClose(); // Virtual threads do not keep the JVM running on their own
+    }
+}
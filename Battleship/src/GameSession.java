@@ -0,0 +1,426 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameSession.
+ * One connection to the GameServer. The client sends one command per line and every answer ends
+ * with exactly one line starting with OK or ERR, which may follow some SHOT or BOARD lines.
+ * The commands are:
+ * NEW difficulty - starts a game against the AI of that difficulty.
+ * PLACE x y H|V - places the next ship of the player. RANDOM places the whole fleet instead.
+ * FIRE x y - fires at the computer's grid, the computer answers straight away unless a treasure was found.
+ * AI playerDifficulty computerDifficulty [games] - lets two AIs play each other and reports the wins.
+ * BOARD - shows both grids. SAVE and LOAD snapshot - save and resume the game as a GameSnapshot in base64.
+ * QUIT - closes the connection.
+ * A shot is reported as: SHOT PLAYER|COMPUTER x y HIT|MISS [TREASURE] [SUNK segments] [GAMEOVER].
+ * A session that does not send a command within the idle timeout of the server is closed.
+ */
+public class GameSession implements Runnable {
+    /**
+     * Logger for connections that fail.
+     */
+    private static final GameLog LOG = GameLog.getLogger("GameSession");
+    /**
+     * Most games the AI command will play at once between AIs that answer without sampling.
+     */
+    private static final int MAX_AI_GAMES = 10_000;
+    /**
+     * Most games the AI command will play at once when an Expert takes part, about a minute of 15 ms moves.
+     */
+    private static final int MAX_EXPERT_AI_GAMES = 50;
+    /**
+     * Most games the AI command will play at once when a Master takes part, about a minute of 120 ms moves.
+     */
+    private static final int MAX_MASTER_AI_GAMES = 5;
+    /**
+     * Time an AI move may take including the wait for the shared pool, in nanoseconds.
+     */
+    private static final long MOVE_DEADLINE_NANOS = 250_000_000L;
+    /**
+     * The server that owns this session.
+     */
+    private final GameServer server;
+    /**
+     * Id of this session on the server.
+     */
+    private final long id;
+    /**
+     * The connection to the client.
+     */
+    private final Socket socket;
+    /**
+     * The game being played, created by the first NEW command.
+     */
+    private Match match;
+    /**
+     * Creates a session for a connection. The session starts when it is run.
+     * @param server The server that owns this session.
+     * @param id Id of this session on the server.
+     * @param socket The connection to the client.
+     */
+    public GameSession(GameServer server, long id, Socket socket) {
+        this.server = server;
+        this.id = id;
+        this.socket = socket;
+    }
+    /**
+     * Reads commands until the client quits, the connection closes or the session is idle for too long.
+     */
+    @Override
+    public void run() {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII), 256);
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), 512)) {
+            out.write("OK BATTLESHIP 1\n");
+            out.flush();
+            String line;
+            while ((line = readCommand(in, out)) != null) {
+                boolean keepOpen = handleCommand(line.trim(), out);
+                out.flush();
+                if (!keepOpen) break;
+            }
+        } catch (IOException e) {
+            // The client went away, nothing to answer
+        } finally {
+            if (match != null) match.abandon();
+            close();
+            server.sessionClosed(this);
+        }
+    }
+    /**
+     * Waits for the next command from the client.
+     * @param in The input from the client.
+     * @param out The output to the client, used to say goodbye when the session times out.
+     * @return The command, or null if the session should end.
+     * @throws IOException If the connection fails.
+     */
+    private String readCommand(BufferedReader in, BufferedWriter out) throws IOException {
+        try {
+            return in.readLine();
+        } catch (SocketTimeoutException e) {
+            out.write("ERR IDLE TIMEOUT\n");
+            out.flush();
+            return null;
+        }
+    }
+    /**
+     * Carries out one command and writes the answer.
+     * @param line The command line from the client.
+     * @param out The output to the client.
+     * @return False if the session should end.
+     * @throws IOException If the answer cannot be written.
+     */
+    private boolean handleCommand(String line, BufferedWriter out) throws IOException {
+        String[] parts = line.split("\\s+");
+        String command = parts[0].toUpperCase();
+        try {
+            switch (command) {
+                case "NEW":
+                    newGame(difficultyArg(parts, 1));
+                    out.write("OK PLACE " + match.getNextShipSegments() + "\n");
+                    break;
+                case "PLACE":
+                    place(parts, out);
+                    break;
+                case "RANDOM":
+                    requireGame();
+                    if (match.getGameState() != GamePanel.GameState.PlacingShips || match.getPlacingShipIndex() > 0) {
+                        out.write("ERR SHIPS ALREADY PLACED\n");
+                    } else {
+                        match.placePlayerShipsRandomly();
+                        out.write("OK FIRE\n");
+                    }
+                    break;
+                case "FIRE":
+                    fire(parts, out);
+                    break;
+                case "AI":
+                    playAIGames(parts, out);
+                    break;
+                case "BOARD":
+                    requireGame();
+                    writeBoard("PLAYER", match.getPlayerGrid(), true, out);
+                    writeBoard("COMPUTER", match.getComputerGrid(), false, out);
+                    out.write("OK\n");
+                    break;
+                case "SAVE":
+                    requireGame();
+                    out.write("OK " + Base64.getEncoder().encodeToString(GameSnapshot.save(match)) + "\n");
+                    break;
+                case "LOAD":
+                    load(parts, out);
+                    break;
+                case "QUIT":
+                    out.write("OK BYE\n");
+                    return false;
+                default:
+                    out.write("ERR UNKNOWN COMMAND " + command + "\n");
+                    break;
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            out.write("ERR " + e.getMessage() + "\n");
+        }
+        return true;
+    }
+    /**
+     * Starts a new game against the AI, reusing the current match if the difficulty is the same.
+     * @param difficulty The difficulty of the AI.
+     */
+    private void newGame(Game.GameDifficulty difficulty) {
+        if (match == null || match.getDifficulty() != difficulty) {
+            if (match != null) match.abandon();
+            match = Match.createHeadless(difficulty);
+            AnalyticsSink.attachIfStarted(match);
+            PlacementPriors.attachIfLoaded(match);
+        }
+        match.restart();
+    }
+    /**
+     * Handles the PLACE command.
+     * @param parts The words of the command.
+     * @param out The output to the client.
+     * @throws IOException If the answer cannot be written.
+     */
+    private void place(String[] parts, BufferedWriter out) throws IOException {
+        requireGame();
+        int x = intArg(parts, 1);
+        int y = intArg(parts, 2);
+        boolean sideways = parts.length > 3 && parts[3].equalsIgnoreCase("H");
+        if (x >= SelectionGrid.GRID_WIDTH || y >= SelectionGrid.GRID_HEIGHT || !match.placePlayerShip(x, y, sideways)) {
+            out.write("ERR CANNOT PLACE SHIP THERE\n");
+        } else if (match.getGameState() == GamePanel.GameState.PlacingShips) {
+            out.write("OK PLACE " + match.getNextShipSegments() + "\n");
+        } else {
+            out.write("OK FIRE\n");
+        }
+    }
+    /**
+     * Handles the FIRE command, including the computer's answer.
+     * @param parts The words of the command.
+     * @param out The output to the client.
+     * @throws IOException If the answer cannot be written.
+     */
+    private void fire(String[] parts, BufferedWriter out) throws IOException {
+        requireGame();
+        int x = intArg(parts, 1);
+        int y = intArg(parts, 2);
+        if (x >= SelectionGrid.GRID_WIDTH || y >= SelectionGrid.GRID_HEIGHT) {
+            out.write("ERR OUTSIDE THE GRID\n");
+            return;
+        }
+        ShotResult result = match.firePlayerShot(new Position(x, y));
+        if (result == null) {
+            out.write("ERR CANNOT FIRE THERE\n");
+            return;
+        }
+        writeShot(result, out);
+        if (match.isComputerTurn()) {
+            writeShot(match.fireComputerShot(selectComputerMove()), out);
+        }
+        if (match.getGameState() == GamePanel.GameState.GameOver) {
+            server.gameFinished();
+            out.write("OK GAMEOVER " + (match.getWinner() == GameEvent.PLAYER ? "PLAYER" : "COMPUTER") + "\n");
+        } else {
+            out.write("OK FIRE\n");
+        }
+    }
+    /**
+     * Handles the AI command by playing whole games between two AIs inside this session.
+     * The player's side is played by a second AI attacking the computer's grid. The games are
+     * played on a match of their own, so the game of the session is left as it was, and neither
+     * the placement priors nor the analytics record the random fleets of the AI as if a person
+     * had played them.
+     * @param parts The words of the command.
+     * @param out The output to the client.
+     * @throws IOException If the answer cannot be written.
+     */
+    private void playAIGames(String[] parts, BufferedWriter out) throws IOException {
+        Game.GameDifficulty playerDifficulty = difficultyArg(parts, 1);
+        Game.GameDifficulty computerDifficulty = difficultyArg(parts, 2);
+        int games = parts.length > 3 ? intArg(parts, 3) : 1;
+        int maxGames = Math.min(maxAIGames(playerDifficulty), maxAIGames(computerDifficulty));
+        if (games < 1 || games > maxGames) throw new IllegalArgumentException("GAMES MUST BE 1 TO " + maxGames);
+
+        Match aiMatch = Match.createHeadless(computerDifficulty);
+        BattleshipAI playerAI = BattleshipAI.forDifficulty(playerDifficulty, aiMatch.getComputerGrid());
+        int playerWins = 0;
+        long shots = 0;
+        for (int i = 0; i < games; i++) {
+            aiMatch.restart();
+            playerAI.reset();
+            aiMatch.placePlayerShipsRandomly();
+            while (aiMatch.getGameState() == GamePanel.GameState.FiringShots) {
+                aiMatch.firePlayerShot(selectMove(playerAI));
+                if (aiMatch.isComputerTurn()) {
+                    aiMatch.fireComputerShot(selectMove(aiMatch));
+                }
+            }
+            if (aiMatch.getWinner() == GameEvent.PLAYER) playerWins++;
+            shots += aiMatch.getRecord().countShots(GameEvent.PLAYER) + aiMatch.getRecord().countShots(GameEvent.COMPUTER);
+            server.gameFinished();
+        }
+        out.write("OK PLAYER " + playerWins + " COMPUTER " + (games - playerWins) + " SHOTS " + shots + "\n");
+    }
+    /**
+     * Lets an AI select its move on the shared pool of the server, so sessions take turns
+     * with expensive AIs instead of competing for the processors.
+     * @param ai The AI to move.
+     * @return The selected position to attack.
+     */
+    private Position selectMove(BattleshipAI ai) {
+        return server.getAIScheduler().call(this, MOVE_DEADLINE_NANOS, ai::selectMove);
+    }
+    /**
+     * Gets the most games the AI command may play with an AI of a difficulty, so one command
+     * cannot keep the shared pool of the server busy for hours.
+     * @param difficulty The difficulty of one of the AIs.
+     * @return The most games.
+     */
+    private static int maxAIGames(Game.GameDifficulty difficulty) {
+        switch (difficulty) {
+            case EXPERT:
+                return MAX_EXPERT_AI_GAMES;
+            case MASTER:
+                return MAX_MASTER_AI_GAMES;
+            default:
+                return MAX_AI_GAMES;
+        }
+    }
+    /**
+     * Lets the computer's AI select its move on the shared pool of the server.
+     * The time is recorded on the pool, so time spent waiting for a turn is not counted.
+     * @return The selected position to attack.
+     */
+    private Position selectComputerMove() {
+        return selectMove(match);
+    }
+    /**
+     * Lets the computer's AI of a match select its move on the shared pool of the server.
+     * @param game The match.
+     * @return The selected position to attack.
+     */
+    private Position selectMove(Match game) {
+        return server.getAIScheduler().call(this, MOVE_DEADLINE_NANOS, game::selectAIMove);
+    }
+    /**
+     * Handles the LOAD command by resuming a game saved with SAVE.
+     * @param parts The words of the command.
+     * @param out The output to the client.
+     * @throws IOException If the answer cannot be written.
+     */
+    private void load(String[] parts, BufferedWriter out) throws IOException {
+        if (parts.length < 2) throw new IllegalArgumentException("MISSING SNAPSHOT");
+        byte[] snapshot = Base64.getDecoder().decode(parts[1]);
+        try {
+            Game.GameDifficulty difficulty = GameSnapshot.readDifficulty(snapshot);
+            if (match == null || match.getDifficulty() != difficulty) {
+                if (match != null) match.abandon();
+                match = Match.createHeadless(difficulty);
+                AnalyticsSink.attachIfStarted(match);
+                PlacementPriors.attachIfLoaded(match);
+            }
+            GameSnapshot.restore(match, snapshot);
+            out.write("OK " + (match.getGameState() == GamePanel.GameState.PlacingShips ? "PLACE " + match.getNextShipSegments() : match.getGameState() == GamePanel.GameState.FiringShots ? "FIRE" : "GAMEOVER") + "\n");
+        } catch (IOException e) {
+            out.write("ERR BAD SNAPSHOT " + e.getMessage() + "\n");
+        }
+    }
+    /**
+     * Writes a line describing a shot.
+     * @param result The shot to describe.
+     * @param out The output to the client.
+     * @throws IOException If the line cannot be written.
+     */
+    private void writeShot(ShotResult result, BufferedWriter out) throws IOException {
+        StringBuilder line = new StringBuilder("SHOT ");
+        line.append(result.getSide() == GameEvent.PLAYER ? "PLAYER " : "COMPUTER ");
+        line.append(result.getPosition().x).append(' ').append(result.getPosition().y);
+        line.append(result.isHit() ? " HIT" : " MISS");
+        if (result.isTreasure()) line.append(" TREASURE");
+        if (result.getSunkShip() != null) line.append(" SUNK ").append(result.getSunkShip().getSegments());
+        if (result.isGameOver()) line.append(" GAMEOVER");
+        out.write(line.append('\n').toString());
+    }
+    /**
+     * Writes one BOARD line per row of a grid. '.' has not been attacked, 'o' is a miss and 'X' is a hit.
+     * The player's own ships that have not been hit are shown as 'S'.
+     * @param name Name of the grid to start each line with.
+     * @param grid The grid to show.
+     * @param showShips True to show ships that have not been hit.
+     * @param out The output to the client.
+     * @throws IOException If the lines cannot be written.
+     */
+    private void writeBoard(String name, SelectionGrid grid, boolean showShips, BufferedWriter out) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+            line.setLength(0);
+            line.append("BOARD ").append(name).append(' ');
+            for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                Marker marker = grid.getMarkerAt(x, y);
+                if (marker.isMarked()) {
+                    line.append(marker.isShip() ? 'X' : 'o');
+                } else {
+                    line.append(showShips && marker.isShip() ? 'S' : '.');
+                }
+            }
+            out.write(line.append('\n').toString());
+        }
+    }
+    /**
+     * Checks that NEW or LOAD has been used before a command that needs a game.
+     */
+    private void requireGame() {
+        if (match == null) throw new IllegalStateException("NO GAME, USE NEW FIRST");
+    }
+    /**
+     * Reads a number from a command.
+     * @param parts The words of the command.
+     * @param index The index of the word.
+     * @return The number.
+     */
+    private static int intArg(String[] parts, int index) {
+        if (index >= parts.length) throw new IllegalArgumentException("MISSING NUMBER");
+        try {
+            return Integer.parseInt(parts[index]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("BAD NUMBER " + parts[index]);
+        }
+    }
+    /**
+     * Reads a difficulty from a command.
+     * @param parts The words of the command.
+     * @param index The index of the word.
+     * @return The difficulty.
+     */
+    private static Game.GameDifficulty difficultyArg(String[] parts, int index) {
+        if (index >= parts.length) throw new IllegalArgumentException("MISSING DIFFICULTY");
+        try {
+            return Game.GameDifficulty.valueOf(parts[index].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("UNKNOWN DIFFICULTY " + parts[index]);
+        }
+    }
+    /**
+     * Gets the id of this session on the server.
+     * @return The session id.
+     */
+    public long getId() {
+        return id;
+    }
+    /**
+     * Closes the connection, which also ends run().
+     */
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOG.error("Could not close the connection of session {}", id, e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import java.io.IOException;
+import java.util.zip.CRC32;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: GameSnapshot.
+ * Saves a game in progress as a few hundred bytes and resumes it later exactly where it was left.
+ * A snapshot holds the turn and hit counters of the Match, the ships, attacked cells and treasures
+ * of both grids, what the AI remembers, and the GameRecord so far. Restoring sets all of that
+ * directly instead of playing the game again, so it is cheap enough to take after every turn.
+ * The layout is a version byte, the grid size and difficulty as variable length numbers,
+ * the bit-packed state, the encoded record and a CRC32 of everything before it.
+ */
+public class GameSnapshot {
+    /**
+     * Version of the snapshot layout, stored in the first byte.
+     */
+    public static final int FORMAT_VERSION = 1;
+    /**
+     * Saves the current state of a match.
+     * @param match The match to save.
+     * @return The snapshot.
+     */
+    public static byte[] save(Match match) {
+        BitWriter writer = new BitWriter(512);
+        writer.writeByte(FORMAT_VERSION);
+        writer.writeVarLong(SelectionGrid.GRID_WIDTH);
+        writer.writeVarLong(SelectionGrid.GRID_HEIGHT);
+        writer.writeVarLong(match.getDifficulty().ordinal());
+        match.writeState(writer);
+
+        byte[] record = GameRecordCodec.encode(match.getRecord());
+        writer.writeVarLong(record.length);
+        for (byte b : record) {
+            writer.writeByte(b);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(writer.buffer(), 0, writer.length());
+        writer.writeInt((int) crc.getValue());
+        return writer.toByteArray();
+    }
+    /**
+     * Gets the difficulty a snapshot was saved at, so a match with the right AI can be created for it.
+     * @param data The snapshot.
+     * @return The difficulty of the saved game.
+     * @throws IOException If the snapshot is damaged or from another version.
+     */
+    public static Game.GameDifficulty readDifficulty(byte[] data) throws IOException {
+        return readHeader(checkedReader(data));
+    }
+    /**
+     * Replaces the state of a match with a snapshot. If the snapshot turns out to be damaged
+     * part way through, the match is reset so it is never left half restored.
+     * @param match The match to restore, it must be at the same difficulty as the snapshot.
+     * @param data The snapshot.
+     * @throws IOException If the snapshot is damaged, from another version or for another difficulty.
+     */
+    public static void restore(Match match, byte[] data) throws IOException {
+        BitReader reader = checkedReader(data);
+        Game.GameDifficulty difficulty = readHeader(reader);
+        if (difficulty != match.getDifficulty()) {
+            throw new IOException("Snapshot is for " + difficulty + " but the match is " + match.getDifficulty());
+        }
+        try {
+            match.readState(reader);
+            int recordLength = (int) reader.readVarLong();
+            int recordOffset = reader.position();
+            if (recordLength < 0 || recordOffset + recordLength > data.length - 4) {
+                throw new IOException("Snapshot record too long");
+            }
+            match.restoreRecord(GameRecordCodec.decode(data, recordOffset, recordLength, null));
+        } catch (IOException e) {
+            match.reset();
+            throw e;
+        }
+    }
+    /**
+     * Checks the CRC32 at the end of a snapshot and creates a reader for the rest of it.
+     * @param data The snapshot.
+     * @return A reader positioned at the start of the snapshot.
+     * @throws IOException If the snapshot is too short or the checksum does not match.
+     */
+    private static BitReader checkedReader(byte[] data) throws IOException {
+        if (data.length < 5) throw new IOException("Snapshot too short");
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        if (new BitReader(data, data.length - 4, 4).readInt() != (int) crc.getValue()) {
+            throw new IOException("Snapshot checksum does not match");
+        }
+        return new BitReader(data, 0, data.length - 4);
+    }
+    /**
+     * Reads the version, grid size and difficulty at the start of a snapshot.
+     * @param reader The reader positioned at the start of the snapshot.
+     * @return The difficulty of the saved game.
+     * @throws IOException If the snapshot is from another version or for another grid size.
+     */
+    private static Game.GameDifficulty readHeader(BitReader reader) throws IOException {
+        int version = reader.readByte();
+        if (version != FORMAT_VERSION) throw new IOException("Unsupported snapshot version " + version);
+        long width = reader.readVarLong();
+        long height = reader.readVarLong();
+        if (width != SelectionGrid.GRID_WIDTH || height != SelectionGrid.GRID_HEIGHT) {
+            throw new IOException("Snapshot is for a " + width + "x" + height + " grid");
+        }
+        long difficulty = reader.readVarLong();
+        Game.GameDifficulty[] difficulties = Game.GameDifficulty.values();
+        if (difficulty >= difficulties.length) throw new IOException("Unknown difficulty " + difficulty);
+        return difficulties[(int) difficulty];
+    }
+}
@@ -0,0 +1,172 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: LatencyHistogram.
+ * Counts durations in nanoseconds in buckets laid out like an HDR histogram: every power of two
+ * is split into 32 equal buckets, so any percentile is within about 3% of the true value, from
+ * nanoseconds up to days, in a fixed 15 kB array. Recording is a few lock-free additions and
+ * never allocates, so it can be used on every move and every frame by any number of threads.
+ */
+public class LatencyHistogram {
+    /**
+     * Number of bits of a value kept exactly in each power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+    /**
+     * Number of buckets in each power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Number of buckets, enough for every positive long.
+     */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    /**
+     * Number of values recorded in each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /**
+     * Sum of the recorded values.
+     */
+    private final AtomicLong sum = new AtomicLong();
+    /**
+     * Largest recorded value.
+     */
+    private final AtomicLong max = new AtomicLong();
+    /**
+     * A copy of a histogram at one moment, which can be queried without affecting recording.
+     */
+    public static class Snapshot {
+        /**
+         * Number of values in each bucket.
+         */
+        private final long[] counts;
+        /**
+         * Number of values.
+         */
+        private final long count;
+        /**
+         * Sum of the values.
+         */
+        private final long sum;
+        /**
+         * Largest value.
+         */
+        private final long max;
+        /**
+         * Creates a snapshot.
+         * @param counts Number of values in each bucket.
+         * @param sum Sum of the values.
+         * @param max Largest value.
+         */
+        Snapshot(long[] counts, long sum, long max) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+        /**
+         * Gets the number of recorded values.
+         * @return The count.
+         */
+        public long getCount() {
+            return count;
+        }
+        /**
+         * Gets the mean of the recorded values.
+         * @return The mean in nanoseconds, or 0 if nothing was recorded.
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+        /**
+         * Gets the largest recorded value.
+         * @return The maximum in nanoseconds.
+         */
+        public long getMax() {
+            return max;
+        }
+        /**
+         * Gets a percentile of the recorded values.
+         * @param percentile The percentile, from 0 to 100.
+         * @return The largest value that falls in the same bucket as the percentile, at most the maximum, or 0 if nothing was recorded.
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) return 0;
+            long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) return Math.min(highestValueIn(i), max);
+            }
+            return max;
+        }
+    }
+    /**
+     * Records a duration.
+     * @param nanos The duration in nanoseconds, negative values count as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Another thread raised the maximum, check against the new one
+        }
+    }
+    /**
+     * Records the time since a start time.
+     * @param startNanos The System.nanoTime() when the timed work started.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+    /**
+     * Copies the histogram.
+     * @param reset True to empty the histogram at the same time, so the next snapshot only has newer values.
+     * @return The snapshot.
+     */
+    public Snapshot snapshot(boolean reset) {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+        }
+        long total = reset ? sum.getAndSet(0) : sum.get();
+        long largest = reset ? max.getAndSet(0) : max.get();
+        return new Snapshot(copy, total, largest);
+    }
+    /**
+     * Empties the histogram.
+     */
+    public void reset() {
+        snapshot(true);
+    }
+    /**
+     * Finds the bucket of a value.
+     * @param value The value, not negative.
+     * @return The index of its bucket.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)); // From SUB_BUCKETS to 2 * SUB_BUCKETS - 1
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa - SUB_BUCKETS;
+    }
+    /**
+     * Finds the largest value that falls in a bucket.
+     * @param bucket The index of the bucket.
+     * @return The largest value of the bucket.
+     */
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long mantissa = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return mantissa * width + width - 1;
+    }
+}
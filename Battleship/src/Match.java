@@ -0,0 +1,804 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: Match.
+ * Holds the rules of one game between the player and the computer without anything to do with drawing,
+ * so games can be played, recorded and replayed without a window.
+ * It owns both grids, the AI, the hit counters and whose turn it is, and appends every
+ * placement, shot and result to a GameRecord as it happens.
+ * Before every move of the player it keeps an undo point: BoardSnapshots of both grids, which
+ * share everything with the snapshots before them, the counters and what the AI remembers.
+ * undo() goes back to them one at a time. A game in which a shot was undone is a practice game
+ * and is not counted in the Metrics.
+ */
+public class Match {
+    /**
+     * The computer's grid for the player to attack.
+     */
+    private final SelectionGrid computer;
+    /**
+     * The player's grid for the computer to attack.
+     */
+    private final SelectionGrid player;
+    /**
+     * AI to manage what the computer will do each turn.
+     */
+    private final BattleshipAI aiController;
+    /**
+     * The difficulty the game is played at.
+     */
+    private final Game.GameDifficulty difficulty;
+    /**
+     * Every event that has happened in the current game.
+     */
+    private final GameRecord record;
+    /**
+     * Told about every event as it is recorded.
+     */
+    private final List<GameEventListener> listeners = new ArrayList<>();
+    /**
+     * The game state to represent whether the player can place ships, attack the computer,
+     * or if the game is already over.
+     */
+    private GamePanel.GameState gameState;
+    /**
+     * Reference to which ship should be placed next during the PlacingShips state.
+     */
+    private int placingShipIndex;
+    /**
+     * Number of hits made by the player.
+     */
+    private int playerHits;
+    /**
+     * Number of hits made by the computer.
+     */
+    private int compHits;
+    /**
+     * True when the player found a treasure with their last shot, so the computer does not get a turn.
+     */
+    private boolean hasExtraTurn;
+    /**
+     * True when the player has fired and the computer has to answer.
+     */
+    private boolean computerToMove;
+    /**
+     * The side that won, or -1 while the game is still going.
+     */
+    private int winner;
+    /**
+     * True while a game started with restart() has not ended, so it is counted as active in the Metrics.
+     * Replayed and resumed games are not counted.
+     */
+    private boolean counted;
+    /**
+     * Time the AI took to select its last move, or -1 before its first move.
+     */
+    private long lastAIMoveNanos = -1;
+    /**
+     * True from when the AI selects a move until the computer's next shot is fired.
+     */
+    private boolean aiMovePending;
+    /**
+     * Time the AI took to select the computer's shot being fired, or -1 if the AI did not select
+     * it, for example when the shot is replayed or mirrored from another game.
+     */
+    private long shotAIMoveNanos = -1;
+    /**
+     * Most undo points kept, the oldest are dropped after that.
+     */
+    private static final int MAX_UNDO = 256;
+    /**
+     * Snapshot of the computer's grid, kept up to date with every placement and shot.
+     */
+    private BoardSnapshot computerBoard = BoardSnapshot.EMPTY;
+    /**
+     * Snapshot of the player's grid, kept up to date with every placement and shot.
+     */
+    private BoardSnapshot playerBoard = BoardSnapshot.EMPTY;
+    /**
+     * The states undo() goes back to, the latest first.
+     */
+    private final ArrayDeque<UndoPoint> undoHistory = new ArrayDeque<>();
+    /**
+     * True if undo points are kept. Off by default, so matches that can never undo, such as
+     * headless and server games, do not copy the AI on every move.
+     */
+    private boolean undoEnabled;
+    /**
+     * The state of the match before one move of the player.
+     */
+    private static final class UndoPoint {
+        /**
+         * The computer's grid.
+         */
+        final BoardSnapshot computerBoard;
+        /**
+         * The player's grid.
+         */
+        final BoardSnapshot playerBoard;
+        /**
+         * Number of events in the record.
+         */
+        final int recordSize;
+        /**
+         * The game state.
+         */
+        final GamePanel.GameState gameState;
+        /**
+         * Which ship the player had to place next.
+         */
+        final int placingShipIndex;
+        /**
+         * Number of hits made by the player.
+         */
+        final int playerHits;
+        /**
+         * Number of hits made by the computer.
+         */
+        final int compHits;
+        /**
+         * True if the player had an extra turn.
+         */
+        final boolean hasExtraTurn;
+        /**
+         * What the AI remembered, as written by BattleshipAI.writeState().
+         */
+        final byte[] aiState;
+        /**
+         * Takes an undo point of a match.
+         * @param match The match.
+         */
+        UndoPoint(Match match) {
+            computerBoard = match.computerBoard;
+            playerBoard = match.playerBoard;
+            recordSize = match.record.size();
+            gameState = match.gameState;
+            placingShipIndex = match.placingShipIndex;
+            playerHits = match.playerHits;
+            compHits = match.compHits;
+            hasExtraTurn = match.hasExtraTurn;
+            BitWriter writer = new BitWriter(64);
+            match.aiController.writeState(writer);
+            aiState = writer.toByteArray();
+        }
+    }
+    /**
+     * Creates a match between the two grids, with the AI attacking the player's grid.
+     * The match starts empty, call restart() to set up a new game.
+     * @param computer The computer's grid for the player to attack.
+     * @param player The player's grid for the computer to attack.
+     * @param aiController The AI that chooses the computer's moves.
+     * @param difficulty The difficulty the game is played at.
+     */
+    public Match(SelectionGrid computer, SelectionGrid player, BattleshipAI aiController, Game.GameDifficulty difficulty) {
+        this.computer = computer;
+        this.player = player;
+        this.aiController = aiController;
+        this.difficulty = difficulty;
+        record = new GameRecord(difficulty);
+        reset();
+    }
+    /**
+     * Creates a match that is not shown on the screen, with the AI for the chosen difficulty.
+     * @param difficulty The difficulty the game is played at.
+     * @return The new match, ready for restart().
+     */
+    public static Match createHeadless(Game.GameDifficulty difficulty) {
+        return createHeadless(difficulty, new GameContext());
+    }
+    /**
+     * Creates a match that is not shown on the screen in a given context, for example with a
+     * fixed seed so the same game can be played again.
+     * @param difficulty The difficulty the game is played at.
+     * @param context The context of the game.
+     * @return The new match, ready for restart().
+     */
+    public static Match createHeadless(Game.GameDifficulty difficulty, GameContext context) {
+        SelectionGrid computer = new SelectionGrid(0, 0, true, context);
+        SelectionGrid player = new SelectionGrid(0, 0, false, context);
+        return new Match(computer, player, BattleshipAI.forDifficulty(difficulty, player), difficulty);
+    }
+    /**
+     * Clears both grids, the AI, the counters and the record, without placing any ships.
+     */
+    public void reset() {
+        abandon();
+        computer.reset();
+        player.reset();
+        aiController.reset();
+        record.clear();
+        for (GameEventListener listener : listeners) {
+            listener.gameReset();
+        }
+        placingShipIndex = 0;
+        playerHits = 0;
+        compHits = 0;
+        hasExtraTurn = false;
+        computerToMove = false;
+        aiMovePending = false;
+        winner = -1;
+        gameState = GamePanel.GameState.PlacingShips;
+        computerBoard = BoardSnapshot.EMPTY;
+        playerBoard = BoardSnapshot.EMPTY;
+        undoHistory.clear();
+    }
+    /**
+     * Starts a new game by resetting everything and placing the computer's ships randomly.
+     * The treasures and the computer's fleet are recorded as the first events of the game.
+     */
+    public void restart() {
+        reset();
+        counted = true;
+        Metrics.gameStarted();
+        for (Position treasure : computer.getTreasures()) {
+            recordEvent(GameEvent.pack(GameEvent.TREASURE, GameEvent.COMPUTER, treasure.x, treasure.y, 0));
+        }
+        computer.populateShips();
+        for (Ship ship : computer.getShips()) {
+            recordPlacement(GameEvent.COMPUTER, ship);
+        }
+    }
+    /**
+     * Stops counting the current game as active, for a match that is being thrown away before its game ended.
+     */
+    public void abandon() {
+        if (counted) {
+            counted = false;
+            Metrics.gameAbandoned();
+        }
+    }
+    /**
+     * Moves the treasures on the computer's grid to the specified positions and records them.
+     * @param treasures The positions to hide the treasures at.
+     */
+    public void setTreasures(List<Position> treasures) {
+        computer.setTreasures(treasures);
+        for (Position treasure : computer.getTreasures()) {
+            recordEvent(GameEvent.pack(GameEvent.TREASURE, GameEvent.COMPUTER, treasure.x, treasure.y, 0));
+        }
+    }
+    /**
+     * Places one of the computer's ships at a specified position instead of randomly.
+     * @param gridX The x-coordinate in the grid.
+     * @param gridY The y-coordinate in the grid.
+     * @param segments The number of segments the ship occupies.
+     * @param sideways Boolean indicating if the ship is placed sideways.
+     */
+    public void placeComputerShip(int gridX, int gridY, int segments, boolean sideways) {
+        computer.placeShip(gridX, gridY, segments, sideways);
+        computerBoard = computerBoard.withShip(gridX, gridY, segments, sideways);
+        recordEvent(GameEvent.pack(GameEvent.PLACE, GameEvent.COMPUTER, gridX, gridY, GameEvent.shipArg(segments, sideways)));
+    }
+    /**
+     * Tests if the next ship of the player could be placed at the specified position.
+     * @param gridX The x-coordinate in the grid.
+     * @param gridY The y-coordinate in the grid.
+     * @param sideways Boolean indicating if the ship is placed sideways.
+     * @return True if the ship can be placed there.
+     */
+    public boolean canPlacePlayerShip(int gridX, int gridY, boolean sideways) {
+        return gameState == GamePanel.GameState.PlacingShips
+                && player.canPlaceShipAt(gridX, gridY, getNextShipSegments(), sideways);
+    }
+    /**
+     * Places the ship being placed by the player on their grid if the placement is valid.
+     * After the last ship the game moves on to the FiringShots state.
+     * @param ship The ship to place, it must have the size of the next ship.
+     * @param gridX The x-coordinate in the grid.
+     * @param gridY The y-coordinate in the grid.
+     * @return True if the ship was placed.
+     */
+    public boolean placePlayerShip(Ship ship, int gridX, int gridY) {
+        if (ship.getSegments() != getNextShipSegments() || !canPlacePlayerShip(gridX, gridY, ship.isSideways())) {
+            return false;
+        }
+        saveUndoPoint();
+        player.placeShip(ship, gridX, gridY);
+        shipPlaced(ship);
+        return true;
+    }
+    /**
+     * Creates and places the next ship of the player if the placement is valid.
+     * @param gridX The x-coordinate in the grid.
+     * @param gridY The y-coordinate in the grid.
+     * @param sideways Boolean indicating if the ship is placed sideways.
+     * @return True if the ship was placed.
+     */
+    public boolean placePlayerShip(int gridX, int gridY, boolean sideways) {
+        if (!canPlacePlayerShip(gridX, gridY, sideways)) {
+            return false;
+        }
+        saveUndoPoint();
+        player.placeShip(gridX, gridY, getNextShipSegments(), sideways);
+        shipPlaced(player.getShips().get(player.getShips().size() - 1));
+        return true;
+    }
+    /**
+     * Places the whole fleet of the player randomly, for games where nobody places them by hand.
+     * Does nothing once the player has started placing ships.
+     */
+    public void placePlayerShipsRandomly() {
+        if (gameState != GamePanel.GameState.PlacingShips || placingShipIndex > 0) return;
+        saveUndoPoint();
+        player.populateShips();
+        for (Ship ship : player.getShips()) {
+            shipPlaced(ship);
+        }
+    }
+    /**
+     * Records a placed ship of the player and moves on to the next ship or the next state.
+     * @param ship The ship that was placed.
+     */
+    private void shipPlaced(Ship ship) {
+        recordPlacement(GameEvent.PLAYER, ship);
+        placingShipIndex++;
+        if (placingShipIndex >= SelectionGrid.BOAT_SIZES.length) {
+            gameState = GamePanel.GameState.FiringShots;
+        }
+    }
+    /**
+     * Processes the player's shot at the computer's grid. Finding a treasure gives the player
+     * an extra turn, otherwise the computer has to answer with doAITurn().
+     * @param targetPosition The grid position to attack.
+     * @return The result of the shot, or null if the shot was not allowed or the cell was already attacked.
+     */
+    public ShotResult firePlayerShot(Position targetPosition) {
+        if (gameState != GamePanel.GameState.FiringShots || computerToMove) return null;
+        if (targetPosition.x < 1 || targetPosition.y < 1) return null;
+        if (computer.isPositionMarked(targetPosition)) return null;
+
+        FlightEvents.ShotEvent event = FlightEvents.beginShot();
+        saveUndoPoint();
+        hasExtraTurn = false;
+        recordEvent(GameEvent.pack(GameEvent.SHOT, GameEvent.PLAYER, targetPosition.x, targetPosition.y, 0));
+        boolean hit = computer.markPosition(targetPosition, true);
+        computerBoard = computerBoard.withShot(targetPosition.x, targetPosition.y);
+        boolean hitTreasure = computer.isTreasureAtPosition(targetPosition);
+        if (hit) {
+            playerHits++;
+        }
+        if (hitTreasure) {
+            computer.markTreasureAsOpened(targetPosition);
+            hasExtraTurn = true;
+        }
+        ShotResult result = finishShot(GameEvent.PLAYER, computer, targetPosition, hit, hitTreasure);
+        computerToMove = !result.isGameOver() && !hasExtraTurn;
+        commitShot(event, result);
+        return result;
+    }
+    /**
+     * Uses the AI to select a move and fires it at the player's grid.
+     * @return The result of the shot, or null if it is not the computer's turn.
+     */
+    public ShotResult doAITurn() {
+        if (!computerToMove) return null;
+        return fireComputerShot(selectAIMove(false, 0));
+    }
+    /**
+     * Lets the AI select the computer's next move with a deadline, without firing it.
+     * The time taken is recorded like in doAITurn().
+     * @param deadlineNanos The System.nanoTime() by which the move should be ready.
+     * @return The selected position to attack.
+     */
+    public Position selectAIMove(long deadlineNanos) {
+        return selectAIMove(true, deadlineNanos);
+    }
+    /**
+     * Lets the AI select the computer's next move, recording the time in the metrics and an event for the flight recorder.
+     * @param hasDeadline True to pass the deadline to the AI, false to let it use its own budget.
+     * @param deadlineNanos The System.nanoTime() by which the move should be ready.
+     * @return The selected position to attack.
+     */
+    private Position selectAIMove(boolean hasDeadline, long deadlineNanos) {
+        FlightEvents.AIMoveEvent event = FlightEvents.beginAIMove();
+        int candidates = aiController.validMoves.size();
+        long start = System.nanoTime();
+        Position move = hasDeadline ? aiController.selectMove(deadlineNanos) : aiController.selectMove();
+        lastAIMoveNanos = System.nanoTime() - start;
+        aiMovePending = true;
+        Metrics.aiMoveTime(difficulty).record(lastAIMoveNanos);
+        if (event != null && event.shouldCommit()) {
+            event.strategy = aiController.getClass().getSimpleName();
+            event.difficulty = difficulty.name();
+            event.candidates = candidates;
+            event.samples = aiController.getLastSamples();
+            event.x = move.x;
+            event.y = move.y;
+            event.commit();
+        }
+        return move;
+    }
+    /**
+     * Fires the computer's shot at a specified position of the player's grid,
+     * for example when replaying a recorded game.
+     * @param aiMove The grid position to attack.
+     * @return The result of the shot.
+     */
+    public ShotResult fireComputerShot(Position aiMove) {
+        FlightEvents.ShotEvent event = FlightEvents.beginShot();
+        computerToMove = false;
+        shotAIMoveNanos = aiMovePending ? lastAIMoveNanos : -1;
+        aiMovePending = false;
+        recordEvent(GameEvent.pack(GameEvent.SHOT, GameEvent.COMPUTER, aiMove.x, aiMove.y, 0));
+        boolean hit = player.markPosition(aiMove, false);
+        playerBoard = playerBoard.withShot(aiMove.x, aiMove.y);
+        if (hit) {
+            compHits++;
+        }
+        ShotResult result = finishShot(GameEvent.COMPUTER, player, aiMove, hit, false);
+        commitShot(event, result);
+        return result;
+    }
+    /**
+     * Works out if a ship sank or the game ended because of a shot, and records the outcome.
+     * @param side The side that fired.
+     * @param target The grid that was attacked.
+     * @param position The grid position that was attacked.
+     * @param hit True if the shot hit.
+     * @param hitTreasure True if the shot found a treasure.
+     * @return The result of the shot.
+     */
+    private ShotResult finishShot(int side, SelectionGrid target, Position position, boolean hit, boolean hitTreasure) {
+        int flags = (hit ? GameEvent.HIT_FLAG : 0) | (hitTreasure ? GameEvent.TREASURE_FLAG : 0);
+        recordEvent(GameEvent.pack(GameEvent.RESULT, side, position.x, position.y, flags));
+        if (hitTreasure) {
+            recordEvent(GameEvent.pack(GameEvent.EXTRA_TURN, side, 0, 0, 0));
+        }
+
+        Ship sunkShip = null;
+        Marker marker = target.getMarkerAtPosition(position);
+        if (hit && marker.getAssociatedShip() != null && marker.getAssociatedShip().isDestroyed()) {
+            sunkShip = marker.getAssociatedShip();
+            Position shipPosition = sunkShip.getGridPosition();
+            recordEvent(GameEvent.pack(GameEvent.SINK, side, shipPosition.x, shipPosition.y,
+                    GameEvent.shipArg(sunkShip.getSegments(), sunkShip.isSideways())));
+            FlightEvents.ShipSunkEvent sunkEvent = new FlightEvents.ShipSunkEvent();
+            if (sunkEvent.shouldCommit()) {
+                sunkEvent.side = sideName(side);
+                sunkEvent.segments = sunkShip.getSegments();
+                sunkEvent.shotsFired = record.countShots(side);
+                sunkEvent.commit();
+            }
+        }
+
+        boolean gameOver = target.areAllShipsDestroyed();
+        if (gameOver) {
+            gameState = GamePanel.GameState.GameOver;
+            winner = side;
+            undoHistory.clear(); // The listeners have archived and learned from the finished game, which undo cannot take back
+            recordEvent(GameEvent.pack(GameEvent.GAME_OVER, side, 0, 0, 0));
+            if (counted) {
+                counted = false;
+                Metrics.gameFinished(difficulty, side, record.countShots(GameEvent.PLAYER) + record.countShots(GameEvent.COMPUTER));
+            }
+        }
+        return new ShotResult(side, position, hit, hitTreasure, sunkShip, gameOver);
+    }
+    /**
+     * Ends and commits the flight recorder event of a shot, if it is being recorded.
+     * @param event The event begun when the shot was fired, or null if it is not recorded.
+     * @param result The result of the shot.
+     */
+    private static void commitShot(FlightEvents.ShotEvent event, ShotResult result) {
+        if (event != null && event.shouldCommit()) {
+            event.side = sideName(result.getSide());
+            event.x = result.getPosition().x;
+            event.y = result.getPosition().y;
+            event.hit = result.isHit();
+            event.treasure = result.isTreasure();
+            event.gameOver = result.isGameOver();
+            event.commit();
+        }
+    }
+    /**
+     * Gets the name of a side for the flight recorder events.
+     * @param side GameEvent.PLAYER or GameEvent.COMPUTER.
+     * @return PLAYER or COMPUTER.
+     */
+    private static String sideName(int side) {
+        return side == GameEvent.PLAYER ? "PLAYER" : "COMPUTER";
+    }
+    /**
+     * Appends an event to the record and tells the listeners about it.
+     * @param event The packed event.
+     */
+    private void recordEvent(int event) {
+        record.append(event);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).eventRecorded(event);
+        }
+    }
+    /**
+     * Replaces the record with a stored one, for example when a saved game is resumed.
+     * The listeners are told about a reset followed by every event of the stored record.
+     * @param stored The record to copy.
+     */
+    public void restoreRecord(GameRecord stored) {
+        record.copyFrom(stored);
+        replayRecord();
+    }
+    /**
+     * Tells the listeners about a reset followed by every event of the record.
+     */
+    private void replayRecord() {
+        for (GameEventListener listener : listeners) {
+            listener.gameReset();
+            for (int i = 0; i < record.size(); i++) {
+                listener.eventRecorded(record.get(i));
+            }
+        }
+    }
+    /**
+     * Adds a listener that is told about every event as it is recorded.
+     * @param listener The listener to add.
+     */
+    public void addListener(GameEventListener listener) {
+        listeners.add(listener);
+    }
+    /**
+     * Removes a listener added with addListener().
+     * @param listener The listener to remove.
+     */
+    public void removeListener(GameEventListener listener) {
+        listeners.remove(listener);
+    }
+    /**
+     * Appends the placement of a ship to the record.
+     * @param side The owner of the grid the ship was placed on.
+     * @param ship The ship that was placed.
+     */
+    private void recordPlacement(int side, Ship ship) {
+        if (side == GameEvent.PLAYER) {
+            playerBoard = playerBoard.withShip(ship);
+        } else {
+            computerBoard = computerBoard.withShip(ship);
+        }
+        Position shipPosition = ship.getGridPosition();
+        recordEvent(GameEvent.pack(GameEvent.PLACE, side, shipPosition.x, shipPosition.y,
+                GameEvent.shipArg(ship.getSegments(), ship.isSideways())));
+    }
+    /**
+     * Writes the state of the match for a GameSnapshot: the turn and counters, both grids and the AI.
+     * The record is not included, GameSnapshot stores it separately.
+     * @param writer The writer to add the state to.
+     */
+    public void writeState(BitWriter writer) {
+        writer.writeBits(gameState.ordinal(), 2);
+        writer.writeBits(placingShipIndex, 4);
+        writer.writeBits(playerHits, 8);
+        writer.writeBits(compHits, 8);
+        writer.writeBit(hasExtraTurn);
+        writer.writeBit(computerToMove);
+        writer.writeBits(winner + 1, 2);
+        computer.writeState(writer);
+        player.writeState(writer);
+        aiController.writeState(writer);
+    }
+    /**
+     * Replaces the state of the match with one written by writeState(), leaving the record as it is.
+     * The game it replaces is abandoned, and the resumed game is not counted in the Metrics.
+     * @param reader The reader to take the state from.
+     * @throws IOException If the state is damaged.
+     */
+    public void readState(BitReader reader) throws IOException {
+        abandon();
+        GamePanel.GameState[] states = GamePanel.GameState.values();
+        int state = reader.readBits(2);
+        if (state >= states.length) throw new IOException("Unknown game state " + state);
+        gameState = states[state];
+        placingShipIndex = reader.readBits(4);
+        if (placingShipIndex > SelectionGrid.BOAT_SIZES.length) throw new IOException("Bad ship index " + placingShipIndex);
+        playerHits = reader.readBits(8);
+        compHits = reader.readBits(8);
+        hasExtraTurn = reader.readBit();
+        computerToMove = reader.readBit();
+        aiMovePending = false;
+        winner = reader.readBits(2) - 1;
+        computer.readState(reader);
+        player.readState(reader);
+        aiController.readState(reader);
+        computerBoard = BoardSnapshot.of(computer);
+        playerBoard = BoardSnapshot.of(player);
+        undoHistory.clear();
+    }
+    /**
+     * Keeps the state of the match before a move of the player so undo() can go back to it.
+     */
+    private void saveUndoPoint() {
+        if (!undoEnabled) return;
+        if (undoHistory.size() == MAX_UNDO) {
+            undoHistory.removeLast();
+        }
+        undoHistory.push(new UndoPoint(this));
+    }
+    /**
+     * Takes back the last move of the player: a placed ship, or a shot together with the
+     * computer's answer. The listeners are told that the record was truncated. Undoing a shot
+     * makes the game a practice game that is not counted in the Metrics. A finished game cannot
+     * be undone, and nothing can be undone unless setUndoEnabled(true) was called before the move.
+     * @return True if a move was taken back, false if there is none, the computer has to move or the game is over.
+     */
+    public boolean undo() {
+        if (computerToMove || gameState == GamePanel.GameState.GameOver || undoHistory.isEmpty()) return false;
+        UndoPoint point = undoHistory.pop();
+        if (point.gameState != GamePanel.GameState.PlacingShips) {
+            abandon();
+        }
+        point.computerBoard.restore(computer);
+        point.playerBoard.restore(player);
+        computerBoard = point.computerBoard;
+        playerBoard = point.playerBoard;
+        try {
+            aiController.readState(new BitReader(point.aiState, 0, point.aiState.length));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Undo point of the AI is damaged", e); // Written by writeState(), so it cannot happen
+        }
+        gameState = point.gameState;
+        placingShipIndex = point.placingShipIndex;
+        playerHits = point.playerHits;
+        compHits = point.compHits;
+        hasExtraTurn = point.hasExtraTurn;
+        computerToMove = false;
+        aiMovePending = false;
+        winner = -1;
+        record.truncate(point.recordSize);
+        for (GameEventListener listener : listeners) {
+            listener.recordTruncated(record);
+        }
+        return true;
+    }
+    /**
+     * Turns undo on or off. While it is off no undo points are kept, and turning it off drops the ones there are.
+     * @param enabled True to keep an undo point before every move of the player.
+     */
+    public void setUndoEnabled(boolean enabled) {
+        undoEnabled = enabled;
+        if (!enabled) {
+            undoHistory.clear();
+        }
+    }
+    /**
+     * Checks if undo points are kept.
+     * @return True if setUndoEnabled(true) was called.
+     */
+    public boolean isUndoEnabled() {
+        return undoEnabled;
+    }
+    /**
+     * Gets the number of moves undo() can take back.
+     * @return The number of undo points.
+     */
+    public int getUndoDepth() {
+        return undoHistory.size();
+    }
+    /**
+     * Gets a snapshot of the computer's grid, for example for an AI that tries moves ahead.
+     * @return The snapshot, kept up to date with every move.
+     */
+    public BoardSnapshot getComputerBoard() {
+        return computerBoard;
+    }
+    /**
+     * Gets a snapshot of the player's grid, for example for an AI that tries moves ahead.
+     * @return The snapshot, kept up to date with every move.
+     */
+    public BoardSnapshot getPlayerBoard() {
+        return playerBoard;
+    }
+    /**
+     * Gets the context of the game, shared by both grids and the AI.
+     * @return The context.
+     */
+    public GameContext getContext() {
+        return computer.getContext();
+    }
+    /**
+     * Gets the computer's grid.
+     * @return The grid the player attacks.
+     */
+    public SelectionGrid getComputerGrid() {
+        return computer;
+    }
+    /**
+     * Gets the player's grid.
+     * @return The grid the computer attacks.
+     */
+    public SelectionGrid getPlayerGrid() {
+        return player;
+    }
+    /**
+     * Gets the AI that chooses the computer's moves.
+     * @return The AI of this match.
+     */
+    public BattleshipAI getAIController() {
+        return aiController;
+    }
+    /**
+     * Gets the time the AI took to select its last move.
+     * @return The time in nanoseconds, or -1 before the AI has moved.
+     */
+    public long getLastAIMoveNanos() {
+        return lastAIMoveNanos;
+    }
+    /**
+     * Gets the time the AI took to select the computer's shot, while the shot is being recorded.
+     * @return The time in nanoseconds, or -1 if the shot was fired without a new selection by the AI.
+     */
+    public long getShotAIMoveNanos() {
+        return shotAIMoveNanos;
+    }
+    /**
+     * Gets the difficulty the game is played at.
+     * @return The difficulty of the match.
+     */
+    public Game.GameDifficulty getDifficulty() {
+        return difficulty;
+    }
+    /**
+     * Gets the record of everything that happened in the current game.
+     * @return The record of the game.
+     */
+    public GameRecord getRecord() {
+        return record;
+    }
+    /**
+     * Gets the current state of the game.
+     * @return PlacingShips, FiringShots or GameOver.
+     */
+    public GamePanel.GameState getGameState() {
+        return gameState;
+    }
+    /**
+     * Gets which ship the player has to place next.
+     * @return The index into SelectionGrid.BOAT_SIZES.
+     */
+    public int getPlacingShipIndex() {
+        return placingShipIndex;
+    }
+    /**
+     * Gets the size of the ship the player has to place next, or of the last ship once all are placed.
+     * @return The number of segments of the next ship.
+     */
+    public int getNextShipSegments() {
+        return SelectionGrid.BOAT_SIZES[Math.min(placingShipIndex, SelectionGrid.BOAT_SIZES.length - 1)];
+    }
+    /**
+     * Gets the number of hits made by the player.
+     * @return The player's hit count.
+     */
+    public int getPlayerHits() {
+        return playerHits;
+    }
+    /**
+     * Gets the number of hits made by the computer.
+     * @return The computer's hit count.
+     */
+    public int getCompHits() {
+        return compHits;
+    }
+    /**
+     * Gets if the player found a treasure with their last shot and can fire again.
+     * @return True if the player has an extra turn.
+     */
+    public boolean hasExtraTurn() {
+        return hasExtraTurn;
+    }
+    /**
+     * Gets if the computer has to answer the player's last shot.
+     * @return True if doAITurn() should be called.
+     */
+    public boolean isComputerTurn() {
+        return computerToMove;
+    }
+    /**
+     * Gets the side that won the game.
+     * @return GameEvent.PLAYER or GameEvent.COMPUTER, or -1 while the game is still going.
+     */
+    public int getWinner() {
+        return winner;
+    }
+}
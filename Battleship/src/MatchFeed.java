@@ -0,0 +1,418 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: MatchFeed.
+ * Sends the events of a Match to any number of spectators. The match thread only appends each
+ * event to a shared log and wakes a single dispatcher task, so playing costs the same with one
+ * spectator or a thousand. The dispatcher runs on an Executor and gives every subscriber the
+ * events after its own position in the log, as far as it has asked for them.
+ * Every subscriber may fall at most a bounded number of events behind. A subscriber that falls
+ * further behind either loses the oldest events it has not seen (DROP) or gets the whole game so
+ * far in one snapshot batch instead (CONFLATE), so a slow spectator never holds up the game or
+ * the other spectators. The onNext() of a subscriber must not block, it should pass the batch on
+ * to its own thread and request more once it is done with it.
+ */
+public class MatchFeed implements Flow.Publisher<MatchFeed.Batch>, GameEventListener, AutoCloseable {
+    /**
+     * Logger for subscribers that fail.
+     */
+    private static final GameLog LOG = GameLog.getLogger("MatchFeed");
+    /**
+     * Events a subscriber may fall behind when none is given.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+    /**
+     * What happens when a subscriber falls further behind than its capacity.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Skip the oldest events the subscriber has not seen and count them as dropped.
+         */
+        DROP,
+        /**
+         * Replace the events the subscriber has not seen with a snapshot of the whole game.
+         */
+        CONFLATE
+    }
+    /**
+     * Events sent to a subscriber in one onNext() call. A batch is read-only and may be shared
+     * by every subscriber at the same position in the log.
+     */
+    public static class Batch {
+        /**
+         * True if the batch holds the whole game so far and replaces everything seen before.
+         */
+        private final boolean snapshot;
+        /**
+         * Index in the record of the game of the first event of the batch.
+         */
+        private final int firstIndex;
+        /**
+         * The events.
+         */
+        private final int[] events;
+        /**
+         * Creates a batch.
+         * @param snapshot True if the batch holds the whole game so far.
+         * @param firstIndex Index in the record of the first event.
+         * @param events The events, not copied.
+         */
+        Batch(boolean snapshot, int firstIndex, int[] events) {
+            this.snapshot = snapshot;
+            this.firstIndex = firstIndex;
+            this.events = events;
+        }
+        /**
+         * Gets if the batch holds the whole game so far, after a new game started, after the
+         * subscriber fell too far behind with CONFLATE, or as the first batch of a subscriber.
+         * @return True if everything seen before should be forgotten.
+         */
+        public boolean isSnapshot() {
+            return snapshot;
+        }
+        /**
+         * Gets the index in the record of the game of the first event of the batch.
+         * @return The index of the first event.
+         */
+        public int getFirstIndex() {
+            return firstIndex;
+        }
+        /**
+         * Gets the number of events in the batch.
+         * @return The number of events.
+         */
+        public int size() {
+            return events.length;
+        }
+        /**
+         * Gets an event of the batch.
+         * @param index Index of the event in the batch.
+         * @return The packed event, see GameEvent.
+         */
+        public int get(int index) {
+            return events[index];
+        }
+    }
+    /**
+     * The events of one game. Only the match thread appends, the dispatcher reads up to size.
+     */
+    private static class Log {
+        /**
+         * The events, replaced by a larger copy when full.
+         */
+        volatile int[] events = new int[256];
+        /**
+         * Number of events in the log, written after the event itself so readers see it.
+         */
+        volatile int size;
+    }
+    /**
+     * One subscriber and its position in the log, only used by the dispatcher apart from demand.
+     */
+    private class Subscription implements Flow.Subscription {
+        /**
+         * The subscriber.
+         */
+        final Flow.Subscriber<? super Batch> subscriber;
+        /**
+         * Most events the subscriber may fall behind.
+         */
+        final int capacity;
+        /**
+         * What happens when the subscriber falls further behind.
+         */
+        final OverflowPolicy policy;
+        /**
+         * Number of batches the subscriber has asked for and not received.
+         */
+        final AtomicLong demand = new AtomicLong();
+        /**
+         * Set when the subscriber cancels.
+         */
+        volatile boolean cancelled;
+        /**
+         * Set when the subscriber asked for a number of batches that is not positive.
+         */
+        volatile boolean badRequest;
+        /**
+         * The log the position belongs to.
+         */
+        Log log;
+        /**
+         * Index of the next event to send.
+         */
+        int cursor;
+        /**
+         * True if the next batch has to be a snapshot.
+         */
+        boolean needSnapshot = true;
+        /**
+         * Creates a subscription.
+         * @param subscriber The subscriber.
+         * @param capacity Most events the subscriber may fall behind.
+         * @param policy What happens when it falls further behind.
+         */
+        Subscription(Flow.Subscriber<? super Batch> subscriber, int capacity, OverflowPolicy policy) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+        /**
+         * Asks for more batches.
+         * @param n The number of batches.
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = true;
+            } else {
+                demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+            signal();
+        }
+        /**
+         * Stops the batches, the subscription is removed by the dispatcher.
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+            signal();
+        }
+    }
+    /**
+     * The log of the current game.
+     */
+    private volatile Log log = new Log();
+    /**
+     * Every subscription that has not ended.
+     */
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    /**
+     * Runs the dispatcher.
+     */
+    private final Executor executor;
+    /**
+     * Number of times the dispatcher was asked to run that it has not caught up with.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+    /**
+     * Set when the feed is closed.
+     */
+    private volatile boolean closed;
+    /**
+     * Number of events skipped for subscribers that fell behind with DROP.
+     */
+    private volatile long droppedEvents;
+    /**
+     * Number of snapshots sent to subscribers that fell behind with CONFLATE.
+     */
+    private volatile long conflations;
+    /**
+     * Creates a feed that dispatches on the common fork/join pool.
+     */
+    public MatchFeed() {
+        this(ForkJoinPool.commonPool());
+    }
+    /**
+     * Creates a feed.
+     * @param executor Runs the dispatcher.
+     */
+    public MatchFeed(Executor executor) {
+        this.executor = executor;
+    }
+    /**
+     * Creates a feed and attaches it to a match, so it publishes every event the match records.
+     * @param match The match to watch.
+     * @return The feed.
+     */
+    public static MatchFeed attach(Match match) {
+        MatchFeed feed = new MatchFeed();
+        match.addListener(feed);
+        for (int i = 0; i < match.getRecord().size(); i++) {
+            feed.eventRecorded(match.getRecord().get(i));
+        }
+        return feed;
+    }
+    /**
+     * Adds a subscriber that may fall DEFAULT_CAPACITY events behind and gets a snapshot when it does.
+     * @param subscriber The subscriber.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Batch> subscriber) {
+        subscribe(subscriber, DEFAULT_CAPACITY, OverflowPolicy.CONFLATE);
+    }
+    /**
+     * Adds a subscriber. Its first batch is a snapshot of the game so far.
+     * @param subscriber The subscriber.
+     * @param capacity Most events the subscriber may fall behind.
+     * @param policy What happens when it falls further behind.
+     */
+    public void subscribe(Flow.Subscriber<? super Batch> subscriber, int capacity, OverflowPolicy policy) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1");
+        Subscription subscription = new Subscription(subscriber, capacity, policy);
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+        signal();
+    }
+    /**
+     * Publishes an event, called by the match thread only.
+     * @param event The packed event.
+     */
+    @Override
+    public void eventRecorded(int event) {
+        Log current = log;
+        int size = current.size;
+        int[] events = current.events;
+        if (size == events.length) {
+            events = Arrays.copyOf(events, size * 2);
+            current.events = events;
+        }
+        events[size] = event;
+        current.size = size + 1;
+        signal();
+    }
+    /**
+     * Starts a new log, every subscriber gets a snapshot of the new game.
+     */
+    @Override
+    public void gameReset() {
+        log = new Log();
+        signal();
+    }
+    /**
+     * Makes sure the dispatcher runs after this call, starting it unless it is already running.
+     */
+    private void signal() {
+        if (pending.getAndIncrement() == 0) {
+            executor.execute(this::dispatch);
+        }
+    }
+    /**
+     * Gives every subscriber what it is owed, until nothing changed while doing so.
+     * Only one dispatch runs at a time.
+     */
+    private void dispatch() {
+        int missed = 1;
+        while (true) {
+            Log current = log;
+            int size = current.size;
+            int[] events = current.events;
+            Batch shared = null;
+            for (Subscription subscription : subscriptions) {
+                shared = deliver(subscription, current, size, events, shared);
+            }
+            missed = pending.addAndGet(-missed);
+            if (missed == 0) return;
+        }
+    }
+    /**
+     * Gives one subscriber the events after its position, or ends the subscription.
+     * @param s The subscription.
+     * @param current The log of the current game.
+     * @param size Number of events in the log.
+     * @param events The events of the log.
+     * @param shared The last batch created by this dispatch, reused if it fits.
+     * @return The batch sent, or shared if none was created.
+     */
+    private Batch deliver(Subscription s, Log current, int size, int[] events, Batch shared) {
+        if (s.cancelled) {
+            subscriptions.remove(s);
+            return shared;
+        }
+        if (s.badRequest) {
+            end(s, new IllegalArgumentException("Subscribers must request a positive number of batches"));
+            return shared;
+        }
+        if (closed) {
+            end(s, null);
+            return shared;
+        }
+        if (s.log != current) {
+            s.log = current;
+            s.cursor = 0;
+            s.needSnapshot = true;
+        }
+        int behind = size - s.cursor;
+        if (!s.needSnapshot && behind > s.capacity) {
+            if (s.policy == OverflowPolicy.DROP) {
+                droppedEvents += behind - s.capacity;
+                s.cursor = size - s.capacity;
+            } else {
+                conflations++;
+                s.needSnapshot = true;
+            }
+        }
+        if (s.demand.get() == 0 || (!s.needSnapshot && s.cursor == size)) return shared;
+
+        int from = s.needSnapshot ? 0 : s.cursor;
+        Batch batch = shared;
+        if (batch == null || batch.isSnapshot() != s.needSnapshot || batch.getFirstIndex() != from || batch.size() != size - from) {
+            batch = new Batch(s.needSnapshot, from, Arrays.copyOfRange(events, from, size));
+        }
+        s.cursor = size;
+        s.needSnapshot = false;
+        s.demand.decrementAndGet();
+        try {
+            s.subscriber.onNext(batch);
+        } catch (RuntimeException e) {
+            LOG.error("Subscriber failed on a batch and was dropped", e);
+            s.cancelled = true;
+            subscriptions.remove(s);
+        }
+        return batch;
+    }
+    /**
+     * Ends a subscription, telling the subscriber why.
+     * @param s The subscription.
+     * @param error The error, or null if the feed was closed.
+     */
+    private void end(Subscription s, Throwable error) {
+        subscriptions.remove(s);
+        s.cancelled = true;
+        try {
+            if (error != null) {
+                s.subscriber.onError(error);
+            } else {
+                s.subscriber.onComplete();
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Subscriber failed when its subscription ended", e);
+        }
+    }
+    /**
+     * Gets the number of subscribers.
+     * @return The number of subscriptions that have not ended.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+    /**
+     * Gets the number of events skipped for subscribers that fell behind with DROP.
+     * @return The number of dropped events.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+    /**
+     * Gets the number of snapshots sent instead of events to subscribers that fell behind with CONFLATE.
+     * @return The number of conflations.
+     */
+    public long getConflations() {
+        return conflations;
+    }
+    /**
+     * Ends every subscription with onComplete(), the match should stop calling the feed first.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        signal();
+    }
+}
@@ -0,0 +1,306 @@
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: Metrics.
+ * Registry of the latency histograms and counters of the whole process, shared by the window,
+ * the server and the tools. Histograms and counters are created on first use by name and live
+ * until the process ends. Code on a hot path keeps the histogram it records into in a field,
+ * so recording is only a few atomic additions. Counters are LongAdders, which spread
+ * concurrent increments over separate cells instead of fighting over one.
+ * Start the JVM with -Dbattleship.metrics.dumpSeconds=N to print every metric every N seconds.
+ */
+public class Metrics {
+    /**
+     * Histogram of the time from the player's shot to the computer's answer on the screen.
+     */
+    public static final String TURN_LATENCY = "turn.playerToAI";
+    /**
+     * Histogram of the time GamePanel takes to paint a frame.
+     */
+    public static final String FRAME_TIME = "render.paint";
+    /**
+     * Histogram of the time to load an image or font from disk.
+     */
+    public static final String ASSET_LOAD = "asset.load";
+    /**
+     * Histogram of the time from asking for a sound to the clip starting.
+     */
+    public static final String AUDIO_START = "audio.start";
+    /**
+     * Counter of assets found already loaded.
+     */
+    public static final String ASSET_HITS = "asset.hits";
+    /**
+     * Counter of assets that had to be loaded.
+     */
+    public static final String ASSET_MISSES = "asset.misses";
+    /**
+     * Counter of analytics records written to a file.
+     */
+    public static final String ANALYTICS_WRITTEN = "analytics.written";
+    /**
+     * Counter of analytics records dropped because the writer fell behind or could not write.
+     */
+    public static final String ANALYTICS_DROPPED = "analytics.dropped";
+    /**
+     * Counter of AI moves whose cell scores were found in the score cache.
+     */
+    public static final String SCORE_CACHE_HITS = "ai.scoreCache.hits";
+    /**
+     * Counter of AI moves whose cell scores were not in the score cache.
+     */
+    public static final String SCORE_CACHE_MISSES = "ai.scoreCache.misses";
+    /**
+     * Prefix of the histograms of selectMove() time, followed by the difficulty.
+     */
+    public static final String AI_MOVE_PREFIX = "ai.selectMove.";
+    /**
+     * Prefix of the counters of finished games, followed by the difficulty and the counter.
+     */
+    public static final String GAMES_PREFIX = "games.";
+    /**
+     * System property with the number of seconds between dumps, or 0 for none.
+     */
+    public static final String DUMP_PROPERTY = "battleship.metrics.dumpSeconds";
+    /**
+     * Histograms by name.
+     */
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    /**
+     * Counters by name.
+     */
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    /**
+     * Histograms of selectMove() time, by ordinal of the difficulty, so no name is built per move.
+     */
+    private static final LatencyHistogram[] aiMoveTimes = new LatencyHistogram[Game.GameDifficulty.values().length];
+    /**
+     * Counters of games won by the player, by ordinal of the difficulty.
+     */
+    private static final LongAdder[] playerWins = new LongAdder[Game.GameDifficulty.values().length];
+    /**
+     * Counters of games won by the computer, by ordinal of the difficulty.
+     */
+    private static final LongAdder[] computerWins = new LongAdder[Game.GameDifficulty.values().length];
+    /**
+     * Counters of the shots fired by both sides in finished games, by ordinal of the difficulty.
+     */
+    private static final LongAdder[] gameShots = new LongAdder[Game.GameDifficulty.values().length];
+    /**
+     * Number of games that have started and not ended yet. It counts what is happening now
+     * rather than what has happened, so reset() leaves it alone.
+     */
+    private static final LongAdder activeGames = new LongAdder();
+    static {
+        for (Game.GameDifficulty difficulty : Game.GameDifficulty.values()) {
+            int i = difficulty.ordinal();
+            aiMoveTimes[i] = histogram(AI_MOVE_PREFIX + difficulty.name());
+            playerWins[i] = counter(GAMES_PREFIX + difficulty.name() + ".playerWins");
+            computerWins[i] = counter(GAMES_PREFIX + difficulty.name() + ".computerWins");
+            gameShots[i] = counter(GAMES_PREFIX + difficulty.name() + ".shots");
+        }
+    }
+    /**
+     * Thread that prints the periodic dumps, created when the first dump is started.
+     */
+    private static ScheduledExecutorService dumper;
+    /**
+     * A copy of every metric at one moment.
+     */
+    public static class Snapshot {
+        /**
+         * Histograms by name, in name order.
+         */
+        private final Map<String, LatencyHistogram.Snapshot> histograms;
+        /**
+         * Counter values by name, in name order.
+         */
+        private final Map<String, Long> counters;
+        /**
+         * Creates a snapshot.
+         * @param histograms Histograms by name, in name order.
+         * @param counters Counter values by name, in name order.
+         */
+        Snapshot(Map<String, LatencyHistogram.Snapshot> histograms, Map<String, Long> counters) {
+            this.histograms = Collections.unmodifiableMap(histograms);
+            this.counters = Collections.unmodifiableMap(counters);
+        }
+        /**
+         * Gets the histograms.
+         * @return The histograms by name, in name order.
+         */
+        public Map<String, LatencyHistogram.Snapshot> getHistograms() {
+            return histograms;
+        }
+        /**
+         * Gets the counters.
+         * @return The counter values by name, in name order.
+         */
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+        /**
+         * Formats the snapshot as a table with one line per metric, times in microseconds.
+         * Histograms that have nothing recorded are left out.
+         * @return The text.
+         */
+        public String format() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.ROOT, "%-24s %9s %10s %10s %10s %10s %10s%n",
+                    "histogram (us)", "count", "mean", "p50", "p99", "p999", "max"));
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : histograms.entrySet()) {
+                LatencyHistogram.Snapshot h = entry.getValue();
+                if (h.getCount() == 0) continue;
+                text.append(String.format(Locale.ROOT, "%-24s %9d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                        entry.getKey(), h.getCount(), h.getMean() / 1e3, h.getPercentile(50) / 1e3,
+                        h.getPercentile(99) / 1e3, h.getPercentile(99.9) / 1e3, h.getMax() / 1e3));
+            }
+            for (Map.Entry<String, Long> entry : counters.entrySet()) {
+                text.append(String.format(Locale.ROOT, "%-24s %9d%n", entry.getKey(), entry.getValue()));
+            }
+            return text.toString();
+        }
+    }
+    /**
+     * Gets a histogram, creating it the first time it is requested.
+     * @param name The name of the histogram.
+     * @return The histogram.
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+    /**
+     * Gets a counter, creating it the first time it is requested.
+     * @param name The name of the counter.
+     * @return The counter.
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+    /**
+     * Gets the histogram of the selectMove() time of the AI of a difficulty.
+     * @param difficulty The difficulty.
+     * @return The histogram.
+     */
+    public static LatencyHistogram aiMoveTime(Game.GameDifficulty difficulty) {
+        return aiMoveTimes[difficulty.ordinal()];
+    }
+    /**
+     * Counts a game that has started.
+     */
+    public static void gameStarted() {
+        activeGames.increment();
+    }
+    /**
+     * Stops counting a game that was left before it ended.
+     */
+    public static void gameAbandoned() {
+        activeGames.decrement();
+    }
+    /**
+     * Counts a game that has ended.
+     * @param difficulty The difficulty of the game.
+     * @param winner The side that won, GameEvent.PLAYER or GameEvent.COMPUTER.
+     * @param shots The shots fired by both sides.
+     */
+    public static void gameFinished(Game.GameDifficulty difficulty, int winner, int shots) {
+        activeGames.decrement();
+        (winner == GameEvent.PLAYER ? playerWins : computerWins)[difficulty.ordinal()].increment();
+        gameShots[difficulty.ordinal()].add(shots);
+    }
+    /**
+     * Gets the number of games that have started and not ended yet.
+     * @return The number of active games.
+     */
+    public static long getActiveGames() {
+        return activeGames.sum();
+    }
+    /**
+     * Gets the number of games of a difficulty won by the player.
+     * @param difficulty The difficulty.
+     * @return The number of wins since the last reset.
+     */
+    public static long getPlayerWins(Game.GameDifficulty difficulty) {
+        return playerWins[difficulty.ordinal()].sum();
+    }
+    /**
+     * Gets the number of games of a difficulty won by the computer.
+     * @param difficulty The difficulty.
+     * @return The number of wins since the last reset.
+     */
+    public static long getComputerWins(Game.GameDifficulty difficulty) {
+        return computerWins[difficulty.ordinal()].sum();
+    }
+    /**
+     * Gets the shots fired by both sides in the finished games of a difficulty.
+     * @param difficulty The difficulty.
+     * @return The number of shots since the last reset.
+     */
+    public static long getGameShots(Game.GameDifficulty difficulty) {
+        return gameShots[difficulty.ordinal()].sum();
+    }
+    /**
+     * Copies every metric.
+     * @param reset True to empty every histogram and counter at the same time, so the next snapshot only counts what happened after this one.
+     * @return The snapshot.
+     */
+    public static Snapshot snapshot(boolean reset) {
+        Map<String, LatencyHistogram.Snapshot> histogramCopies = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            histogramCopies.put(entry.getKey(), entry.getValue().snapshot(reset));
+        }
+        Map<String, Long> counterValues = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            counterValues.put(entry.getKey(), reset ? entry.getValue().sumThenReset() : entry.getValue().sum());
+        }
+        return new Snapshot(histogramCopies, counterValues);
+    }
+    /**
+     * Empties every histogram and counter.
+     */
+    public static void reset() {
+        snapshot(true);
+    }
+    /**
+     * Formats every metric as a table.
+     * @return The text.
+     */
+    public static String dump() {
+        return snapshot(false).format();
+    }
+    /**
+     * Prints every metric at a fixed period on a daemon thread, until the task is cancelled.
+     * @param periodSeconds Seconds between two dumps.
+     * @param out Where the dumps are printed.
+     * @return The task, cancel it to stop the dumps.
+     */
+    public static synchronized ScheduledFuture<?> startPeriodicDump(long periodSeconds, PrintStream out) {
+        if (dumper == null) {
+            dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return dumper.scheduleAtFixedRate(() -> out.print(dump()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+    /**
+     * Starts printing every metric to standard output if the dump property is set.
+     */
+    public static void startDumpIfConfigured() {
+        long periodSeconds = Long.getLong(DUMP_PROPERTY, 0);
+        if (periodSeconds > 0) {
+            startPeriodicDump(periodSeconds, System.out);
+        }
+    }
+}
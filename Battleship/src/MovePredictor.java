@@ -0,0 +1,23 @@
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Interface: MovePredictor.
+ * Guesses the computer's next shot from the events of a game so far. Anything that encodes
+ * a game against a predictor has to decode it with a predictor that behaves exactly the same,
+ * so implementations must not use randomness.
+ */
+public interface MovePredictor {
+    /**
+     * Forgets everything so a new game can be followed.
+     */
+    void reset();
+    /**
+     * Updates the predictor with the next event of the game.
+     * @param event The packed event, see GameEvent.
+     */
+    void observe(int event);
+    /**
+     * Guesses where the computer will fire next.
+     * @return The index of the cell, see BoardKnowledge.indexOf(), or -1 if there is no guess.
+     */
+    int predictComputerShot();
+}
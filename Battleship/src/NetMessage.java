@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: NetMessage.
+ * The binary messages of two-player network games. Every message is one type byte followed by
+ * a payload whose length is fixed by the type, so no length has to be sent and the largest
+ * message is 11 bytes.
+ * HELLO room (4 bytes) - joins a room on the NetPlayHub, the first two clients in a room play each other.
+ * START first (1 byte) - sent by the hub when a partner is found, 1 if this client fires first.
+ * READY - the sender has placed all of their ships.
+ * SHOT x y (2 bytes) - the sender fires at the receiver's grid.
+ * RESULT x y flags sunkX sunkY sunkShip hash (10 bytes) - the answer to a SHOT, with a hash of the
+ * defender's grid after the shot so both sides can check that they still agree.
+ * BYE - the sender has left, also sent by the hub when a partner disconnects.
+ */
+public class NetMessage {
+    /**
+     * Joins a room.
+     */
+    public static final byte HELLO = 1;
+    /**
+     * A partner was found.
+     */
+    public static final byte START = 2;
+    /**
+     * All ships are placed.
+     */
+    public static final byte READY = 3;
+    /**
+     * A shot at the receiver's grid.
+     */
+    public static final byte SHOT = 4;
+    /**
+     * The result of a shot.
+     */
+    public static final byte RESULT = 5;
+    /**
+     * The sender has left.
+     */
+    public static final byte BYE = 6;
+    /**
+     * RESULT flag set when the shot hit a ship.
+     */
+    public static final int HIT_FLAG = 1;
+    /**
+     * RESULT flag set when the shot sank a ship.
+     */
+    public static final int SUNK_FLAG = 2;
+    /**
+     * RESULT flag set when the shot sank the last ship.
+     */
+    public static final int GAME_OVER_FLAG = 4;
+    /**
+     * Length of the payload of each message type, or -1 for unknown types.
+     */
+    private static final int[] PAYLOAD_LENGTHS = {-1, 4, 1, 0, 2, 10, 0};
+    /**
+     * Length of the longest message including its type byte.
+     */
+    public static final int MAX_LENGTH = 11;
+    /**
+     * Gets the length of a whole message of a type.
+     * @param type The type byte.
+     * @return The length including the type byte.
+     * @throws IOException If the type is unknown.
+     */
+    public static int length(byte type) throws IOException {
+        if (type < 0 || type >= PAYLOAD_LENGTHS.length || PAYLOAD_LENGTHS[type] < 0) {
+            throw new IOException("Unknown message type " + type);
+        }
+        return 1 + PAYLOAD_LENGTHS[type];
+    }
+    /**
+     * Takes the next whole message out of a buffer that is ready for reading.
+     * Leaves the buffer untouched if the message has not fully arrived yet.
+     * @param in The received bytes.
+     * @return The message including its type byte, or null if it is not complete.
+     * @throws IOException If the message type is unknown.
+     */
+    public static byte[] next(ByteBuffer in) throws IOException {
+        if (!in.hasRemaining()) return null;
+        int length = length(in.get(in.position()));
+        if (in.remaining() < length) return null;
+        byte[] message = new byte[length];
+        in.get(message);
+        return message;
+    }
+    /**
+     * Creates a HELLO message.
+     * @param room The room to join.
+     * @return The message.
+     */
+    public static byte[] hello(int room) {
+        return new byte[] {HELLO, (byte) (room >>> 24), (byte) (room >>> 16), (byte) (room >>> 8), (byte) room};
+    }
+    /**
+     * Creates a START message.
+     * @param first True if the receiver fires first.
+     * @return The message.
+     */
+    public static byte[] start(boolean first) {
+        return new byte[] {START, (byte) (first ? 1 : 0)};
+    }
+    /**
+     * Creates a message without a payload.
+     * @param type READY or BYE.
+     * @return The message.
+     */
+    public static byte[] simple(byte type) {
+        return new byte[] {type};
+    }
+    /**
+     * Creates a SHOT message.
+     * @param position The position fired at.
+     * @return The message.
+     */
+    public static byte[] shot(Position position) {
+        return new byte[] {SHOT, (byte) position.x, (byte) position.y};
+    }
+    /**
+     * Creates a RESULT message.
+     * @param position The position that was fired at.
+     * @param flags HIT_FLAG, SUNK_FLAG and GAME_OVER_FLAG.
+     * @param sunkShip The ship that sank, or null.
+     * @param hash The hash of the defender's grid after the shot, see SelectionGrid.attackHash().
+     * @return The message.
+     */
+    public static byte[] result(Position position, int flags, Ship sunkShip, int hash) {
+        Position sunkPosition = sunkShip != null ? sunkShip.getGridPosition() : Position.ZERO;
+        int sunkArg = sunkShip != null ? GameEvent.shipArg(sunkShip.getSegments(), sunkShip.isSideways()) : 0;
+        return new byte[] {RESULT, (byte) position.x, (byte) position.y, (byte) flags,
+                (byte) sunkPosition.x, (byte) sunkPosition.y, (byte) sunkArg,
+                (byte) (hash >>> 24), (byte) (hash >>> 16), (byte) (hash >>> 8), (byte) hash};
+    }
+    /**
+     * Reads a 32 bit number from a message.
+     * @param message The message.
+     * @param offset Index of the first byte of the number.
+     * @return The number.
+     */
+    public static int readInt(byte[] message, int offset) {
+        return (message[offset] & 0xFF) << 24 | (message[offset + 1] & 0xFF) << 16
+                | (message[offset + 2] & 0xFF) << 8 | (message[offset + 3] & 0xFF);
+    }
+}
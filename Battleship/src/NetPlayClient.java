@@ -0,0 +1,163 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: NetPlayClient.
+ * The connection of one player to a NetPlayHub. A non-blocking channel is served by a selector
+ * thread, so sending never waits for the network. Every whole message that arrives is given to
+ * the handler on the selector thread, which should pass it on to the thread that owns the game.
+ * When the connection closes for any reason the handler gets one BYE message.
+ */
+public class NetPlayClient implements Closeable {
+    /**
+     * Logger for connections that fail.
+     */
+    private static final GameLog LOG = GameLog.getLogger("NetPlayClient");
+    /**
+     * The connection to the hub.
+     */
+    private final SocketChannel channel;
+    /**
+     * The selector serving the connection.
+     */
+    private final Selector selector;
+    /**
+     * Messages waiting to be written by the selector thread.
+     */
+    private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+    /**
+     * Bytes received that do not make a whole message yet.
+     */
+    private final ByteBuffer in = ByteBuffer.allocate(NetMessage.MAX_LENGTH * 16);
+    /**
+     * Receives every message from the hub.
+     */
+    private final Consumer<byte[]> handler;
+    /**
+     * Set when the connection should close.
+     */
+    private volatile boolean closed;
+    /**
+     * True once the handler has been told that the other player left, so it is only told once.
+     */
+    private boolean byeDelivered;
+    /**
+     * Connects to a hub and joins a room.
+     * @param host The host of the hub.
+     * @param port The port of the hub.
+     * @param room The room to join, the other player has to join the same room.
+     * @param handler Receives every message from the hub on the selector thread.
+     * @throws IOException If the hub cannot be reached.
+     */
+    public NetPlayClient(String host, int port, int room, Consumer<byte[]> handler) throws IOException {
+        this.handler = handler;
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+        Thread thread = new Thread(this::selectLoop, "netplay-client");
+        thread.setDaemon(true);
+        thread.start();
+        send(NetMessage.hello(room));
+    }
+    /**
+     * Queues a message to be sent to the other player.
+     * @param message The message, see NetMessage.
+     */
+    public void send(byte[] message) {
+        out.add(ByteBuffer.wrap(message));
+        selector.wakeup();
+    }
+    /**
+     * Reads and writes until the connection closes.
+     */
+    private void selectLoop() {
+        SelectionKey key = channel.keyFor(selector);
+        try {
+            while (!closed) {
+                key.interestOps(out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    keys.next();
+                    keys.remove();
+                }
+                if (key.isReadable()) read();
+                writeQueued();
+            }
+        } catch (IOException e) {
+            // The connection closed
+        } finally {
+            try {
+                writeQueued(); // Best effort to send our own BYE
+            } catch (IOException e) {
+                // Already closed
+            }
+            try {
+                channel.close();
+                selector.close();
+            } catch (IOException e) {
+                LOG.error("Could not close the connection to the hub", e);
+            }
+            if (!byeDelivered) {
+                handler.accept(NetMessage.simple(NetMessage.BYE));
+            }
+        }
+    }
+    /**
+     * Reads whatever has arrived and hands every whole message to the handler.
+     * @throws IOException If the connection closed or the hub sent something invalid.
+     */
+    private void read() throws IOException {
+        if (channel.read(in) < 0) throw new IOException("Connection closed");
+        in.flip();
+        byte[] message;
+        while ((message = NetMessage.next(in)) != null) {
+            if (message[0] == NetMessage.BYE) {
+                closed = true;
+                byeDelivered = true;
+            }
+            handler.accept(message);
+        }
+        in.compact();
+    }
+    /**
+     * Writes as many queued messages as the connection accepts.
+     * @throws IOException If the connection fails.
+     */
+    private void writeQueued() throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = out.peek()) != null) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) return;
+            out.poll();
+        }
+    }
+    /**
+     * Gets if the connection is still open.
+     * @return True until the connection closes.
+     */
+    public boolean isOpen() {
+        return !closed && channel.isOpen();
+    }
+    /**
+     * Tells the other player that this player has left and closes the connection.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        send(NetMessage.simple(NetMessage.BYE));
+        closed = true;
+        selector.wakeup();
+    }
+}
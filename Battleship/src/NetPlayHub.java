@@ -0,0 +1,301 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: NetPlayHub.
+ * Connects players of two-player network games. Clients join a room with a HELLO message and the
+ * first two clients in a room are paired; after that every message is passed on to the partner
+ * unchanged. The hub never sees the grids, each side keeps its own and only shots and results travel.
+ * One selector thread serves every connection, so many games share a single thread.
+ * Run it with: java NetPlayHub [port]
+ */
+public class NetPlayHub implements Closeable {
+    /**
+     * Logger for connections that fail.
+     */
+    private static final GameLog LOG = GameLog.getLogger("NetPlayHub");
+    /**
+     * Port used when none is given.
+     */
+    public static final int DEFAULT_PORT = 7778;
+    /**
+     * Most messages waiting to be sent to one client before it is disconnected as too slow.
+     */
+    private static final int MAX_QUEUED_MESSAGES = 256;
+    /**
+     * One connected client.
+     */
+    private static class Client {
+        /**
+         * The connection to the client.
+         */
+        final SocketChannel channel;
+        /**
+         * Bytes received that do not make a whole message yet.
+         */
+        final ByteBuffer in = ByteBuffer.allocate(NetMessage.MAX_LENGTH * 16);
+        /**
+         * Messages waiting to be sent to the client.
+         */
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        /**
+         * The client this one is playing against, or null.
+         */
+        Client partner;
+        /**
+         * The room the client is waiting in, or null.
+         */
+        Integer room;
+        /**
+         * Creates the state for a new connection.
+         * @param channel The connection to the client.
+         */
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+    /**
+     * The selector that every connection is registered with.
+     */
+    private final Selector selector;
+    /**
+     * The channel accepting new connections.
+     */
+    private final ServerSocketChannel serverChannel;
+    /**
+     * Clients waiting for a partner, by room.
+     */
+    private final Map<Integer, Client> waiting = new HashMap<>();
+    /**
+     * The thread running the selector.
+     */
+    private final Thread thread;
+    /**
+     * Number of pairs that have been made.
+     */
+    private volatile long gamesStarted;
+    /**
+     * Set when the hub is closed to stop the selector thread.
+     */
+    private volatile boolean closed;
+    /**
+     * Starts a hub on localhost.
+     * @param port The port to listen on, or 0 to pick a free port.
+     * @throws IOException If the port cannot be opened.
+     */
+    public NetPlayHub(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::selectLoop, "netplay-hub");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    /**
+     * Waits for connections and messages until the hub is closed.
+     */
+    private void selectLoop() {
+        try {
+            while (!closed) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Client client = (Client) key.attachment();
+                    try {
+                        if (key.isReadable()) read(key, client);
+                        if (key.isValid() && key.isWritable()) write(key, client);
+                    } catch (IOException e) {
+                        disconnect(key, client);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("Hub stopped because of an error", e);
+        } finally {
+            closeAll();
+        }
+    }
+    /**
+     * Closes every connection and the selector, called by the selector thread when it stops.
+     */
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            LOG.error("Could not close the hub's connections", e);
+        }
+    }
+    /**
+     * Accepts a waiting connection.
+     * @throws IOException If the selector fails.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Client(channel));
+    }
+    /**
+     * Reads from a client and handles every whole message that has arrived.
+     * @param key The key of the client.
+     * @param client The client.
+     * @throws IOException If the connection closed or sent something invalid.
+     */
+    private void read(SelectionKey key, Client client) throws IOException {
+        if (client.channel.read(client.in) < 0) throw new IOException("Connection closed");
+        client.in.flip();
+        byte[] message;
+        while ((message = NetMessage.next(client.in)) != null) {
+            if (message[0] == NetMessage.HELLO) {
+                join(client, NetMessage.readInt(message, 1));
+            } else if (client.partner != null) {
+                Client partner = client.partner;
+                send(partner, message);
+                if (message[0] == NetMessage.BYE) {
+                    // The game is over for both, later messages go nowhere
+                    partner.partner = null;
+                    client.partner = null;
+                }
+            }
+        }
+        client.in.compact();
+    }
+    /**
+     * Puts a client in a room, pairing it with the client already waiting there if there is one.
+     * The client that waited fires first.
+     * @param client The client joining.
+     * @param room The room to join.
+     * @throws IOException If the client is already in a game.
+     */
+    private void join(Client client, int room) throws IOException {
+        if (client.partner != null || client.room != null) throw new IOException("Client already joined");
+        Client other = waiting.remove(room);
+        if (other == null) {
+            client.room = room;
+            waiting.put(room, client);
+            return;
+        }
+        other.room = null;
+        other.partner = client;
+        client.partner = other;
+        gamesStarted++;
+        send(other, NetMessage.start(true));
+        send(client, NetMessage.start(false));
+    }
+    /**
+     * Queues a message for a client and asks the selector to tell when it can be written.
+     * @param client The client to send to.
+     * @param message The message.
+     */
+    private void send(Client client, byte[] message) {
+        SelectionKey key = client.channel.keyFor(selector);
+        if (key == null || !key.isValid()) return;
+        if (client.out.size() >= MAX_QUEUED_MESSAGES) {
+            disconnect(key, client);
+            return;
+        }
+        client.out.add(ByteBuffer.wrap(message));
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+    /**
+     * Writes as many queued messages as the connection accepts.
+     * @param key The key of the client.
+     * @param client The client.
+     * @throws IOException If the connection fails.
+     */
+    private void write(SelectionKey key, Client client) throws IOException {
+        while (!client.out.isEmpty()) {
+            ByteBuffer buffer = client.out.peek();
+            client.channel.write(buffer);
+            if (buffer.hasRemaining()) return;
+            client.out.poll();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+    /**
+     * Closes a client's connection and tells its partner that it has left.
+     * @param key The key of the client.
+     * @param client The client.
+     */
+    private void disconnect(SelectionKey key, Client client) {
+        key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            LOG.error("Could not close the connection of a player", e);
+        }
+        if (client.room != null) {
+            waiting.remove(client.room, client);
+            client.room = null;
+        }
+        Client partner = client.partner;
+        if (partner != null) {
+            client.partner = null;
+            partner.partner = null;
+            send(partner, NetMessage.simple(NetMessage.BYE));
+        }
+    }
+    /**
+     * Gets the port the hub is listening on.
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+    /**
+     * Gets the number of pairs of players the hub has made.
+     * @return The number of games started.
+     */
+    public long getGamesStarted() {
+        return gamesStarted;
+    }
+    /**
+     * Stops the hub and closes every connection.
+     * @throws IOException Never, declared for Closeable.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    /**
+     * Starts a hub and keeps it running until the process is stopped.
+     * @param args Optional port.
+     * @throws IOException If the port cannot be opened.
+     * @throws InterruptedException If the main thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        NetPlayHub hub = new NetPlayHub(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+        System.out.println("Battleship network hub on port " + hub.getPort());
+        hub.thread.join();
+    }
+}
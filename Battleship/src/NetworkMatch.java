@@ -0,0 +1,432 @@
+import java.io.IOException;
+import java.util.concurrent.Executor;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: NetworkMatch.
+ * Holds the rules of a game between two people on different computers, the network version of Match.
+ * Each side keeps its own fleet on its own SelectionGrid and only shots and results are sent,
+ * so neither side ever learns where the other side's ships are before they sink.
+ * The other side's grid is mirrored from the results it sends. Every result carries a hash of the
+ * defender's grid, which is compared with the hash of the mirror to find out straight away if the
+ * two games have stopped agreeing. There are no treasures in network games.
+ * Messages arrive on the network thread and are passed to the callback executor, so all of the
+ * methods of this class are used from that one thread, for example the Swing event thread.
+ */
+public class NetworkMatch {
+    /**
+     * Logger for results the other player should not have sent.
+     */
+    private static final GameLog LOG = GameLog.getLogger("NetworkMatch");
+    /**
+     * Told about everything the other player does.
+     */
+    public interface Listener {
+        /**
+         * The other player has been found and both fleets are placed, so the shooting starts.
+         * @param myTurn True if this player fires first.
+         */
+        void started(boolean myTurn);
+        /**
+         * The other player fired at this player's grid.
+         * @param result The result of the shot, with the side set to GameEvent.COMPUTER.
+         */
+        void opponentShot(ShotResult result);
+        /**
+         * The other player answered this player's shot.
+         * @param result The result of the shot, with the side set to GameEvent.PLAYER.
+         */
+        void shotAnswered(ShotResult result);
+        /**
+         * The hashes of the two games differ or the other player broke the rules.
+         * @param turn The number of the turn where it happened.
+         */
+        void desync(int turn);
+        /**
+         * The other player left or the connection closed.
+         */
+        void opponentLeft();
+    }
+    /**
+     * This player's grid with their own fleet.
+     */
+    private final SelectionGrid own;
+    /**
+     * The mirror of the other player's grid.
+     */
+    private final SelectionGrid opponent;
+    /**
+     * Told about everything the other player does.
+     */
+    private final Listener listener;
+    /**
+     * The connection to the other player.
+     */
+    private NetPlayClient client;
+    /**
+     * PlacingShips, FiringShots or GameOver.
+     */
+    private GamePanel.GameState gameState = GamePanel.GameState.PlacingShips;
+    /**
+     * Which ship should be placed next.
+     */
+    private int placingShipIndex;
+    /**
+     * True once a partner was found and the hub said who fires first.
+     */
+    private boolean paired;
+    /**
+     * True if this player fires first.
+     */
+    private boolean firstToMove;
+    /**
+     * True once the other player has placed all of their ships.
+     */
+    private boolean opponentReady;
+    /**
+     * True once READY has been sent. It is only sent after pairing, because the hub drops
+     * messages from a client that has no partner yet.
+     */
+    private boolean readySent;
+    /**
+     * True once both fleets are placed and the shooting has started.
+     */
+    private boolean started;
+    /**
+     * True when it is this player's turn to fire.
+     */
+    private boolean myTurn;
+    /**
+     * The shot waiting for an answer, or null.
+     */
+    private Position pendingShot;
+    /**
+     * Number of shots fired by both players.
+     */
+    private int turn;
+    /**
+     * Number of hits made by this player.
+     */
+    private int playerHits;
+    /**
+     * Number of hits made by the other player.
+     */
+    private int opponentHits;
+    /**
+     * The side that won, GameEvent.PLAYER for this player, or -1 while the game is still going.
+     */
+    private int winner = -1;
+    /**
+     * True once the games no longer agree.
+     */
+    private boolean desynced;
+    /**
+     * Creates a network game. The grid of this player is reset, and a new grid at the same
+     * place as the computer's grid mirrors the other player's grid.
+     * @param own This player's grid.
+     * @param opponentX The x-coordinate to draw the mirrored grid at.
+     * @param opponentY The y-coordinate to draw the mirrored grid at.
+     * @param listener Told about everything the other player does.
+     */
+    public NetworkMatch(SelectionGrid own, int opponentX, int opponentY, Listener listener) {
+        this.own = own;
+        this.listener = listener;
+        opponent = new SelectionGrid(opponentX, opponentY, false, own.getContext()); // Not a computer grid, so no treasures
+        own.reset();
+    }
+    /**
+     * Connects to a hub and waits in a room for the other player.
+     * @param host The host of the hub.
+     * @param port The port of the hub.
+     * @param room The room, both players have to use the same one.
+     * @param callbackExecutor Runs the handling of every message, for example SwingUtilities::invokeLater.
+     * @throws IOException If the hub cannot be reached.
+     */
+    public void connect(String host, int port, int room, Executor callbackExecutor) throws IOException {
+        client = new NetPlayClient(host, port, room, message -> callbackExecutor.execute(() -> handleMessage(message)));
+    }
+    /**
+     * Tests if the next ship could be placed at the specified position.
+     * @param gridX The x-coordinate in the grid.
+     * @param gridY The y-coordinate in the grid.
+     * @param sideways Boolean indicating if the ship is placed sideways.
+     * @return True if the ship can be placed there.
+     */
+    public boolean canPlacePlayerShip(int gridX, int gridY, boolean sideways) {
+        return gameState == GamePanel.GameState.PlacingShips
+                && own.canPlaceShipAt(gridX, gridY, getNextShipSegments(), sideways);
+    }
+    /**
+     * Places the next ship of this player. After the last ship the other player is told this player is ready.
+     * @param ship The ship to place, it must have the size of the next ship.
+     * @param gridX The x-coordinate in the grid.
+     * @param gridY The y-coordinate in the grid.
+     * @return True if the ship was placed.
+     */
+    public boolean placePlayerShip(Ship ship, int gridX, int gridY) {
+        if (ship.getSegments() != getNextShipSegments() || !canPlacePlayerShip(gridX, gridY, ship.isSideways())) {
+            return false;
+        }
+        own.placeShip(ship, gridX, gridY);
+        placingShipIndex++;
+        if (placingShipIndex >= SelectionGrid.BOAT_SIZES.length) {
+            fleetPlaced();
+        }
+        return true;
+    }
+    /**
+     * Places the whole fleet of this player randomly. Does nothing once the player has started placing ships.
+     */
+    public void placePlayerShipsRandomly() {
+        if (gameState != GamePanel.GameState.PlacingShips || placingShipIndex > 0) return;
+        own.populateShips();
+        placingShipIndex = SelectionGrid.BOAT_SIZES.length;
+        fleetPlaced();
+    }
+    /**
+     * Moves on to the shooting once every ship of this player is placed.
+     */
+    private void fleetPlaced() {
+        gameState = GamePanel.GameState.FiringShots;
+        sendReady();
+        startIfReady();
+    }
+    /**
+     * Tells the other player that this player is ready, once the fleet is placed and a partner was found.
+     */
+    private void sendReady() {
+        if (readySent || !paired || gameState != GamePanel.GameState.FiringShots) return;
+        readySent = true;
+        client.send(NetMessage.simple(NetMessage.READY));
+    }
+    /**
+     * Fires at the other player's grid. The result arrives later through the listener.
+     * @param target The grid position to attack.
+     * @return False if it is not this player's turn or the position was already attacked.
+     */
+    public boolean fire(Position target) {
+        if (!started || !myTurn || pendingShot != null || gameState != GamePanel.GameState.FiringShots) return false;
+        if (target.x < 1 || target.y < 1 || target.x >= SelectionGrid.GRID_WIDTH || target.y >= SelectionGrid.GRID_HEIGHT) return false;
+        if (opponent.isPositionMarked(target)) return false;
+        pendingShot = new Position(target);
+        client.send(NetMessage.shot(target));
+        return true;
+    }
+    /**
+     * Handles a message from the other player or the hub.
+     * @param message The message, see NetMessage.
+     */
+    void handleMessage(byte[] message) {
+        switch (message[0]) {
+            case NetMessage.START:
+                paired = true;
+                firstToMove = message[1] == 1;
+                sendReady();
+                startIfReady();
+                break;
+            case NetMessage.READY:
+                opponentReady = true;
+                startIfReady();
+                break;
+            case NetMessage.SHOT:
+                receiveShot(new Position(message[1], message[2]));
+                break;
+            case NetMessage.RESULT:
+                receiveResult(message);
+                break;
+            case NetMessage.BYE:
+                if (gameState != GamePanel.GameState.GameOver) {
+                    gameState = GamePanel.GameState.GameOver;
+                    listener.opponentLeft();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+    /**
+     * Starts the shooting once a partner is found and both fleets are placed.
+     */
+    private void startIfReady() {
+        if (started || !paired || !opponentReady || gameState != GamePanel.GameState.FiringShots) return;
+        started = true;
+        myTurn = firstToMove;
+        listener.started(myTurn);
+    }
+    /**
+     * Applies the other player's shot to this player's grid and answers it.
+     * @param target The position the other player fired at.
+     */
+    private void receiveShot(Position target) {
+        if (!started || myTurn || target.x < 1 || target.y < 1
+                || target.x >= SelectionGrid.GRID_WIDTH || target.y >= SelectionGrid.GRID_HEIGHT
+                || own.isPositionMarked(target)) {
+            reportDesync();
+            return;
+        }
+        turn++;
+        boolean hit = own.markPosition(target, false);
+        if (hit) opponentHits++;
+        Marker marker = own.getMarkerAtPosition(target);
+        Ship sunkShip = hit && marker.getAssociatedShip().isDestroyed() ? marker.getAssociatedShip() : null;
+        boolean gameOver = own.areAllShipsDestroyed();
+        int flags = (hit ? NetMessage.HIT_FLAG : 0) | (sunkShip != null ? NetMessage.SUNK_FLAG : 0)
+                | (gameOver ? NetMessage.GAME_OVER_FLAG : 0);
+        client.send(NetMessage.result(target, flags, sunkShip, own.attackHash()));
+        if (gameOver) {
+            gameState = GamePanel.GameState.GameOver;
+            winner = GameEvent.COMPUTER;
+        } else {
+            myTurn = true;
+        }
+        listener.opponentShot(new ShotResult(GameEvent.COMPUTER, target, hit, false, sunkShip, gameOver));
+    }
+    /**
+     * Applies the answer to this player's shot to the mirror of the other player's grid,
+     * and checks that both grids still agree.
+     * @param message The RESULT message.
+     */
+    private void receiveResult(byte[] message) {
+        Position target = new Position(message[1], message[2]);
+        if (pendingShot == null || !pendingShot.equals(target)) {
+            reportDesync();
+            return;
+        }
+        int flags = message[3];
+        if ((flags & NetMessage.SUNK_FLAG) != 0 && !isValidSunkShip(target, message[4], message[5], message[6] & 0xFF)) {
+            LOG.warn("Dropping the connection: the other player reported an impossible sunk ship at turn {}", turn + 1);
+            reportDesync();
+            close();
+            return;
+        }
+        pendingShot = null;
+        turn++;
+        boolean hit = (flags & NetMessage.HIT_FLAG) != 0;
+        opponent.markRemoteShot(target, hit);
+        if (hit) playerHits++;
+        Ship sunkShip = null;
+        if ((flags & NetMessage.SUNK_FLAG) != 0) {
+            int arg = message[6] & 0xFF;
+            sunkShip = opponent.placeSunkShip(message[4], message[5], arg >>> 1, (arg & 1) != 0); // See GameEvent.shipArg()
+        }
+        boolean gameOver = (flags & NetMessage.GAME_OVER_FLAG) != 0;
+        if (gameOver) {
+            gameState = GamePanel.GameState.GameOver;
+            winner = GameEvent.PLAYER;
+        } else {
+            myTurn = false;
+        }
+        if (opponent.attackHash() != NetMessage.readInt(message, 7)) {
+            reportDesync();
+        }
+        listener.shotAnswered(new ShotResult(GameEvent.PLAYER, target, hit, false, sunkShip, gameOver));
+    }
+    /**
+     * Checks that a ship reported as sunk fits on the grid, has the size of a ship of the fleet and
+     * covers the cell that was just attacked, so it can be placed on the mirror.
+     * @param target The cell that was attacked.
+     * @param x X coordinate of the first cell of the ship.
+     * @param y Y coordinate of the first cell of the ship.
+     * @param arg The number of segments and the orientation, packed as by GameEvent.shipArg().
+     * @return True if the ship can be placed.
+     */
+    private static boolean isValidSunkShip(Position target, int x, int y, int arg) {
+        int segments = arg >>> 1;
+        boolean sideways = (arg & 1) != 0;
+        boolean fleetSize = false;
+        for (int size : SelectionGrid.BOAT_SIZES) {
+            fleetSize |= size == segments;
+        }
+        if (!fleetSize || x < 1 || y < 1 || x >= SelectionGrid.GRID_WIDTH || y >= SelectionGrid.GRID_HEIGHT) return false;
+        if (sideways) {
+            return x + segments <= SelectionGrid.GRID_WIDTH && target.y == y && target.x >= x && target.x < x + segments;
+        }
+        return y + segments <= SelectionGrid.GRID_HEIGHT && target.x == x && target.y >= y && target.y < y + segments;
+    }
+    /**
+     * Tells the listener once that the games no longer agree.
+     */
+    private void reportDesync() {
+        if (desynced) return;
+        desynced = true;
+        listener.desync(turn);
+    }
+    /**
+     * Leaves the game and closes the connection.
+     */
+    public void close() {
+        gameState = GamePanel.GameState.GameOver;
+        if (client != null) {
+            client.close();
+        }
+    }
+    /**
+     * Gets the mirror of the other player's grid.
+     * @return The grid to draw in place of the computer's grid.
+     */
+    public SelectionGrid getOpponentGrid() {
+        return opponent;
+    }
+    /**
+     * Gets the current state of the game.
+     * @return PlacingShips, FiringShots or GameOver.
+     */
+    public GamePanel.GameState getGameState() {
+        return gameState;
+    }
+    /**
+     * Gets the size of the ship this player has to place next, or of the last ship once all are placed.
+     * @return The number of segments of the next ship.
+     */
+    public int getNextShipSegments() {
+        return SelectionGrid.BOAT_SIZES[Math.min(placingShipIndex, SelectionGrid.BOAT_SIZES.length - 1)];
+    }
+    /**
+     * Gets if the shooting has started.
+     * @return True once both fleets are placed.
+     */
+    public boolean isStarted() {
+        return started;
+    }
+    /**
+     * Gets if this player can fire now.
+     * @return True if it is this player's turn and no shot is waiting for an answer.
+     */
+    public boolean isMyTurn() {
+        return started && myTurn && pendingShot == null && gameState == GamePanel.GameState.FiringShots;
+    }
+    /**
+     * Gets the number of hits made by this player.
+     * @return This player's hit count.
+     */
+    public int getPlayerHits() {
+        return playerHits;
+    }
+    /**
+     * Gets the number of hits made by the other player.
+     * @return The other player's hit count.
+     */
+    public int getOpponentHits() {
+        return opponentHits;
+    }
+    /**
+     * Gets the side that won the game.
+     * @return GameEvent.PLAYER if this player won, GameEvent.COMPUTER if the other player won, or -1.
+     */
+    public int getWinner() {
+        return winner;
+    }
+    /**
+     * Gets if the two games have stopped agreeing.
+     * @return True after a desync was found.
+     */
+    public boolean isDesynced() {
+        return desynced;
+    }
+    /**
+     * Gets the number of shots fired by both players.
+     * @return The current turn number.
+     */
+    public int getTurn() {
+        return turn;
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.IntStream;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: OpeningBook.
+ * The best first shots on an empty board, worked out once offline so the AIs do not have to.
+ * Until the first hit, the only thing an AI knows is where it has missed, so the best shots follow
+ * the same few lines every game. The book holds a number of such lines for every board size and
+ * fleet, each picking at random between cells that score within 1% of the best, so the AIs do not
+ * always open the same way. An AI picks a line when the game starts, plays it for free, and leaves
+ * it at the first hit, when it starts computing its moves as usual.
+ * The book is the small file opening-book.bin next to the other assets. Regenerate it with:
+ * java OpeningBook [lines] [depth] [samples] [seed]
+ */
+public class OpeningBook {
+    /**
+     * The file of the book, found in the working directory like the other assets.
+     */
+    public static final String FILE_NAME = "opening-book.bin";
+    /**
+     * The magic number at the start of the file, "BSOB".
+     */
+    private static final int MAGIC = 0x42534F42;
+    /**
+     * Version of the file layout.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Cells scoring at least this share of the best score are treated as equally good.
+     */
+    private static final double TIE_SHARE = 0.99;
+    /**
+     * Logger for a book that cannot be read.
+     */
+    private static final GameLog LOG = GameLog.getLogger("OpeningBook");
+    /**
+     * The lines of each board size and fleet.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+    /**
+     * The lines of one board size and fleet.
+     */
+    private static class Entry {
+        /**
+         * Width of the board, including the label column.
+         */
+        final int width;
+        /**
+         * Height of the board, including the label row.
+         */
+        final int height;
+        /**
+         * Segments of every ship of the fleet.
+         */
+        final int[] fleet;
+        /**
+         * The lines, each a list of cells as BoardKnowledge.indexOf() values.
+         */
+        final byte[][] lines;
+        /**
+         * Creates an entry.
+         * @param width Width of the board.
+         * @param height Height of the board.
+         * @param fleet Segments of every ship of the fleet.
+         * @param lines The lines.
+         */
+        Entry(int width, int height, int[] fleet, byte[][] lines) {
+            this.width = width;
+            this.height = height;
+            this.fleet = fleet;
+            this.lines = lines;
+        }
+        /**
+         * Checks if the entry is for a board size and fleet.
+         * @param width Width of the board.
+         * @param height Height of the board.
+         * @param fleet Segments of every ship of the fleet.
+         * @return True if it is.
+         */
+        boolean matches(int width, int height, int[] fleet) {
+            return this.width == width && this.height == height && Arrays.equals(this.fleet, fleet);
+        }
+    }
+    /**
+     * Loads the default book once, when it is first asked for.
+     */
+    private static class DefaultBook {
+        /**
+         * The book in FILE_NAME, or an empty book if there is no such file.
+         */
+        static final OpeningBook BOOK = load(Paths.get(FILE_NAME));
+    }
+    /**
+     * Gets the book shipped with the game.
+     * @return The book, empty if its file is missing or damaged.
+     */
+    public static OpeningBook getDefault() {
+        return DefaultBook.BOOK;
+    }
+    /**
+     * Reads a book from a file.
+     * @param path The file.
+     * @return The book, empty if the file is missing or damaged.
+     */
+    public static OpeningBook load(Path path) {
+        OpeningBook book = new OpeningBook();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            book.read(in);
+        } catch (NoSuchFileException e) {
+            LOG.debug("No opening book at {}", path);
+        } catch (IOException e) {
+            LOG.warn("Could not read the opening book {}", path, e);
+            book.entries.clear();
+        }
+        return book;
+    }
+    /**
+     * Gets the lines for a board size and fleet.
+     * @param width Width of the board, including the label column.
+     * @param height Height of the board, including the label row.
+     * @param fleet Segments of every ship of the fleet.
+     * @return The lines, each a list of cells as BoardKnowledge.indexOf() values, or null if the book has none.
+     */
+    public byte[][] linesFor(int width, int height, int[] fleet) {
+        for (Entry entry : entries) {
+            if (entry.matches(width, height, fleet)) return entry.lines;
+        }
+        return null;
+    }
+    /**
+     * Sets the lines for a board size and fleet, replacing any it had.
+     * @param width Width of the board, including the label column.
+     * @param height Height of the board, including the label row.
+     * @param fleet Segments of every ship of the fleet.
+     * @param lines The lines, each a list of cells as BoardKnowledge.indexOf() values.
+     */
+    public void setLines(int width, int height, int[] fleet, byte[][] lines) {
+        entries.removeIf(entry -> entry.matches(width, height, fleet));
+        entries.add(new Entry(width, height, fleet.clone(), lines));
+    }
+    /**
+     * Reads the entries of a book.
+     * @param stream The stream to read from.
+     * @throws IOException If the stream cannot be read or is not a book.
+     */
+    private void read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) throw new IOException("Not an opening book");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported opening book version " + version);
+        int entryCount = in.readUnsignedByte();
+        for (int e = 0; e < entryCount; e++) {
+            int width = in.readUnsignedByte();
+            int height = in.readUnsignedByte();
+            int[] fleet = new int[in.readUnsignedByte()];
+            for (int i = 0; i < fleet.length; i++) {
+                fleet[i] = in.readUnsignedByte();
+            }
+            byte[][] lines = new byte[in.readUnsignedShort()][in.readUnsignedByte()];
+            for (byte[] line : lines) {
+                in.readFully(line);
+            }
+            entries.add(new Entry(width, height, fleet, lines));
+        }
+    }
+    /**
+     * Writes the book.
+     * @param stream The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(entries.size());
+        for (Entry entry : entries) {
+            out.writeByte(entry.width);
+            out.writeByte(entry.height);
+            out.writeByte(entry.fleet.length);
+            for (int segments : entry.fleet) {
+                out.writeByte(segments);
+            }
+            out.writeShort(entry.lines.length);
+            out.writeByte(entry.lines.length == 0 ? 0 : entry.lines[0].length);
+            for (byte[] line : entry.lines) {
+                out.write(line);
+            }
+        }
+        out.flush();
+    }
+    /**
+     * Works out opening lines for the game's board and fleet. Every move of a line samples random
+     * fleets that avoid the misses so far and picks at random between the cells hit by nearly the
+     * most of them. The lines are split over all cores and each comes from the seed, so the same
+     * arguments always give the same book.
+     * @param lineCount Number of lines.
+     * @param depth Number of moves in every line.
+     * @param samples Number of fleets sampled for every move.
+     * @param seed Seed of the random choices.
+     * @return The lines, each a list of cells as BoardKnowledge.indexOf() values.
+     */
+    public static byte[][] generate(int lineCount, int depth, int samples, long seed) {
+        byte[][] lines = new byte[lineCount][];
+        IntStream.range(0, lineCount).parallel().forEach(line -> lines[line] = generateLine(depth, samples, new Random(seed + line)));
+        return lines;
+    }
+    /**
+     * Works out one opening line, assuming every shot of it misses.
+     * @param depth Number of moves in the line.
+     * @param samples Number of fleets sampled for every move.
+     * @param rand The random generator for the samples and the choices.
+     * @return The cells of the line as BoardKnowledge.indexOf() values.
+     */
+    private static byte[] generateLine(int depth, int samples, Random rand) {
+        BoardKnowledge knowledge = new BoardKnowledge();
+        float[] counts = new float[BoardKnowledge.cellCount()];
+        int[] ties = new int[BoardKnowledge.cellCount()];
+        byte[] line = new byte[depth];
+        for (int move = 0; move < depth; move++) {
+            Arrays.fill(counts, 0);
+            int accepted = 0;
+            for (int i = 0; i < samples; i++) {
+                if (knowledge.sample(rand, counts)) accepted++;
+            }
+            if (accepted == 0) {
+                knowledge.density(counts);
+            }
+            float best = 0;
+            for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                    if (knowledge.getCell(x, y) == BoardKnowledge.UNKNOWN) best = Math.max(best, counts[BoardKnowledge.indexOf(x, y)]);
+                }
+            }
+            int tieCount = 0;
+            for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                    if (knowledge.getCell(x, y) == BoardKnowledge.UNKNOWN && counts[BoardKnowledge.indexOf(x, y)] >= best * TIE_SHARE) {
+                        ties[tieCount++] = BoardKnowledge.indexOf(x, y);
+                    }
+                }
+            }
+            int cell = ties[rand.nextInt(tieCount)];
+            line[move] = (byte) cell;
+            knowledge.setCell(cell / SelectionGrid.GRID_HEIGHT, cell % SelectionGrid.GRID_HEIGHT, BoardKnowledge.MISS);
+        }
+        return line;
+    }
+    /**
+     * Works out the lines for the game's board and fleet and writes them into the book file,
+     * keeping the lines of other boards and fleets.
+     * @param args Optional number of lines, moves per line, fleets sampled per move and seed.
+     * @throws IOException If the book cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int samples = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        long start = System.nanoTime();
+        byte[][] lines = generate(lineCount, depth, samples, seed);
+        Path path = Paths.get(FILE_NAME);
+        OpeningBook book = load(path);
+        book.setLines(SelectionGrid.GRID_WIDTH, SelectionGrid.GRID_HEIGHT, SelectionGrid.BOAT_SIZES, lines);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            book.write(out);
+        }
+        System.out.printf(Locale.ROOT, "%d lines of %d moves for a %dx%d board and fleet %s written to %s in %.1f s%n",
+                lineCount, depth, SelectionGrid.GRID_WIDTH, SelectionGrid.GRID_HEIGHT, Arrays.toString(SelectionGrid.BOAT_SIZES),
+                path, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,211 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: PerformanceOverlay.
+ * Shows how the game is performing on top of the GamePanel in debug mode: the frame time, the
+ * number of repaints and how much of the panel they cover, the time of the last AI move, the heap
+ * in use and how fast the game thread allocates. It also colours the player's grid with the
+ * scores the AI gave every cell for its last move.
+ * Frames are counted on every paint whether the overlay is shown or not, with a few field updates
+ * and no allocation, and the AI scores are the ones the AI keeps from its move anyway. The text is
+ * only rebuilt twice a second and the overlay is drawn after the frame is timed, so showing it
+ * barely changes what it measures.
+ */
+public class PerformanceOverlay {
+    /**
+     * Time between two updates of the text.
+     */
+    private static final long REFRESH_NANOS = 500_000_000L;
+    /**
+     * Weight of the newest frame in the mean frame time.
+     */
+    private static final double FRAME_WEIGHT = 0.1;
+    /**
+     * Font of the text.
+     */
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.BOLD, 13);
+    /**
+     * Background behind the text.
+     */
+    private static final Color BACKGROUND = new Color(0, 0, 0, 190);
+    /**
+     * Colours of the heatmap, from the lowest score to the highest.
+     */
+    private static final Color[] HEAT = createHeatColours(16);
+    /**
+     * The HotSpot thread bean used to read allocated bytes, or null on JVMs without it.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = findThreadBean();
+    /**
+     * Clip bounds of the frame being counted, reused so counting a frame does not allocate.
+     */
+    private final java.awt.Rectangle clip = new java.awt.Rectangle();
+    /**
+     * Number of frames painted.
+     */
+    private long frames;
+    /**
+     * Time taken by the last frame.
+     */
+    private long lastFrameNanos;
+    /**
+     * Mean frame time, weighted towards recent frames.
+     */
+    private double meanFrameNanos;
+    /**
+     * Area of the last frame that was repainted, in pixels.
+     */
+    private long lastDirtyPixels;
+    /**
+     * Area of the whole panel during the last frame, in pixels.
+     */
+    private long lastPanelPixels;
+    /**
+     * System.nanoTime() when the text was last rebuilt, or 0 before the first time.
+     */
+    private long refreshedAt;
+    /**
+     * Bytes the painting thread had allocated when the text was last rebuilt.
+     */
+    private long refreshedBytes;
+    /**
+     * The lines of text shown.
+     */
+    private String[] lines = {"MEASURING..."};
+    /**
+     * Counts a painted frame. Called for every frame, even when the overlay is hidden.
+     * @param g The graphics the frame was painted with, to find the repainted area.
+     * @param panelWidth Width of the panel.
+     * @param panelHeight Height of the panel.
+     * @param frameNanos Time taken to paint the frame.
+     */
+    public void frameFinished(Graphics g, int panelWidth, int panelHeight, long frameNanos) {
+        frames++;
+        lastFrameNanos = frameNanos;
+        meanFrameNanos = frames == 1 ? frameNanos : meanFrameNanos + FRAME_WEIGHT * (frameNanos - meanFrameNanos);
+        lastPanelPixels = (long) panelWidth * panelHeight;
+        // Without a clip the rectangle is left as it is, which is then the whole panel
+        clip.setBounds(0, 0, panelWidth, panelHeight);
+        g.getClipBounds(clip);
+        lastDirtyPixels = (long) Math.min(clip.width, panelWidth) * Math.min(clip.height, panelHeight);
+    }
+    /**
+     * Draws the heatmap of the AI scores and the text.
+     * @param g Reference to the Graphics object for rendering.
+     * @param grid The grid the AI attacks.
+     * @param match The match with the AI, or null if no AI is playing.
+     */
+    public void paint(Graphics g, SelectionGrid grid, Match match) {
+        if (match != null) {
+            paintHeatmap(g, grid, match.getAIController().getCellScores());
+        }
+        long now = System.nanoTime();
+        if (refreshedAt == 0 || now - refreshedAt >= REFRESH_NANOS) {
+            refresh(now, match);
+        }
+        g.setFont(FONT);
+        int lineHeight = g.getFontMetrics().getHeight();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, g.getFontMetrics().stringWidth(line));
+        }
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, width + 16, lines.length * lineHeight + 12);
+        g.setColor(Color.YELLOW);
+        for (int i = 0; i < lines.length; i++) {
+            g.drawString(lines[i], 8, 6 + (i + 1) * lineHeight - g.getFontMetrics().getDescent());
+        }
+    }
+    /**
+     * Rebuilds the lines of text from what has been counted.
+     * @param now The current System.nanoTime().
+     * @param match The match with the AI, or null if no AI is playing.
+     */
+    private void refresh(long now, Match match) {
+        long bytes = allocatedBytes();
+        String allocation = "ALLOC    --";
+        // A rate over a long gap would mostly count the time the overlay was hidden
+        if (refreshedAt != 0 && now - refreshedAt < 4 * REFRESH_NANOS && bytes >= 0) {
+            double seconds = (now - refreshedAt) / 1e9;
+            allocation = String.format(Locale.ROOT, "ALLOC    %.2f MB/s (painting thread)", (bytes - refreshedBytes) / seconds / 1e6);
+        }
+        refreshedAt = now;
+        refreshedBytes = bytes;
+
+        Runtime runtime = Runtime.getRuntime();
+        long usedBytes = runtime.totalMemory() - runtime.freeMemory();
+        String aiMove = match == null || match.getLastAIMoveNanos() < 0 ? "AI MOVE  --"
+                : String.format(Locale.ROOT, "AI MOVE  %.3f ms", match.getLastAIMoveNanos() / 1e6);
+        lines = new String[] {
+                String.format(Locale.ROOT, "FRAME    %.2f ms (mean %.2f ms)", lastFrameNanos / 1e6, meanFrameNanos / 1e6),
+                String.format(Locale.ROOT, "REPAINTS %d, dirty %d%% (%d px)", frames,
+                        lastPanelPixels == 0 ? 0 : lastDirtyPixels * 100 / lastPanelPixels, lastDirtyPixels),
+                aiMove,
+                String.format(Locale.ROOT, "HEAP     %d / %d MB", usedBytes >> 20, runtime.maxMemory() >> 20),
+                allocation,
+        };
+    }
+    /**
+     * Colours every cell with a score above zero, from blue for the lowest score to red for the highest.
+     * @param g Reference to the Graphics object for rendering.
+     * @param grid The grid to colour.
+     * @param scores Score of every cell by BoardKnowledge.indexOf(), or null to draw nothing.
+     */
+    private static void paintHeatmap(Graphics g, SelectionGrid grid, float[] scores) {
+        if (scores == null) return;
+        float min = Float.MAX_VALUE;
+        float max = 0;
+        for (float score : scores) {
+            if (score > 0) {
+                min = Math.min(min, score);
+                max = Math.max(max, score);
+            }
+        }
+        if (max <= 0) return;
+        float range = Math.max(max - min, Float.MIN_NORMAL);
+        for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+            for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                float score = scores[BoardKnowledge.indexOf(x, y)];
+                if (score <= 0) continue;
+                g.setColor(HEAT[Math.min(HEAT.length - 1, (int) ((score - min) / range * HEAT.length))]);
+                g.fillRect(grid.getPosition().x + x * SelectionGrid.CELL_SIZE + 1, grid.getPosition().y + y * SelectionGrid.CELL_SIZE + 1,
+                        SelectionGrid.CELL_SIZE - 1, SelectionGrid.CELL_SIZE - 1);
+            }
+        }
+    }
+    /**
+     * Creates see-through colours that go from blue to red.
+     * @param count Number of colours.
+     * @return The colours.
+     */
+    private static Color[] createHeatColours(int count) {
+        Color[] colours = new Color[count];
+        for (int i = 0; i < count; i++) {
+            float t = (float) i / (count - 1);
+            colours[i] = new Color(t, 0.2f * (1 - t), 1 - t, 0.45f);
+        }
+        return colours;
+    }
+    /**
+     * Finds the HotSpot thread bean and turns on allocation counting.
+     * @return The bean, or null if allocation counting is not supported.
+     */
+    private static com.sun.management.ThreadMXBean findThreadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemorySupported()) return null;
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+    /**
+     * Gets the number of bytes the current thread has allocated since it started.
+     * @return The allocated bytes, or -1 if this is not supported.
+     */
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
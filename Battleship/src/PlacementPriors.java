@@ -0,0 +1,352 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: PlacementPriors.
+ * Learns where human players like to put their ships and turns it into a weight for every cell
+ * of the player's grid, above 1 for cells that hold a ship more often than average and below 1
+ * for cells that are avoided. The AIs multiply their move scores by these weights.
+ * The table is a small file per board size holding, for every cell, the share of games in which
+ * it held one of the player's ships, and it is memory-mapped, so opening it reads nothing but the
+ * header and the AI reads the shares straight from the page cache. Finished games are gathered in
+ * memory and added to the table in batches on a background thread, so neither playing nor
+ * choosing a move ever waits for it. With few games the weights stay close to 1.
+ * Start the game or the server with -Dbattleship.priors.dir=DIRECTORY to use and update them, or
+ * build them from archived games with java GameAnalyzer --priors DIRECTORY ARCHIVES...
+ */
+public class PlacementPriors implements Closeable {
+    /**
+     * System property with the directory of the tables, the priors are off without it.
+     */
+    public static final String DIRECTORY_PROPERTY = "battleship.priors.dir";
+    /**
+     * The magic number at the start of every table, "BSPP".
+     */
+    private static final int MAGIC = 0x42535050;
+    /**
+     * Version of the table layout.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Size of the header in bytes: magic, version, width, height, games and mean share.
+     */
+    private static final int HEADER_SIZE = 32;
+    /**
+     * Offset of the number of games in the header.
+     */
+    private static final int GAMES_OFFSET = 16;
+    /**
+     * Offset of the mean share of the playable cells in the header.
+     */
+    private static final int MEAN_OFFSET = 24;
+    /**
+     * Number of imaginary games of an even placement mixed into the learned shares, so a few
+     * games cannot make the weights extreme.
+     */
+    private static final float PRIOR_GAMES = 50f;
+    /**
+     * Time finished games are gathered before they are added to the table together.
+     */
+    private static final long BATCH_DELAY_SECONDS = 2;
+    /**
+     * Logger for tables that cannot be opened or updated.
+     */
+    private static final GameLog LOG = GameLog.getLogger("Priors");
+    /**
+     * The table opened from the system property, or null if the priors are off.
+     */
+    private static volatile PlacementPriors shared;
+    /**
+     * The open file of the table.
+     */
+    private final FileChannel channel;
+    /**
+     * The mapped table. Only absolute gets and puts are used, so threads never share a position.
+     */
+    private final MappedByteBuffer table;
+    /**
+     * Width of the grid the table is for.
+     */
+    private final int width;
+    /**
+     * Height of the grid the table is for.
+     */
+    private final int height;
+    /**
+     * Cell counts of finished games not added to the table yet, by BoardKnowledge.indexOf(). Guarded by this.
+     */
+    private final long[] pendingCells;
+    /**
+     * Number of finished games not added to the table yet. Guarded by this.
+     */
+    private long pendingGames;
+    /**
+     * Thread adding the batches, created with the first batch. Guarded by this.
+     */
+    private ScheduledExecutorService updater;
+    /**
+     * True once close() has been called, after which finished games are ignored. Guarded by this.
+     */
+    private boolean closed;
+    /**
+     * Adds a finished game of a Match to the priors. Added to the match by attach().
+     */
+    public class Learner implements GameEventListener {
+        /**
+         * The match whose games are learned from.
+         */
+        private final Match match;
+        /**
+         * Index of the next event in the current game.
+         */
+        private int sequence;
+        /**
+         * Number of events at the start of the game that were restored from a saved game.
+         */
+        private int restored;
+        /**
+         * Cells covered by the player's ships in the game that just ended, reused for every game.
+         */
+        private final long[] cells = new long[BoardKnowledge.cellCount()];
+        /**
+         * Creates a learner for a match. A game already under way is learned from when it ends.
+         * @param match The match to learn from.
+         */
+        Learner(Match match) {
+            this.match = match;
+            gameReset();
+            sequence = restored;
+        }
+        /**
+         * When the game ends, adds where the player's ships were. A restored game that had already ended is not added again.
+         * @param event The packed event, see GameEvent.
+         */
+        @Override
+        public void eventRecorded(int event) {
+            int index = sequence++;
+            if (index < restored || GameEvent.type(event) != GameEvent.GAME_OVER) return;
+            GameRecord record = match.getRecord();
+            Arrays.fill(cells, 0);
+            for (int i = 0; i < record.size(); i++) {
+                int recorded = record.get(i);
+                if (GameEvent.type(recorded) == GameEvent.PLACE && GameEvent.side(recorded) == GameEvent.PLAYER) {
+                    addShipCells(recorded, cells);
+                }
+            }
+            submit(1, cells);
+        }
+        /**
+         * Starts counting the events of a new game. When a saved game is restored the match
+         * already holds its events at this point.
+         */
+        @Override
+        public void gameReset() {
+            sequence = 0;
+            restored = match.getRecord().size();
+        }
+    }
+    /**
+     * Opens the table for a grid size, creating an empty one if there is none.
+     * @param directory Directory of the tables, created if it does not exist.
+     * @param width Width of the grid, including the label column.
+     * @param height Height of the grid, including the label row.
+     * @throws IOException If the table cannot be opened or is for another grid.
+     */
+    public PlacementPriors(Path directory, int width, int height) throws IOException {
+        this.width = width;
+        this.height = height;
+        pendingCells = new long[width * height];
+        Path path = tablePath(Files.createDirectories(directory), width, height);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            table = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 4L * width * height);
+            if (created) {
+                table.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, width).putInt(12, height);
+            } else if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION) {
+                throw new IOException(path + " is not a placement prior table");
+            } else if (table.getInt(8) != width || table.getInt(12) != height) {
+                throw new IOException(path + " is for a " + table.getInt(8) + "x" + table.getInt(12) + " grid");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    /**
+     * Gets the path of the table for a grid size.
+     * @param directory Directory of the tables.
+     * @param width Width of the grid.
+     * @param height Height of the grid.
+     * @return The path of the table.
+     */
+    public static Path tablePath(Path directory, int width, int height) {
+        return directory.resolve("placement-priors-" + width + "x" + height + ".bin");
+    }
+    /**
+     * Opens the shared table for the game's grid if the directory property is set. Pending games are added when the JVM exits.
+     */
+    public static synchronized void loadIfConfigured() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (shared != null || directory == null || directory.isEmpty()) return;
+        try {
+            PlacementPriors priors = new PlacementPriors(Paths.get(directory), SelectionGrid.GRID_WIDTH, SelectionGrid.GRID_HEIGHT);
+            Runtime.getRuntime().addShutdownHook(new Thread(priors::close, "priors-close"));
+            shared = priors;
+        } catch (IOException e) {
+            LOG.error("Could not open the placement priors in {}", directory, e);
+        }
+    }
+    /**
+     * Gets the shared table.
+     * @return The table, or null if the priors are off.
+     */
+    public static PlacementPriors getShared() {
+        return shared;
+    }
+    /**
+     * Learns from the games of a match with the shared table, if the priors are on.
+     * @param match The match to learn from.
+     */
+    public static void attachIfLoaded(Match match) {
+        PlacementPriors priors = shared;
+        if (priors != null) {
+            priors.attach(match);
+        }
+    }
+    /**
+     * Learns from every game of a match that ends from now on.
+     * @param match The match to learn from.
+     * @return The listener added to the match, remove it from the match to stop learning.
+     */
+    public Learner attach(Match match) {
+        Learner learner = new Learner(match);
+        match.addListener(learner);
+        return learner;
+    }
+    /**
+     * Counts the cells covered by a placed ship.
+     * @param placeEvent The PLACE event of the ship.
+     * @param cells Count of every cell by BoardKnowledge.indexOf(), increased by one for every cell of the ship.
+     */
+    public static void addShipCells(int placeEvent, long[] cells) {
+        int x = GameEvent.x(placeEvent);
+        int y = GameEvent.y(placeEvent);
+        boolean sideways = GameEvent.sideways(placeEvent);
+        for (int i = 0; i < GameEvent.segments(placeEvent); i++) {
+            int cellX = sideways ? x + i : x;
+            int cellY = sideways ? y : y + i;
+            if (cellX < SelectionGrid.GRID_WIDTH && cellY < SelectionGrid.GRID_HEIGHT) {
+                cells[BoardKnowledge.indexOf(cellX, cellY)]++;
+            }
+        }
+    }
+    /**
+     * Gets the weight of a cell: how much more often than average it holds a ship.
+     * @param x X coordinate in the grid.
+     * @param y Y coordinate in the grid.
+     * @return The weight, 1 for an average cell or when nothing has been learned.
+     */
+    public float weight(int x, int y) {
+        float mean = table.getFloat(MEAN_OFFSET);
+        if (mean <= 0) return 1;
+        long games = table.getLong(GAMES_OFFSET);
+        float share = table.getFloat(HEADER_SIZE + 4 * (x * height + y));
+        return (share * games + mean * PRIOR_GAMES) / (mean * (games + PRIOR_GAMES));
+    }
+    /**
+     * Gets the number of games the table has learned from.
+     * @return The number of games.
+     */
+    public long getGames() {
+        return table.getLong(GAMES_OFFSET);
+    }
+    /**
+     * Gathers finished games to be added to the table in the next batch. Never waits for the table.
+     * @param games The number of games.
+     * @param cells How many of the games each cell held a ship in, by BoardKnowledge.indexOf().
+     */
+    public void submit(long games, long[] cells) {
+        synchronized (this) {
+            if (closed) return;
+            boolean first = pendingGames == 0;
+            pendingGames += games;
+            for (int i = 0; i < pendingCells.length; i++) {
+                pendingCells[i] += cells[i];
+            }
+            if (!first) return;
+            if (updater == null) {
+                updater = Executors.newSingleThreadScheduledExecutor(task -> {
+                    Thread thread = new Thread(task, "priors-update");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            updater.schedule(this::flush, BATCH_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+    /**
+     * Adds the gathered games to the table now.
+     */
+    public void flush() {
+        long games;
+        long[] cells;
+        synchronized (this) {
+            if (pendingGames == 0) return;
+            games = pendingGames;
+            cells = pendingCells.clone();
+            pendingGames = 0;
+            Arrays.fill(pendingCells, 0);
+        }
+        addGames(games, cells);
+    }
+    /**
+     * Adds games to the table: every cell's share becomes the share over the old and the new games together.
+     * @param games The number of games.
+     * @param cells How many of the games each cell held a ship in, by BoardKnowledge.indexOf().
+     */
+    public synchronized void addGames(long games, long[] cells) {
+        if (games <= 0) return;
+        long oldGames = table.getLong(GAMES_OFFSET);
+        long newGames = oldGames + games;
+        double shareSum = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int offset = HEADER_SIZE + 4 * (x * height + y);
+                float share = (float) (((double) table.getFloat(offset) * oldGames + cells[x * height + y]) / newGames);
+                table.putFloat(offset, share);
+                if (x > 0 && y > 0) shareSum += share;
+            }
+        }
+        table.putLong(GAMES_OFFSET, newGames);
+        table.putFloat(MEAN_OFFSET, (float) (shareSum / ((width - 1) * (height - 1))));
+    }
+    /**
+     * Adds the gathered games, writes the table to the disk and closes it.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            if (updater != null) updater.shutdownNow();
+        }
+        flush();
+        try {
+            table.force();
+            channel.close();
+        } catch (IOException e) {
+            LOG.error("Could not close the placement priors", e);
+        }
+    }
+}
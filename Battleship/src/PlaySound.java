@@ -1,17 +1,40 @@
 import javax.sound.sampled.*;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 /**
  * DSA Project - Battleship Game - Panadol Extra.
  * Class: PlaySound.
  * The PlaySound class provides a utility method to play audio files using Java's Sound API.
  */
 public class PlaySound {
+    /**
+     * Time from a sound being asked for to its clip starting.
+     */
+    private static final LatencyHistogram startLatency = Metrics.histogram(Metrics.AUDIO_START);
+    /**
+     * Number of clips that have started and not been closed yet.
+     */
+    private static final AtomicInteger voices = new AtomicInteger();
+    /**
+     * Logger for sounds that could not be played.
+     */
+    private static final GameLog LOG = GameLog.getLogger("Sound");
+    /**
+     * Gets the number of sounds playing at the moment.
+     * @return The number of open clips.
+     */
+    public static int getVoicesInUse() {
+        return voices.get();
+    }
     /**
      * Plays the audio file specified by the provided file path.
      * @param soundFileName The file path of the sound file to be played.
      */
     public static void playSound(String soundFileName) {
+        FlightEvents.SoundPlaybackEvent event = new FlightEvents.SoundPlaybackEvent();
+        event.begin();
+        long start = System.nanoTime();
         try {
             // Load the sound file into an AudioInputStream.
             File soundFile = new File(soundFileName);
@@ -38,14 +61,29 @@ public class PlaySound {
             // Prepare an audio clip for playback.
             Clip clip = AudioSystem.getClip();
             clip.open(decodedAudioIn);
+            // Close the clip once it has played so its line is given back, which also ends the voice.
+            clip.addLineListener(lineEvent -> {
+                if (lineEvent.getType() == LineEvent.Type.STOP) {
+                    clip.close();
+                } else if (lineEvent.getType() == LineEvent.Type.CLOSE) {
+                    voices.decrementAndGet();
+                }
+            });
+            voices.incrementAndGet();
             clip.start(); // Start playing the audio.
+            startLatency.recordSince(start);
+            event.started = true;
         } catch (UnsupportedAudioFileException | IOException e) {
             // Handle exceptions related to file format and IO issues.
-            e.printStackTrace();
+            LOG.error("Could not play sound {}", soundFileName, e);
         } catch (LineUnavailableException e) {
             // Handle exception where the audio line is not available for playback.
-            System.err.println("Audio line for playback is not available.");
-            e.printStackTrace();
+            LOG.warn("Audio line for playback of {} is not available", soundFileName, e);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileName = soundFileName;
+            event.commit();
         }
     }
 }
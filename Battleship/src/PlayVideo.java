@@ -13,6 +13,10 @@ import java.io.File;
  * The PlayVideo class facilitates playing video files using JavaFX in a Swing environment.
  */
 public class PlayVideo {
+    /**
+     * Logger for videos that could not be played.
+     */
+    private static final GameLog LOG = GameLog.getLogger("PlayVideo");
     /**
      * Plays the specified video file using a JavaFX media player embedded within a Swing JFrame.
      * @param videoFileName The file path of the video to be played.
@@ -37,7 +41,7 @@ public class PlayVideo {
                     javax.swing.SwingUtilities.invokeLater(videoFrame::dispose);
                 });
             } catch (Exception e) {
-                e.printStackTrace();
+                LOG.error("Cannot play video {}", videoFileName, e);
             }
         });
 
@@ -107,4 +107,12 @@ public class Position {
     public int hashCode() {
         return Objects.hash(x,y);
     }
+    /**
+     * Gets the Position as text, used when it is logged.
+     * @return The Position in the form (x, y).
+     */
+    @Override
+    public String toString() {
+        return "(" + x + ", " + y + ")";
+    }
 }
@@ -0,0 +1,324 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: ScoreCache.
+ * Remembers the cell scores an AI worked out for a board, so when the same board comes up again,
+ * in the same game or any other game in the process, the AI does not have to work them out again.
+ * Boards are found by SelectionGrid.getStateHash(), mixed with a key of the AI and its settings.
+ * Only scores that follow from the board alone may be stored: nothing that depends on time limits,
+ * learned priors or other things that change, so an entry never goes stale and is never removed
+ * for any reason other than lack of room.
+ * The cache holds at most a fixed number of bytes, given by -Dbattleship.scoreCache.mb, and drops
+ * the least recently used boards first. It is split into segments, each with its own lock, so
+ * games on different threads rarely wait for each other, and the scores are kept in flat arrays,
+ * so neither finding nor adding a board creates any objects.
+ */
+public class ScoreCache {
+    /**
+     * System property with the size of the shared cache in megabytes, 0 to turn it off.
+     */
+    public static final String SIZE_PROPERTY = "battleship.scoreCache.mb";
+    /**
+     * Size of the shared cache in megabytes when the property is not set.
+     */
+    private static final int DEFAULT_MB = 4;
+    /**
+     * Number of segments, a power of two.
+     */
+    private static final int SEGMENTS = 16;
+    /**
+     * Bytes used by each entry besides its scores: the key, the links of the recency list and up to four hash table places.
+     */
+    private static final int ENTRY_OVERHEAD = 8 + 4 + 4 + 4 * 4;
+    /**
+     * The cache shared by all AIs of the process.
+     */
+    private static final ScoreCache SHARED = new ScoreCache(BoardKnowledge.cellCount(), Integer.getInteger(SIZE_PROPERTY, DEFAULT_MB) * 1024L * 1024L);
+    /**
+     * Number of lookups that found the board.
+     */
+    private static final LongAdder hits = Metrics.counter(Metrics.SCORE_CACHE_HITS);
+    /**
+     * Number of lookups that did not find the board.
+     */
+    private static final LongAdder misses = Metrics.counter(Metrics.SCORE_CACHE_MISSES);
+    /**
+     * Number of scores in every entry.
+     */
+    private final int scoreCount;
+    /**
+     * The segments, chosen by the top bits of the key.
+     */
+    private final Segment[] segments = new Segment[SEGMENTS];
+    /**
+     * Part of the cache with its own lock. The entries are slots of parallel arrays, found through
+     * an open addressing hash table and kept in a doubly linked list from most to least recently used.
+     */
+    private static class Segment {
+        /**
+         * Number of scores in every entry.
+         */
+        final int scoreCount;
+        /**
+         * Maximum number of entries.
+         */
+        final int capacity;
+        /**
+         * Key of the entry in every slot.
+         */
+        final long[] keys;
+        /**
+         * Scores of the entry in every slot, scoreCount per slot.
+         */
+        final float[] scores;
+        /**
+         * Next more recently used slot of every slot, or -1.
+         */
+        final int[] newer;
+        /**
+         * Next less recently used slot of every slot, or -1.
+         */
+        final int[] older;
+        /**
+         * Hash table of slot + 1 by key, 0 for an empty place, at most half full.
+         */
+        final int[] table;
+        /**
+         * Number of slots in use.
+         */
+        int size;
+        /**
+         * Most recently used slot, or -1.
+         */
+        int newest = -1;
+        /**
+         * Least recently used slot, or -1.
+         */
+        int oldest = -1;
+        /**
+         * Creates an empty segment.
+         * @param scoreCount Number of scores in every entry.
+         * @param capacity Maximum number of entries.
+         */
+        Segment(int scoreCount, int capacity) {
+            this.scoreCount = scoreCount;
+            this.capacity = capacity;
+            keys = new long[capacity];
+            scores = new float[capacity * scoreCount];
+            newer = new int[capacity];
+            older = new int[capacity];
+            table = new int[Integer.highestOneBit(Math.max(1, capacity) * 2 - 1) * 2];
+        }
+        /**
+         * Gets the place in the table where the search for a key starts.
+         * @param key The key.
+         * @return The place.
+         */
+        int home(long key) {
+            return (int) (key ^ (key >>> 32)) & (table.length - 1);
+        }
+        /**
+         * Finds the place in the table of a key.
+         * @param key The key.
+         * @return The place, or -1 if the key is not in the table.
+         */
+        int find(long key) {
+            for (int i = home(key); table[i] != 0; i = (i + 1) & (table.length - 1)) {
+                if (keys[table[i] - 1] == key) return i;
+            }
+            return -1;
+        }
+        /**
+         * Copies the scores of a board if it is in the segment and marks it as just used.
+         * @param key The key of the board.
+         * @param into The array to copy the scores into.
+         * @return True if the board was found.
+         */
+        synchronized boolean get(long key, float[] into) {
+            int place = find(key);
+            if (place < 0) return false;
+            int slot = table[place] - 1;
+            System.arraycopy(scores, slot * scoreCount, into, 0, scoreCount);
+            unlink(slot);
+            linkNewest(slot);
+            return true;
+        }
+        /**
+         * Stores the scores of a board, dropping the least recently used board if the segment is full.
+         * @param key The key of the board.
+         * @param from The scores.
+         */
+        synchronized void put(long key, float[] from) {
+            int place = find(key);
+            int slot;
+            if (place >= 0) {
+                slot = table[place] - 1;
+                unlink(slot);
+            } else {
+                if (size < capacity) {
+                    slot = size++;
+                } else {
+                    slot = oldest;
+                    unlink(slot);
+                    remove(find(keys[slot]));
+                }
+                keys[slot] = key;
+                int i = home(key);
+                while (table[i] != 0) {
+                    i = (i + 1) & (table.length - 1);
+                }
+                table[i] = slot + 1;
+            }
+            System.arraycopy(from, 0, scores, slot * scoreCount, scoreCount);
+            linkNewest(slot);
+        }
+        /**
+         * Empties a place of the table, moving back later keys of the same run so every key can still be found.
+         * @param place The place to empty.
+         */
+        void remove(int place) {
+            int mask = table.length - 1;
+            table[place] = 0;
+            for (int i = (place + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+                int home = home(keys[table[i] - 1]);
+                boolean homeAfterGap = place <= i ? place < home && home <= i : place < home || home <= i;
+                if (!homeAfterGap) {
+                    table[place] = table[i];
+                    table[i] = 0;
+                    place = i;
+                }
+            }
+        }
+        /**
+         * Takes a slot out of the recency list.
+         * @param slot The slot.
+         */
+        void unlink(int slot) {
+            if (newer[slot] >= 0) older[newer[slot]] = older[slot]; else newest = older[slot];
+            if (older[slot] >= 0) newer[older[slot]] = newer[slot]; else oldest = newer[slot];
+        }
+        /**
+         * Puts a slot at the most recently used end of the recency list.
+         * @param slot The slot.
+         */
+        void linkNewest(int slot) {
+            newer[slot] = -1;
+            older[slot] = newest;
+            if (newest >= 0) newer[newest] = slot; else oldest = slot;
+            newest = slot;
+        }
+        /**
+         * Gets the number of boards in the segment.
+         * @return The number of boards.
+         */
+        synchronized int size() {
+            return size;
+        }
+        /**
+         * Removes every board.
+         */
+        synchronized void clear() {
+            Arrays.fill(table, 0);
+            size = 0;
+            newest = -1;
+            oldest = -1;
+        }
+    }
+    /**
+     * Creates an empty cache.
+     * @param scoreCount Number of scores of every board.
+     * @param maxBytes Most bytes the scores and their bookkeeping may take, 0 for a cache that stores nothing.
+     */
+    public ScoreCache(int scoreCount, long maxBytes) {
+        this.scoreCount = scoreCount;
+        long entryBytes = 4L * scoreCount + ENTRY_OVERHEAD;
+        int perSegment = (int) Math.min(Integer.MAX_VALUE / Math.max(1, scoreCount), Math.max(0, maxBytes) / entryBytes / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(scoreCount, perSegment);
+        }
+    }
+    /**
+     * Gets the cache shared by all AIs of the process.
+     * @return The shared cache.
+     */
+    public static ScoreCache getShared() {
+        return SHARED;
+    }
+    /**
+     * Gets the segment of a key.
+     * @param key The key.
+     * @return The segment.
+     */
+    private Segment segmentFor(long key) {
+        return segments[(int) (key >>> 60) & (SEGMENTS - 1)];
+    }
+    /**
+     * Copies the scores of a board if they are in the cache.
+     * @param key The state hash of the board mixed with the key of the AI.
+     * @param into The array to copy the scores into, at least as long as the scores of a board.
+     * @return True if the board was found, otherwise into is left as it was.
+     */
+    public boolean get(long key, float[] into) {
+        Segment segment = segmentFor(key);
+        if (segment.capacity > 0 && segment.get(key, into)) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+    /**
+     * Stores the scores of a board. They must follow from the board and the key alone.
+     * @param key The state hash of the board mixed with the key of the AI.
+     * @param scores The scores, copied into the cache.
+     */
+    public void put(long key, float[] scores) {
+        Segment segment = segmentFor(key);
+        if (segment.capacity > 0) {
+            segment.put(key, scores);
+        }
+    }
+    /**
+     * Gets the number of boards in the cache.
+     * @return The number of boards.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+    /**
+     * Gets the most boards the cache can hold.
+     * @return The capacity.
+     */
+    public int capacity() {
+        return segments[0].capacity * SEGMENTS;
+    }
+    /**
+     * Gets the bytes taken by the boards in the cache and their bookkeeping.
+     * @return The bytes in use.
+     */
+    public long usedBytes() {
+        return size() * (4L * scoreCount + ENTRY_OVERHEAD);
+    }
+    /**
+     * Removes every board.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+    /**
+     * Gets the share of lookups in any score cache that found the board, since the counters were reset.
+     * @return The hit rate from 0 to 1, or 0 if nothing was looked up.
+     */
+    public static double getHitRate() {
+        long found = hits.sum();
+        long lookups = found + misses.sum();
+        return lookups == 0 ? 0 : (double) found / lookups;
+    }
+}
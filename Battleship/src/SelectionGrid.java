@@ -1,16 +1,16 @@
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.awt.Font;
-import java.awt.GraphicsEnvironment;
-import java.io.File;
-import java.io.IOException;
-import javax.imageio.ImageIO;
 import java.awt.geom.AffineTransform;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.io.IOException;
 /**
  * DSA Project - Battleship Game - Panadol Extra.
  * Class: SelectionGrid.
@@ -29,18 +29,6 @@ public class SelectionGrid extends Rectangle {
      * HashMap to manage treasure's state
      */
     private Map <Position, Boolean> treasureStates = new HashMap<>();
-    /**
-     * Image of the closed treasure (when the treasure is still hidden).
-     */
-    private BufferedImage closedtreasureImage;
-    /**
-     * Image of the opened treasure (when player find it on the computer's grid).
-     */
-    private BufferedImage opentreasureImage;
-    /**
-     * The font VT323.
-     */
-    private Font VT323;
     /**
      * A list to store position of the treasures.
      * Since 1 treasure = 1 cell = 1 position, there is no need to make another class for the treasures.
@@ -71,17 +59,25 @@ public class SelectionGrid extends Rectangle {
      */
     private List<Ship> ships;
     /**
-     * Shared random reference to use for randomisation of the ship placement.
+     * The game this grid belongs to.
+     */
+    private final GameContext context;
+    /**
+     * Random reference to use for randomisation of the ship placement.
      */
     private Random rand;
     /**
-     * Shared random reference to use for randomisation of the treasure placement.
+     * Random reference to use for randomisation of the treasure placement.
      */
     private Random rand2;
     /**
      * Ships are drawn when true. This is mostly used to make the player's ships always show.
      */
     private boolean showShips;
+    /**
+     * Font of the grid labels, loaded the first time the grid is drawn so grids that are never drawn do not load it.
+     */
+    private Font labelFont;
     /**
      * Treasures are drawn when true.
      */
@@ -91,31 +87,61 @@ public class SelectionGrid extends Rectangle {
      */
     private boolean allShipsDestroyed;
     /**
-     * Constructs a SelectionGrid object with specified coordinates and grid properties.
+     * Random key of every cell in every state a shot can leave it in, by BoardKnowledge.indexOf() * 4 + the
+     * BoardKnowledge state. The seed is fixed so the same board always has the same hash.
+     */
+    private static final long[] CELL_KEYS = new long[GRID_WIDTH * GRID_HEIGHT * 4];
+    /**
+     * Random key of the n-th sunk ship of every size, by segments and n.
+     */
+    private static final long[][] SUNK_SHIP_KEYS = new long[16][GRID_WIDTH * GRID_HEIGHT];
+    static {
+        SplittableRandom keys = new SplittableRandom(0x5EEDB0A7L);
+        for (int i = 0; i < CELL_KEYS.length; i++) {
+            CELL_KEYS[i] = keys.nextLong();
+        }
+        for (long[] sizeKeys : SUNK_SHIP_KEYS) {
+            for (int i = 0; i < sizeKeys.length; i++) {
+                sizeKeys[i] = keys.nextLong();
+            }
+        }
+    }
+    /**
+     * Zobrist hash of what the attacker can see: the state of every attacked cell and the sizes of the sunk ships.
+     */
+    private long stateHash;
+    /**
+     * Number of sunk ships of every size, by segments.
+     */
+    private final int[] sunkBySize = new int[SUNK_SHIP_KEYS.length];
+    /**
+     * Constructs a SelectionGrid object with specified coordinates and grid properties,
+     * belonging to a game of its own.
      * @param x The x-coordinate of the grid.
      * @param y The y-coordinate of the grid.
      * @param isComputerGrid Boolean indicating if the grid belongs to the computer.
      */
     public SelectionGrid(int x, int y, boolean isComputerGrid) {
+        this(x, y, isComputerGrid, new GameContext());
+    }
+    /**
+     * Constructs a SelectionGrid object with specified coordinates and grid properties.
+     * @param x The x-coordinate of the grid.
+     * @param y The y-coordinate of the grid.
+     * @param isComputerGrid Boolean indicating if the grid belongs to the computer.
+     * @param context The game the grid belongs to, which seeds its random placement.
+     */
+    public SelectionGrid(int x, int y, boolean isComputerGrid, GameContext context) {
         super(x, y, CELL_SIZE * GRID_WIDTH, CELL_SIZE * GRID_HEIGHT);
         this.isComputerGrid = isComputerGrid;
+        this.context = context;
         createMarkerGrid();
         ships = new ArrayList<>(); //Make an ArrayList to store the ships.
         treasures = new ArrayList<>(); //Make an ArrayList to store the treasures.
-        rand2 = new Random(); //Random position of the treasures on computer's grid.
+        rand2 = context.newRandom(); //Random position of the treasures on computer's grid.
         initilizeTreasures(3); //3 treasures
-        rand = new Random(); //Random position of the ships on the computer's grid
+        rand = context.newRandom(); //Random position of the ships on the computer's grid
         showShips = false;
-        try {
-            VT323 = Font.createFont(Font.TRUETYPE_FONT, new File("VT323-Regular.ttf")).deriveFont(40f); // Adjust the font size as needed
-            GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-            ge.registerFont(VT323);
-            closedtreasureImage = ImageIO.read(new File("closed.png"));
-            opentreasureImage = ImageIO.read(new File("open.png"));
-        } catch (IOException | FontFormatException e) {
-            e.printStackTrace();
-            VT323 = new Font("Serif", Font.BOLD, 16); // Fallback font in case of error
-        }
     }
     /**
      * Initializes a specified number of treasures on the grid.
@@ -141,13 +167,63 @@ public class SelectionGrid extends Rectangle {
      * @return True if a treasure is found at the given position, false otherwise.
      */
     public boolean isTreasureAtPosition(Position pos) {
-        for (Position treasure : treasures) {
-            if (treasure.equals(pos)) {
+        return isTreasureAt(pos.x, pos.y);
+    }
+    /**
+     * Checks if a treasure is present at the specified cell, without creating a Position.
+     * @param x The x-coordinate in the grid.
+     * @param y The y-coordinate in the grid.
+     * @return True if a treasure is found at the given cell, false otherwise.
+     */
+    private boolean isTreasureAt(int x, int y) {
+        for (int i = 0; i < treasures.size(); i++) {
+            Position treasure = treasures.get(i);
+            if (treasure.x == x && treasure.y == y) {
                 return true;
             }
         }
         return false;
     }
+    /**
+     * Gets the positions of the treasures hidden on this grid.
+     * @return A read-only list of the treasure positions.
+     */
+    public List<Position> getTreasures() {
+        return Collections.unmodifiableList(treasures);
+    }
+    /**
+     * Replaces the treasures on this grid with treasures at the specified positions,
+     * for example to rebuild a recorded game. All of the new treasures start closed.
+     * @param positions The positions to hide the treasures at.
+     */
+    public void setTreasures(List<Position> positions) {
+        List<Position> newTreasures = new ArrayList<>(positions); // Copy first in case positions is getTreasures()
+        for (Position treasure : treasures) {
+            markers[treasure.x][treasure.y].setAsTreasure(null);
+        }
+        treasures.clear();
+        treasureStates.clear();
+        for (Position pos : newTreasures) {
+            Position treasure = new Position(pos);
+            treasures.add(treasure);
+            treasureStates.put(treasure, false);
+            markers[treasure.x][treasure.y].setAsTreasure(treasure);
+        }
+    }
+    /**
+     * Gets the game this grid belongs to.
+     * @return The context of the game.
+     */
+    public GameContext getContext() {
+        return context;
+    }
+    /**
+     * Gets the ships that have been placed on this grid.
+     * @return A read-only list of the ships.
+     */
+    public List<Ship> getShips() {
+        return Collections.unmodifiableList(ships);
+    }
     /**
      * Paints the grid, markers, ships, and treasures on the screen.
      * @param g The Graphics object to paint on.
@@ -156,7 +232,7 @@ public class SelectionGrid extends Rectangle {
         drawGrid(g); //Draw grid first to prevent false layering.
         drawMarkers(g);
         for (Ship ship : ships) {
-            if (showShips || GamePanel.debugModeActive || ship.isDestroyed()) {
+            if (showShips || context.isDebugMode() || ship.isDestroyed()) {
                 ship.paint(g);
             }
         }
@@ -191,6 +267,8 @@ public class SelectionGrid extends Rectangle {
         ships.clear(); //Clear all the ships on the grids.
         showShips = false;
         allShipsDestroyed = false;
+        stateHash = 0;
+        Arrays.fill(sunkBySize, 0);
     }
     /**
      * Marks the specified position and checks if it hits a ship or treasure.
@@ -202,20 +280,96 @@ public class SelectionGrid extends Rectangle {
         if (posToMark.x < 1 || posToMark.y < 1) {
             return false; //If the posToMark on the label col and row or outside the grid, return false.
         }
-        markers[posToMark.x][posToMark.y].mark();
+        Marker marker = markers[posToMark.x][posToMark.y];
+        boolean newShot = !marker.isMarked();
+        marker.mark();
+        if (newShot) {
+            updateStateHash(posToMark.x, posToMark.y, marker);
+        }
         boolean hitTreasure = isTreasureAtPosition(posToMark);
         if (hitTreasure && isPlayer) {
             markers[posToMark.x][posToMark.y].setAsTreasure(posToMark); // Mark the marker as a treasure.
         }
         allShipsDestroyed = true;
-        for (Ship ship : ships) {
-            if (!ship.isDestroyed()) {
+        for (int i = 0; i < ships.size(); i++) { // Indexed so no iterator is created on every shot
+            if (!ships.get(i).isDestroyed()) {
                 allShipsDestroyed = false;
                 break;
             }
         }
         return markers[posToMark.x][posToMark.y].isShip() || hitTreasure; //If hit ship or hit treasure, it will draw the marker on the grid.
     }
+    /**
+     * Adds a newly attacked cell to the state hash. If the shot sank a ship, all its cells change
+     * from hit to sunk and the ship is added to the sunk ships.
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @param marker The marker of the cell, already marked.
+     */
+    private void updateStateHash(int x, int y, Marker marker) {
+        if (!marker.isShip()) {
+            stateHash ^= cellKey(x, y, BoardKnowledge.MISS);
+            return;
+        }
+        Ship ship = marker.getAssociatedShip();
+        if (!ship.isDestroyed()) {
+            stateHash ^= cellKey(x, y, BoardKnowledge.HIT);
+            return;
+        }
+        Position first = ship.getGridPosition();
+        for (int i = 0; i < ship.getSegments(); i++) {
+            int cellX = ship.isSideways() ? first.x + i : first.x;
+            int cellY = ship.isSideways() ? first.y : first.y + i;
+            if (cellX != x || cellY != y) {
+                stateHash ^= cellKey(cellX, cellY, BoardKnowledge.HIT);
+            }
+            stateHash ^= cellKey(cellX, cellY, BoardKnowledge.SUNK);
+        }
+        stateHash ^= SUNK_SHIP_KEYS[ship.getSegments()][sunkBySize[ship.getSegments()]++];
+    }
+    /**
+     * Works out the state hash again from the markers, for changes that do not go through markPosition().
+     */
+    private void recomputeStateHash() {
+        stateHash = 0;
+        Arrays.fill(sunkBySize, 0);
+        for (int x = 1; x < GRID_WIDTH; x++) {
+            for (int y = 1; y < GRID_HEIGHT; y++) {
+                Marker marker = markers[x][y];
+                if (!marker.isMarked()) continue;
+                if (!marker.isShip()) {
+                    stateHash ^= cellKey(x, y, BoardKnowledge.MISS);
+                } else if (!marker.getAssociatedShip().isDestroyed()) {
+                    stateHash ^= cellKey(x, y, BoardKnowledge.HIT);
+                } else {
+                    stateHash ^= cellKey(x, y, BoardKnowledge.SUNK);
+                    Ship ship = marker.getAssociatedShip();
+                    if (ship.getGridPosition().x == x && ship.getGridPosition().y == y) { // Count every ship once, at its first cell
+                        stateHash ^= SUNK_SHIP_KEYS[ship.getSegments()][sunkBySize[ship.getSegments()]++];
+                    }
+                }
+            }
+        }
+    }
+    /**
+     * Gets the key of a cell in a state.
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @param state One of BoardKnowledge.MISS, HIT or SUNK.
+     * @return The key.
+     */
+    private static long cellKey(int x, int y, byte state) {
+        return CELL_KEYS[BoardKnowledge.indexOf(x, y) * 4 + state];
+    }
+    /**
+     * Gets a 64 bit hash of everything the attacker can see on this grid: which cells were attacked,
+     * which of those hit, which ships are sunk and their sizes. It is kept up to date on every shot,
+     * so reading it is free, and grids that look the same to an AI have the same hash.
+     * @return The Zobrist hash of the visible state, 0 for a grid that has not been attacked.
+     */
+    public long getStateHash() {
+        return stateHash;
+    }
     /**
      * Checks if all ships on the grid are destroyed.
      * @return True if all ships are destroyed, false otherwise.
@@ -239,6 +393,15 @@ public class SelectionGrid extends Rectangle {
     public Marker getMarkerAtPosition(Position posToSelect) {
         return markers[posToSelect.x][posToSelect.y];
     }
+    /**
+     * Retrieves the marker at the specified grid coordinate without creating a Position.
+     * @param x The x-coordinate in the grid.
+     * @param y The y-coordinate in the grid.
+     * @return The marker object at the specified coordinate.
+     */
+    public Marker getMarkerAt(int x, int y) {
+        return markers[x][y];
+    }
     /**
      * Determines the grid position based on mouse coordinates.
      * @param mouseX The x-coordinate of the mouse.
@@ -262,12 +425,12 @@ public class SelectionGrid extends Rectangle {
         if (sideways) { // handle the case when horizontal
             if (gridY > GRID_HEIGHT || gridX + segments > GRID_WIDTH) return false;
             for (int x = 0; x < segments; x++) {
-                if (markers[gridX + x][gridY].isShip() || isTreasureAtPosition(new Position(gridX + x, gridY))) return false;
+                if (markers[gridX + x][gridY].isShip() || isTreasureAt(gridX + x, gridY)) return false;
             }
         } else { // handle the case when vertical
             if (gridY + segments > GRID_HEIGHT || gridX > GRID_WIDTH) return false;
             for (int y = 0; y < segments; y++) {
-                if (markers[gridX][gridY + y].isShip() || isTreasureAtPosition(new Position(gridX, gridY + y))) return false;
+                if (markers[gridX][gridY + y].isShip() || isTreasureAt(gridX, gridY + y)) return false;
             }
         }
         return true;
@@ -286,9 +449,12 @@ public class SelectionGrid extends Rectangle {
         float thickness = 2.0f; // Thicker grid lines
         g2d.setStroke(new BasicStroke(thickness));
 
-        g2d.setFont(VT323);
+        if (labelFont == null) {
+            labelFont = AssetCache.getFont("VT323-Regular.ttf", 40f, new Font("Serif", Font.BOLD, 16)); // Fallback font in case of error
+        }
+        g2d.setFont(labelFont);
         // Get font metrics for centering text
-        FontMetrics metrics = g2d.getFontMetrics(VT323);
+        FontMetrics metrics = g2d.getFontMetrics(labelFont);
 
         // Draw vertical lines and letters
         for (int x = 0; x <= GRID_WIDTH; x++) {
@@ -392,8 +558,9 @@ public class SelectionGrid extends Rectangle {
         if (isComputerGrid) {
             for (Position treasure : treasures) {
                 // Check if the treasure's position is marked
-                if (markers[treasure.x][treasure.y].isMarked() || GamePanel.debugModeActive || showTreasures) {
-                    BufferedImage imgToDraw = treasureStates.get(treasure) ? opentreasureImage : closedtreasureImage;
+                if (markers[treasure.x][treasure.y].isMarked() || context.isDebugMode() || showTreasures) {
+                    BufferedImage imgToDraw = AssetCache.getImage(treasureStates.get(treasure) ? "open.png" : "closed.png");
+                    if (imgToDraw == null) continue;
 
                     int x = position.x + treasure.x * CELL_SIZE;
                     int y = position.y + treasure.y * CELL_SIZE;
@@ -421,4 +588,164 @@ public class SelectionGrid extends Rectangle {
             treasureStates.put(pos, true);
         }
     }
+    /**
+     * Marks the result of a shot on a grid that only mirrors the other player's grid in a network game,
+     * where the ships are not known. A hit is shown by giving the marker a one segment stand-in ship
+     * that is not part of the fleet, until the real ship is known from placeSunkShip().
+     * @param pos The position that was attacked.
+     * @param hit True if the other player reported a hit.
+     */
+    public void markRemoteShot(Position pos, boolean hit) {
+        Marker marker = markers[pos.x][pos.y];
+        if (hit && !marker.isShip()) {
+            marker.setAsShip(new Ship(new Position(pos), new Position(position.x + pos.x * CELL_SIZE, position.y + pos.y * CELL_SIZE), 1, false));
+        }
+        marker.mark();
+        recomputeStateHash();
+    }
+    /**
+     * Adds a ship that the other player reported as sunk to a mirrored grid, replacing the stand-in
+     * ships of its cells, so it is drawn as destroyed.
+     * @param gridX The x-coordinate in the grid.
+     * @param gridY The y-coordinate in the grid.
+     * @param segments The number of segments the ship occupies.
+     * @param sideways Boolean indicating if the ship is placed sideways.
+     * @return The sunk ship.
+     */
+    public Ship placeSunkShip(int gridX, int gridY, int segments, boolean sideways) {
+        placeShip(gridX, gridY, segments, sideways);
+        Ship ship = ships.get(ships.size() - 1);
+        for (int i = 0; i < segments; i++) {
+            ship.destroySection();
+        }
+        recomputeStateHash();
+        return ship;
+    }
+    /**
+     * Creates a hash of which cells have been attacked and which of those were hits.
+     * Both players of a network game compute it for the same grid, one from the real grid and one
+     * from the mirror, so different hashes show that the games no longer agree.
+     * @return A 32 bit FNV-1a hash of the attacked cells.
+     */
+    public int attackHash() {
+        int hash = 0x811C9DC5;
+        for (int x = 1; x < GRID_WIDTH; x++) {
+            for (int y = 1; y < GRID_HEIGHT; y++) {
+                Marker marker = markers[x][y];
+                int state = !marker.isMarked() ? 0 : marker.isShip() ? 2 : 1;
+                hash = (hash ^ state) * 0x01000193;
+            }
+        }
+        return hash;
+    }
+    /**
+     * Writes the ships, the attacked cells and the treasures of this grid for a GameSnapshot.
+     * Ship damage is not written because it follows from the attacked cells.
+     * @param writer The writer to add the state to.
+     */
+    public void writeState(BitWriter writer) {
+        int cellBits = GameRecordCodec.cellBits(GRID_WIDTH, GRID_HEIGHT);
+        writer.writeBits(ships.size(), 4);
+        for (Ship ship : ships) {
+            Position shipPosition = ship.getGridPosition();
+            writer.writeBits(shipPosition.x * GRID_HEIGHT + shipPosition.y, cellBits);
+            writer.writeBits(ship.getSegments(), 4);
+            writer.writeBit(ship.isSideways());
+        }
+        for (int x = 0; x < GRID_WIDTH; x++) {
+            for (int y = 0; y < GRID_HEIGHT; y++) {
+                writer.writeBit(markers[x][y].isMarked());
+            }
+        }
+        writer.writeBits(treasures.size(), 4);
+        for (Position treasure : treasures) {
+            writer.writeBits(treasure.x * GRID_HEIGHT + treasure.y, cellBits);
+            writer.writeBit(treasureStates.get(treasure));
+        }
+    }
+    /**
+     * Replaces the state of this grid with one written by writeState().
+     * The ships are placed and the cells are marked directly, so no shots are fired again.
+     * @param reader The reader to take the state from.
+     * @throws IOException If the state is damaged or does not fit on the grid.
+     */
+    public void readState(BitReader reader) throws IOException {
+        int cellBits = GameRecordCodec.cellBits(GRID_WIDTH, GRID_HEIGHT);
+        reset();
+        int shipCount = reader.readBits(4);
+        int[] shipData = new int[shipCount * 3];
+        for (int i = 0; i < shipCount; i++) {
+            shipData[i * 3] = readCell(reader, cellBits);
+            shipData[i * 3 + 1] = reader.readBits(4);
+            shipData[i * 3 + 2] = reader.readBit() ? 1 : 0;
+        }
+        boolean[] marked = new boolean[GRID_WIDTH * GRID_HEIGHT];
+        for (int i = 0; i < marked.length; i++) {
+            marked[i] = reader.readBit();
+        }
+        int treasureCount = reader.readBits(4);
+        List<Position> newTreasures = new ArrayList<>();
+        boolean[] opened = new boolean[treasureCount];
+        for (int i = 0; i < treasureCount; i++) {
+            int cell = readCell(reader, cellBits);
+            newTreasures.add(new Position(cell / GRID_HEIGHT, cell % GRID_HEIGHT));
+            opened[i] = reader.readBit();
+        }
+
+        // Treasures first, because ships cannot be placed on them
+        setTreasures(newTreasures);
+        for (int i = 0; i < treasureCount; i++) {
+            if (opened[i]) markTreasureAsOpened(newTreasures.get(i));
+        }
+        for (int i = 0; i < shipCount; i++) {
+            int gridX = shipData[i * 3] / GRID_HEIGHT;
+            int gridY = shipData[i * 3] % GRID_HEIGHT;
+            int segments = shipData[i * 3 + 1];
+            boolean sideways = shipData[i * 3 + 2] != 0;
+            if (segments < 1 || !canPlaceShipAt(gridX, gridY, segments, sideways)) {
+                throw new IOException("Saved ship does not fit at " + gridX + ", " + gridY);
+            }
+            placeShip(gridX, gridY, segments, sideways);
+        }
+        for (int i = 0; i < marked.length; i++) {
+            if (marked[i]) markers[i / GRID_HEIGHT][i % GRID_HEIGHT].mark(); // Also restores the damage to the ships
+        }
+        finishRestore();
+    }
+    /**
+     * Marks a cell as attacked while restoring a BoardSnapshot, opening the treasure there if
+     * there is one. Call finishRestore() after the last cell.
+     * @param x The x-coordinate in the grid.
+     * @param y The y-coordinate in the grid.
+     */
+    void restoreShot(int x, int y) {
+        markers[x][y].mark(); // Also restores the damage to the ships
+        markTreasureAsOpened(new Position(x, y));
+    }
+    /**
+     * Works out what follows from the marked cells once they have been restored directly:
+     * the state hash and whether all ships are destroyed.
+     */
+    void finishRestore() {
+        recomputeStateHash();
+        allShipsDestroyed = !ships.isEmpty();
+        for (Ship ship : ships) {
+            if (!ship.isDestroyed()) {
+                allShipsDestroyed = false;
+                break;
+            }
+        }
+    }
+    /**
+     * Reads a cell index and checks that it is on the grid.
+     * @param reader The reader to take the cell from.
+     * @param cellBits The number of bits of a cell index.
+     * @return The cell index, x * GRID_HEIGHT + y.
+     * @throws IOException If the cell is outside the grid.
+     */
+    static int readCell(BitReader reader, int cellBits) throws IOException {
+        int cell = reader.readBits(cellBits);
+        if (cell >= GRID_WIDTH * GRID_HEIGHT) throw new IOException("Cell " + cell + " is outside the grid");
+        return cell;
+    }
 }
\ No newline at end of file
@@ -2,9 +2,6 @@ import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import javax.imageio.ImageIO;
-import java.io.File;
 import java.awt.geom.AffineTransform;
 import java.awt.image.LookupOp;
 import java.awt.image.ShortLookupTable;
@@ -17,14 +14,6 @@ import java.awt.image.ShortLookupTable;
  * set the colour.
  */
 public class Ship {
-    /**
-     * Image of the ships.
-     */
-    private BufferedImage shipImage;
-    /**
-     * Image of the ship with red filter (sunk).
-     */
-    private BufferedImage shipImageRed;
     /**
      * The position in grid coordinates for where the ship is located.
      */
@@ -58,30 +47,24 @@ public class Ship {
         this.segments = segments;
         this.isSideways = isSideways;
         destroyedSections = 0;
-        initializeImages();
     }
     /**
-     * Initializes the ship images based on the number of segments and orientation.
-     * Constructs the ship image path based on the number of segments and orientation,
-     * then reads the ship image from the file and applies a red color filter.
-     */
-    private void initializeImages() {
-        String imagePath = "ship" + segments + (isSideways ? "h" : "v") + ".png";
-        try {
-            shipImage = ImageIO.read(new File(imagePath));
-            shipImageRed = applyRedColorFilter(shipImage);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+     * Gets the file path of the ship image based on the number of segments and orientation.
+     * @return The file path of the image for this ship.
+     */
+    private String getImagePath() {
+        return "ship" + segments + (isSideways ? "h" : "v") + ".png";
     }
     /**
      * Paints the ship image on the graphics context based on its state.
      * Determines the image to draw based on whether the ship is destroyed or not
      * and then draws the respective ship image on the graphics context.
+     * The images are shared between all ships and only loaded the first time they are drawn.
      * @param g The Graphics object to paint on.
      */
     public void paint (Graphics g) {
-        BufferedImage imgToDraw = isDestroyed() ? shipImageRed : shipImage;
+        BufferedImage imgToDraw = isDestroyed() ? AssetCache.getRedImage(getImagePath()) : AssetCache.getImage(getImagePath());
+        if (imgToDraw == null) return;
         drawImage (g, imgToDraw);
     }
     /**
@@ -124,7 +107,6 @@ public class Ship {
      */
     public void toggleSideways() {
         isSideways = !isSideways;
-        initializeImages(); // Change the image path to call the opposite direction of the current ship
     }
     /**
      * Call when a section has been destroyed to let the ship keep track of how many sections have been destroyed.
@@ -148,6 +130,13 @@ public class Ship {
         this.drawPosition = drawPosition;
         this.gridPosition = gridPosition;
     }
+    /**
+     * Gets the position in grid coordinates of the first segment of the ship.
+     * @return The grid position of the ship.
+     */
+    public Position getGridPosition() {
+        return gridPosition;
+    }
     /**
      * Gets the current direction of the ship.
      * @return True if the ship is currently horizontal, or false if vertical.
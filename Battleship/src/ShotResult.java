@@ -0,0 +1,90 @@
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: ShotResult.
+ * Describes what happened when one side fired at the other side's grid.
+ */
+public class ShotResult {
+    /**
+     * The side that fired, GameEvent.PLAYER or GameEvent.COMPUTER.
+     */
+    private final int side;
+    /**
+     * The grid position that was attacked.
+     */
+    private final Position position;
+    /**
+     * True if the shot hit a ship or a treasure.
+     */
+    private final boolean hit;
+    /**
+     * True if the shot found a treasure.
+     */
+    private final boolean treasure;
+    /**
+     * The ship that sank because of this shot, or null.
+     */
+    private final Ship sunkShip;
+    /**
+     * True if the shot destroyed the last ship and ended the game.
+     */
+    private final boolean gameOver;
+    /**
+     * Creates the result of a shot.
+     * @param side The side that fired.
+     * @param position The grid position that was attacked.
+     * @param hit True if the shot hit a ship or a treasure.
+     * @param treasure True if the shot found a treasure.
+     * @param sunkShip The ship that sank because of this shot, or null.
+     * @param gameOver True if the shot ended the game.
+     */
+    public ShotResult(int side, Position position, boolean hit, boolean treasure, Ship sunkShip, boolean gameOver) {
+        this.side = side;
+        this.position = position;
+        this.hit = hit;
+        this.treasure = treasure;
+        this.sunkShip = sunkShip;
+        this.gameOver = gameOver;
+    }
+    /**
+     * Gets the side that fired.
+     * @return GameEvent.PLAYER or GameEvent.COMPUTER.
+     */
+    public int getSide() {
+        return side;
+    }
+    /**
+     * Gets the grid position that was attacked.
+     * @return The attacked position.
+     */
+    public Position getPosition() {
+        return position;
+    }
+    /**
+     * Gets if the shot hit a ship or a treasure.
+     * @return True if it was a hit.
+     */
+    public boolean isHit() {
+        return hit;
+    }
+    /**
+     * Gets if the shot found a treasure.
+     * @return True if a treasure was found.
+     */
+    public boolean isTreasure() {
+        return treasure;
+    }
+    /**
+     * Gets the ship that sank because of this shot.
+     * @return The sunk ship, or null if no ship sank.
+     */
+    public Ship getSunkShip() {
+        return sunkShip;
+    }
+    /**
+     * Gets if the shot ended the game.
+     * @return True if the shot destroyed the last ship.
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
@@ -14,7 +14,7 @@ public class SimpleRandomAI extends BattleshipAI{
      */
     public SimpleRandomAI(SelectionGrid playerGrid) {
         super(playerGrid);
-        Collections.shuffle(validMoves);
+        Collections.shuffle(validMoves, rand);
     }
     /**
      * Resets the AI by resetting the parent class, and then
@@ -23,7 +23,7 @@ public class SimpleRandomAI extends BattleshipAI{
     @Override
     public void reset() {
         super.reset();
-        Collections.shuffle(validMoves);
+        Collections.shuffle(validMoves, rand);
     }
     /**
      * Takes the move from the top of the list and returns it.
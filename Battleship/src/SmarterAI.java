@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -13,10 +14,6 @@ public class SmarterAI extends BattleshipAI {
      * A list of positions where ships were hit, that are not yet destroyed.
      */
     private List<Position> shipHits;
-    /**
-     * Set to true to show debug output about what the AI is doing.
-     */
-    private final boolean debugAI = false;
     /**
      * When true the adjacent moves are evaluated for forming a line with existing ship positions.
      * When false the move is selected at random from valid adjacent moves.
@@ -40,7 +37,7 @@ public class SmarterAI extends BattleshipAI {
         shipHits = new ArrayList<>();
         this.preferMovesFormingLine = preferMovesFormingLine;
         this.maximiseAdjacentRandomisation = maximiseAdjacentRandomisation;
-        Collections.shuffle(validMoves);
+        Collections.shuffle(validMoves, rand);
     }
     /**
      * Resets the ships that have been hit and randomises the move order.
@@ -49,7 +46,27 @@ public class SmarterAI extends BattleshipAI {
     public void reset() {
         super.reset();
         shipHits.clear();
-        Collections.shuffle(validMoves);
+        Collections.shuffle(validMoves, rand);
+    }
+    /**
+     * Writes the untried moves and the ship hits that are not destroyed yet.
+     * @param writer The writer to add the state to.
+     */
+    @Override
+    public void writeState(BitWriter writer) {
+        super.writeState(writer);
+        writePositions(writer, shipHits);
+    }
+    /**
+     * Replaces the untried moves and the ship hits with a state written by writeState().
+     * @param reader The reader to take the state from.
+     * @throws IOException If the state is damaged.
+     */
+    @Override
+    public void readState(BitReader reader) throws IOException {
+        super.readState(reader);
+        shipHits.clear();
+        readPositions(reader, shipHits);
     }
     /**
      * An algorithm to selects an appropriate move depending on whether any ships were currently hit and not yet destroyed.
@@ -59,8 +76,8 @@ public class SmarterAI extends BattleshipAI {
      */
     @Override
     public Position selectMove() {
-        if (debugAI) {
-            System.out.println("\nBEGIN TURN===========");
+        if (isTracing()) {
+            AI_LOG.trace("SmarterAI begins its turn");
         }
 
         Position selectedMove;
@@ -85,9 +102,8 @@ public class SmarterAI extends BattleshipAI {
         updateShipHits(selectedMove);
         validMoves.remove(selectedMove);
 
-        if (debugAI) {
-            System.out.println("Selected Move: " + selectedMove);
-            System.out.println("END TURN===========");
+        if (isTracing()) {
+            AI_LOG.trace("SmarterAI selected {}", new Position(selectedMove));
         }
 
         return selectedMove;
@@ -99,7 +115,7 @@ public class SmarterAI extends BattleshipAI {
      */
     private Position getSmartAttack() {
         List<Position> suggestedMoves = getAdjacentSmartMoves();
-        Collections.shuffle(suggestedMoves);
+        Collections.shuffle(suggestedMoves, rand);
         return  suggestedMoves.get(0);
     }
     /**
@@ -117,7 +133,7 @@ public class SmarterAI extends BattleshipAI {
             if(atLeastTwoHitsInDirection(possibleOptimalMove,Position.UP)) return possibleOptimalMove;
         }
         // No optimal choice found, just randomise the move.
-        Collections.shuffle(suggestedMoves);
+        Collections.shuffle(suggestedMoves, rand);
         return  suggestedMoves.get(0);
     }
     /**
@@ -165,7 +181,7 @@ public class SmarterAI extends BattleshipAI {
         if(!shipHits.contains(testPosition)) return false;
         testPosition.add(direction);
         if(!shipHits.contains(testPosition)) return false;
-        if(debugAI) System.out.println("Smarter match found AT: " + start + " TO: " + testPosition);
+        if(isTracing()) AI_LOG.trace("Smarter match found at {} to {}", new Position(start), testPosition);
         return true;
     }
     /**
@@ -183,27 +199,20 @@ public class SmarterAI extends BattleshipAI {
                 }
             }
         }
-        if(debugAI) {
-            printPositionList("Ship Hits: ", shipHits);
-            printPositionList("Adjacent Smart Moves: ", result);
+        if(isTracing()) {
+            tracePositionList("Ship hits:", shipHits);
+            tracePositionList("Adjacent smart moves:", result);
         }
         return result;
     }
     /**
-     * Debug method to print a list of Positions.
+     * Debug method to trace a list of Positions. The list is copied because the AI keeps
+     * changing it, and it is only turned into text by the logger thread.
      * @param messagePrefix Debug message to show before the data.
      * @param data A list of elements to show in the form [,,,]
      */
-    private void printPositionList(String messagePrefix, List<Position> data) {
-        String result = "[";
-        for(int i = 0; i < data.size(); i++) {
-            result += data.get(i);
-            if(i != data.size()-1) {
-                result += ", ";
-            }
-        }
-        result += "]";
-        System.out.println(messagePrefix + " " + result);
+    private void tracePositionList(String messagePrefix, List<Position> data) {
+        AI_LOG.trace("{} {}", messagePrefix, new ArrayList<>(data));
     }
     /**
      * Creates a list of all adjacent cells around the position excluding any that
@@ -247,7 +256,7 @@ public class SmarterAI extends BattleshipAI {
             shipHits.add(testPosition);
             // Check to find if this was the last place to hit on the targeted ship
             List<Position> allPositionsOfLastShip = marker.getAssociatedShip().getOccupiedCoordinates();
-            if(debugAI) printPositionList("Last Ship", allPositionsOfLastShip);
+            if(isTracing()) tracePositionList("Last ship:", allPositionsOfLastShip);
             boolean hitAllOfShip = containsAllPositions(allPositionsOfLastShip, shipHits);
             // If it was remove the ship data from history to now ignore it
             if(hitAllOfShip) {
@@ -255,7 +264,7 @@ public class SmarterAI extends BattleshipAI {
                     for(int i = 0; i < shipHits.size(); i++) {
                         if(shipHits.get(i).equals(shipPosition)) {
                             shipHits.remove(i);
-                            if(debugAI) System.out.println("Removed " + shipPosition);
+                            if(isTracing()) AI_LOG.trace("Removed {}", shipPosition);
                             break;
                         }
                     }
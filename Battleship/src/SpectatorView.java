@@ -0,0 +1,208 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Flow;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: SpectatorView.
+ * A read-only view of a game being played, fed by a MatchFeed. The view keeps its own two grids
+ * and rebuilds them from the events, so it never touches the grids of the match it is watching.
+ * Batches are applied on the Swing thread and the next batch is only requested after that, so a
+ * busy window falls behind and catches up with a snapshot instead of queuing work.
+ */
+public class SpectatorView extends JPanel implements Flow.Subscriber<MatchFeed.Batch> {
+    /**
+     * Version of the serialized form of the panel.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Logger for feeds that fail.
+     */
+    private static final GameLog LOG = GameLog.getLogger("SpectatorView");
+    /**
+     * Font of the message shown when the feed fails.
+     */
+    private static final Font ERROR_FONT = new Font("Monospaced", Font.BOLD, 18);
+    /**
+     * The computer's grid as the spectator sees it.
+     */
+    private final SelectionGrid computer;
+    /**
+     * The player's grid as the spectator sees it.
+     */
+    private final SelectionGrid player;
+    /**
+     * The treasures of the game being watched.
+     */
+    private final List<Position> treasures = new ArrayList<>();
+    /**
+     * The subscription to the feed, or null before it starts.
+     */
+    private volatile Flow.Subscription subscription;
+    /**
+     * The message shown over the grids after the feed failed, or null. Only used on the Swing thread.
+     */
+    private String error;
+    /**
+     * Creates an empty view, it shows a game once it is subscribed to a feed.
+     */
+    public SpectatorView() {
+        int gap = 60;
+        computer = new SelectionGrid(0, 0, true);
+        player = new SelectionGrid(computer.getWidth() + gap, 0, false);
+        clearGrids();
+        setBackground(Color.BLACK);
+        setPreferredSize(new Dimension(computer.getWidth() + player.getWidth() + gap, computer.getHeight()));
+    }
+    /**
+     * Opens a window watching a feed. Closing the window ends the subscription.
+     * @param feed The feed of the game to watch.
+     * @return The window.
+     */
+    public static JFrame open(MatchFeed feed) {
+        SpectatorView view = new SpectatorView();
+        JFrame frame = new JFrame("BATTLE SHIP - Spectator");
+        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.getContentPane().add(view);
+        frame.pack();
+        frame.setResizable(false);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                view.cancel();
+            }
+        });
+        frame.setVisible(true);
+        feed.subscribe(view, MatchFeed.DEFAULT_CAPACITY, MatchFeed.OverflowPolicy.CONFLATE);
+        return frame;
+    }
+    /**
+     * Draws both grids.
+     * @param g Reference to the Graphics object for drawing.
+     */
+    public void paint(Graphics g) {
+        super.paint(g);
+        computer.paint(g);
+        player.paint(g);
+        if (error != null) {
+            g.setFont(ERROR_FONT);
+            FontMetrics metrics = g.getFontMetrics();
+            int width = metrics.stringWidth(error);
+            int y = getHeight() / 2;
+            g.setColor(Color.BLACK);
+            g.fillRect((getWidth() - width) / 2 - 10, y - metrics.getAscent() - 10, width + 20, metrics.getHeight() + 20);
+            g.setColor(Color.RED);
+            g.drawString(error, (getWidth() - width) / 2, y);
+        }
+    }
+    /**
+     * Starts the subscription by asking for the first batch.
+     * @param subscription The subscription to the feed.
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+    /**
+     * Applies a batch on the Swing thread and asks for the next one when done.
+     * @param batch The events.
+     */
+    @Override
+    public void onNext(MatchFeed.Batch batch) {
+        SwingUtilities.invokeLater(() -> {
+            apply(batch);
+            repaint();
+            Flow.Subscription current = subscription;
+            if (current != null) current.request(1);
+        });
+    }
+    /**
+     * Logs a failed feed and shows the error over the grids, which keep showing the last state.
+     * @param throwable The error.
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        LOG.error("Spectator feed failed", throwable);
+        subscription = null;
+        String message = throwable.getMessage() != null ? throwable.getMessage() : throwable.getClass().getSimpleName();
+        SwingUtilities.invokeLater(() -> {
+            error = "FEED FAILED: " + message.toUpperCase();
+            repaint();
+        });
+    }
+    /**
+     * Called when the feed closes, the view keeps showing the last state.
+     */
+    @Override
+    public void onComplete() {
+        subscription = null;
+    }
+    /**
+     * Stops watching the feed.
+     */
+    public void cancel() {
+        Flow.Subscription current = subscription;
+        subscription = null;
+        if (current != null) current.cancel();
+    }
+    /**
+     * Updates the grids with a batch of events.
+     * @param batch The events.
+     */
+    private void apply(MatchFeed.Batch batch) {
+        if (batch.isSnapshot()) {
+            clearGrids();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            applyEvent(batch.get(i));
+        }
+    }
+    /**
+     * Updates the grids with one event. Shots are shown by their RESULT, the other events
+     * do not change what the spectator sees.
+     * @param event The packed event.
+     */
+    private void applyEvent(int event) {
+        int x = GameEvent.x(event);
+        int y = GameEvent.y(event);
+        boolean byPlayer = GameEvent.side(event) == GameEvent.PLAYER;
+        switch (GameEvent.type(event)) {
+            case GameEvent.TREASURE:
+                treasures.add(new Position(x, y));
+                computer.setTreasures(treasures);
+                break;
+            case GameEvent.PLACE:
+                SelectionGrid owner = byPlayer ? player : computer;
+                if (owner.canPlaceShipAt(x, y, GameEvent.segments(event), GameEvent.sideways(event))) {
+                    owner.placeShip(x, y, GameEvent.segments(event), GameEvent.sideways(event));
+                }
+                break;
+            case GameEvent.RESULT:
+                SelectionGrid target = byPlayer ? computer : player;
+                Position position = new Position(x, y);
+                target.markPosition(position, byPlayer);
+                if ((GameEvent.arg(event) & GameEvent.TREASURE_FLAG) != 0) {
+                    target.markTreasureAsOpened(position);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+    /**
+     * Empties both grids before a new game or a snapshot.
+     */
+    private void clearGrids() {
+        treasures.clear();
+        computer.reset();
+        computer.setTreasures(Collections.emptyList());
+        player.reset();
+        computer.setShowShips(true);
+        player.setShowShips(true);
+    }
+}
@@ -11,6 +11,10 @@ import java.io.IOException;
  * additional methods to set the messages to custom values.
  */
 public class StatusPanel extends Rectangle{
+    /**
+     * Logger for a font that could not be loaded.
+     */
+    private static final GameLog LOG = GameLog.getLogger("StatusPanel");
     /**
      * String to count the score of player.
      */
@@ -19,6 +23,10 @@ public class StatusPanel extends Rectangle{
      * String to count the score of computer.
      */
     private String compHitCount = "COMPUTER HITS: 0";
+    /**
+     * String to show the player's chance of winning, empty when there is no estimate.
+     */
+    private String winChance = "";
     /**
      * The font to use for drawing both of the messages.
      */
@@ -76,6 +84,13 @@ public class StatusPanel extends Rectangle{
     public void setCompHitCount(int hits) {
         compHitCount = "COMPUTER HITS: " + hits; // Update the hit count
     }
+    /**
+     * Sets the player's chance of winning shown between the hit counts.
+     * @param chance The chance from 0 to 1, or a negative value to hide it.
+     */
+    public void setWinChance(double chance) {
+        winChance = chance < 0 ? "" : "WIN CHANCE: " + Math.round(chance * 100) + "%";
+    }
     /**
      * Resets the message back to the default for ship placement.
      */
@@ -112,7 +127,8 @@ public class StatusPanel extends Rectangle{
     /**
      * Draws a black background with black text centred over two lines using
      * the top line and bottom line messages.
-     * Draws the score of player and computer right under each grid.
+     * Draws the score of player and computer right under each grid, and the player's chance
+     * of winning between them.
      * @param g Reference to the Graphics object for rendering.
      */
     public void paint(Graphics g) {
@@ -121,7 +137,7 @@ public class StatusPanel extends Rectangle{
             GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
             ge.registerFont(audiowide);
         } catch (IOException | FontFormatException e) {
-            e.printStackTrace();
+            LOG.error("Could not load font {}", "Audiowide-Regular.ttf", e);
             audiowide = new Font("Serif", Font.BOLD, 25);
         }
         g.setColor(Color.BLACK);
@@ -135,5 +151,7 @@ public class StatusPanel extends Rectangle{
         g.setColor(Color.RED);
         g.drawString(playerHitCount, position.x + 800, position.y + height - 20);
         g.drawString(compHitCount, position.x + 115, position.y + height - 20);
+        strWidth = g.getFontMetrics().stringWidth(winChance);
+        g.drawString(winChance, position.x+width/2-strWidth/2, position.y + height - 20);
     }
 }
@@ -0,0 +1,317 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: Tournament.
+ * Plays AIs against each other without a window to compare them before a release.
+ * Every round draws two random fleets with SelectionGrid.populateShips() and every AI attacks
+ * both of them, so all AIs face exactly the same fleets. The shots each AI needed give the
+ * shots-to-win distribution, and the head-to-head result of two AIs in a round is decided by who
+ * sinks the other's fleet in fewer shots, the first mover changing every round. AIs only see the
+ * grid they attack, so this is the same as playing the game shot by shot. Treasures are left out.
+ * Rounds are split across all cores with fork/join, and the fleets of every round come from the
+ * seed, so a tournament can be repeated exactly.
+ * Run it with: java Tournament [rounds] [seed] [AI names...]
+ */
+public class Tournament {
+    /**
+     * Rounds played by one fork/join task before it stops splitting.
+     */
+    private static final int ROUNDS_PER_TASK = 256;
+    /**
+     * Most shots a game can take, one for every playable cell.
+     */
+    private static final int MAX_SHOTS = (SelectionGrid.GRID_WIDTH - 1) * (SelectionGrid.GRID_HEIGHT - 1);
+    /**
+     * The AIs that can take part, by name.
+     */
+    private static final Map<String, Function<SelectionGrid, BattleshipAI>> ENTRANTS = new LinkedHashMap<>();
+    static {
+        ENTRANTS.put("EASY", SimpleRandomAI::new);
+        ENTRANTS.put("SMARTER", grid -> new SmarterAI(grid, false, false));
+        ENTRANTS.put("MEDIUM", grid -> new SmarterAI(grid, false, true));
+        ENTRANTS.put("LINES", grid -> new SmarterAI(grid, true, false));
+        ENTRANTS.put("HARD", grid -> new SmarterAI(grid, true, true));
+        ENTRANTS.put("DENSITY", grid -> new AnytimeAI(grid, 0, 0)); // Placement counting without sampling
+        ENTRANTS.put("EXPERT", grid -> BattleshipAI.forDifficulty(Game.GameDifficulty.EXPERT, grid));
+        ENTRANTS.put("MASTER", grid -> BattleshipAI.forDifficulty(Game.GameDifficulty.MASTER, grid));
+    }
+    /**
+     * AIs that play when none are named, the ones fast enough for large tournaments.
+     */
+    private static final String[] DEFAULT_ENTRANTS = {"EASY", "SMARTER", "MEDIUM", "LINES", "HARD", "DENSITY"};
+    /**
+     * The results of some rounds for every AI.
+     */
+    public static class Results {
+        /**
+         * For each AI, the number of games it needed that many shots for.
+         */
+        private final long[][] shotCounts;
+        /**
+         * Number of head-to-head games the AI of the row won against the AI of the column.
+         */
+        private final long[][] wins;
+        /**
+         * Creates empty results.
+         * @param entrants Number of AIs.
+         */
+        Results(int entrants) {
+            shotCounts = new long[entrants][MAX_SHOTS + 1];
+            wins = new long[entrants][entrants];
+        }
+        /**
+         * Adds the results of other rounds to these.
+         * @param other The other results.
+         */
+        void add(Results other) {
+            for (int i = 0; i < shotCounts.length; i++) {
+                for (int s = 0; s <= MAX_SHOTS; s++) {
+                    shotCounts[i][s] += other.shotCounts[i][s];
+                }
+                for (int j = 0; j < wins.length; j++) {
+                    wins[i][j] += other.wins[i][j];
+                }
+            }
+        }
+        /**
+         * Gets the number of games an AI played.
+         * @param entrant Index of the AI.
+         * @return The number of games.
+         */
+        public long getGames(int entrant) {
+            long games = 0;
+            for (long count : shotCounts[entrant]) {
+                games += count;
+            }
+            return games;
+        }
+        /**
+         * Gets the mean number of shots an AI needed to sink a fleet.
+         * @param entrant Index of the AI.
+         * @return The mean.
+         */
+        public double getMean(int entrant) {
+            double total = 0;
+            for (int s = 0; s <= MAX_SHOTS; s++) {
+                total += (double) s * shotCounts[entrant][s];
+            }
+            return total / getGames(entrant);
+        }
+        /**
+         * Gets the standard deviation of the shots an AI needed to sink a fleet.
+         * @param entrant Index of the AI.
+         * @return The standard deviation.
+         */
+        public double getStdDev(int entrant) {
+            double mean = getMean(entrant);
+            double total = 0;
+            for (int s = 0; s <= MAX_SHOTS; s++) {
+                total += (s - mean) * (s - mean) * shotCounts[entrant][s];
+            }
+            return Math.sqrt(total / getGames(entrant));
+        }
+        /**
+         * Gets a percentile of the shots an AI needed to sink a fleet.
+         * @param entrant Index of the AI.
+         * @param percentile The percentile, from 0 to 100.
+         * @return The smallest number of shots that at least that percentage of games needed no more than.
+         */
+        public int getPercentile(int entrant, double percentile) {
+            long target = (long) Math.ceil(getGames(entrant) * percentile / 100.0);
+            long seen = 0;
+            for (int s = 0; s <= MAX_SHOTS; s++) {
+                seen += shotCounts[entrant][s];
+                if (seen >= Math.max(1, target)) return s;
+            }
+            return MAX_SHOTS;
+        }
+        /**
+         * Gets the share of head-to-head games one AI won against another.
+         * @param entrant Index of the AI.
+         * @param opponent Index of the other AI.
+         * @return The win rate from 0 to 1.
+         */
+        public double getWinRate(int entrant, int opponent) {
+            long games = wins[entrant][opponent] + wins[opponent][entrant];
+            return games == 0 ? 0 : (double) wins[entrant][opponent] / games;
+        }
+    }
+    /**
+     * Plays a range of rounds, splitting it in half until it is small enough.
+     */
+    private static class RoundsTask extends RecursiveTask<Results> {
+        /**
+         * Version of the serialized form of the task.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * The AIs taking part.
+         */
+        private final List<Function<SelectionGrid, BattleshipAI>> entrants;
+        /**
+         * The seed of the tournament.
+         */
+        private final long seed;
+        /**
+         * The first round to play.
+         */
+        private final int from;
+        /**
+         * One past the last round to play.
+         */
+        private final int to;
+        /**
+         * Creates a task.
+         * @param entrants The AIs taking part.
+         * @param seed The seed of the tournament.
+         * @param from The first round to play.
+         * @param to One past the last round to play.
+         */
+        RoundsTask(List<Function<SelectionGrid, BattleshipAI>> entrants, long seed, int from, int to) {
+            this.entrants = entrants;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+        /**
+         * Plays the rounds, or splits them between two tasks.
+         * @return The results of the rounds.
+         */
+        @Override
+        protected Results compute() {
+            if (to - from > ROUNDS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                RoundsTask left = new RoundsTask(entrants, seed, from, middle);
+                left.fork();
+                Results results = new RoundsTask(entrants, seed, middle, to).compute();
+                results.add(left.join());
+                return results;
+            }
+            return playRounds();
+        }
+        /**
+         * Plays the rounds of this task. The grids and AIs are created once and reused for every round.
+         * @return The results of the rounds.
+         */
+        private Results playRounds() {
+            int count = entrants.size();
+            Results results = new Results(count);
+            GameContext context = new GameContext(seed * 31 + from);
+            SelectionGrid fleetGrid = new SelectionGrid(0, 0, false, context);
+            SelectionGrid[] targets = new SelectionGrid[count];
+            BattleshipAI[] ais = new BattleshipAI[count];
+            for (int i = 0; i < count; i++) {
+                targets[i] = new SelectionGrid(0, 0, false, context);
+                ais[i] = entrants.get(i).apply(targets[i]);
+            }
+            int[][] shots = new int[2][count];
+            for (int round = from; round < to; round++) {
+                for (int fleet = 0; fleet < 2; fleet++) {
+                    fleetGrid.reset(); // populateShips() only clears the ship list, not the markers
+                    fleetGrid.populateShips();
+                    List<Ship> ships = fleetGrid.getShips();
+                    for (int i = 0; i < count; i++) {
+                        shots[fleet][i] = playGame(ais[i], targets[i], ships);
+                        results.shotCounts[i][shots[fleet][i]]++;
+                    }
+                }
+                // Fleet 0 belongs to the first AI of each pair, so the second AI attacks it
+                boolean firstMovesFirst = (round & 1) == 0;
+                for (int a = 0; a < count; a++) {
+                    for (int b = a + 1; b < count; b++) {
+                        int shotsA = shots[1][a];
+                        int shotsB = shots[0][b];
+                        boolean aWins = shotsA < shotsB || (shotsA == shotsB && firstMovesFirst);
+                        results.wins[aWins ? a : b][aWins ? b : a]++;
+                    }
+                }
+            }
+            return results;
+        }
+        /**
+         * Lets an AI attack a fleet until every ship is sunk.
+         * @param ai The AI.
+         * @param target The grid the AI attacks.
+         * @param ships The fleet to place on the grid.
+         * @return The number of shots the AI needed.
+         */
+        private static int playGame(BattleshipAI ai, SelectionGrid target, List<Ship> ships) {
+            target.reset();
+            for (Ship ship : ships) {
+                Position position = ship.getGridPosition();
+                target.placeShip(position.x, position.y, ship.getSegments(), ship.isSideways());
+            }
+            ai.reset();
+            int shots = 0;
+            while (!target.areAllShipsDestroyed()) {
+                if (shots == MAX_SHOTS) throw new IllegalStateException(ai.getClass().getName() + " did not sink the fleet");
+                target.markPosition(ai.selectMove(), false);
+                shots++;
+            }
+            return shots;
+        }
+    }
+    /**
+     * Plays a tournament on the common fork/join pool.
+     * @param names The names of the AIs taking part, see ENTRANTS.
+     * @param rounds Number of rounds, each AI plays two games a round.
+     * @param seed The seed the fleets and AIs are drawn from.
+     * @return The results.
+     */
+    public static Results run(String[] names, int rounds, long seed) {
+        List<Function<SelectionGrid, BattleshipAI>> entrants = new ArrayList<>();
+        for (String name : names) {
+            Function<SelectionGrid, BattleshipAI> factory = ENTRANTS.get(name.toUpperCase(Locale.ROOT));
+            if (factory == null) throw new IllegalArgumentException("Unknown AI " + name + ", choose from " + ENTRANTS.keySet());
+            entrants.add(factory);
+        }
+        return ForkJoinPool.commonPool().invoke(new RoundsTask(entrants, seed, 0, rounds));
+    }
+    /**
+     * Plays a tournament and prints the statistics.
+     * @param args Optional number of rounds, seed and names of the AIs.
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        String[] names = args.length > 2 ? Arrays.copyOfRange(args, 2, args.length) : DEFAULT_ENTRANTS;
+
+        long start = System.nanoTime();
+        Results results = run(names, rounds, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long games = 0;
+        for (int i = 0; i < names.length; i++) {
+            games += results.getGames(i);
+        }
+        System.out.printf(Locale.ROOT, "%d rounds, %d games in %.2f s (%.0f games per minute) on %d threads, seed %d%n",
+                rounds, games, seconds, games / seconds * 60, ForkJoinPool.commonPool().getParallelism(), seed);
+
+        System.out.printf(Locale.ROOT, "%n%-8s %8s %7s %5s %5s %5s %5s %5s%n", "AI", "mean", "stdev", "min", "p50", "p90", "p99", "max");
+        for (int i = 0; i < names.length; i++) {
+            System.out.printf(Locale.ROOT, "%-8s %8.2f %7.2f %5d %5d %5d %5d %5d%n", names[i].toUpperCase(Locale.ROOT),
+                    results.getMean(i), results.getStdDev(i), results.getPercentile(i, 0), results.getPercentile(i, 50),
+                    results.getPercentile(i, 90), results.getPercentile(i, 99), results.getPercentile(i, 100));
+        }
+
+        System.out.printf(Locale.ROOT, "%nWin rate of the row against the column%n%-8s", "");
+        for (String name : names) {
+            System.out.printf(Locale.ROOT, " %8s", name.toUpperCase(Locale.ROOT));
+        }
+        System.out.println();
+        for (int i = 0; i < names.length; i++) {
+            System.out.printf(Locale.ROOT, "%-8s", names[i].toUpperCase(Locale.ROOT));
+            for (int j = 0; j < names.length; j++) {
+                System.out.print(i == j ? "        -" : String.format(Locale.ROOT, " %7.1f%%", results.getWinRate(i, j) * 100));
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,437 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleConsumer;
+/**
+ * DSA Project - Battleship Game - Panadol Extra.
+ * Class: WinEstimator.
+ * Works out the player's chance of winning a match by playing the rest of it out thousands of
+ * times with random choices and counting how often the player wins.
+ * Every play-out only uses what each side knows: the computer's fleet is sampled to agree with
+ * the player's hits and misses so far, and so are the treasures still hidden, while the player's
+ * fleet is known to the player. Both sides then fire until one fleet is sunk, the player like a
+ * person who shoots at random until a hit and then around it, and the computer like the AI of the
+ * match's difficulty: at random on Easy, around its hits from Medium on, and only on every other
+ * cell while hunting on Expert and Master.
+ * The play-outs are split over a fork/join pool of low priority daemon threads. They stop when
+ * the time limit runs out or when a new estimate is asked for, so the estimate never holds up
+ * the game: the match is read through its BoardSnapshots, which never change, and the result is
+ * handed to a callback on a pool thread.
+ */
+public class WinEstimator {
+    /**
+     * Number of play-outs of one estimate.
+     */
+    private static final int ROLLOUTS = 4096;
+    /**
+     * Number of play-outs below which the work is not split any further.
+     */
+    private static final int LEAF_ROLLOUTS = 128;
+    /**
+     * Time after which an estimate stops and uses the play-outs finished so far.
+     */
+    private static final long TIME_LIMIT_NANOS = 250_000_000L;
+    /**
+     * Number of tries to sample a fleet that agrees with the player's shots, for every play-out.
+     */
+    private static final int FLEET_TRIES = 32;
+    /**
+     * Number of tries to pick a cell of the checkerboard while hunting, before any cell is taken.
+     */
+    private static final int PARITY_TRIES = 8;
+    /**
+     * Number of tries to hide the treasures still to be found on empty cells, for every play-out.
+     */
+    private static final int TREASURE_TRIES = 64;
+    /**
+     * Logger for estimates that fail.
+     */
+    private static final GameLog LOG = GameLog.getLogger("WinEstimator");
+    /**
+     * The threads of every estimator, one per core, below the priority of the game's own threads.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("win-estimator-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    }, null, false);
+    /**
+     * The estimate running, or null. Guarded by this.
+     */
+    private Job current;
+    /**
+     * What one estimate needs from the match, taken when it is asked for.
+     */
+    private static final class Job {
+        /**
+         * The computer's grid. Only the attacked cells, hits and sunk ships are used, the ships are sampled.
+         */
+        final BoardSnapshot enemyBoard;
+        /**
+         * The player's grid.
+         */
+        final BoardSnapshot ownBoard;
+        /**
+         * Number of treasures not found yet.
+         */
+        final int treasuresLeft;
+        /**
+         * True if the computer fires around its hits.
+         */
+        final boolean computerTargets;
+        /**
+         * True if the computer hunts on every other cell.
+         */
+        final boolean computerParity;
+        /**
+         * System.nanoTime() at which the play-outs stop.
+         */
+        final long deadline;
+        /**
+         * True once a newer estimate was asked for or the estimate was cancelled.
+         */
+        volatile boolean cancelled;
+        /**
+         * Takes what an estimate needs from a match.
+         * @param match The match, on the thread that plays it.
+         */
+        Job(Match match) {
+            enemyBoard = match.getComputerBoard();
+            ownBoard = match.getPlayerBoard();
+            int opened = 0;
+            for (Position treasure : match.getComputerGrid().getTreasures()) {
+                if (enemyBoard.isAttacked(treasure.x, treasure.y)) opened++;
+            }
+            treasuresLeft = match.getComputerGrid().getTreasures().size() - opened;
+            computerTargets = match.getDifficulty() != Game.GameDifficulty.EASY;
+            computerParity = match.getDifficulty() == Game.GameDifficulty.EXPERT || match.getDifficulty() == Game.GameDifficulty.MASTER;
+            deadline = System.nanoTime() + TIME_LIMIT_NANOS;
+        }
+        /**
+         * Checks if the play-outs should stop.
+         * @return True if the estimate was cancelled or is out of time.
+         */
+        boolean stopped() {
+            return cancelled || System.nanoTime() - deadline > 0;
+        }
+    }
+    /**
+     * A range of play-outs, split in halves until it is small enough to play on one thread.
+     */
+    private static final class Rollouts extends RecursiveTask<int[]> {
+        /**
+         * Version of the serialized form of the task.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * The estimate the play-outs belong to.
+         */
+        private final Job job;
+        /**
+         * Number of play-outs in the range.
+         */
+        private final int count;
+        /**
+         * Creates a range of play-outs.
+         * @param job The estimate.
+         * @param count Number of play-outs.
+         */
+        Rollouts(Job job, int count) {
+            this.job = job;
+            this.count = count;
+        }
+        /**
+         * Plays the range out, or splits it and plays both halves.
+         * @return The player's wins and the number of play-outs finished.
+         */
+        @Override
+        protected int[] compute() {
+            if (count > LEAF_ROLLOUTS) {
+                Rollouts first = new Rollouts(job, count / 2);
+                first.fork();
+                int[] second = new Rollouts(job, count - count / 2).compute();
+                int[] firstResult = first.join();
+                return new int[] {firstResult[0] + second[0], firstResult[1] + second[1]};
+            }
+            Playout playout = new Playout(job);
+            Random rand = ThreadLocalRandom.current();
+            int wins = 0;
+            int played = 0;
+            for (int i = 0; i < count && !job.stopped(); i++) {
+                int result = playout.play(rand);
+                if (result >= 0) {
+                    wins += result;
+                    played++;
+                }
+            }
+            return new int[] {wins, played};
+        }
+    }
+    /**
+     * Plays the rest of a match out again and again on one thread, reusing its arrays.
+     */
+    private static final class Playout {
+        /**
+         * The estimate being worked out.
+         */
+        private final Job job;
+        /**
+         * What the player knows about the computer's grid.
+         */
+        private final BoardKnowledge knowledge = new BoardKnowledge();
+        /**
+         * Cells of the computer's ships not sunk yet in the current play-out.
+         */
+        private final boolean[] enemyShips = new boolean[BoardKnowledge.cellCount()];
+        /**
+         * Cells of the hidden treasures in the current play-out.
+         */
+        private final boolean[] enemyTreasures = new boolean[BoardKnowledge.cellCount()];
+        /**
+         * Cells of the player's ships.
+         */
+        private final boolean[] ownShips = new boolean[BoardKnowledge.cellCount()];
+        /**
+         * Number of cells of the player's ships not attacked yet.
+         */
+        private final int ownLeft;
+        /**
+         * The player firing at the computer's grid.
+         */
+        private final Shooter player = new Shooter(true, false);
+        /**
+         * The computer firing at the player's grid.
+         */
+        private final Shooter computer;
+        /**
+         * Prepares play-outs of an estimate.
+         * @param job The estimate.
+         */
+        Playout(Job job) {
+            this.job = job;
+            knowledge.readFrom(job.enemyBoard);
+            computer = new Shooter(job.computerTargets, job.computerParity);
+            int left = 0;
+            for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                    ownShips[BoardKnowledge.indexOf(x, y)] = job.ownBoard.isShipAt(x, y);
+                    if (job.ownBoard.isShipAt(x, y) && !job.ownBoard.isAttacked(x, y)) left++;
+                }
+            }
+            ownLeft = left;
+        }
+        /**
+         * Plays the rest of the match out once, the player to move first.
+         * @param rand The random generator to use.
+         * @return 1 if the player won, 0 if the computer won, or -1 if no computer fleet agreeing with the player's shots was found.
+         */
+        int play(Random rand) {
+            boolean sampled = false;
+            for (int i = 0; i < FLEET_TRIES && !sampled; i++) {
+                sampled = knowledge.sampleFleet(rand, enemyShips);
+            }
+            if (!sampled) return -1;
+
+            player.clear();
+            int enemyLeft = 0;
+            for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                    int cell = BoardKnowledge.indexOf(x, y);
+                    byte state = knowledge.getCell(x, y);
+                    if (state == BoardKnowledge.UNKNOWN) {
+                        player.addUnknown(cell);
+                        if (enemyShips[cell]) enemyLeft++;
+                    }
+                }
+            }
+            for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                    if (knowledge.getCell(x, y) == BoardKnowledge.HIT) player.hit(BoardKnowledge.indexOf(x, y));
+                }
+            }
+            Arrays.fill(enemyTreasures, false);
+            int hidden = 0;
+            for (int tries = 0; hidden < job.treasuresLeft && tries < TREASURE_TRIES; tries++) {
+                int cell = player.cells[rand.nextInt(player.count)];
+                if (!enemyShips[cell] && !enemyTreasures[cell]) {
+                    enemyTreasures[cell] = true;
+                    hidden++;
+                }
+            }
+
+            computer.clear();
+            for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                    if (!job.ownBoard.isAttacked(x, y)) computer.addUnknown(BoardKnowledge.indexOf(x, y));
+                }
+            }
+            for (int x = 1; x < SelectionGrid.GRID_WIDTH; x++) {
+                for (int y = 1; y < SelectionGrid.GRID_HEIGHT; y++) {
+                    if (job.ownBoard.isHit(x, y) && !job.ownBoard.isSunkAt(x, y)) computer.hit(BoardKnowledge.indexOf(x, y));
+                }
+            }
+
+            int ownRemaining = ownLeft;
+            if (enemyLeft == 0) return 1;
+            if (ownRemaining == 0) return 0;
+            while (true) {
+                boolean extraTurn;
+                do {
+                    int cell = player.next(rand);
+                    if (enemyShips[cell]) {
+                        player.hit(cell);
+                        if (--enemyLeft == 0) return 1;
+                    }
+                    extraTurn = enemyTreasures[cell];
+                } while (extraTurn);
+                int cell = computer.next(rand);
+                if (ownShips[cell]) {
+                    computer.hit(cell);
+                    if (--ownRemaining == 0) return 0;
+                }
+            }
+        }
+    }
+    /**
+     * One side's choice of cells in a play-out: at random among the cells it has not attacked,
+     * and around its hits first if it targets.
+     */
+    private static final class Shooter {
+        /**
+         * True if the cells around a hit are fired at first.
+         */
+        private final boolean targets;
+        /**
+         * True if hunting prefers every other cell, as no ship fits between them.
+         */
+        private final boolean parity;
+        /**
+         * The cells not attacked yet, the first count of them used.
+         */
+        final int[] cells = new int[BoardKnowledge.cellCount()];
+        /**
+         * Place of every cell in cells, or -1 if it has been attacked.
+         */
+        private final int[] where = new int[BoardKnowledge.cellCount()];
+        /**
+         * Number of cells not attacked yet.
+         */
+        int count;
+        /**
+         * Cells next to hits, fired at before any others.
+         */
+        private final int[] targetCells = new int[BoardKnowledge.cellCount() * 4];
+        /**
+         * Number of cells in targetCells.
+         */
+        private int targetCount;
+        /**
+         * Creates a shooter.
+         * @param targets True if the cells around a hit are fired at first.
+         * @param parity True if hunting prefers every other cell.
+         */
+        Shooter(boolean targets, boolean parity) {
+            this.targets = targets;
+            this.parity = parity;
+        }
+        /**
+         * Forgets every cell, for a new play-out.
+         */
+        void clear() {
+            Arrays.fill(where, -1);
+            count = 0;
+            targetCount = 0;
+        }
+        /**
+         * Adds a cell that can still be fired at.
+         * @param cell The cell, as a BoardKnowledge.indexOf() value.
+         */
+        void addUnknown(int cell) {
+            where[cell] = count;
+            cells[count++] = cell;
+        }
+        /**
+         * Takes a cell out of the cells that can still be fired at.
+         * @param cell The cell.
+         */
+        private void remove(int cell) {
+            int place = where[cell];
+            int last = cells[--count];
+            cells[place] = last;
+            where[last] = place;
+            where[cell] = -1;
+        }
+        /**
+         * Records a hit, so the cells around it are fired at next if the shooter targets.
+         * @param cell The cell that was hit.
+         */
+        void hit(int cell) {
+            if (!targets) return;
+            int x = cell / SelectionGrid.GRID_HEIGHT;
+            int y = cell % SelectionGrid.GRID_HEIGHT;
+            if (x > 1) targetCells[targetCount++] = cell - SelectionGrid.GRID_HEIGHT;
+            if (x < SelectionGrid.GRID_WIDTH - 1) targetCells[targetCount++] = cell + SelectionGrid.GRID_HEIGHT;
+            if (y > 1) targetCells[targetCount++] = cell - 1;
+            if (y < SelectionGrid.GRID_HEIGHT - 1) targetCells[targetCount++] = cell + 1;
+        }
+        /**
+         * Picks the next cell to fire at and takes it out of the cells that can be fired at.
+         * There has to be one left.
+         * @param rand The random generator to use.
+         * @return The cell.
+         */
+        int next(Random rand) {
+            while (targetCount > 0) {
+                int cell = targetCells[--targetCount];
+                if (where[cell] >= 0) {
+                    remove(cell);
+                    return cell;
+                }
+            }
+            int cell = cells[rand.nextInt(count)];
+            for (int i = 0; parity && i < PARITY_TRIES && (cell / SelectionGrid.GRID_HEIGHT + cell % SelectionGrid.GRID_HEIGHT) % 2 != 0; i++) {
+                cell = cells[rand.nextInt(count)];
+            }
+            remove(cell);
+            return cell;
+        }
+    }
+    /**
+     * Starts working out the player's chance of winning a match in the background, stopping any
+     * estimate still running. Call it on the thread that plays the match, when it is the player's turn.
+     * @param match The match.
+     * @param onEstimate Given the chance from 0 to 1 on a pool thread when the estimate is done,
+     *                   unless it was cancelled first.
+     */
+    public void estimate(Match match, DoubleConsumer onEstimate) {
+        Job job = new Job(match);
+        synchronized (this) {
+            if (current != null) current.cancelled = true;
+            current = job;
+        }
+        POOL.execute(() -> {
+            try {
+                int[] result = new Rollouts(job, ROLLOUTS).invoke();
+                if (!job.cancelled && result[1] > 0) {
+                    onEstimate.accept((double) result[0] / result[1]);
+                }
+            } catch (RuntimeException e) {
+                LOG.error("Could not estimate the chance of winning", e);
+            }
+        });
+    }
+    /**
+     * Stops the estimate running, if any, without giving a result. Call it when the next shot comes in.
+     */
+    public synchronized void cancel() {
+        if (current != null) {
+            current.cancelled = true;
+            current = null;
+        }
+    }
+}